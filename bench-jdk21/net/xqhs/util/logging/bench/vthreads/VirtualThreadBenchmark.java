@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.bench.vthreads;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.xqhs.util.logging.LogSettings;
+import net.xqhs.util.logging.UnitComponent;
+import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
+import net.xqhs.util.logging.wrappers.BinaryLogWrapper;
+import net.xqhs.util.logging.wrappers.FileChannelWrapper;
+import net.xqhs.util.logging.wrappers.MappedFileWrapper;
+
+/**
+ * Benchmark for many virtual threads posting messages concurrently to the same log, checking that the logging path
+ * does not pin the carrier threads. It requires Java 21 and is therefore kept apart from the other benchmarks (and from
+ * the sources of the library, which are built for older versions of Java).
+ * <p>
+ * The console is replaced by a sink that parks the writing thread at each flush, simulating blocking output. Each
+ * configuration (the {@link LoggerType#CONSOLE} wrapper, synchronous and asynchronous, the file wrappers
+ * ({@link FileChannelWrapper}, {@link MappedFileWrapper} and {@link BinaryLogWrapper}, writing in a temporary
+ * directory), and the {@link LoggerType#LOG4J} wrapper, which uses monitors, for comparison) is run with a JFR
+ * recording of <code>jdk.VirtualThreadPinned</code> events, and the number of events is reported together with the
+ * throughput. The JVM may also be started with <code>-Djdk.tracePinnedThreads=full</code>, to print the stack of each
+ * thread that is pinned.
+ * <p>
+ * The benchmark is built and run with:
+ * 
+ * <pre>
+ * ant -f scripts/benchmarks.xml run-vthread-benchmark [-Dvthread.args="threads messages"]
+ * </pre>
+ * 
+ * @author Andrei Olaru
+ */
+public class VirtualThreadBenchmark
+{
+	/**
+	 * The default number of virtual threads.
+	 */
+	static final int	DEFAULT_THREADS		= 100000;
+	/**
+	 * The default number of messages posted by each thread.
+	 */
+	static final int	DEFAULT_MESSAGES	= 10;
+	/**
+	 * The time for which the sink parks the writing thread at each flush, in nanoseconds.
+	 */
+	static final long	FLUSH_PARK_NANOS	= 10000;
+	/**
+	 * The name of the JFR event for pinned virtual threads.
+	 */
+	static final String	PINNED_EVENT		= "jdk.VirtualThreadPinned";
+	
+	/**
+	 * A sink that discards output and parks the writing thread at each flush.
+	 */
+	static class BlockingSink extends OutputStream
+	{
+		@Override
+		public void write(int b)
+		{
+			// discard
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+			// discard
+		}
+		
+		@Override
+		public void flush()
+		{
+			LockSupport.parkNanos(FLUSH_PARK_NANOS);
+		}
+	}
+	
+	/**
+	 * Runs the benchmark.
+	 * 
+	 * @param args
+	 *            - optionally, the number of threads and the number of messages posted by each thread.
+	 * @throws Exception
+	 *             - if the recording fails.
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		int threads = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_THREADS;
+		int messages = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_MESSAGES;
+		PrintStream out = System.out;
+		out.println("threads: " + threads + ", messages per thread: " + messages);
+		Path directory = Files.createTempDirectory("vthreads");
+		FileChannelWrapper.configure(directory.toString(), FileChannelWrapper.SyncPolicy.NEVER,
+				FileChannelWrapper.DEFAULT_SYNC_PERIOD, FileChannelWrapper.DEFAULT_BUFFER_SIZE);
+		MappedFileWrapper.configure(directory.toString(), MappedFileWrapper.DEFAULT_SEGMENT_SIZE);
+		BinaryLogWrapper.configure(directory.resolve("vthreads.xqlb").toString());
+		for(boolean async : new boolean[] { false, true })
+			out.println(run(LoggerType.CONSOLE.getClassName(), async, threads, messages));
+		out.println(run(FileChannelWrapper.class.getName(), false, threads, messages));
+		out.println(run(MappedFileWrapper.class.getName(), false, threads, messages));
+		out.println(run(BinaryLogWrapper.class.getName(), false, threads, messages));
+		out.println(run(LoggerType.LOG4J.getClassName(), false, threads, messages));
+	}
+	
+	/**
+	 * Runs one configuration.
+	 * 
+	 * @param wrapper
+	 *            - the class of the wrapper.
+	 * @param async
+	 *            - <code>true</code> for an asynchronous log.
+	 * @param threads
+	 *            - the number of virtual threads.
+	 * @param messages
+	 *            - the number of messages posted by each thread.
+	 * @return the results.
+	 * @throws Exception
+	 *             - if the recording fails.
+	 */
+	static String run(String wrapper, boolean async, int threads, int messages) throws Exception
+	{
+		PrintStream out = System.out;
+		System.setOut(new PrintStream(new BlockingSink(), true));
+		LogSettings settings = new LogSettings();
+		if(async)
+			settings.setAsynchronous();
+		String type = wrapper.substring(wrapper.lastIndexOf('.') + 1);
+		UnitComponent log = (UnitComponent) new UnitComponent().setUnitName("vthreads-" + type + (async ? "-async" : ""))
+				.setLoggerClass(wrapper).setLogSettings(settings);
+		log.li("start");
+		
+		Path file = Files.createTempFile("vthreads", ".jfr");
+		long elapsed;
+		try(Recording recording = new Recording())
+		{
+			recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+			recording.start();
+			long start = System.nanoTime();
+			try(ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor())
+			{
+				for(int i = 0; i < threads; i++)
+				{
+					int id = i;
+					executor.submit(() -> {
+						for(int j = 0; j < messages; j++)
+							log.li("message [] from thread []", j, id);
+					});
+				}
+			}
+			elapsed = System.nanoTime() - start;
+			log.doExit();
+			recording.stop();
+			recording.dump(file);
+		} finally
+		{
+			System.setOut(out);
+		}
+		long pinned = 0;
+		RecordedEvent example = null;
+		for(RecordedEvent event : RecordingFile.readAllEvents(file))
+			if(event.getEventType().getName().equals(PINNED_EVENT))
+			{
+				pinned++;
+				if(example == null)
+					example = event;
+			}
+		Files.delete(file);
+		
+		long total = (long) threads * messages;
+		String result = String.format("%-18s %-5s %,12d messages in %,8d ms (%,10.0f messages/s), pinned events: %d", type,
+				async ? "async" : "sync", total, elapsed / 1000000, total * 1e9 / elapsed, pinned);
+		if(example != null)
+			result += "\n\tfirst pinned at: " + example.getStackTrace().getFrames().get(0).getMethod().getType().getName()
+					+ "." + example.getStackTrace().getFrames().get(0).getMethod().getName();
+		return result;
+	}
+}
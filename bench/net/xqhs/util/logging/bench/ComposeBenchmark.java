@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.xqhs.util.logging.Unit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for composing messages with {@link Unit#compose(String, Object[])}, for 0 to 8 arguments of various
+ * types.
+ * 
+ * @author Andrei Olaru
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComposeBenchmark
+{
+	/**
+	 * Gives access to the composition method of {@link Unit}.
+	 */
+	static class Composer extends Unit
+	{
+		/**
+		 * Composes a message.
+		 * 
+		 * @param message
+		 *            - the message.
+		 * @param arguments
+		 *            - the arguments.
+		 * @return the composed message.
+		 */
+		static String doCompose(String message, Object[] arguments)
+		{
+			return compose(message, arguments);
+		}
+	}
+	
+	/**
+	 * Arguments of various types, from which the arguments of the message are taken.
+	 */
+	static final Object[]	SAMPLE_ARGUMENTS	= { "agent", Integer.valueOf(42), Long.valueOf(1234567890123L),
+			Double.valueOf(3.25), Boolean.TRUE, "container-1", Character.valueOf('x'), new StringBuilder("state") };
+	
+	/**
+	 * The number of arguments of the message.
+	 */
+	@Param({ "0", "1", "2", "3", "4", "5", "6", "7", "8" })
+	int						argumentCount;
+	
+	/**
+	 * The message, containing one placeholder for each argument.
+	 */
+	String					message;
+	/**
+	 * The arguments.
+	 */
+	Object[]				arguments;
+	
+	/**
+	 * Builds the message and the arguments.
+	 */
+	@Setup
+	public void setup()
+	{
+		StringBuilder builder = new StringBuilder("message");
+		arguments = new Object[argumentCount];
+		for(int i = 0; i < argumentCount; i++)
+		{
+			builder.append(" arg").append(i).append(" []");
+			arguments[i] = SAMPLE_ARGUMENTS[i];
+		}
+		message = builder.toString();
+	}
+	
+	/**
+	 * @return the composed message.
+	 */
+	@Benchmark
+	public String compose()
+	{
+		return Composer.doCompose(message, arguments);
+	}
+}
@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.UnitComponent;
+import net.xqhs.util.logging.logging.LogWrapper;
+import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
+import net.xqhs.util.logging.logging.Logging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for multiple threads posting messages to the same log, and retrieving the same log from the registry, for
+ * 1, 2, 4 and as many threads as there are processors. Other numbers of threads can be used by giving the
+ * <code>-t</code> option to JMH, which overrides the annotations.
+ * 
+ * @author Andrei Olaru
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark
+{
+	/**
+	 * The name of the log.
+	 */
+	static final String	LOG_NAME	= "contentionBenchmark";
+	
+	/**
+	 * The type of wrapper used by the log.
+	 */
+	@Param({ "CONSOLE", "LOG4J" })
+	LoggerType			loggerType;
+	/**
+	 * The way in which messages reach the wrapper: directly (<code>SYNC</code>), through the asynchronous pipeline
+	 * (<code>ASYNC</code>), or through a buffer for each posting thread (<code>THREAD_BUFFERED</code>).
+	 */
+	@Param({ "SYNC", "ASYNC", "THREAD_BUFFERED" })
+	String				mode;
+	
+	/**
+	 * The unit shared by all threads.
+	 */
+	UnitComponent		unit;
+	
+	/**
+	 * Creates the unit and its log.
+	 */
+	@Setup
+	public void setup()
+	{
+		NullSink.redirectConsole();
+		unit = (UnitComponent) new UnitComponent().setUnitName(LOG_NAME).setLoggerType(loggerType)
+				.setLogLevel(Level.INFO);
+		if("ASYNC".equals(mode))
+			unit.setLogAsynchronous();
+		else if("THREAD_BUFFERED".equals(mode))
+			unit.setLogThreadBuffered();
+		unit.lock();
+	}
+	
+	/**
+	 * Exits the log.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		unit.doExit();
+		NullSink.restoreConsole();
+	}
+	
+	/**
+	 * Posts a message.
+	 */
+	protected void post()
+	{
+		unit.li("message of [] on []", "agent", "container");
+	}
+	
+	/**
+	 * Retrieves the log from the registry.
+	 * 
+	 * @return the log.
+	 * @throws ClassNotFoundException
+	 *             - if the wrapper cannot be instantiated.
+	 */
+	protected LogWrapper lookup() throws ClassNotFoundException
+	{
+		return Logging.getLogger(LOG_NAME, null, null, null, false, loggerType.getClassName(), null);
+	}
+	
+	/**
+	 * Posts messages from 1 thread.
+	 */
+	@Benchmark
+	@Threads(1)
+	public void post1()
+	{
+		post();
+	}
+	
+	/**
+	 * Posts messages from 2 threads.
+	 */
+	@Benchmark
+	@Threads(2)
+	public void post2()
+	{
+		post();
+	}
+	
+	/**
+	 * Posts messages from 4 threads.
+	 */
+	@Benchmark
+	@Threads(4)
+	public void post4()
+	{
+		post();
+	}
+	
+	/**
+	 * Posts messages from as many threads as there are processors.
+	 */
+	@Benchmark
+	@Threads(Threads.MAX)
+	public void postMax()
+	{
+		post();
+	}
+	
+	/**
+	 * Retrieves the log from 1 thread.
+	 * 
+	 * @return the log.
+	 * @throws ClassNotFoundException
+	 *             - if the wrapper cannot be instantiated.
+	 */
+	@Benchmark
+	@Threads(1)
+	public LogWrapper lookup1() throws ClassNotFoundException
+	{
+		return lookup();
+	}
+	
+	/**
+	 * Retrieves the log from 2 threads.
+	 * 
+	 * @return the log.
+	 * @throws ClassNotFoundException
+	 *             - if the wrapper cannot be instantiated.
+	 */
+	@Benchmark
+	@Threads(2)
+	public LogWrapper lookup2() throws ClassNotFoundException
+	{
+		return lookup();
+	}
+	
+	/**
+	 * Retrieves the log from 4 threads.
+	 * 
+	 * @return the log.
+	 * @throws ClassNotFoundException
+	 *             - if the wrapper cannot be instantiated.
+	 */
+	@Benchmark
+	@Threads(4)
+	public LogWrapper lookup4() throws ClassNotFoundException
+	{
+		return lookup();
+	}
+	
+	/**
+	 * Retrieves the log from as many threads as there are processors.
+	 * 
+	 * @return the log.
+	 * @throws ClassNotFoundException
+	 *             - if the wrapper cannot be instantiated.
+	 */
+	@Benchmark
+	@Threads(Threads.MAX)
+	public LogWrapper lookupMax() throws ClassNotFoundException
+	{
+		return lookup();
+	}
+}
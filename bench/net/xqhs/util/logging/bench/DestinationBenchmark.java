@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.bench;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.MultiDestinationWriter;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+import org.apache.log4j.spi.LoggingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for writing a message to several destinations, each with its own format, either with a
+ * {@link MultiDestinationWriter} or with one Log4J appender with a {@link PatternLayout} for each destination. The
+ * formats are those used by {@link net.xqhs.util.logging.logging.Logging} (console, display, reporter, in this order).
+ * 
+ * @author Andrei Olaru
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DestinationBenchmark
+{
+	/**
+	 * The name of the log.
+	 */
+	static final String		LOG_NAME	= "destinationBenchmark";
+	/**
+	 * The formats of the destinations.
+	 */
+	static final String[]	FORMATS		= { "%-5p [" + LOG_NAME + "]:\t %m%n", "%-5p \t %m%n",
+			"%d{HH:mm:ss:SSSS} %-5p [" + LOG_NAME + "]:\t %m" };
+	
+	/**
+	 * The number of destinations.
+	 */
+	@Param({ "1", "2", "3" })
+	int						destinations;
+	
+	/**
+	 * The writer.
+	 */
+	MultiDestinationWriter	writer;
+	/**
+	 * The appenders, one for each destination.
+	 */
+	Appender[]				appenders;
+	/**
+	 * The Log4J logger, for creating events.
+	 */
+	Logger					logger;
+	/**
+	 * The arguments of the message.
+	 */
+	Object[]				arguments	= { "agent", Integer.valueOf(42) };
+	
+	/**
+	 * Creates the writer and the appenders.
+	 */
+	@Setup
+	public void setup()
+	{
+		writer = new MultiDestinationWriter(LOG_NAME, Charset.defaultCharset());
+		appenders = new Appender[destinations];
+		for(int i = 0; i < destinations; i++)
+		{
+			writer.addDestination(FORMATS[i], new NullSink());
+			appenders[i] = new WriterAppender(new PatternLayout(FORMATS[i]), new NullSink());
+		}
+		logger = Logger.getLogger(LOG_NAME);
+	}
+	
+	/**
+	 * Writes a message with arguments with the {@link MultiDestinationWriter}.
+	 */
+	@Benchmark
+	public void writer()
+	{
+		writer.write(Level.INFO, System.currentTimeMillis(), Thread.currentThread().getName(), "message of [] []",
+				arguments);
+	}
+	
+	/**
+	 * Composes a message and writes it with the appenders.
+	 */
+	@Benchmark
+	public void appenders()
+	{
+		LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, System.currentTimeMillis(),
+				org.apache.log4j.Level.INFO, "message of [" + arguments[0] + "] [" + arguments[1] + "]", Thread
+						.currentThread().getName(), null, null, null, null);
+		for(Appender appender : appenders)
+			appender.doAppend(event);
+	}
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.bench;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * An {@link OutputStream} that discards everything written to it, used to replace the standard output and error
+ * streams during benchmarks.
+ * <p>
+ * The streams must be redirected before the logs are created, as some wrappers keep the stream that was current at
+ * the time of their creation.
+ * 
+ * @author Andrei Olaru
+ */
+public class NullSink extends OutputStream
+{
+	/**
+	 * The original standard output stream.
+	 */
+	protected static final PrintStream	originalOut	= System.out;
+	/**
+	 * The original standard error stream.
+	 */
+	protected static final PrintStream	originalErr	= System.err;
+	
+	/**
+	 * Replaces the standard output and error streams with sinks.
+	 */
+	public static void redirectConsole()
+	{
+		PrintStream sink = new PrintStream(new NullSink());
+		System.setOut(sink);
+		System.setErr(sink);
+	}
+	
+	/**
+	 * Restores the original standard output and error streams.
+	 */
+	public static void restoreConsole()
+	{
+		System.setOut(originalOut);
+		System.setErr(originalErr);
+	}
+	
+	@Override
+	public void write(int b)
+	{
+		// discard
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len)
+	{
+		// discard
+	}
+}
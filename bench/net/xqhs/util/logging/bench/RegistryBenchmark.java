@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.xqhs.util.logging.logging.LogWrapper;
+import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
+import net.xqhs.util.logging.logging.Logging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for creating and exiting logs by means of {@link Logging#getLogger} and {@link Logging#exitLogger}, and
+ * for retrieving existing logs, while a number of other logs are active.
+ * 
+ * @author Andrei Olaru
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegistryBenchmark
+{
+	/**
+	 * Prefix for the names of the logs.
+	 */
+	static final String	PREFIX	= "registryBenchmark-";
+	
+	/**
+	 * The number of other logs that are active during the benchmark.
+	 */
+	@Param({ "0", "100", "1000" })
+	int					activeLogs;
+	/**
+	 * The type of wrapper of the logs.
+	 */
+	@Param({ "CONSOLE", "LOG4J" })
+	LoggerType			loggerType;
+	
+	/**
+	 * Counter for generating new log names.
+	 */
+	long				counter	= 0;
+	
+	/**
+	 * Creates the other logs.
+	 * 
+	 * @throws ClassNotFoundException
+	 *             - if the wrapper cannot be instantiated.
+	 */
+	@Setup
+	public void setup() throws ClassNotFoundException
+	{
+		NullSink.redirectConsole();
+		for(int i = 0; i < activeLogs; i++)
+			Logging.getLogger(PREFIX + i, null, null, null, true, loggerType.getClassName(), null);
+		Logging.getLogger(PREFIX + "existing", null, null, null, true, loggerType.getClassName(), null);
+	}
+	
+	/**
+	 * Exits all logs.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		for(int i = 0; i < activeLogs; i++)
+			Logging.exitLogger(PREFIX + i);
+		Logging.exitLogger(PREFIX + "existing");
+		NullSink.restoreConsole();
+	}
+	
+	/**
+	 * Creates a new log and exits it.
+	 * 
+	 * @return the log that was created.
+	 * @throws ClassNotFoundException
+	 *             - if the wrapper cannot be instantiated.
+	 */
+	@Benchmark
+	public LogWrapper createAndExit() throws ClassNotFoundException
+	{
+		String name = PREFIX + "new-" + counter++;
+		LogWrapper log = Logging.getLogger(name, null, null, null, true, loggerType.getClassName(), null);
+		Logging.exitLogger(name);
+		return log;
+	}
+	
+	/**
+	 * Retrieves an existing log.
+	 * 
+	 * @return the log.
+	 * @throws ClassNotFoundException
+	 *             - if the wrapper cannot be instantiated.
+	 */
+	@Benchmark
+	public LogWrapper getExisting() throws ClassNotFoundException
+	{
+		return Logging.getLogger(PREFIX + "existing", null, null, null, false, loggerType.getClassName(), null);
+	}
+}
@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.Unit;
+import net.xqhs.util.logging.UnitComponent;
+import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for posting messages through a {@link Unit}, at a level that is disabled (the message is discarded) and
+ * at a level that is enabled (the message is composed and output by the wrapper). The level of the log is
+ * {@link Level#INFO}, so trace messages are disabled.
+ * 
+ * @author Andrei Olaru
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UnitLevelBenchmark
+{
+	/**
+	 * The type of wrapper used by the log.
+	 */
+	@Param({ "CONSOLE", "LOG4J", "JAVA" })
+	LoggerType		loggerType;
+	/**
+	 * <code>true</code> if the log is asynchronous (see {@link Unit#setLogAsynchronous()}).
+	 */
+	@Param({ "false", "true" })
+	boolean			asynchronous;
+	
+	/**
+	 * The unit.
+	 */
+	UnitComponent	unit;
+	/**
+	 * A value used as argument, changed at each call.
+	 */
+	int				counter	= 0;
+	
+	/**
+	 * Creates the unit and its log.
+	 */
+	@Setup
+	public void setup()
+	{
+		NullSink.redirectConsole();
+		unit = (UnitComponent) new UnitComponent().setUnitName("levelBenchmark").setLoggerType(loggerType)
+				.setLogLevel(Level.INFO);
+		if(asynchronous)
+			unit.setLogAsynchronous();
+		unit.lock();
+	}
+	
+	/**
+	 * Exits the log.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		unit.doExit();
+		NullSink.restoreConsole();
+	}
+	
+	/**
+	 * Posts a message without arguments at a disabled level.
+	 */
+	@Benchmark
+	public void disabledNoArguments()
+	{
+		unit.lf("disabled message");
+	}
+	
+	/**
+	 * Posts a message with five arguments, by means of the variable arguments method, at a disabled level.
+	 */
+	@Benchmark
+	public void disabledVarargs()
+	{
+		unit.lf("disabled message [] of [] on [] at [] in []", "agent", "container", "host", "node", "domain");
+	}
+	
+	/**
+	 * Posts a message with a primitive argument at a disabled level.
+	 */
+	@Benchmark
+	public void disabledPrimitive()
+	{
+		unit.lf("disabled message []", counter++);
+	}
+	
+	/**
+	 * Posts a message without arguments at an enabled level.
+	 */
+	@Benchmark
+	public void enabledNoArguments()
+	{
+		unit.li("enabled message");
+	}
+	
+	/**
+	 * Posts a message with two object arguments at an enabled level.
+	 */
+	@Benchmark
+	public void enabledObjectArguments()
+	{
+		unit.li("enabled message [] of []", "agent", "container");
+	}
+	
+	/**
+	 * Posts a message with five arguments, by means of the variable arguments method, at an enabled level.
+	 */
+	@Benchmark
+	public void enabledVarargs()
+	{
+		unit.li("enabled message [] of [] on [] at [] in []", "agent", "container", "host", "node", "domain");
+	}
+	
+	/**
+	 * Posts a message with a primitive argument at an enabled level.
+	 */
+	@Benchmark
+	public void enabledPrimitive()
+	{
+		unit.li("enabled message []", counter++);
+	}
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.LogWrapper;
+import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
+import net.xqhs.util.logging.logging.Logging;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for posting messages directly to the {@link LogWrapper} implementations, with the console output
+ * redirected to a {@link NullSink}.
+ * 
+ * @author Andrei Olaru
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WrapperBenchmark
+{
+	/**
+	 * The name of the log.
+	 */
+	static final String	LOG_NAME	= "wrapperBenchmark";
+	
+	/**
+	 * The type of wrapper.
+	 */
+	@Param({ "CONSOLE", "LOG4J", "JAVA" })
+	LoggerType			loggerType;
+	
+	/**
+	 * The wrapper.
+	 */
+	LogWrapper			wrapper;
+	/**
+	 * The arguments of the message.
+	 */
+	Object[]			arguments	= { "agent", Integer.valueOf(42) };
+	
+	/**
+	 * Creates the log.
+	 * 
+	 * @throws ClassNotFoundException
+	 *             - if the wrapper cannot be instantiated.
+	 */
+	@Setup
+	public void setup() throws ClassNotFoundException
+	{
+		NullSink.redirectConsole();
+		wrapper = Logging.getLogger(LOG_NAME, null, null, null, true, loggerType.getClassName(), Level.ALL);
+	}
+	
+	/**
+	 * Exits the log.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		Logging.exitLogger(LOG_NAME);
+		NullSink.restoreConsole();
+	}
+	
+	/**
+	 * Posts a message that is already composed.
+	 */
+	@Benchmark
+	public void composedMessage()
+	{
+		wrapper.l(Level.INFO, "message of agent 42");
+	}
+	
+	/**
+	 * Posts a message together with its arguments.
+	 */
+	@Benchmark
+	public void messageWithArguments()
+	{
+		wrapper.l(Level.INFO, "message of [] []", arguments);
+	}
+}
@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+/**
+ * This package contains the JMH benchmarks for the hot paths of the logging infrastructure: composing messages,
+ * posting messages at enabled and disabled levels, the {@link net.xqhs.util.logging.logging.LogWrapper}
+ * implementations, writing to multiple destinations, creating and exiting logs, and posting from multiple threads.
+ * The benchmark for updating the display and reporting entities is in {@link net.xqhs.util.logging.logging}, as it
+ * uses the internals of {@link net.xqhs.util.logging.logging.Logging}.
+ * <p>
+ * The benchmarks are built and run with <code>scripts/benchmarks.xml</code>, which downloads JMH in
+ * <code>lib/jmh/</code> if it is not already there. By default, all benchmarks are run, reporting throughput, average
+ * time and, by means of the GC profiler, the allocation rate:
+ * 
+ * <pre>
+ * ant -f scripts/benchmarks.xml
+ * </pre>
+ * 
+ * Other JMH options can be given in the <code>jmh.args</code> property, e.g. for running only some of the benchmarks:
+ * 
+ * <pre>
+ * ant -f scripts/benchmarks.xml -Djmh.args="-bm avgt -prof gc ComposeBenchmark"
+ * </pre>
+ * 
+ * All console output of the logs is redirected to a sink (see {@link net.xqhs.util.logging.bench.NullSink}), so that
+ * the cost of the terminal is not measured.
+ */
+package net.xqhs.util.logging.bench;
+
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import net.xqhs.util.logging.BufferReportingEntity;
+import net.xqhs.util.logging.IncrementalDisplayEntity;
+import net.xqhs.util.logging.LogSettings;
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.ReportingEntity;
+import net.xqhs.util.logging.bench.NullSink;
+import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for {@link Logging#updateLogText()} and {@link Logging#updateReport()}, against logs already containing
+ * various numbers of messages. Each invocation posts one message and then updates the display or the reporting
+ * entity. The periodic updates are delayed so that they do not interfere with the benchmark.
+ * <p>
+ * The benchmark is in this package because the update methods are internal to {@link Logging}.
+ * 
+ * @author Andrei Olaru
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogUpdateBenchmark
+{
+	/**
+	 * The name of the log.
+	 */
+	static final String	LOG_NAME		= "updateBenchmark";
+	/**
+	 * The delay of the periodic updates, in milliseconds.
+	 */
+	static final long	UPDATE_DELAY	= TimeUnit.HOURS.toMillis(1);
+	
+	/**
+	 * The number of messages in the log before the benchmark.
+	 */
+	@Param({ "1000", "10000", "100000" })
+	int					initialMessages;
+	/**
+	 * <code>true</code> if the reporting entity receives the output as buffers (see
+	 * {@link BufferReportingEntity}).
+	 */
+	@Param({ "false", "true" })
+	boolean				bufferReporter;
+	
+	/**
+	 * The log.
+	 */
+	Logging				log;
+	/**
+	 * The wrapper of the log.
+	 */
+	LogWrapper			wrapper;
+	/**
+	 * The number of characters received by the entities, so that their work is not eliminated.
+	 */
+	long				received		= 0;
+	
+	/**
+	 * Creates the log and posts the initial messages.
+	 * 
+	 * @throws ClassNotFoundException
+	 *             - if the wrapper cannot be instantiated.
+	 */
+	@Setup
+	public void setup() throws ClassNotFoundException
+	{
+		NullSink.redirectConsole();
+		IncrementalDisplayEntity display = new IncrementalDisplayEntity() {
+			@Override
+			public void output(String string)
+			{
+				received += string.length();
+			}
+			
+			@Override
+			public void append(String update)
+			{
+				received += update.length();
+			}
+		};
+		ReportingEntity reporter;
+		if(bufferReporter)
+			reporter = new BufferReportingEntity() {
+				@Override
+				public boolean report(String content)
+				{
+					received += content.length();
+					return true;
+				}
+				
+				@Override
+				public boolean report(ByteBuffer[] content, Charset charset)
+				{
+					for(ByteBuffer buffer : content)
+						received += buffer.remaining();
+					return true;
+				}
+			};
+		else
+			reporter = new ReportingEntity() {
+				@Override
+				public boolean report(String content)
+				{
+					received += content.length();
+					return true;
+				}
+			};
+		LogSettings settings = new LogSettings().setDisplayUpdateDelay(UPDATE_DELAY).setReportUpdateDelay(
+				UPDATE_DELAY);
+		wrapper = Logging.getLogger(LOG_NAME, null, display, reporter, true, LoggerType.LOG4J.getClassName(),
+				Level.ALL, settings);
+		log = Logging.logs.get(LOG_NAME);
+		for(int i = 0; i < initialMessages; i++)
+			wrapper.l(Level.INFO, "initial message " + i);
+		log.updateLogText();
+		log.updateReport();
+	}
+	
+	/**
+	 * Exits the log.
+	 */
+	@TearDown
+	public void tearDown()
+	{
+		Logging.exitLogger(LOG_NAME);
+		NullSink.restoreConsole();
+	}
+	
+	/**
+	 * Posts a message and updates the display entity.
+	 * 
+	 * @return the number of characters received so far.
+	 */
+	@Benchmark
+	public long updateLogText()
+	{
+		wrapper.l(Level.INFO, "new message");
+		log.updateLogText();
+		return received;
+	}
+	
+	/**
+	 * Posts a message and updates the reporting entity.
+	 * 
+	 * @return the number of characters received so far.
+	 */
+	@Benchmark
+	public long updateReport()
+	{
+		wrapper.l(Level.INFO, "new message");
+		log.updateReport();
+		return received;
+	}
+}
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging;
+
+/**
+ * Interface for a logging argument whose value is expensive to compute. Instances can be passed as arguments to the
+ * logging primitives in {@link LoggerSimple}; the value is computed (by calling {@link #get()}) only if the message is
+ * actually going to be output, and it is placed in the message in place of the supplier.
+ * <p>
+ * The value may be computed on another thread than the one which posted the message (e.g. for asynchronous logs) and
+ * may be computed more than once (once for each destination that renders the message).
+ * 
+ * @author Andrei Olaru
+ */
+public interface ArgumentSupplier
+{
+	/**
+	 * Computes the value of the argument.
+	 * 
+	 * @return the value to place in the message.
+	 */
+	Object get();
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging;
+
+import java.util.List;
+
+/**
+ * Extension of {@link ReportingEntity} for entities that receive the output of the log as batches of discrete
+ * records (one record for each logging message), e.g. for sending them to remote collectors.
+ * <p>
+ * A batch is sent when enough records or bytes are waiting, or when the oldest waiting record has waited long enough
+ * (see {@link LogSettings#setReportBatching(int, long, long)}). If the entity fails, the same records are sent again
+ * after a delay that grows with each consecutive failure (see {@link LogSettings#setReportBackoff(long, long)}).
+ * Meanwhile, the records that are waiting are limited in size (see {@link LogSettings#setReportBacklog(long)}); the
+ * oldest records beyond the limit are dropped.
+ * <p>
+ * The {@link #report(String)} method is not called by the logging infrastructure for such entities.
+ * 
+ * @author Andrei Olaru
+ */
+public interface BatchReportingEntity extends ReportingEntity
+{
+	/**
+	 * The method is called when a batch of records is ready.
+	 * 
+	 * @param records
+	 *            - the records, in order, each containing time stamp, level, log name and message. The list may be
+	 *            used after the call returns.
+	 * @return true if the batch has been reported correctly. Otherwise, the same records (except for any that are
+	 *         dropped meanwhile) will be reported again later.
+	 */
+	public boolean report(List<String> records);
+}
@@ -0,0 +1,42 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Extension of {@link ReportingEntity} for entities that are able to receive log updates as encoded bytes. Updates are
+ * given as read-only views on the in-memory output of the log, so no copying or decoding is done by the logging
+ * infrastructure.
+ * <p>
+ * The {@link #report(String)} method is not called by the logging infrastructure for such entities.
+ * 
+ * @author Andrei Olaru
+ */
+public interface BufferReportingEntity extends ReportingEntity
+{
+	/**
+	 * The method will be called at intervals of <code>reportUpdateDelay</code>, if new logging information exist
+	 * since the last call.
+	 * 
+	 * @param content
+	 *            - read-only views containing, in order, the new logging information since the last successful call of
+	 *            this function. Unlike the content given to {@link #report(String)}, it is not trimmed. The content
+	 *            always ends at the end of a logging message. The views may be used after the call returns.
+	 * @param charset
+	 *            - the charset in which the content is encoded.
+	 * @return true if the reporting has completed correctly. Otherwise, the same information will be reported again
+	 *         at the next call.
+	 */
+	public boolean report(ByteBuffer[] content, Charset charset);
+}
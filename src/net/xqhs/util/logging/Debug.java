@@ -16,6 +16,9 @@ package net.xqhs.util.logging;
  * Class containing different debug items that can be activated or deactivated by editing this class. Works together
  * with the method <code>dbg()</code> in {@link LoggerSimple} or similar implementations.
  * <p>
+ * The value given in the enum is the default activation state of the item. Items can be activated or deactivated at
+ * runtime by means of the {@link DebugRegistry}.
+ * <p>
  * For documentation purposes, classes containing {@link LocalDebugItem} enums should extend the {@link Debug} class.
  * <p>
  * Each project must contain its own class(es) extending {@link Debug}, holding an enum the implements {@link DebugItem}
@@ -34,8 +37,8 @@ public class Debug
 	public interface DebugItem
 	{
 		/**
-		 * Computes the activation state of the constant. The method is invoked during the <code>dbg()</code> call for
-		 * the specified debug constant.
+		 * Computes the default activation state of the constant. The method is invoked when the constant is first
+		 * registered with the {@link DebugRegistry}, which holds the current activation state.
 		 * 
 		 * @return the activation state.
 		 */
@@ -0,0 +1,380 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import net.xqhs.util.logging.Debug.DebugItem;
+
+/**
+ * Central registry of the activation state of {@link DebugItem} instances, which allows debug items to be activated
+ * and deactivated at runtime, individually or by type, either by means of the static methods of this class or by means
+ * of the platform MBean <code>net.xqhs.util.logging:type=DebugRegistry</code> (see {@link DebugRegistryMBean}).
+ * <p>
+ * Each item gets a bit in a global bitset the first time it is used. When an item of an enumeration is registered, all
+ * the items of the enumeration are registered. The initial state of an item is the value returned by its
+ * {@link DebugItem#toBool()} method, so existing enumerations work unchanged, with the value given in their
+ * constructor as default.
+ * <p>
+ * Checking an item is a lookup of its index in a concurrent map, and a single volatile read of the bitset. Changes are
+ * rare, so the bitset is copied on each change.
+ * 
+ * @author Andrei Olaru
+ */
+public class DebugRegistry
+{
+	/**
+	 * The management interface of the registry.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static interface DebugRegistryMBean
+	{
+		/**
+		 * @return the names of all registered items, followed by their activation state (e.g.
+		 *         <code>com.example.MyDebug.D_ITEM=true</code>).
+		 */
+		public String[] getItems();
+		
+		/**
+		 * Activates or deactivates an item.
+		 * 
+		 * @param item
+		 *            - the full name of the item (the name of the enumeration and the name of the constant, separated
+		 *            by a dot).
+		 * @param active
+		 *            - the activation state.
+		 * @return <code>true</code> if the item was found.
+		 */
+		public boolean setActive(String item, boolean active);
+		
+		/**
+		 * Activates or deactivates all items of a type.
+		 * 
+		 * @param type
+		 *            - the name of the class of the items.
+		 * @param active
+		 *            - the activation state.
+		 * @return the number of items that were changed.
+		 */
+		public int setTypeActive(String type, boolean active);
+	}
+	
+	/**
+	 * The name of the MBean of the registry.
+	 */
+	public static final String						OBJECT_NAME	= "net.xqhs.util.logging:type=DebugRegistry";
+	
+	/**
+	 * The index of each registered item.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected static ConcurrentMap<DebugItem, Integer>	indexes		= new ConcurrentHashMap<DebugItem, Integer>();
+	/**
+	 * The registered items, by index. Only modified while holding {@link #lock}.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected static List<DebugItem>					items		= new ArrayList<DebugItem>();
+	/**
+	 * The activation state of the registered items, one bit for each index. The array is replaced on each change, while
+	 * holding {@link #lock}.
+	 */
+	protected static volatile long[]					bits		= new long[1];
+	/**
+	 * The lock guarding changes to the registry.
+	 */
+	protected static final ReentrantLock				lock		= new ReentrantLock();
+	
+	static
+	{
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(
+					new StandardMBean(new DebugRegistryMBean() {
+						@Override
+						public String[] getItems()
+						{
+							return DebugRegistry.getItems();
+						}
+						
+						@Override
+						public boolean setActive(String item, boolean active)
+						{
+							return DebugRegistry.setActive(item, active);
+						}
+						
+						@Override
+						public int setTypeActive(String type, boolean active)
+						{
+							return DebugRegistry.setTypeActive(type, active);
+						}
+					}, DebugRegistryMBean.class), new ObjectName(OBJECT_NAME));
+		} catch(JMException e)
+		{
+			// the registry is already registered (e.g. by another class loader); the API remains available
+		}
+	}
+	
+	/**
+	 * Checks if an item is active.
+	 * 
+	 * @param item
+	 *            - the item.
+	 * @return the activation state.
+	 */
+	public static boolean isActive(DebugItem item)
+	{
+		Integer index = indexes.get(item);
+		int i = (index != null) ? index.intValue() : register(item);
+		return (bits[i >>> 6] & (1L << i)) != 0;
+	}
+	
+	/**
+	 * Activates or deactivates an item.
+	 * 
+	 * @param item
+	 *            - the item.
+	 * @param active
+	 *            - the activation state.
+	 */
+	public static void setActive(DebugItem item, boolean active)
+	{
+		Integer index = indexes.get(item);
+		set((index != null) ? index.intValue() : register(item), active);
+	}
+	
+	/**
+	 * Activates or deactivates all items of an enumeration.
+	 * 
+	 * @param type
+	 *            - the enumeration.
+	 * @param active
+	 *            - the activation state.
+	 */
+	public static void setActive(Class<? extends DebugItem> type, boolean active)
+	{
+		DebugItem[] constants = type.getEnumConstants();
+		if(constants == null)
+			throw new IllegalArgumentException("Type is not an enumeration: " + type.getName());
+		for(DebugItem item : constants)
+			setActive(item, active);
+	}
+	
+	/**
+	 * Restores the initial state of an item, as returned by its {@link DebugItem#toBool()} method.
+	 * 
+	 * @param item
+	 *            - the item.
+	 */
+	public static void reset(DebugItem item)
+	{
+		setActive(item, item.toBool());
+	}
+	
+	/**
+	 * Activates or deactivates an item, by name.
+	 * 
+	 * @param name
+	 *            - the full name of the item (the name of the enumeration and the name of the constant, separated by a
+	 *            dot).
+	 * @param active
+	 *            - the activation state.
+	 * @return <code>true</code> if the item was found.
+	 */
+	public static boolean setActive(String name, boolean active)
+	{
+		int dot = name.lastIndexOf('.');
+		if(dot > 0)
+			registerType(name.substring(0, dot));
+		for(DebugItem item : snapshot())
+			if(nameOf(item).equals(name))
+			{
+				setActive(item, active);
+				return true;
+			}
+		return false;
+	}
+	
+	/**
+	 * Activates or deactivates all items of a type, by name.
+	 * 
+	 * @param type
+	 *            - the name of the class of the items.
+	 * @param active
+	 *            - the activation state.
+	 * @return the number of items that were changed.
+	 */
+	public static int setTypeActive(String type, boolean active)
+	{
+		registerType(type);
+		int count = 0;
+		for(DebugItem item : snapshot())
+			if(typeOf(item).getName().equals(type))
+			{
+				setActive(item, active);
+				count++;
+			}
+		return count;
+	}
+	
+	/**
+	 * @return the names of all registered items, followed by their activation state.
+	 */
+	public static String[] getItems()
+	{
+		List<DebugItem> all = snapshot();
+		String[] result = new String[all.size()];
+		for(int i = 0; i < result.length; i++)
+			result[i] = nameOf(all.get(i)) + "=" + isActive(all.get(i));
+		return result;
+	}
+	
+	/**
+	 * Registers an item and, if it is a constant of an enumeration, all the constants of the enumeration. Items that
+	 * are already registered keep their state.
+	 * 
+	 * @param item
+	 *            - the item.
+	 * @return the index of the item.
+	 */
+	protected static int register(DebugItem item)
+	{
+		lock.lock();
+		try
+		{
+			Class<?> type = typeOf(item);
+			if(type.isEnum())
+				for(Object constant : type.getEnumConstants())
+					add((DebugItem) constant);
+			return add(item);
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Adds an item with its initial state, if not already added. Must be called while holding {@link #lock}.
+	 * 
+	 * @param item
+	 *            - the item.
+	 * @return the index of the item.
+	 */
+	protected static int add(DebugItem item)
+	{
+		Integer index = indexes.get(item);
+		if(index != null)
+			return index.intValue();
+		int i = items.size();
+		items.add(item);
+		set(i, item.toBool());
+		indexes.put(item, Integer.valueOf(i));
+		return i;
+	}
+	
+	/**
+	 * Sets the bit of an item.
+	 * 
+	 * @param index
+	 *            - the index of the item.
+	 * @param active
+	 *            - the activation state.
+	 */
+	protected static void set(int index, boolean active)
+	{
+		lock.lock();
+		try
+		{
+			long[] current = bits;
+			long[] updated = new long[Math.max(current.length, (index >>> 6) + 1)];
+			System.arraycopy(current, 0, updated, 0, current.length);
+			if(active)
+				updated[index >>> 6] |= 1L << index;
+			else
+				updated[index >>> 6] &= ~(1L << index);
+			bits = updated;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Registers the items of an enumeration, by name, if the class can be loaded and is an enumeration of
+	 * {@link DebugItem} constants.
+	 * 
+	 * @param type
+	 *            - the name of the class.
+	 */
+	protected static void registerType(String type)
+	{
+		try
+		{
+			Class<?> c = Class.forName(type);
+			if(c.isEnum() && DebugItem.class.isAssignableFrom(c) && (c.getEnumConstants().length > 0))
+				register((DebugItem) c.getEnumConstants()[0]);
+		} catch(ClassNotFoundException e)
+		{
+			// not a class; only items that are already registered are considered
+		}
+	}
+	
+	/**
+	 * @return a copy of the list of registered items.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected static List<DebugItem> snapshot()
+	{
+		lock.lock();
+		try
+		{
+			return new ArrayList<DebugItem>(items);
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @param item
+	 *            - an item.
+	 * @return the class of the item (for constants of enumerations, the enumeration).
+	 */
+	protected static Class<?> typeOf(DebugItem item)
+	{
+		if(item instanceof Enum)
+			return ((Enum<?>) item).getDeclaringClass();
+		return item.getClass();
+	}
+	
+	/**
+	 * @param item
+	 *            - an item.
+	 * @return the full name of the item.
+	 */
+	protected static String nameOf(DebugItem item)
+	{
+		return typeOf(item).getName() + "." + ((item instanceof Enum) ? ((Enum<?>) item).name() : item.toString());
+	}
+}
@@ -15,6 +15,9 @@ package net.xqhs.util.logging;
  * Interface for an entity that is able to display the log (e.g. in a visual interface). Updates will be posted
  * immediately. The {@link #output(String)} method is called with the entire log as argument, using logging messages
  * with just the level ad the content.
+ * <p>
+ * Entities that are able to add new messages to what they already display should implement
+ * {@link IncrementalDisplayEntity} instead, in order to avoid receiving the entire log at every update.
  * 
  * @author Andrei Olaru
  * 
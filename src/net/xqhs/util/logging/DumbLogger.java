@@ -1,6 +1,7 @@
 package net.xqhs.util.logging;
 
 import net.xqhs.util.logging.Debug.DebugItem;
+import net.xqhs.util.logging.logging.ConsoleSink;
 
 /**
  * This class acts as a simple implementation for the {@link Logger} interface, not connected to any of the actual
@@ -14,9 +15,9 @@ import net.xqhs.util.logging.Debug.DebugItem;
  * A 'preamble' is used for messages to mark the fact that they are printed out by this class. An alternative to the
  * default preamble (#) can be given in the constructor.
  * <p>
- * It prints all messages to the standard output. The only feature is that it assembles messages by replacing
- * {@value LoggerSimple#ARGUMENT_PLACEHOLDER} groups in the message with arguments received by methods (by calling
- * {@link Unit#compose}.
+ * It prints all messages to the standard output (through the {@link ConsoleSink}, if it is enabled). The only feature
+ * is that it assembles messages by replacing {@value LoggerSimple#ARGUMENT_PLACEHOLDER} groups in the message with
+ * arguments received by methods (by calling {@link Unit#compose}.
  * 
  * @author Andrei Olaru
  */
@@ -26,7 +27,7 @@ public class DumbLogger implements Logger
 	 * The static instance.
 	 */
 	protected final static Logger staticInstance = new DumbLogger();
-
+	
 	/**
 	 * Preamble to insert at the beginning of messages.
 	 */
@@ -68,7 +69,10 @@ public class DumbLogger implements Logger
 	 */
 	protected void l(String message, Object... arguments)
 	{
-		System.out.println(pre + " " + Unit.compose(message, arguments));
+		String line = pre + " " + Unit.compose(message, arguments);
+		ConsoleSink sink = ConsoleSink.get();
+		if((sink == null) || !sink.println(line))
+			System.out.println(line);
 	}
 	
 	@Override
@@ -77,24 +81,288 @@ public class DumbLogger implements Logger
 		l(message, arguments);
 	}
 	
+	@Override
+	public void le(String message)
+	{
+		l(message);
+	}
+	
+	@Override
+	public void le(String message, Object argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void le(String message, Object argument1, Object argument2)
+	{
+		l(message, argument1, argument2);
+	}
+	
+	@Override
+	public void le(String message, Object argument1, Object argument2, Object argument3)
+	{
+		l(message, argument1, argument2, argument3);
+	}
+	
+	@Override
+	public void le(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		l(message, argument1, argument2, argument3, argument4);
+	}
+	
+	@Override
+	public void le(String message, int argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void le(String message, long argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void le(String message, double argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void le(String message, boolean argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void le(String message, char argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void le(String message, float argument)
+	{
+		l(message, argument);
+	}
+	
 	@Override
 	public void lw(String message, Object... arguments)
 	{
 		l(message, arguments);
 	}
 	
+	@Override
+	public void lw(String message)
+	{
+		l(message);
+	}
+	
+	@Override
+	public void lw(String message, Object argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, Object argument1, Object argument2)
+	{
+		l(message, argument1, argument2);
+	}
+	
+	@Override
+	public void lw(String message, Object argument1, Object argument2, Object argument3)
+	{
+		l(message, argument1, argument2, argument3);
+	}
+	
+	@Override
+	public void lw(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		l(message, argument1, argument2, argument3, argument4);
+	}
+	
+	@Override
+	public void lw(String message, int argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, long argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, double argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, boolean argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, char argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, float argument)
+	{
+		l(message, argument);
+	}
+	
 	@Override
 	public void li(String message, Object... arguments)
 	{
 		l(message, arguments);
 	}
 	
+	@Override
+	public void li(String message)
+	{
+		l(message);
+	}
+	
+	@Override
+	public void li(String message, Object argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void li(String message, Object argument1, Object argument2)
+	{
+		l(message, argument1, argument2);
+	}
+	
+	@Override
+	public void li(String message, Object argument1, Object argument2, Object argument3)
+	{
+		l(message, argument1, argument2, argument3);
+	}
+	
+	@Override
+	public void li(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		l(message, argument1, argument2, argument3, argument4);
+	}
+	
+	@Override
+	public void li(String message, int argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void li(String message, long argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void li(String message, double argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void li(String message, boolean argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void li(String message, char argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void li(String message, float argument)
+	{
+		l(message, argument);
+	}
+	
 	@Override
 	public void lf(String message, Object... arguments)
 	{
 		l(message, arguments);
 	}
 	
+	@Override
+	public void lf(String message)
+	{
+		l(message);
+	}
+	
+	@Override
+	public void lf(String message, Object argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, Object argument1, Object argument2)
+	{
+		l(message, argument1, argument2);
+	}
+	
+	@Override
+	public void lf(String message, Object argument1, Object argument2, Object argument3)
+	{
+		l(message, argument1, argument2, argument3);
+	}
+	
+	@Override
+	public void lf(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		l(message, argument1, argument2, argument3, argument4);
+	}
+	
+	@Override
+	public void lf(String message, int argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, long argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, double argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, boolean argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, char argument)
+	{
+		l(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, float argument)
+	{
+		l(message, argument);
+	}
+	
 	@Override
 	public Object lr(Object ret)
 	{
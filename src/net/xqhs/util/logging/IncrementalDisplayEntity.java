@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging;
+
+/**
+ * Extension of {@link DisplayEntity} for entities that are able to display the log incrementally. Instead of receiving
+ * the entire log at each update, the entity only receives the logging messages that were posted since the previous
+ * update, by means of {@link #append(String)}.
+ * <p>
+ * The {@link #output(String)} method is not called by the logging infrastructure for incremental display entities.
+ * 
+ * @author Andrei Olaru
+ * 
+ */
+public interface IncrementalDisplayEntity extends DisplayEntity
+{
+	/**
+	 * The method is called whenever new logging information is posted.
+	 * 
+	 * @param update
+	 *            - the logging messages posted since the previous call, using the same form as the one used for
+	 *            {@link DisplayEntity#output(String)}.
+	 */
+	void append(String update);
+}
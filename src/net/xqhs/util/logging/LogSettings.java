@@ -0,0 +1,770 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging;
+
+import java.util.Arrays;
+
+import net.xqhs.util.config.Config;
+import net.xqhs.util.config.Config.ConfigLockedException;
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.AsyncLogPipeline;
+import net.xqhs.util.logging.logging.Logging;
+
+/**
+ * A sub-configuration holding the settings of a log that are used by {@link Logging} when the log is created, beside
+ * the ones that identify the log (name, link, wrapper) and its destinations.
+ * <p>
+ * An instance can be given to a {@link Unit} by means of {@link Unit#setLogSettings(LogSettings)}, or passed directly
+ * to the version of <code>Logging.getLogger()</code> that accepts settings. The settings only have effect when the log
+ * is created.
+ * 
+ * @author Andrei Olaru
+ */
+public class LogSettings extends Config
+{
+	/**
+	 * The default delay between updates of the {@link DisplayEntity} of the log, in milliseconds.
+	 */
+	public static final long	DEFAULT_DISPLAY_UPDATE_DELAY	= 250;
+	/**
+	 * The default delay between updates of the {@link ReportingEntity} of the log, in milliseconds.
+	 */
+	public static final long	DEFAULT_REPORT_UPDATE_DELAY		= 2000;
+	/**
+	 * The default maximum number of records in a batch sent to a {@link BatchReportingEntity}.
+	 */
+	public static final int		DEFAULT_BATCH_RECORDS			= 100;
+	/**
+	 * The default maximum size of a batch sent to a {@link BatchReportingEntity}, in bytes.
+	 */
+	public static final long	DEFAULT_BATCH_BYTES				= 65536;
+	/**
+	 * The default maximum time a record waits before being sent to a {@link BatchReportingEntity}, in milliseconds.
+	 */
+	public static final long	DEFAULT_BATCH_LATENCY			= DEFAULT_REPORT_UPDATE_DELAY;
+	/**
+	 * The default delay before retrying after a {@link BatchReportingEntity} has failed, in milliseconds.
+	 */
+	public static final long	DEFAULT_BACKOFF_INITIAL			= 1000;
+	/**
+	 * The default maximum delay before retrying after repeated failures of a {@link BatchReportingEntity}, in
+	 * milliseconds.
+	 */
+	public static final long	DEFAULT_BACKOFF_MAX				= 60000;
+	/**
+	 * The default maximum size of the records not yet sent to a {@link BatchReportingEntity}, in bytes.
+	 */
+	public static final long	DEFAULT_BACKLOG_BYTES			= 1 << 20;
+	/**
+	 * The default period of the summaries of suppressed messages, in milliseconds.
+	 */
+	public static final long	DEFAULT_SUPPRESSION_SUMMARY		= 10000;
+	/**
+	 * The default number of messages that each thread can post to a thread-buffered log before its buffer is drained.
+	 */
+	public static final int		DEFAULT_THREAD_BUFFER_CAPACITY	= 1024;
+	/**
+	 * The default period at which the buffers of a thread-buffered log are drained, in milliseconds.
+	 */
+	public static final long	DEFAULT_THREAD_BUFFER_PERIOD	= 20;
+	
+	/**
+	 * If <code>true</code>, messages are relayed to the log wrapper asynchronously, through an
+	 * {@link AsyncLogPipeline}.
+	 */
+	boolean				asynchronous		= false;
+	/**
+	 * The {@link AsyncLogPipeline} to use for asynchronous logging. If <code>null</code>, the default pipeline is used.
+	 */
+	AsyncLogPipeline	asyncPipeline		= null;
+	/**
+	 * The delay between updates of the {@link DisplayEntity}, in milliseconds.
+	 */
+	long				displayUpdateDelay	= DEFAULT_DISPLAY_UPDATE_DELAY;
+	/**
+	 * The delay between updates of the {@link ReportingEntity}, in milliseconds.
+	 */
+	long				reportUpdateDelay	= DEFAULT_REPORT_UPDATE_DELAY;
+	/**
+	 * The maximum number of messages to retain in the in-memory history of the log; 0 for no limit.
+	 */
+	int					retentionRecords	= 0;
+	/**
+	 * The maximum size of the in-memory history of the log, in bytes; 0 for no limit.
+	 */
+	long				retentionBytes		= 0;
+	/**
+	 * The maximum age of messages in the in-memory history of the log, in milliseconds; 0 for no limit.
+	 */
+	long				retentionAge		= 0;
+	/**
+	 * The maximum number of records in a batch sent to a {@link BatchReportingEntity}.
+	 */
+	int					batchRecords		= DEFAULT_BATCH_RECORDS;
+	/**
+	 * The maximum size of a batch sent to a {@link BatchReportingEntity}, in bytes.
+	 */
+	long				batchBytes			= DEFAULT_BATCH_BYTES;
+	/**
+	 * The maximum time a record waits before being sent to a {@link BatchReportingEntity}, in milliseconds.
+	 */
+	long				batchLatency		= DEFAULT_BATCH_LATENCY;
+	/**
+	 * The delay before retrying after a {@link BatchReportingEntity} has failed, in milliseconds.
+	 */
+	long				backoffInitial		= DEFAULT_BACKOFF_INITIAL;
+	/**
+	 * The maximum delay before retrying after repeated failures of a {@link BatchReportingEntity}, in milliseconds.
+	 */
+	long				backoffMax			= DEFAULT_BACKOFF_MAX;
+	/**
+	 * The maximum size of the records not yet sent to a {@link BatchReportingEntity}, in bytes; 0 for no limit.
+	 */
+	long				backlogBytes		= DEFAULT_BACKLOG_BYTES;
+	/**
+	 * The highest level to which the rate limit of the log applies; <code>null</code> if the log is not rate-limited.
+	 */
+	Level				rateLimitLevel		= null;
+	/**
+	 * The rate limit of the log, in messages per second.
+	 */
+	double				rateLimit			= 0;
+	/**
+	 * The number of messages that can be posted at once, within the rate limit of the log.
+	 */
+	int					rateLimitBurst		= 0;
+	/**
+	 * The highest level to which the rate limit for each template applies; <code>null</code> if templates are not
+	 * rate-limited.
+	 */
+	Level				templateLimitLevel	= null;
+	/**
+	 * The rate limit for each template, in messages per second.
+	 */
+	double				templateLimit		= 0;
+	/**
+	 * The number of messages with the same template that can be posted at once, within the rate limit.
+	 */
+	int					templateLimitBurst	= 0;
+	/**
+	 * For each level (by ordinal), the n for which 1 in n messages is kept; 0 or 1 for keeping all messages.
+	 */
+	int[]				samplingRates		= new int[Level.values().length];
+	/**
+	 * For each level (by ordinal), the probability for a message to be kept.
+	 */
+	double[]			samplingProbabilities;
+	/**
+	 * The period of the summaries of suppressed messages, in milliseconds.
+	 */
+	long				suppressionSummary	= DEFAULT_SUPPRESSION_SUMMARY;
+	/**
+	 * The maximum time for which repetitions of a message are held back before their number is posted, in
+	 * milliseconds; 0 if repeated messages are not collapsed.
+	 */
+	long				collapseTimeout		= 0;
+	/**
+	 * The number of messages that each thread can post to the log before its buffer is drained; 0 if the log is not
+	 * thread-buffered.
+	 */
+	int					threadBufferSize	= 0;
+	/**
+	 * The period at which the buffers of a thread-buffered log are drained, in milliseconds.
+	 */
+	long				threadFlushPeriod	= DEFAULT_THREAD_BUFFER_PERIOD;
+	
+	/**
+	 * Creates a new set of settings, with default values.
+	 */
+	public LogSettings()
+	{
+		super();
+		samplingProbabilities = new double[Level.values().length];
+		Arrays.fill(samplingProbabilities, 1);
+	}
+	
+	/**
+	 * Calls the {@link Config#locked()} method and converts the exception, so that setters fail if the settings have
+	 * been locked.
+	 * 
+	 * @throws IllegalStateException
+	 *             - if the settings are locked.
+	 */
+	protected void checkUnlocked()
+	{
+		try
+		{
+			locked();
+		} catch(ConfigLockedException e)
+		{
+			throw new IllegalStateException(e.toString());
+		}
+	}
+	
+	/**
+	 * Makes the log asynchronous, using the default {@link AsyncLogPipeline}. Messages will be published to the
+	 * pipeline by the calling thread and will be relayed to the underlying log wrapper (and composed) by a background
+	 * thread of the pipeline. A log cannot be both asynchronous and thread-buffered.
+	 * 
+	 * @return the instance itself.
+	 * @throws IllegalStateException
+	 *             - if the log is already set as thread-buffered.
+	 */
+	public LogSettings setAsynchronous()
+	{
+		return setAsynchronous(null);
+	}
+	
+	/**
+	 * Makes the log asynchronous, using the specified {@link AsyncLogPipeline}. See {@link #setAsynchronous()}.
+	 * 
+	 * @param pipeline
+	 *            - the pipeline to use; if <code>null</code>, the default pipeline is used.
+	 * @return the instance itself.
+	 * @throws IllegalStateException
+	 *             - if the log is already set as thread-buffered.
+	 */
+	public LogSettings setAsynchronous(AsyncLogPipeline pipeline)
+	{
+		checkUnlocked();
+		if(isThreadBuffered())
+			throw new IllegalStateException("Log is already set as thread-buffered");
+		asynchronous = true;
+		asyncPipeline = pipeline;
+		return this;
+	}
+	
+	/**
+	 * Makes the log thread-buffered, with the default buffer capacity and flush period. See
+	 * {@link #setThreadBuffered(int, long)}.
+	 * 
+	 * @return the instance itself.
+	 * @throws IllegalStateException
+	 *             - if the log is already set as asynchronous.
+	 */
+	public LogSettings setThreadBuffered()
+	{
+		return setThreadBuffered(DEFAULT_THREAD_BUFFER_CAPACITY, DEFAULT_THREAD_BUFFER_PERIOD);
+	}
+	
+	/**
+	 * Makes the log thread-buffered. Each thread posting to the log writes its messages (templates and copies of the
+	 * arguments) to a buffer of its own, without contending with the other threads. The buffers are drained in the
+	 * background, periodically or when one of them fills, and their messages are composed and merged in the order in
+	 * which they were posted before reaching the destinations of the log. Buffers start small and grow up to the given
+	 * capacity; the buffers of terminated threads are removed, or reused by new threads. This is useful for logs shared
+	 * by many platform threads; for large numbers of short-lived threads (such as virtual threads), an asynchronous log
+	 * is better suited. A log cannot be both asynchronous and thread-buffered.
+	 * 
+	 * @param capacity
+	 *            - the number of messages that each thread can post before its buffer is drained (rounded up to a
+	 *            power of 2); when the buffer is full, the thread waits.
+	 * @param flushPeriod
+	 *            - the period at which the buffers are drained, in milliseconds.
+	 * @return the instance itself.
+	 * @throws IllegalStateException
+	 *             - if the log is already set as asynchronous.
+	 */
+	public LogSettings setThreadBuffered(int capacity, long flushPeriod)
+	{
+		checkUnlocked();
+		if(isAsynchronous())
+			throw new IllegalStateException("Log is already set as asynchronous");
+		if(capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive");
+		if(flushPeriod <= 0)
+			throw new IllegalArgumentException("Period must be positive");
+		threadBufferSize = capacity;
+		threadFlushPeriod = flushPeriod;
+		return this;
+	}
+	
+	/**
+	 * Sets the delay between updates of the {@link DisplayEntity} of the log. Updates only happen if new logging
+	 * information exists.
+	 * 
+	 * @param delay
+	 *            - the delay, in milliseconds.
+	 * @return the instance itself.
+	 */
+	public LogSettings setDisplayUpdateDelay(long delay)
+	{
+		checkUnlocked();
+		if(delay <= 0)
+			throw new IllegalArgumentException("Delay must be positive");
+		displayUpdateDelay = delay;
+		return this;
+	}
+	
+	/**
+	 * Sets the delay between updates of the {@link ReportingEntity} of the log. Updates only happen if new logging
+	 * information exists.
+	 * 
+	 * @param delay
+	 *            - the delay, in milliseconds.
+	 * @return the instance itself.
+	 */
+	public LogSettings setReportUpdateDelay(long delay)
+	{
+		checkUnlocked();
+		if(delay <= 0)
+			throw new IllegalArgumentException("Delay must be positive");
+		reportUpdateDelay = delay;
+		return this;
+	}
+	
+	/**
+	 * Limits the in-memory history of the log (the output that is available to {@link DisplayEntity} and
+	 * {@link ReportingEntity} instances, and by means of <code>Logging.getLoggerOutput()</code>). When any of the
+	 * limits is exceeded, the oldest messages are evicted. Messages that are evicted before they have been delivered to
+	 * the display or to the reporter are never delivered.
+	 * <p>
+	 * By default, the history is not limited.
+	 * 
+	 * @param maxMessages
+	 *            - the maximum number of messages to retain; 0 for no limit.
+	 * @param maxBytes
+	 *            - the maximum size of the history, in bytes; 0 for no limit.
+	 * @param maxAge
+	 *            - the maximum age of messages in the history, in milliseconds; 0 for no limit.
+	 * @return the instance itself.
+	 */
+	public LogSettings setRetention(int maxMessages, long maxBytes, long maxAge)
+	{
+		checkUnlocked();
+		if(maxMessages < 0 || maxBytes < 0 || maxAge < 0)
+			throw new IllegalArgumentException("Retention limits must not be negative");
+		retentionRecords = maxMessages;
+		retentionBytes = maxBytes;
+		retentionAge = maxAge;
+		return this;
+	}
+	
+	/**
+	 * Sets when records are sent to a {@link BatchReportingEntity}: a batch is sent as soon as enough records or
+	 * enough bytes are waiting, or when the oldest waiting record has waited for the maximum latency, whichever comes
+	 * first. The count and the size are also the limits of a batch. Has no effect for other reporting entities.
+	 * 
+	 * @param maxRecords
+	 *            - the maximum number of records in a batch.
+	 * @param maxBytes
+	 *            - the maximum size of a batch, in bytes.
+	 * @param maxLatency
+	 *            - the maximum time a record waits before being sent, in milliseconds.
+	 * @return the instance itself.
+	 */
+	public LogSettings setReportBatching(int maxRecords, long maxBytes, long maxLatency)
+	{
+		checkUnlocked();
+		if(maxRecords <= 0 || maxBytes <= 0 || maxLatency <= 0)
+			throw new IllegalArgumentException("Batching limits must be positive");
+		batchRecords = maxRecords;
+		batchBytes = maxBytes;
+		batchLatency = maxLatency;
+		return this;
+	}
+	
+	/**
+	 * Sets the delays before retrying to send a batch to a {@link BatchReportingEntity} that has failed. The delay
+	 * starts at the initial value and doubles with each consecutive failure, up to the maximum value.
+	 * 
+	 * @param initialDelay
+	 *            - the delay after the first failure, in milliseconds.
+	 * @param maxDelay
+	 *            - the maximum delay, in milliseconds.
+	 * @return the instance itself.
+	 */
+	public LogSettings setReportBackoff(long initialDelay, long maxDelay)
+	{
+		checkUnlocked();
+		if(initialDelay <= 0 || maxDelay < initialDelay)
+			throw new IllegalArgumentException("Invalid backoff delays");
+		backoffInitial = initialDelay;
+		backoffMax = maxDelay;
+		return this;
+	}
+	
+	/**
+	 * Limits the size of the records waiting to be sent to a {@link BatchReportingEntity}. When the limit is exceeded
+	 * (e.g. because the entity keeps failing), the oldest waiting records are dropped and counted (see
+	 * <code>Logging.getReportDropped()</code>).
+	 * 
+	 * @param maxBytes
+	 *            - the maximum size of the waiting records, in bytes; 0 for no limit.
+	 * @return the instance itself.
+	 */
+	public LogSettings setReportBacklog(long maxBytes)
+	{
+		checkUnlocked();
+		if(maxBytes < 0)
+			throw new IllegalArgumentException("Backlog limit must not be negative");
+		backlogBytes = maxBytes;
+		return this;
+	}
+	
+	/**
+	 * Limits the rate of the messages of the log, for the messages with levels up to (and including) the given level.
+	 * The limit is a token bucket: at most <code>burst</code> messages can be posted at once, and tokens are refilled
+	 * at the given rate. Messages exceeding the limit are discarded, before they are composed, and counted in the
+	 * summaries of suppressed messages (see {@link #setSuppressionSummary(long)}).
+	 * 
+	 * @param maxLevel
+	 *            - the highest level to which the limit applies (e.g. {@link Level#INFO} for INFO and TRACE messages).
+	 * @param messagesPerSecond
+	 *            - the rate at which messages are allowed.
+	 * @param burst
+	 *            - the number of messages that can be posted at once.
+	 * @return the instance itself.
+	 */
+	public LogSettings setRateLimit(Level maxLevel, double messagesPerSecond, int burst)
+	{
+		checkUnlocked();
+		if(maxLevel == null || messagesPerSecond <= 0 || burst <= 0)
+			throw new IllegalArgumentException("Invalid rate limit");
+		rateLimitLevel = maxLevel;
+		rateLimit = messagesPerSecond;
+		rateLimitBurst = burst;
+		return this;
+	}
+	
+	/**
+	 * Limits the rate of the messages of the log that have the same template, in the same manner as
+	 * {@link #setRateLimit(Level, double, int)}. Each template has its own token bucket.
+	 * 
+	 * @param maxLevel
+	 *            - the highest level to which the limit applies.
+	 * @param messagesPerSecond
+	 *            - the rate at which messages with the same template are allowed.
+	 * @param burst
+	 *            - the number of messages with the same template that can be posted at once.
+	 * @return the instance itself.
+	 */
+	public LogSettings setTemplateRateLimit(Level maxLevel, double messagesPerSecond, int burst)
+	{
+		checkUnlocked();
+		if(maxLevel == null || messagesPerSecond <= 0 || burst <= 0)
+			throw new IllegalArgumentException("Invalid rate limit");
+		templateLimitLevel = maxLevel;
+		templateLimit = messagesPerSecond;
+		templateLimitBurst = burst;
+		return this;
+	}
+	
+	/**
+	 * Keeps only 1 in n of the messages with the given level (the first one, then every n-th message). Discarded
+	 * messages are not composed, and are counted in the summaries of suppressed messages.
+	 * 
+	 * @param level
+	 *            - the level.
+	 * @param n
+	 *            - the sampling rate; 1 for keeping all messages.
+	 * @return the instance itself.
+	 */
+	public LogSettings setSampling(Level level, int n)
+	{
+		checkUnlocked();
+		if(level == null || n < 1)
+			throw new IllegalArgumentException("Invalid sampling rate");
+		samplingRates[level.ordinal()] = n;
+		return this;
+	}
+	
+	/**
+	 * Keeps each message with the given level with the given probability. Discarded messages are not composed, and are
+	 * counted in the summaries of suppressed messages.
+	 * 
+	 * @param level
+	 *            - the level.
+	 * @param probability
+	 *            - the probability for a message to be kept, between 0 and 1.
+	 * @return the instance itself.
+	 */
+	public LogSettings setSamplingProbability(Level level, double probability)
+	{
+		checkUnlocked();
+		if(level == null || probability < 0 || probability > 1)
+			throw new IllegalArgumentException("Invalid sampling probability");
+		samplingProbabilities[level.ordinal()] = probability;
+		return this;
+	}
+	
+	/**
+	 * Sets the period at which summaries of the messages suppressed by rate limits and sampling are posted to the log
+	 * (one message for each template, giving the number of suppressed messages).
+	 * 
+	 * @param period
+	 *            - the period, in milliseconds.
+	 * @return the instance itself.
+	 */
+	public LogSettings setSuppressionSummary(long period)
+	{
+		checkUnlocked();
+		if(period <= 0)
+			throw new IllegalArgumentException("Period must be positive");
+		suppressionSummary = period;
+		return this;
+	}
+	
+	/**
+	 * Collapses consecutive identical messages of the log (same level, same template and equal arguments). The first
+	 * message is output immediately; repetitions are only counted, and their number is posted when a different message
+	 * arrives, or when the timeout has passed since the first repetition that was held back.
+	 * 
+	 * @param timeout
+	 *            - the maximum time for which repetitions are held back, in milliseconds.
+	 * @return the instance itself.
+	 */
+	public LogSettings setCollapseRepeated(long timeout)
+	{
+		checkUnlocked();
+		if(timeout <= 0)
+			throw new IllegalArgumentException("Timeout must be positive");
+		collapseTimeout = timeout;
+		return this;
+	}
+	
+	/**
+	 * @return <code>true</code> if the log should be asynchronous.
+	 */
+	public boolean isAsynchronous()
+	{
+		return asynchronous;
+	}
+	
+	/**
+	 * @return the {@link AsyncLogPipeline} to use for an asynchronous log; <code>null</code> for the default pipeline.
+	 */
+	public AsyncLogPipeline getAsyncPipeline()
+	{
+		return asyncPipeline;
+	}
+	
+	/**
+	 * @return <code>true</code> if each thread posting to the log should write to its own buffer.
+	 */
+	public boolean isThreadBuffered()
+	{
+		return threadBufferSize > 0;
+	}
+	
+	/**
+	 * @return the number of messages that each thread can post to a thread-buffered log before its buffer is drained.
+	 */
+	public int getThreadBufferCapacity()
+	{
+		return threadBufferSize;
+	}
+	
+	/**
+	 * @return the period at which the buffers of a thread-buffered log are drained, in milliseconds.
+	 */
+	public long getThreadFlushPeriod()
+	{
+		return threadFlushPeriod;
+	}
+	
+	/**
+	 * @return the delay between updates of the {@link DisplayEntity}, in milliseconds.
+	 */
+	public long getDisplayUpdateDelay()
+	{
+		return displayUpdateDelay;
+	}
+	
+	/**
+	 * @return the delay between updates of the {@link ReportingEntity}, in milliseconds.
+	 */
+	public long getReportUpdateDelay()
+	{
+		return reportUpdateDelay;
+	}
+	
+	/**
+	 * @return the maximum number of messages to retain in the history of the log; 0 for no limit.
+	 */
+	public int getRetentionMessages()
+	{
+		return retentionRecords;
+	}
+	
+	/**
+	 * @return the maximum size of the history of the log, in bytes; 0 for no limit.
+	 */
+	public long getRetentionBytes()
+	{
+		return retentionBytes;
+	}
+	
+	/**
+	 * @return the maximum age of messages in the history of the log, in milliseconds; 0 for no limit.
+	 */
+	public long getRetentionAge()
+	{
+		return retentionAge;
+	}
+	
+	/**
+	 * @return the maximum number of records in a batch sent to a {@link BatchReportingEntity}.
+	 */
+	public int getBatchRecords()
+	{
+		return batchRecords;
+	}
+	
+	/**
+	 * @return the maximum size of a batch sent to a {@link BatchReportingEntity}, in bytes.
+	 */
+	public long getBatchBytes()
+	{
+		return batchBytes;
+	}
+	
+	/**
+	 * @return the maximum time a record waits before being sent to a {@link BatchReportingEntity}, in milliseconds.
+	 */
+	public long getBatchLatency()
+	{
+		return batchLatency;
+	}
+	
+	/**
+	 * @return the delay before retrying after a {@link BatchReportingEntity} has failed, in milliseconds.
+	 */
+	public long getBackoffInitial()
+	{
+		return backoffInitial;
+	}
+	
+	/**
+	 * @return the maximum delay before retrying after repeated failures of a {@link BatchReportingEntity}, in
+	 *         milliseconds.
+	 */
+	public long getBackoffMax()
+	{
+		return backoffMax;
+	}
+	
+	/**
+	 * @return the maximum size of the records waiting to be sent to a {@link BatchReportingEntity}, in bytes; 0 for no
+	 *         limit.
+	 */
+	public long getBacklogBytes()
+	{
+		return backlogBytes;
+	}
+	
+	/**
+	 * @return <code>true</code> if any rate limit or sampling is set.
+	 */
+	public boolean isLimited()
+	{
+		if(rateLimitLevel != null || templateLimitLevel != null)
+			return true;
+		for(Level level : Level.values())
+			if(samplingRates[level.ordinal()] > 1 || samplingProbabilities[level.ordinal()] < 1)
+				return true;
+		return false;
+	}
+	
+	/**
+	 * @return the highest level to which the rate limit of the log applies; <code>null</code> if there is no limit.
+	 */
+	public Level getRateLimitLevel()
+	{
+		return rateLimitLevel;
+	}
+	
+	/**
+	 * @return the rate limit of the log, in messages per second.
+	 */
+	public double getRateLimit()
+	{
+		return rateLimit;
+	}
+	
+	/**
+	 * @return the number of messages that can be posted at once, within the rate limit of the log.
+	 */
+	public int getRateLimitBurst()
+	{
+		return rateLimitBurst;
+	}
+	
+	/**
+	 * @return the highest level to which the rate limit for each template applies; <code>null</code> if there is no
+	 *         limit.
+	 */
+	public Level getTemplateLimitLevel()
+	{
+		return templateLimitLevel;
+	}
+	
+	/**
+	 * @return the rate limit for each template, in messages per second.
+	 */
+	public double getTemplateLimit()
+	{
+		return templateLimit;
+	}
+	
+	/**
+	 * @return the number of messages with the same template that can be posted at once, within the rate limit.
+	 */
+	public int getTemplateLimitBurst()
+	{
+		return templateLimitBurst;
+	}
+	
+	/**
+	 * @param level
+	 *            - the level.
+	 * @return the n for which 1 in n messages with the given level are kept; 0 or 1 if all are kept.
+	 */
+	public int getSampling(Level level)
+	{
+		return samplingRates[level.ordinal()];
+	}
+	
+	/**
+	 * @param level
+	 *            - the level.
+	 * @return the probability for a message with the given level to be kept.
+	 */
+	public double getSamplingProbability(Level level)
+	{
+		return samplingProbabilities[level.ordinal()];
+	}
+	
+	/**
+	 * @return the period of the summaries of suppressed messages, in milliseconds.
+	 */
+	public long getSuppressionSummary()
+	{
+		return suppressionSummary;
+	}
+	
+	/**
+	 * @return <code>true</code> if consecutive identical messages should be collapsed.
+	 */
+	public boolean isCollapsingRepeated()
+	{
+		return collapseTimeout > 0;
+	}
+	
+	/**
+	 * @return the maximum time for which repetitions of a message are held back, in milliseconds.
+	 */
+	public long getCollapseTimeout()
+	{
+		return collapseTimeout;
+	}
+}
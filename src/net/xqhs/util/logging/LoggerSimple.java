@@ -33,6 +33,13 @@ import net.xqhs.util.logging.Debug.DebugItem;
  * should also be filtered in the class implementing this interface, such that the message string is only assembled if
  * necessary.
  * <p>
+ * Arguments that are expensive to compute can be passed as {@link ArgumentSupplier} instances, which are only
+ * evaluated when the message is assembled.
+ * <p>
+ * For messages with up to four arguments, and for messages with one primitive argument, the logging primitives have
+ * fixed-arity overloads, which avoid allocating an array for the arguments (and boxing primitive arguments), allowing
+ * implementations to log without allocating memory.
+ * <p>
  * It works with a reduced set of levels: {@link Level#TRACE}, {@link Level#INFO}, {@link Level#WARN},
  * {@link Level#ERROR}, plus {@link Level#OFF} and {@link Level#ALL} for log settings.
  * 
@@ -118,17 +125,22 @@ public interface LoggerSimple
 	 * The substring in the message string that will be replaced with the various specified arguments. This must be a
 	 * regular expression.
 	 */
-	public static final String	ARGUMENT_PLACEHOLDER	= "\\[\\]";
+	public static final String	ARGUMENT_PLACEHOLDER		= "\\[\\]";
+	
+	/**
+	 * The literal (non-regular expression) form of {@link #ARGUMENT_PLACEHOLDER}, as it appears in message strings.
+	 */
+	public static final String	ARGUMENT_PLACEHOLDER_TEXT	= "[]";
 	
 	/**
 	 * The string to be added before the rendition of the argument in the message string.
 	 */
-	public static final String	ARGUMENT_BEGIN			= "[";
+	public static final String	ARGUMENT_BEGIN				= "[";
 	
 	/**
 	 * The string to be added after the rendition of the argument in the message string.
 	 */
-	public static final String	ARGUMENT_END			= "]";
+	public static final String	ARGUMENT_END				= "]";
 	
 	/**
 	 * Outputs an error message.
@@ -143,6 +155,126 @@ public interface LoggerSimple
 	 */
 	public void le(String message, Object... arguments);
 	
+	/**
+	 * Outputs an error message with no arguments, without allocating an array for them. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 */
+	public void le(String message);
+	
+	/**
+	 * Outputs an error message with one argument, without allocating an array for them. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void le(String message, Object argument);
+	
+	/**
+	 * Outputs an error message with two arguments, without allocating an array for them. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 */
+	public void le(String message, Object argument1, Object argument2);
+	
+	/**
+	 * Outputs an error message with three arguments, without allocating an array for them. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 */
+	public void le(String message, Object argument1, Object argument2, Object argument3);
+	
+	/**
+	 * Outputs an error message with four arguments, without allocating an array for them. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 * @param argument4
+	 *            : the fourth argument.
+	 */
+	public void le(String message, Object argument1, Object argument2, Object argument3, Object argument4);
+	
+	/**
+	 * Outputs an error message with one <code>int</code> argument, without boxing it. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void le(String message, int argument);
+	
+	/**
+	 * Outputs an error message with one <code>long</code> argument, without boxing it. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void le(String message, long argument);
+	
+	/**
+	 * Outputs an error message with one <code>double</code> argument, without boxing it. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void le(String message, double argument);
+	
+	/**
+	 * Outputs an error message with one <code>boolean</code> argument, without boxing it. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void le(String message, boolean argument);
+	
+	/**
+	 * Outputs an error message with one <code>char</code> argument, without boxing it. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void le(String message, char argument);
+	
+	/**
+	 * Outputs an error message with one <code>float</code> argument, without boxing it. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void le(String message, float argument);
+	
 	/**
 	 * Outputs a warning message.
 	 * 
@@ -156,6 +288,126 @@ public interface LoggerSimple
 	 */
 	public void lw(String message, Object... arguments);
 	
+	/**
+	 * Outputs a warning message with no arguments, without allocating an array for them. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 */
+	public void lw(String message);
+	
+	/**
+	 * Outputs a warning message with one argument, without allocating an array for them. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lw(String message, Object argument);
+	
+	/**
+	 * Outputs a warning message with two arguments, without allocating an array for them. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 */
+	public void lw(String message, Object argument1, Object argument2);
+	
+	/**
+	 * Outputs a warning message with three arguments, without allocating an array for them. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 */
+	public void lw(String message, Object argument1, Object argument2, Object argument3);
+	
+	/**
+	 * Outputs a warning message with four arguments, without allocating an array for them. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 * @param argument4
+	 *            : the fourth argument.
+	 */
+	public void lw(String message, Object argument1, Object argument2, Object argument3, Object argument4);
+	
+	/**
+	 * Outputs a warning message with one <code>int</code> argument, without boxing it. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lw(String message, int argument);
+	
+	/**
+	 * Outputs a warning message with one <code>long</code> argument, without boxing it. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lw(String message, long argument);
+	
+	/**
+	 * Outputs a warning message with one <code>double</code> argument, without boxing it. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lw(String message, double argument);
+	
+	/**
+	 * Outputs a warning message with one <code>boolean</code> argument, without boxing it. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lw(String message, boolean argument);
+	
+	/**
+	 * Outputs a warning message with one <code>char</code> argument, without boxing it. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lw(String message, char argument);
+	
+	/**
+	 * Outputs a warning message with one <code>float</code> argument, without boxing it. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lw(String message, float argument);
+	
 	/**
 	 * Outputs an info message.
 	 * 
@@ -169,6 +421,126 @@ public interface LoggerSimple
 	 */
 	public void li(String message, Object... arguments);
 	
+	/**
+	 * Outputs an info message with no arguments, without allocating an array for them. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 */
+	public void li(String message);
+	
+	/**
+	 * Outputs an info message with one argument, without allocating an array for them. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void li(String message, Object argument);
+	
+	/**
+	 * Outputs an info message with two arguments, without allocating an array for them. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 */
+	public void li(String message, Object argument1, Object argument2);
+	
+	/**
+	 * Outputs an info message with three arguments, without allocating an array for them. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 */
+	public void li(String message, Object argument1, Object argument2, Object argument3);
+	
+	/**
+	 * Outputs an info message with four arguments, without allocating an array for them. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 * @param argument4
+	 *            : the fourth argument.
+	 */
+	public void li(String message, Object argument1, Object argument2, Object argument3, Object argument4);
+	
+	/**
+	 * Outputs an info message with one <code>int</code> argument, without boxing it. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void li(String message, int argument);
+	
+	/**
+	 * Outputs an info message with one <code>long</code> argument, without boxing it. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void li(String message, long argument);
+	
+	/**
+	 * Outputs an info message with one <code>double</code> argument, without boxing it. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void li(String message, double argument);
+	
+	/**
+	 * Outputs an info message with one <code>boolean</code> argument, without boxing it. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void li(String message, boolean argument);
+	
+	/**
+	 * Outputs an info message with one <code>char</code> argument, without boxing it. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void li(String message, char argument);
+	
+	/**
+	 * Outputs an info message with one <code>float</code> argument, without boxing it. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void li(String message, float argument);
+	
 	/**
 	 * Outputs a 'fine' logging message.
 	 * 
@@ -182,6 +554,126 @@ public interface LoggerSimple
 	 */
 	public void lf(String message, Object... arguments);
 	
+	/**
+	 * Outputs a 'fine' logging message with no arguments, without allocating an array for them. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 */
+	public void lf(String message);
+	
+	/**
+	 * Outputs a 'fine' logging message with one argument, without allocating an array for them. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lf(String message, Object argument);
+	
+	/**
+	 * Outputs a 'fine' logging message with two arguments, without allocating an array for them. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 */
+	public void lf(String message, Object argument1, Object argument2);
+	
+	/**
+	 * Outputs a 'fine' logging message with three arguments, without allocating an array for them. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 */
+	public void lf(String message, Object argument1, Object argument2, Object argument3);
+	
+	/**
+	 * Outputs a 'fine' logging message with four arguments, without allocating an array for them. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 * @param argument4
+	 *            : the fourth argument.
+	 */
+	public void lf(String message, Object argument1, Object argument2, Object argument3, Object argument4);
+	
+	/**
+	 * Outputs a 'fine' logging message with one <code>int</code> argument, without boxing it. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lf(String message, int argument);
+	
+	/**
+	 * Outputs a 'fine' logging message with one <code>long</code> argument, without boxing it. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lf(String message, long argument);
+	
+	/**
+	 * Outputs a 'fine' logging message with one <code>double</code> argument, without boxing it. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lf(String message, double argument);
+	
+	/**
+	 * Outputs a 'fine' logging message with one <code>boolean</code> argument, without boxing it. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lf(String message, boolean argument);
+	
+	/**
+	 * Outputs a 'fine' logging message with one <code>char</code> argument, without boxing it. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lf(String message, char argument);
+	
+	/**
+	 * Outputs a 'fine' logging message with one <code>float</code> argument, without boxing it. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message string.
+	 * @param argument
+	 *            : the argument.
+	 */
+	public void lf(String message, float argument);
+	
 	/**
 	 * Outputs a fine logging message just before returning the {@link Object} in the argument.
 	 * <p>
@@ -14,9 +14,14 @@ package net.xqhs.util.logging;
 import net.xqhs.util.config.Config;
 import net.xqhs.util.logging.Debug.DebugItem;
 import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.ArgumentBuffer;
+import net.xqhs.util.logging.logging.LogLimiter;
+import net.xqhs.util.logging.logging.LogMetrics;
+import net.xqhs.util.logging.logging.LogRecord;
 import net.xqhs.util.logging.logging.LogWrapper;
 import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
 import net.xqhs.util.logging.logging.Logging;
+import net.xqhs.util.logging.logging.MessageTemplate;
 
 /**
  * The Unit class should be extended by classes in which logging primitives should be available without calling a
@@ -54,6 +59,10 @@ public class Unit extends Config
 	 * The default level for the log, if no other level is set.
 	 */
 	public final static Level	DEFAULT_LEVEL		= Level.ALL;
+	/**
+	 * Arguments for messages that have none.
+	 */
+	protected final static Object[]	NO_ARGUMENTS	= new Object[0];
 	
 	/**
 	 * The name of the {@link Unit}. See {@link Unit} for details.
@@ -101,11 +110,26 @@ public class Unit extends Config
 	 */
 	UnitLinkData				linkData			= new UnitLinkData();
 	
+	/**
+	 * Additional settings for the log, used when the log is created.
+	 */
+	LogSettings					logSettings			= new LogSettings();
+	
 	/**
 	 * The {@link LogWrapper} that will be used for logging.
 	 */
 	LogWrapper					log					= null;
 	
+	/**
+	 * The {@link LogLimiter} of the log, if rate limits or sampling are set in the {@link LogSettings}.
+	 */
+	LogLimiter					limiter				= null;
+	
+	/**
+	 * The {@link LogMetrics} of the log, counting posted and filtered messages.
+	 */
+	LogMetrics					metrics				= null;
+	
 	/**
 	 * This method is meant to be overridden in inheriting classes, so as to give the default name for units of that
 	 * type. It is meant to not be static, but the particular implementation in {@link Unit} is not dynamic.
@@ -166,7 +190,9 @@ public class Unit extends Config
 			try
 			{
 				log = Logging.getLogger(logName, linkData.parentLogName, display, reporter, ensureNew,
-						loggerWrapperClass, level);
+						loggerWrapperClass, level, logSettings);
+				limiter = Logging.getLimiter(logName);
+				metrics = Logging.getMetrics(logName);
 			} catch(ClassNotFoundException e)
 			{
 				throw new IllegalArgumentException("Failed to instantiate logging wrapper class.", e);
@@ -383,6 +409,53 @@ public class Unit extends Config
 		return this;
 	}
 	
+	/**
+	 * Sets the additional settings for the log, as a {@link LogSettings} instance.
+	 * 
+	 * @param settings
+	 *            - the settings.
+	 * @return the instance itself.
+	 */
+	public Unit setLogSettings(LogSettings settings)
+	{
+		if(lockedR())
+			return this;
+		if(settings == null)
+			throw new IllegalArgumentException("Given settings are null");
+		logSettings = settings;
+		return this;
+	}
+	
+	/**
+	 * Makes the log asynchronous, using the default pipeline. See {@link LogSettings#setAsynchronous()}.
+	 * 
+	 * @return the instance itself.
+	 * @throws IllegalStateException
+	 *             - if the log is already set as thread-buffered.
+	 */
+	public Unit setLogAsynchronous()
+	{
+		if(lockedR())
+			return this;
+		logSettings.setAsynchronous();
+		return this;
+	}
+	
+	/**
+	 * Makes the log thread-buffered, with the default settings. See {@link LogSettings#setThreadBuffered(int, long)}.
+	 * 
+	 * @return the instance itself.
+	 * @throws IllegalStateException
+	 *             - if the log is already set as asynchronous.
+	 */
+	public Unit setLogThreadBuffered()
+	{
+		if(lockedR())
+			return this;
+		logSettings.setThreadBuffered();
+		return this;
+	}
+	
 	/**
 	 * Sets the {@link DisplayEntity} to receive updates form the log.
 	 * 
@@ -432,6 +505,8 @@ public class Unit extends Config
 		{
 			Logging.exitLogger(logName);
 			log = null;
+			limiter = null;
+			metrics = null;
 			logName = null;
 		}
 		unitName = null;
@@ -450,6 +525,159 @@ public class Unit extends Config
 		l(Level.ERROR, message, arguments);
 	}
 	
+	/**
+	 * Post an error message, with no arguments. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 */
+	protected void le(String message)
+	{
+		l(Level.ERROR, message);
+	}
+	
+	/**
+	 * Post an error message, with one argument. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void le(String message, Object argument)
+	{
+		l(Level.ERROR, message, argument);
+	}
+	
+	/**
+	 * Post an error message, with two arguments. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 */
+	protected void le(String message, Object argument1, Object argument2)
+	{
+		l(Level.ERROR, message, argument1, argument2);
+	}
+	
+	/**
+	 * Post an error message, with three arguments. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 */
+	protected void le(String message, Object argument1, Object argument2, Object argument3)
+	{
+		l(Level.ERROR, message, argument1, argument2, argument3);
+	}
+	
+	/**
+	 * Post an error message, with four arguments. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 * @param argument4
+	 *            : the fourth argument.
+	 */
+	protected void le(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		l(Level.ERROR, message, argument1, argument2, argument3, argument4);
+	}
+	
+	/**
+	 * Post an error message, with one <code>int</code> argument. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void le(String message, int argument)
+	{
+		l(Level.ERROR, message, argument);
+	}
+	
+	/**
+	 * Post an error message, with one <code>long</code> argument. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void le(String message, long argument)
+	{
+		l(Level.ERROR, message, argument);
+	}
+	
+	/**
+	 * Post an error message, with one <code>double</code> argument. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void le(String message, double argument)
+	{
+		l(Level.ERROR, message, argument);
+	}
+	
+	/**
+	 * Post an error message, with one <code>boolean</code> argument. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void le(String message, boolean argument)
+	{
+		l(Level.ERROR, message, argument);
+	}
+	
+	/**
+	 * Post an error message, with one <code>char</code> argument. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void le(String message, char argument)
+	{
+		l(Level.ERROR, message, argument);
+	}
+	
+	/**
+	 * Post an error message, with one <code>float</code> argument. See {@link #le(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void le(String message, float argument)
+	{
+		l(Level.ERROR, message, argument);
+	}
+	
 	/**
 	 * Post a warning message. See {@link LoggerSimple}.
 	 * 
@@ -464,129 +692,871 @@ public class Unit extends Config
 	}
 	
 	/**
-	 * Post an informative message. See {@link LoggerSimple}.
+	 * Post a warning message, with no arguments. See {@link #lw(String, Object...)}.
 	 * 
 	 * @param message
 	 *            : the message to display
-	 * @param arguments
-	 *            : arguments to insert into the message. See {@link LoggerSimple}.
 	 */
-	protected void li(String message, Object... arguments)
+	protected void lw(String message)
 	{
-		l(Level.INFO, message, arguments);
+		l(Level.WARN, message);
 	}
 	
 	/**
-	 * Post a tracing message. See {@link LoggerSimple}.
+	 * Post a warning message, with one argument. See {@link #lw(String, Object...)}.
 	 * 
 	 * @param message
 	 *            : the message to display
-	 * @param arguments
-	 *            : arguments to insert into the message. See {@link LoggerSimple}.
+	 * @param argument
+	 *            : the argument.
 	 */
-	protected void lf(String message, Object... arguments)
+	protected void lw(String message, Object argument)
 	{
-		l(Level.TRACE, message, arguments);
+		l(Level.WARN, message, argument);
 	}
 	
 	/**
-	 * This method should be used in return statements. It adds a log message just before returning the {@link Object}
-	 * in the argument, displaying the {@link Object}. See {@link LoggerSimple}.
+	 * Post a warning message, with two arguments. See {@link #lw(String, Object...)}.
 	 * 
-	 * @param ret
-	 *            : the {@link Object} to return.
-	 * @return the {@link Object} passed as argument.
+	 * @param message
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
 	 */
-	protected Object lr(Object ret)
+	protected void lw(String message, Object argument1, Object argument2)
 	{
-		return lr(ret, null);
+		l(Level.WARN, message, argument1, argument2);
 	}
 	
 	/**
-	 * This method should be used in return statements. It adds a log message just before returning the {@link Object}
-	 * in the argument. See {@link LoggerSimple}.
-	 * <p>
-	 * The {@link Object} in the argument is also put in the log message.
+	 * Post a warning message, with three arguments. See {@link #lw(String, Object...)}.
 	 * 
-	 * @param ret
-	 *            : the {@link Object} to return and to display.
 	 * @param message
-	 *            : the message to display beside the {@link Object}.
-	 * @param arguments
-	 *            : arguments to insert into the message. See {@link LoggerSimple}.
-	 * @return the {@link Object} passed as argument.
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
 	 */
-	protected Object lr(Object ret, String message, Object... arguments)
+	protected void lw(String message, Object argument1, Object argument2, Object argument3)
 	{
-		if(message != null)
-			lf("[]: []", ret, compose(message, arguments));
-		else
-			lf("[]", ret);
-		return ret;
+		l(Level.WARN, message, argument1, argument2, argument3);
 	}
 	
 	/**
-	 * This method displays a log message (with the level <code>TRACE</code>) only if the specified {@link DebugItem} is
-	 * activated. See {@link LoggerSimple}.
+	 * Post a warning message, with four arguments. See {@link #lw(String, Object...)}.
 	 * 
-	 * @param debug
-	 *            : the {@link DebugItem}
 	 * @param message
-	 *            : the log message
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 * @param argument4
+	 *            : the fourth argument.
+	 */
+	protected void lw(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		l(Level.WARN, message, argument1, argument2, argument3, argument4);
+	}
+	
+	/**
+	 * Post a warning message, with one <code>int</code> argument. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lw(String message, int argument)
+	{
+		l(Level.WARN, message, argument);
+	}
+	
+	/**
+	 * Post a warning message, with one <code>long</code> argument. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lw(String message, long argument)
+	{
+		l(Level.WARN, message, argument);
+	}
+	
+	/**
+	 * Post a warning message, with one <code>double</code> argument. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lw(String message, double argument)
+	{
+		l(Level.WARN, message, argument);
+	}
+	
+	/**
+	 * Post a warning message, with one <code>boolean</code> argument. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lw(String message, boolean argument)
+	{
+		l(Level.WARN, message, argument);
+	}
+	
+	/**
+	 * Post a warning message, with one <code>char</code> argument. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lw(String message, char argument)
+	{
+		l(Level.WARN, message, argument);
+	}
+	
+	/**
+	 * Post a warning message, with one <code>float</code> argument. See {@link #lw(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lw(String message, float argument)
+	{
+		l(Level.WARN, message, argument);
+	}
+	
+	/**
+	 * Post an informative message. See {@link LoggerSimple}.
+	 * 
+	 * @param message
+	 *            : the message to display
 	 * @param arguments
 	 *            : arguments to insert into the message. See {@link LoggerSimple}.
 	 */
-	protected void dbg(DebugItem debug, String message, Object... arguments)
+	protected void li(String message, Object... arguments)
 	{
-		if(debug.toBool())
-			lf(message, arguments);
+		l(Level.INFO, message, arguments);
 	}
 	
 	/**
-	 * This method calls the underlying logging infrastructure to display a message with the specified level, text, and
-	 * parameter objects.
+	 * Post an informative message, with no arguments. See {@link #li(String, Object...)}.
 	 * 
-	 * @param messageLevel
-	 *            - the level of the message.
 	 * @param message
-	 *            - the text of the message.
-	 * @param arguments
-	 *            - the objects to be inserted in the placeholders of the message text (see {@link LoggerSimple}).
+	 *            : the message to display
 	 */
-	protected void l(Level messageLevel, String message, Object... arguments)
+	protected void li(String message)
 	{
-		ensureLocked();
-		if((log != null) && messageLevel.displayWith(level))
-			log.l(messageLevel, compose(message, arguments));
+		l(Level.INFO, message);
 	}
 	
 	/**
-	 * Composes a message with an array of {@link Object} instances. All apparitions of
-	 * {@link LoggerSimple#ARGUMENT_PLACEHOLDER} will be replaced with results of calls to the <code>toString()</code>
-	 * methods of objects, surrounded by {@link LoggerSimple#ARGUMENT_BEGIN} and {@link LoggerSimple#ARGUMENT_END}.
-	 * Remaining objects will be displayed after the message.
+	 * Post an informative message, with one argument. See {@link #li(String, Object...)}.
 	 * 
 	 * @param message
-	 *            : the message text.
-	 * @param objects
-	 *            : the objects.
-	 * @return the assembled string.
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
 	 */
-	protected static String compose(String message, Object[] objects)
+	protected void li(String message, Object argument)
 	{
-		String[] parts = message.split(LoggerSimple.ARGUMENT_PLACEHOLDER, objects.length + 1);
-		// there are enough objects for all parts
-		// there may be more objects than parts
-		String ret = parts[0];
-		for(int i = 0; i < parts.length - 1; i++)
-		{
-			ret += LoggerSimple.ARGUMENT_BEGIN + objects[i] + LoggerSimple.ARGUMENT_END;
-			ret += parts[i + 1];
-		}
-		// deal with the rest of the objects
-		for(int i = parts.length - 1; i < objects.length; i++)
-			ret += LoggerSimple.ARGUMENT_BEGIN + objects[i] + LoggerSimple.ARGUMENT_END;
-		
-		return ret;
+		l(Level.INFO, message, argument);
+	}
+	
+	/**
+	 * Post an informative message, with two arguments. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 */
+	protected void li(String message, Object argument1, Object argument2)
+	{
+		l(Level.INFO, message, argument1, argument2);
+	}
+	
+	/**
+	 * Post an informative message, with three arguments. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 */
+	protected void li(String message, Object argument1, Object argument2, Object argument3)
+	{
+		l(Level.INFO, message, argument1, argument2, argument3);
+	}
+	
+	/**
+	 * Post an informative message, with four arguments. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 * @param argument4
+	 *            : the fourth argument.
+	 */
+	protected void li(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		l(Level.INFO, message, argument1, argument2, argument3, argument4);
+	}
+	
+	/**
+	 * Post an informative message, with one <code>int</code> argument. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void li(String message, int argument)
+	{
+		l(Level.INFO, message, argument);
+	}
+	
+	/**
+	 * Post an informative message, with one <code>long</code> argument. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void li(String message, long argument)
+	{
+		l(Level.INFO, message, argument);
+	}
+	
+	/**
+	 * Post an informative message, with one <code>double</code> argument. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void li(String message, double argument)
+	{
+		l(Level.INFO, message, argument);
+	}
+	
+	/**
+	 * Post an informative message, with one <code>boolean</code> argument. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void li(String message, boolean argument)
+	{
+		l(Level.INFO, message, argument);
+	}
+	
+	/**
+	 * Post an informative message, with one <code>char</code> argument. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void li(String message, char argument)
+	{
+		l(Level.INFO, message, argument);
+	}
+	
+	/**
+	 * Post an informative message, with one <code>float</code> argument. See {@link #li(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void li(String message, float argument)
+	{
+		l(Level.INFO, message, argument);
+	}
+	
+	/**
+	 * Post a tracing message. See {@link LoggerSimple}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param arguments
+	 *            : arguments to insert into the message. See {@link LoggerSimple}.
+	 */
+	protected void lf(String message, Object... arguments)
+	{
+		l(Level.TRACE, message, arguments);
+	}
+	
+	/**
+	 * Post a tracing message, with no arguments. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 */
+	protected void lf(String message)
+	{
+		l(Level.TRACE, message);
+	}
+	
+	/**
+	 * Post a tracing message, with one argument. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lf(String message, Object argument)
+	{
+		l(Level.TRACE, message, argument);
+	}
+	
+	/**
+	 * Post a tracing message, with two arguments. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 */
+	protected void lf(String message, Object argument1, Object argument2)
+	{
+		l(Level.TRACE, message, argument1, argument2);
+	}
+	
+	/**
+	 * Post a tracing message, with three arguments. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 */
+	protected void lf(String message, Object argument1, Object argument2, Object argument3)
+	{
+		l(Level.TRACE, message, argument1, argument2, argument3);
+	}
+	
+	/**
+	 * Post a tracing message, with four arguments. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument1
+	 *            : the first argument.
+	 * @param argument2
+	 *            : the second argument.
+	 * @param argument3
+	 *            : the third argument.
+	 * @param argument4
+	 *            : the fourth argument.
+	 */
+	protected void lf(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		l(Level.TRACE, message, argument1, argument2, argument3, argument4);
+	}
+	
+	/**
+	 * Post a tracing message, with one <code>int</code> argument. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lf(String message, int argument)
+	{
+		l(Level.TRACE, message, argument);
+	}
+	
+	/**
+	 * Post a tracing message, with one <code>long</code> argument. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lf(String message, long argument)
+	{
+		l(Level.TRACE, message, argument);
+	}
+	
+	/**
+	 * Post a tracing message, with one <code>double</code> argument. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lf(String message, double argument)
+	{
+		l(Level.TRACE, message, argument);
+	}
+	
+	/**
+	 * Post a tracing message, with one <code>boolean</code> argument. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lf(String message, boolean argument)
+	{
+		l(Level.TRACE, message, argument);
+	}
+	
+	/**
+	 * Post a tracing message, with one <code>char</code> argument. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lf(String message, char argument)
+	{
+		l(Level.TRACE, message, argument);
+	}
+	
+	/**
+	 * Post a tracing message, with one <code>float</code> argument. See {@link #lf(String, Object...)}.
+	 * 
+	 * @param message
+	 *            : the message to display
+	 * @param argument
+	 *            : the argument.
+	 */
+	protected void lf(String message, float argument)
+	{
+		l(Level.TRACE, message, argument);
+	}
+	
+	/**
+	 * This method should be used in return statements. It adds a log message just before returning the {@link Object}
+	 * in the argument, displaying the {@link Object}. See {@link LoggerSimple}.
+	 * 
+	 * @param ret
+	 *            : the {@link Object} to return.
+	 * @return the {@link Object} passed as argument.
+	 */
+	protected Object lr(Object ret)
+	{
+		return lr(ret, null);
+	}
+	
+	/**
+	 * This method should be used in return statements. It adds a log message just before returning the {@link Object}
+	 * in the argument. See {@link LoggerSimple}.
+	 * <p>
+	 * The {@link Object} in the argument is also put in the log message.
+	 * 
+	 * @param ret
+	 *            : the {@link Object} to return and to display.
+	 * @param message
+	 *            : the message to display beside the {@link Object}.
+	 * @param arguments
+	 *            : arguments to insert into the message. See {@link LoggerSimple}.
+	 * @return the {@link Object} passed as argument.
+	 */
+	protected Object lr(Object ret, String message, Object... arguments)
+	{
+		if(!isLogged(Level.TRACE, (message != null) ? message : "[]"))
+			return ret;
+		ArgumentBuffer buffer = ArgumentBuffer.acquire();
+		if(message != null)
+			relay(Level.TRACE, "[]: []", buffer, buffer.set(ret, compose(message, arguments)));
+		else
+			relay(Level.TRACE, "[]", buffer, buffer.set(ret));
+		return ret;
+	}
+	
+	/**
+	 * This method displays a log message (with the level <code>TRACE</code>) only if the specified {@link DebugItem} is
+	 * activated, according to the {@link DebugRegistry}. See {@link LoggerSimple}.
+	 * 
+	 * @param debug
+	 *            : the {@link DebugItem}
+	 * @param message
+	 *            : the log message
+	 * @param arguments
+	 *            : arguments to insert into the message. See {@link LoggerSimple}.
+	 */
+	protected void dbg(DebugItem debug, String message, Object... arguments)
+	{
+		if(DebugRegistry.isActive(debug))
+			lf(message, arguments);
+	}
+	
+	/**
+	 * This method calls the underlying logging infrastructure to display a message with the specified level, text, and
+	 * parameter objects. The message is only composed (and any {@link ArgumentSupplier} arguments evaluated) if the
+	 * message is going to be output.
+	 * <p>
+	 * The message is passed to the log as a {@link LogRecord}, which also holds the time stamp and the calling thread.
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param arguments
+	 *            - the objects to be inserted in the placeholders of the message text (see {@link LoggerSimple}).
+	 */
+	protected void l(Level messageLevel, String message, Object... arguments)
+	{
+		if(isLogged(messageLevel, message))
+			relay(messageLevel, message, ArgumentBuffer.acquire(), arguments);
+	}
+	
+	/**
+	 * Same as {@link #l(Level, String, Object...)}, for a message without arguments.
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 */
+	protected void l(Level messageLevel, String message)
+	{
+		if(isLogged(messageLevel, message))
+			relay(messageLevel, message, ArgumentBuffer.acquire(), NO_ARGUMENTS);
+	}
+	
+	/**
+	 * Same as {@link #l(Level, String, Object...)}, for one argument, which are placed in a reusable array (see
+	 * {@link ArgumentBuffer}).
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param argument
+	 *            - the argument.
+	 */
+	protected void l(Level messageLevel, String message, Object argument)
+	{
+		if(isLogged(messageLevel, message))
+		{
+			ArgumentBuffer buffer = ArgumentBuffer.acquire();
+			relay(messageLevel, message, buffer, buffer.set(argument));
+		}
+	}
+	
+	/**
+	 * Same as {@link #l(Level, String, Object...)}, for two arguments, which are placed in a reusable array (see
+	 * {@link ArgumentBuffer}).
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param argument1
+	 *            - the first argument.
+	 * @param argument2
+	 *            - the second argument.
+	 */
+	protected void l(Level messageLevel, String message, Object argument1, Object argument2)
+	{
+		if(isLogged(messageLevel, message))
+		{
+			ArgumentBuffer buffer = ArgumentBuffer.acquire();
+			relay(messageLevel, message, buffer, buffer.set(argument1, argument2));
+		}
+	}
+	
+	/**
+	 * Same as {@link #l(Level, String, Object...)}, for three arguments, which are placed in a reusable array (see
+	 * {@link ArgumentBuffer}).
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param argument1
+	 *            - the first argument.
+	 * @param argument2
+	 *            - the second argument.
+	 * @param argument3
+	 *            - the third argument.
+	 */
+	protected void l(Level messageLevel, String message, Object argument1, Object argument2, Object argument3)
+	{
+		if(isLogged(messageLevel, message))
+		{
+			ArgumentBuffer buffer = ArgumentBuffer.acquire();
+			relay(messageLevel, message, buffer, buffer.set(argument1, argument2, argument3));
+		}
+	}
+	
+	/**
+	 * Same as {@link #l(Level, String, Object...)}, for four arguments, which are placed in a reusable array (see
+	 * {@link ArgumentBuffer}).
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param argument1
+	 *            - the first argument.
+	 * @param argument2
+	 *            - the second argument.
+	 * @param argument3
+	 *            - the third argument.
+	 * @param argument4
+	 *            - the fourth argument.
+	 */
+	protected void l(Level messageLevel, String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		if(isLogged(messageLevel, message))
+		{
+			ArgumentBuffer buffer = ArgumentBuffer.acquire();
+			relay(messageLevel, message, buffer, buffer.set(argument1, argument2, argument3, argument4));
+		}
+	}
+	
+	/**
+	 * Same as {@link #l(Level, String, Object...)}, for one <code>int</code> argument, which is placed in a reusable
+	 * holder, without boxing (see {@link ArgumentBuffer}).
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param argument
+	 *            - the argument.
+	 */
+	protected void l(Level messageLevel, String message, int argument)
+	{
+		if(isLogged(messageLevel, message))
+		{
+			ArgumentBuffer buffer = ArgumentBuffer.acquire();
+			relay(messageLevel, message, buffer, buffer.set(buffer.primitive(0).set(argument)));
+		}
+	}
+	
+	/**
+	 * Same as {@link #l(Level, String, Object...)}, for one <code>long</code> argument, which is placed in a reusable
+	 * holder, without boxing (see {@link ArgumentBuffer}).
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param argument
+	 *            - the argument.
+	 */
+	protected void l(Level messageLevel, String message, long argument)
+	{
+		if(isLogged(messageLevel, message))
+		{
+			ArgumentBuffer buffer = ArgumentBuffer.acquire();
+			relay(messageLevel, message, buffer, buffer.set(buffer.primitive(0).set(argument)));
+		}
+	}
+	
+	/**
+	 * Same as {@link #l(Level, String, Object...)}, for one <code>double</code> argument, which is placed in a reusable
+	 * holder, without boxing (see {@link ArgumentBuffer}).
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param argument
+	 *            - the argument.
+	 */
+	protected void l(Level messageLevel, String message, double argument)
+	{
+		if(isLogged(messageLevel, message))
+		{
+			ArgumentBuffer buffer = ArgumentBuffer.acquire();
+			relay(messageLevel, message, buffer, buffer.set(buffer.primitive(0).set(argument)));
+		}
+	}
+	
+	/**
+	 * Same as {@link #l(Level, String, Object...)}, for one <code>boolean</code> argument, which is placed in a reusable
+	 * holder, without boxing (see {@link ArgumentBuffer}).
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param argument
+	 *            - the argument.
+	 */
+	protected void l(Level messageLevel, String message, boolean argument)
+	{
+		if(isLogged(messageLevel, message))
+		{
+			ArgumentBuffer buffer = ArgumentBuffer.acquire();
+			relay(messageLevel, message, buffer, buffer.set(buffer.primitive(0).set(argument)));
+		}
+	}
+	
+	/**
+	 * Same as {@link #l(Level, String, Object...)}, for one <code>char</code> argument, which is placed in a reusable
+	 * holder, without boxing (see {@link ArgumentBuffer}).
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param argument
+	 *            - the argument.
+	 */
+	protected void l(Level messageLevel, String message, char argument)
+	{
+		if(isLogged(messageLevel, message))
+		{
+			ArgumentBuffer buffer = ArgumentBuffer.acquire();
+			relay(messageLevel, message, buffer, buffer.set(buffer.primitive(0).set(argument)));
+		}
+	}
+	
+	/**
+	 * Same as {@link #l(Level, String, Object...)}, for one <code>float</code> argument, which is placed in a reusable
+	 * holder, without boxing (see {@link ArgumentBuffer}).
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param argument
+	 *            - the argument.
+	 */
+	protected void l(Level messageLevel, String message, float argument)
+	{
+		if(isLogged(messageLevel, message))
+		{
+			ArgumentBuffer buffer = ArgumentBuffer.acquire();
+			relay(messageLevel, message, buffer, buffer.set(buffer.primitive(0).set(argument)));
+		}
+	}
+	
+	/**
+	 * Relays a message to the underlying log, as the {@link LogRecord} of the {@link ArgumentBuffer}, and releases the
+	 * buffer.
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param buffer
+	 *            - the buffer to release.
+	 * @param arguments
+	 *            - the arguments, usually held by the buffer.
+	 */
+	protected void relay(Level messageLevel, String message, ArgumentBuffer buffer, Object[] arguments)
+	{
+		if(metrics != null)
+			metrics.posted(messageLevel);
+		try
+		{
+			log.l(buffer.record().set(messageLevel, logName, System.currentTimeMillis(), Thread.currentThread(),
+					message, arguments));
+		} finally
+		{
+			buffer.release();
+		}
+	}
+	
+	/**
+	 * Checks if messages with the specified level will be output by the log. A message that is not output because of
+	 * its level is counted as filtered (see {@link LogMetrics}). No message should be composed before this check.
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @return <code>true</code> if messages with the level will be output.
+	 */
+	protected boolean isLogged(Level messageLevel)
+	{
+		ensureLocked();
+		if(log == null)
+			return false;
+		if(messageLevel.displayWith(level))
+			return true;
+		if(metrics != null)
+			metrics.filtered(messageLevel);
+		return false;
+	}
+	
+	/**
+	 * Checks if a message with the specified level and text will be output by the log, also considering the rate
+	 * limits and the sampling of the log (see {@link LogLimiter}). A message that is rejected by the limiter is counted
+	 * as suppressed. No message should be composed before this check.
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message, before composition.
+	 * @return <code>true</code> if the message should be output.
+	 */
+	protected boolean isLogged(Level messageLevel, String message)
+	{
+		return isLogged(messageLevel) && ((limiter == null) || limiter.admit(messageLevel, message));
+	}
+	
+	/**
+	 * Composes a message with an array of {@link Object} instances. All apparitions of
+	 * {@link LoggerSimple#ARGUMENT_PLACEHOLDER} will be replaced with results of calls to the <code>toString()</code>
+	 * methods of objects, surrounded by {@link LoggerSimple#ARGUMENT_BEGIN} and {@link LoggerSimple#ARGUMENT_END}.
+	 * Remaining objects will be displayed after the message.
+	 * <p>
+	 * The message is parsed only once and its compiled form is cached (see {@link MessageTemplate}).
+	 * 
+	 * @param message
+	 *            : the message text.
+	 * @param objects
+	 *            : the objects.
+	 * @return the assembled string.
+	 */
+	protected static String compose(String message, Object[] objects)
+	{
+		return MessageTemplate.compose(message, objects);
 	}
 }
@@ -21,24 +21,288 @@ public class UnitComponent extends Unit implements LoggerSimple
 		super.le(message, arguments);
 	}
 	
+	@Override
+	public void le(String message)
+	{
+		super.le(message);
+	}
+	
+	@Override
+	public void le(String message, Object argument)
+	{
+		super.le(message, argument);
+	}
+	
+	@Override
+	public void le(String message, Object argument1, Object argument2)
+	{
+		super.le(message, argument1, argument2);
+	}
+	
+	@Override
+	public void le(String message, Object argument1, Object argument2, Object argument3)
+	{
+		super.le(message, argument1, argument2, argument3);
+	}
+	
+	@Override
+	public void le(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		super.le(message, argument1, argument2, argument3, argument4);
+	}
+	
+	@Override
+	public void le(String message, int argument)
+	{
+		super.le(message, argument);
+	}
+	
+	@Override
+	public void le(String message, long argument)
+	{
+		super.le(message, argument);
+	}
+	
+	@Override
+	public void le(String message, double argument)
+	{
+		super.le(message, argument);
+	}
+	
+	@Override
+	public void le(String message, boolean argument)
+	{
+		super.le(message, argument);
+	}
+	
+	@Override
+	public void le(String message, char argument)
+	{
+		super.le(message, argument);
+	}
+	
+	@Override
+	public void le(String message, float argument)
+	{
+		super.le(message, argument);
+	}
+	
 	@Override
 	public void lw(String message, Object... arguments)
 	{
 		super.lw(message, arguments);
 	}
 	
+	@Override
+	public void lw(String message)
+	{
+		super.lw(message);
+	}
+	
+	@Override
+	public void lw(String message, Object argument)
+	{
+		super.lw(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, Object argument1, Object argument2)
+	{
+		super.lw(message, argument1, argument2);
+	}
+	
+	@Override
+	public void lw(String message, Object argument1, Object argument2, Object argument3)
+	{
+		super.lw(message, argument1, argument2, argument3);
+	}
+	
+	@Override
+	public void lw(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		super.lw(message, argument1, argument2, argument3, argument4);
+	}
+	
+	@Override
+	public void lw(String message, int argument)
+	{
+		super.lw(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, long argument)
+	{
+		super.lw(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, double argument)
+	{
+		super.lw(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, boolean argument)
+	{
+		super.lw(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, char argument)
+	{
+		super.lw(message, argument);
+	}
+	
+	@Override
+	public void lw(String message, float argument)
+	{
+		super.lw(message, argument);
+	}
+	
 	@Override
 	public void li(String message, Object... arguments)
 	{
 		super.li(message, arguments);
 	}
 	
+	@Override
+	public void li(String message)
+	{
+		super.li(message);
+	}
+	
+	@Override
+	public void li(String message, Object argument)
+	{
+		super.li(message, argument);
+	}
+	
+	@Override
+	public void li(String message, Object argument1, Object argument2)
+	{
+		super.li(message, argument1, argument2);
+	}
+	
+	@Override
+	public void li(String message, Object argument1, Object argument2, Object argument3)
+	{
+		super.li(message, argument1, argument2, argument3);
+	}
+	
+	@Override
+	public void li(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		super.li(message, argument1, argument2, argument3, argument4);
+	}
+	
+	@Override
+	public void li(String message, int argument)
+	{
+		super.li(message, argument);
+	}
+	
+	@Override
+	public void li(String message, long argument)
+	{
+		super.li(message, argument);
+	}
+	
+	@Override
+	public void li(String message, double argument)
+	{
+		super.li(message, argument);
+	}
+	
+	@Override
+	public void li(String message, boolean argument)
+	{
+		super.li(message, argument);
+	}
+	
+	@Override
+	public void li(String message, char argument)
+	{
+		super.li(message, argument);
+	}
+	
+	@Override
+	public void li(String message, float argument)
+	{
+		super.li(message, argument);
+	}
+	
 	@Override
 	public void lf(String message, Object... arguments)
 	{
 		super.lf(message, arguments);
 	}
 	
+	@Override
+	public void lf(String message)
+	{
+		super.lf(message);
+	}
+	
+	@Override
+	public void lf(String message, Object argument)
+	{
+		super.lf(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, Object argument1, Object argument2)
+	{
+		super.lf(message, argument1, argument2);
+	}
+	
+	@Override
+	public void lf(String message, Object argument1, Object argument2, Object argument3)
+	{
+		super.lf(message, argument1, argument2, argument3);
+	}
+	
+	@Override
+	public void lf(String message, Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		super.lf(message, argument1, argument2, argument3, argument4);
+	}
+	
+	@Override
+	public void lf(String message, int argument)
+	{
+		super.lf(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, long argument)
+	{
+		super.lf(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, double argument)
+	{
+		super.lf(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, boolean argument)
+	{
+		super.lf(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, char argument)
+	{
+		super.lf(message, argument);
+	}
+	
+	@Override
+	public void lf(String message, float argument)
+	{
+		super.lf(message, argument);
+	}
+	
 	@Override
 	public Object lr(Object ret)
 	{
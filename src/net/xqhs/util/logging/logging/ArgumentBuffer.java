@@ -0,0 +1,283 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+/**
+ * Per-thread set of reusable argument arrays (of up to {@link #MAX_ARGUMENTS} elements), {@link PrimitiveArgument}
+ * holders and a {@link LogRecord}, used by the logging methods in order to avoid allocating a new record and a new
+ * array (and boxing primitive values) at each call. Methods with variable arguments only reuse the record.
+ * <p>
+ * A buffer is obtained with {@link #acquire()} and must be released with {@link #release()} after the logging call.
+ * If a buffer is acquired again by the same thread before being released (e.g. when a <code>toString()</code> method
+ * called while logging also logs something), a new buffer is created, so that arrays in use are never overwritten.
+ * <p>
+ * The arrays are only valid until the buffer is released. Code that needs the arguments after the logging call returns
+ * must copy them, e.g. by means of a {@link Copy}.
+ * 
+ * @author Andrei Olaru
+ */
+public final class ArgumentBuffer
+{
+	/**
+	 * Reusable storage for a copy of the arguments of a message, for code that needs the arguments after the logging
+	 * call returns. Arrays and {@link PrimitiveArgument} holders are created when first needed and are reused by later
+	 * copies, so that copying does not allocate memory once they exist. Other arguments are copied by reference.
+	 * <p>
+	 * Instances are not thread-safe.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static final class Copy
+	{
+		/**
+		 * Reusable arrays of up to {@link ArgumentBuffer#MAX_ARGUMENTS} elements, by length; created when first
+		 * needed.
+		 */
+		protected Object[][]			arrays		= null;
+		/**
+		 * The last array used for more than {@link ArgumentBuffer#MAX_ARGUMENTS} arguments, reused for the same
+		 * number of arguments.
+		 */
+		protected Object[]				larger		= null;
+		/**
+		 * Reusable holders for primitive arguments, by position; created when first needed.
+		 */
+		protected PrimitiveArgument[]	primitives	= null;
+		/**
+		 * The current copy; <code>null</code> if there is none.
+		 */
+		protected Object[]				arguments	= null;
+		
+		/**
+		 * Copies the arguments of a message, replacing the previous copy. {@link PrimitiveArgument} holders are copied
+		 * by value, as the caller may reuse them after the call.
+		 * 
+		 * @param source
+		 *            - the arguments; may be <code>null</code>.
+		 * @return the copy, valid until the next call to {@link #copy(Object[])} or {@link #clear()};
+		 *         <code>null</code> if the source is <code>null</code>.
+		 */
+		public Object[] copy(Object[] source)
+		{
+			clear();
+			if(source == null)
+				return null;
+			int length = source.length;
+			Object[] target;
+			if(length <= MAX_ARGUMENTS)
+			{
+				if(arrays == null)
+				{
+					arrays = new Object[MAX_ARGUMENTS + 1][];
+					for(int i = 0; i <= MAX_ARGUMENTS; i++)
+						arrays[i] = new Object[i];
+				}
+				target = arrays[length];
+			}
+			else
+			{
+				if((larger == null) || (larger.length != length))
+					larger = new Object[length];
+				target = larger;
+			}
+			for(int i = 0; i < length; i++)
+				if(source[i] instanceof PrimitiveArgument)
+				{
+					if((primitives == null) || (i >= primitives.length))
+					{
+						PrimitiveArgument[] grown = new PrimitiveArgument[Math.max(length, MAX_ARGUMENTS)];
+						if(primitives != null)
+							System.arraycopy(primitives, 0, grown, 0, primitives.length);
+						primitives = grown;
+					}
+					if(primitives[i] == null)
+						primitives[i] = new PrimitiveArgument();
+					target[i] = ((PrimitiveArgument) source[i]).copyTo(primitives[i]);
+				}
+				else
+					target[i] = source[i];
+			arguments = target;
+			return target;
+		}
+		
+		/**
+		 * Clears the current copy, so that the arguments can be collected.
+		 */
+		public void clear()
+		{
+			if(arguments != null)
+				for(int i = 0; i < arguments.length; i++)
+					arguments[i] = null;
+			arguments = null;
+		}
+	}
+	
+	/**
+	 * The maximum number of arguments for which arrays are reused.
+	 */
+	public static final int								MAX_ARGUMENTS	= 4;
+	
+	/**
+	 * The buffers of each thread.
+	 */
+	protected static final ThreadLocal<ArgumentBuffer>	buffers			= new ThreadLocal<ArgumentBuffer>() {
+		@Override
+		protected ArgumentBuffer initialValue()
+		{
+			return new ArgumentBuffer();
+		}
+	};
+	
+	/**
+	 * The reusable arrays, by length.
+	 */
+	protected final Object[][]							arrays			= new Object[MAX_ARGUMENTS + 1][];
+	/**
+	 * The reusable holders for primitive arguments, by position.
+	 */
+	protected final PrimitiveArgument[]					primitives		= new PrimitiveArgument[MAX_ARGUMENTS];
+	/**
+	 * The reusable record.
+	 */
+	protected final LogRecord							record			= new LogRecord();
+	/**
+	 * <code>true</code> while the buffer is in use.
+	 */
+	protected boolean									inUse			= false;
+	
+	/**
+	 * Creates a new buffer.
+	 */
+	protected ArgumentBuffer()
+	{
+		for(int i = 0; i <= MAX_ARGUMENTS; i++)
+			arrays[i] = new Object[i];
+		for(int i = 0; i < MAX_ARGUMENTS; i++)
+			primitives[i] = new PrimitiveArgument();
+	}
+	
+	/**
+	 * @return the buffer of the current thread or, if it is already in use, a new buffer.
+	 */
+	public static ArgumentBuffer acquire()
+	{
+		ArgumentBuffer buffer = buffers.get();
+		if(buffer.inUse)
+			buffer = new ArgumentBuffer();
+		buffer.inUse = true;
+		return buffer;
+	}
+	
+	/**
+	 * Releases the buffer, clearing any references to arguments.
+	 */
+	public void release()
+	{
+		for(Object[] array : arrays)
+			for(int i = 0; i < array.length; i++)
+				array[i] = null;
+		record.clear();
+		inUse = false;
+	}
+	
+	/**
+	 * @param index
+	 *            - the position of the argument.
+	 * @return the reusable holder for a primitive argument at the specified position.
+	 */
+	public PrimitiveArgument primitive(int index)
+	{
+		return primitives[index];
+	}
+	
+	/**
+	 * @return the reusable record.
+	 */
+	public LogRecord record()
+	{
+		return record;
+	}
+	
+	/**
+	 * @return an empty array.
+	 */
+	public Object[] set()
+	{
+		return arrays[0];
+	}
+	
+	/**
+	 * @param argument
+	 *            - the argument.
+	 * @return the reusable array of one element, containing the argument.
+	 */
+	public Object[] set(Object argument)
+	{
+		Object[] array = arrays[1];
+		array[0] = argument;
+		return array;
+	}
+	
+	/**
+	 * @param argument1
+	 *            - the first argument.
+	 * @param argument2
+	 *            - the second argument.
+	 * @return the reusable array of two elements, containing the arguments.
+	 */
+	public Object[] set(Object argument1, Object argument2)
+	{
+		Object[] array = arrays[2];
+		array[0] = argument1;
+		array[1] = argument2;
+		return array;
+	}
+	
+	/**
+	 * @param argument1
+	 *            - the first argument.
+	 * @param argument2
+	 *            - the second argument.
+	 * @param argument3
+	 *            - the third argument.
+	 * @return the reusable array of three elements, containing the arguments.
+	 */
+	public Object[] set(Object argument1, Object argument2, Object argument3)
+	{
+		Object[] array = arrays[3];
+		array[0] = argument1;
+		array[1] = argument2;
+		array[2] = argument3;
+		return array;
+	}
+	
+	/**
+	 * @param argument1
+	 *            - the first argument.
+	 * @param argument2
+	 *            - the second argument.
+	 * @param argument3
+	 *            - the third argument.
+	 * @param argument4
+	 *            - the fourth argument.
+	 * @return the reusable array of four elements, containing the arguments.
+	 */
+	public Object[] set(Object argument1, Object argument2, Object argument3, Object argument4)
+	{
+		Object[] array = arrays[4];
+		array[0] = argument1;
+		array[1] = argument2;
+		array[2] = argument3;
+		array[3] = argument4;
+		return array;
+	}
+}
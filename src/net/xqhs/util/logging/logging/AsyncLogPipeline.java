@@ -0,0 +1,556 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Pipeline that moves logging messages from the threads that post them to background threads, which compose the
+ * messages and call the actual {@link LogWrapper}. It is used by {@link AsyncLogWrapper} instances.
+ * <p>
+ * The pipeline contains one or more bounded ring buffers, each with a single consumer thread. Events in the ring
+ * buffers are allocated when the pipeline is created and are reused. Any number of threads may publish events
+ * concurrently. Each log is assigned to exactly one ring buffer, so that the order of the messages in each log is
+ * preserved.
+ * <p>
+ * When a ring buffer is empty, its consumer waits; when it is full, producers wait. The manner of waiting is given by
+ * the {@link WaitStrategy} of the pipeline.
+ * <p>
+ * Consumer threads are daemon threads. On JVM shutdown, the pipeline attempts to deliver pending messages, before
+ * outputs are flushed (see {@link LogShutdown}).
+ * 
+ * @author Andrei Olaru
+ */
+public class AsyncLogPipeline
+{
+	/**
+	 * The way in which threads wait for the ring buffer to become non-empty (consumers) or non-full (producers).
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static enum WaitStrategy {
+		/**
+		 * Busy-spin. Lowest latency, but keeps a core busy even when there are no messages.
+		 */
+		BUSY_SPIN,
+		
+		/**
+		 * Spin, but yield the processor at each step.
+		 */
+		YIELD,
+		
+		/**
+		 * Park the thread for a short time at each step. Highest latency, lowest processor usage. An idle consumer
+		 * parks until a producer wakes it up, so that it uses no processor time when nothing is logged.
+		 */
+		PARK,
+	}
+	
+	/**
+	 * Types of events passing through the pipeline.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected static enum EventType {
+		/**
+		 * A logging message.
+		 */
+		MESSAGE,
+		
+		/**
+		 * A logging message, as a {@link LogRecord}.
+		 */
+		RECORD,
+		
+		/**
+		 * The log has exited.
+		 */
+		EXIT,
+	}
+	
+	/**
+	 * An event in the ring buffer. Instances are reused, together with the arrays in which arguments are copied.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected static class LogEvent
+	{
+		/**
+		 * The type of the event.
+		 */
+		EventType			type;
+		/**
+		 * The log that the event belongs to.
+		 */
+		AsyncLogWrapper		target;
+		/**
+		 * The level of the message.
+		 */
+		Level				level;
+		/**
+		 * The message (template, if there are arguments).
+		 */
+		String				message;
+		/**
+		 * The arguments of the message; <code>null</code> if the message is already composed.
+		 */
+		Object[]			arguments;
+		/**
+		 * Reusable storage for the copy of the arguments.
+		 */
+		ArgumentBuffer.Copy	argumentCopy	= new ArgumentBuffer.Copy();
+		/**
+		 * Reusable record, for events of type {@link EventType#RECORD}; created when first needed.
+		 */
+		LogRecord			record;
+		
+		/**
+		 * Copies a record into the event, together with its arguments (see {@link #copyArguments(Object[])}).
+		 * 
+		 * @param source
+		 *            - the record.
+		 */
+		void copyRecord(LogRecord source)
+		{
+			copyArguments(source.getArguments());
+			if(record == null)
+				record = new LogRecord();
+			record.set(source.getLevel(), source.getLogName(), source.getTime(), source.getThread(),
+					source.getTemplate(), arguments);
+		}
+		
+		/**
+		 * Copies the arguments of a message into the event, as the caller may reuse the array (and any
+		 * {@link PrimitiveArgument} holders) after the call.
+		 * 
+		 * @param source
+		 *            - the arguments; may be <code>null</code>.
+		 */
+		void copyArguments(Object[] source)
+		{
+			arguments = argumentCopy.copy(source);
+		}
+		
+		/**
+		 * Clears references, so that they can be collected.
+		 */
+		void clear()
+		{
+			target = null;
+			message = null;
+			if(record != null)
+				record.clear();
+			argumentCopy.clear();
+			arguments = null;
+		}
+	}
+	
+	/**
+	 * A bounded, multi-producer, single-consumer ring buffer, together with its consumer.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected class Ring implements Runnable
+	{
+		/**
+		 * The preallocated events.
+		 */
+		final LogEvent[]		events;
+		/**
+		 * Mask for computing the index of a sequence number in {@link #events}.
+		 */
+		final int				mask;
+		/**
+		 * The next sequence number to be claimed by a producer.
+		 */
+		final AtomicLong		claimed		= new AtomicLong(0);
+		/**
+		 * For each index, the sequence number of the last event published at that index.
+		 */
+		final AtomicLongArray	published;
+		/**
+		 * The next sequence number to be consumed. Only written by the consumer.
+		 */
+		volatile long			consumed	= 0;
+		/**
+		 * <code>true</code> while the consumer is parked until an event is published (only for
+		 * {@link WaitStrategy#PARK}).
+		 */
+		volatile boolean		idle		= false;
+		/**
+		 * The consumer thread.
+		 */
+		Thread					consumer;
+		
+		/**
+		 * Creates a ring buffer.
+		 * 
+		 * @param size
+		 *            - the capacity of the ring; must be a power of two.
+		 */
+		Ring(int size)
+		{
+			events = new LogEvent[size];
+			published = new AtomicLongArray(size);
+			for(int i = 0; i < size; i++)
+			{
+				events[i] = new LogEvent();
+				published.set(i, -1);
+			}
+			mask = size - 1;
+		}
+		
+		/**
+		 * Publishes an event. Waits while the ring is full. If called from the consumer thread, or after the pipeline
+		 * has been shut down, the event is processed directly, as waiting would never end.
+		 * 
+		 * @param type
+		 *            - the type of the event.
+		 * @param target
+		 *            - the log.
+		 * @param level
+		 *            - the level of the message.
+		 * @param message
+		 *            - the message.
+		 * @param arguments
+		 *            - the arguments, if any.
+		 */
+		void publish(EventType type, AsyncLogWrapper target, Level level, String message, Object[] arguments)
+		{
+			if(!running || (Thread.currentThread() == consumer))
+			{
+				process(type, target, level, message, arguments, null);
+				return;
+			}
+			long sequence = claim();
+			if(sequence < 0)
+			{
+				process(type, target, level, message, arguments, null);
+				return;
+			}
+			LogEvent event = events[(int) (sequence & mask)];
+			event.type = type;
+			event.target = target;
+			event.level = level;
+			event.message = message;
+			event.copyArguments(arguments);
+			commit(sequence);
+		}
+		
+		/**
+		 * Publishes a message given as a {@link LogRecord}, which is copied into the event. See
+		 * {@link #publish(EventType, AsyncLogWrapper, Level, String, Object[])}.
+		 * 
+		 * @param target
+		 *            - the log.
+		 * @param record
+		 *            - the record.
+		 */
+		void publish(AsyncLogWrapper target, LogRecord record)
+		{
+			if(!running || (Thread.currentThread() == consumer))
+			{
+				process(EventType.RECORD, target, null, null, null, record);
+				return;
+			}
+			long sequence = claim();
+			if(sequence < 0)
+			{
+				process(EventType.RECORD, target, null, null, null, record);
+				return;
+			}
+			LogEvent event = events[(int) (sequence & mask)];
+			event.type = EventType.RECORD;
+			event.target = target;
+			event.copyRecord(record);
+			commit(sequence);
+		}
+		
+		/**
+		 * Claims the next sequence number, waiting while the ring is full.
+		 * 
+		 * @return the sequence number; -1 if the pipeline has been shut down and its consumer has stopped, so that the
+		 *         event would never be consumed.
+		 */
+		long claim()
+		{
+			long sequence = claimed.getAndIncrement();
+			while(sequence - events.length >= consumed)
+			{
+				if(!running && !consumer.isAlive())
+					return -1;
+				await();
+			}
+			return sequence;
+		}
+		
+		/**
+		 * Marks an event as published and, for {@link WaitStrategy#PARK}, wakes the consumer up if it is idle.
+		 * 
+		 * @param sequence
+		 *            - the sequence number of the event.
+		 */
+		void commit(long sequence)
+		{
+			int index = (int) (sequence & mask);
+			if(waitStrategy != WaitStrategy.PARK)
+				published.lazySet(index, sequence);
+			else
+			{
+				// a volatile write, so that idle is read after the event is visible to the consumer
+				published.set(index, sequence);
+				if(idle)
+					LockSupport.unpark(consumer);
+			}
+		}
+		
+		/**
+		 * Parks the consumer until an event is published at the given index, or until the pipeline is shut down.
+		 * 
+		 * @param index
+		 *            - the index of the next event.
+		 * @param sequence
+		 *            - the sequence number of the next event.
+		 */
+		void awaitPublished(int index, long sequence)
+		{
+			idle = true;
+			while(running && (published.get(index) != sequence))
+				LockSupport.park(this);
+			idle = false;
+		}
+		
+		/**
+		 * Waits until all events claimed before the call have been consumed.
+		 */
+		void drain()
+		{
+			if(Thread.currentThread() == consumer)
+				return;
+			long last = claimed.get();
+			while(consumed < last && consumer.isAlive())
+				await();
+		}
+		
+		@Override
+		public void run()
+		{
+			long next = consumed;
+			while(running || (next < claimed.get()))
+			{
+				int index = (int) (next & mask);
+				if(published.get(index) == next)
+				{
+					LogEvent event = events[index];
+					process(event.type, event.target, event.level, event.message, event.arguments, event.record);
+					event.clear();
+					consumed = ++next;
+				}
+				else if((waitStrategy == WaitStrategy.PARK) && running)
+					awaitPublished(index, next);
+				else
+					await();
+			}
+		}
+	}
+	
+	/**
+	 * The default capacity of a ring buffer.
+	 */
+	public static final int						DEFAULT_CAPACITY		= 8192;
+	/**
+	 * The default number of consumer threads (and ring buffers).
+	 */
+	public static final int						DEFAULT_CONSUMERS		= 1;
+	/**
+	 * The default wait strategy.
+	 */
+	public static final WaitStrategy			DEFAULT_WAIT_STRATEGY	= WaitStrategy.PARK;
+	/**
+	 * The duration of one wait, for {@link WaitStrategy#PARK}, in nanoseconds.
+	 */
+	protected static final long					PARK_NANOS				= 100000;
+	/**
+	 * Prefix for the names of consumer threads.
+	 */
+	protected static final String				THREAD_NAME				= "log-async-";
+	
+	/**
+	 * Holder for the default pipeline, so that it is created only when first used.
+	 */
+	private static class DefaultPipeline
+	{
+		/**
+		 * The default pipeline.
+		 */
+		static final AsyncLogPipeline	instance	= new AsyncLogPipeline(DEFAULT_CAPACITY, DEFAULT_CONSUMERS,
+															DEFAULT_WAIT_STRATEGY);
+	}
+	
+	/**
+	 * The ring buffers.
+	 */
+	protected final Ring[]						rings;
+	/**
+	 * The wait strategy.
+	 */
+	protected final WaitStrategy				waitStrategy;
+	/**
+	 * <code>false</code> after the pipeline has been shut down.
+	 */
+	protected volatile boolean					running					= true;
+	
+	/**
+	 * Creates and starts a new pipeline.
+	 * 
+	 * @param capacity
+	 *            - the capacity of each ring buffer. It will be rounded up to a power of two.
+	 * @param consumers
+	 *            - the number of ring buffers (and consumer threads).
+	 * @param strategy
+	 *            - the {@link WaitStrategy} to use.
+	 */
+	public AsyncLogPipeline(int capacity, int consumers, WaitStrategy strategy)
+	{
+		if(capacity < 1 || consumers < 1 || strategy == null)
+			throw new IllegalArgumentException("invalid pipeline configuration");
+		int size = Integer.highestOneBit(capacity);
+		if(size < capacity)
+			size <<= 1;
+		waitStrategy = strategy;
+		rings = new Ring[consumers];
+		for(int i = 0; i < consumers; i++)
+		{
+			rings[i] = new Ring(size);
+			rings[i].consumer = new Thread(rings[i], THREAD_NAME + i);
+			rings[i].consumer.setDaemon(true);
+			rings[i].consumer.start();
+		}
+		LogShutdown.register(LogShutdown.Stage.DRAIN, new Runnable() {
+			@Override
+			public void run()
+			{
+				shutdown();
+			}
+		});
+	}
+	
+	/**
+	 * @return the default pipeline, which is created the first time this method is called.
+	 */
+	public static AsyncLogPipeline getDefault()
+	{
+		return DefaultPipeline.instance;
+	}
+	
+	/**
+	 * Stops the consumer threads, after they deliver all pending events. Logging messages published after this call
+	 * may be lost.
+	 */
+	public void shutdown()
+	{
+		running = false;
+		for(Ring ring : rings)
+			LockSupport.unpark(ring.consumer);
+		for(Ring ring : rings)
+			try
+			{
+				ring.consumer.join();
+			} catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return;
+			}
+	}
+	
+	/**
+	 * Waits until all messages published before the call are delivered.
+	 */
+	public void drain()
+	{
+		for(Ring ring : rings)
+			ring.drain();
+	}
+	
+	/**
+	 * Selects the ring buffer for a log. All events of the log will pass through the same ring buffer.
+	 * 
+	 * @param log
+	 *            - the log.
+	 * @return the ring buffer.
+	 */
+	protected Ring assign(AsyncLogWrapper log)
+	{
+		return rings[(System.identityHashCode(log) & Integer.MAX_VALUE) % rings.length];
+	}
+	
+	/**
+	 * Waits for one step, according to the {@link WaitStrategy} of the pipeline.
+	 */
+	protected void await()
+	{
+		switch(waitStrategy)
+		{
+		case BUSY_SPIN:
+			break;
+		case YIELD:
+			Thread.yield();
+			break;
+		case PARK:
+			LockSupport.parkNanos(PARK_NANOS);
+			break;
+		}
+	}
+	
+	/**
+	 * Delivers an event to its log. Errors are printed out and do not stop the consumer.
+	 * 
+	 * @param type
+	 *            - the type of the event.
+	 * @param target
+	 *            - the log.
+	 * @param level
+	 *            - the level of the message.
+	 * @param message
+	 *            - the message.
+	 * @param arguments
+	 *            - the arguments, if any.
+	 * @param record
+	 *            - the record, for events of type {@link EventType#RECORD}.
+	 */
+	protected static void process(EventType type, AsyncLogWrapper target, Level level, String message,
+			Object[] arguments, LogRecord record)
+	{
+		try
+		{
+			switch(type)
+			{
+			case MESSAGE:
+				target.deliver(level, message, arguments);
+				break;
+			case RECORD:
+				target.deliver(record);
+				break;
+			case EXIT:
+				target.deliverExit();
+				break;
+			}
+		} catch(RuntimeException e)
+		{
+			e.printStackTrace();
+		}
+	}
+}
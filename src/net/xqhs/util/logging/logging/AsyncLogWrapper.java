@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.io.OutputStream;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * A {@link LogWrapper} that relays messages to another {@link LogWrapper} asynchronously, through an
+ * {@link AsyncLogPipeline}. The calling thread only publishes the message and its arguments to the pipeline; messages
+ * are composed and passed to the wrapped log by a background thread.
+ * <p>
+ * Since composition is deferred, the <code>toString()</code> method of the arguments is called on the background
+ * thread, some time after the logging call. Arguments should therefore be immutable, or at least not be modified after
+ * being logged.
+ * <p>
+ * Instances are created by {@link Logging}, for logs that are configured as asynchronous.
+ * 
+ * @author Andrei Olaru
+ */
+public class AsyncLogWrapper extends LogWrapper
+{
+	/**
+	 * The wrapped log.
+	 */
+	protected final LogWrapper					wrapped;
+	/**
+	 * The pipeline.
+	 */
+	protected final AsyncLogPipeline			pipeline;
+	/**
+	 * The ring buffer of the pipeline that is used by this log.
+	 */
+	protected final AsyncLogPipeline.Ring	ring;
+	
+	/**
+	 * Creates a new asynchronous wrapper.
+	 * 
+	 * @param wrappedLog
+	 *            - the log to relay messages to.
+	 * @param asyncPipeline
+	 *            - the pipeline to use.
+	 */
+	public AsyncLogWrapper(LogWrapper wrappedLog, AsyncLogPipeline asyncPipeline)
+	{
+		wrapped = wrappedLog;
+		pipeline = asyncPipeline;
+		ring = pipeline.assign(this);
+	}
+	
+	@Override
+	public void setLevel(Level level)
+	{
+		wrapped.setLevel(level);
+	}
+	
+	@Override
+	protected void addDestination(String format, OutputStream destination)
+	{
+		wrapped.addDestination(format, destination);
+	}
+	
+	@Override
+	public void l(Level level, String message)
+	{
+		ring.publish(AsyncLogPipeline.EventType.MESSAGE, this, level, message, null);
+	}
+	
+	@Override
+	public void l(Level level, String message, Object[] arguments)
+	{
+		ring.publish(AsyncLogPipeline.EventType.MESSAGE, this, level, message, arguments);
+	}
+	
+	/**
+	 * The record is copied, together with its arguments, and delivered to the wrapped log as a {@link LogRecord}. The
+	 * time stamp and the thread are the ones of the original call.
+	 */
+	@Override
+	public void l(LogRecord record)
+	{
+		ring.publish(this, record);
+	}
+	
+	/**
+	 * Waits until all messages posted to this log before the call are delivered to the wrapped log.
+	 */
+	public void flush()
+	{
+		ring.drain();
+	}
+	
+	/**
+	 * The log will exit after all messages posted before the call are delivered.
+	 */
+	@Override
+	public void exit()
+	{
+		ring.publish(AsyncLogPipeline.EventType.EXIT, this, null, null, null);
+	}
+	
+	/**
+	 * Called by the pipeline to deliver a message to the wrapped log.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 * @param message
+	 *            - the message.
+	 * @param arguments
+	 *            - the arguments; <code>null</code> if the message is already composed.
+	 */
+	protected void deliver(Level level, String message, Object[] arguments)
+	{
+		if(arguments == null)
+			wrapped.l(level, message);
+		else
+			wrapped.l(level, message, arguments);
+	}
+	
+	/**
+	 * Called by the pipeline to deliver a record to the wrapped log.
+	 * 
+	 * @param record
+	 *            - the record.
+	 */
+	protected void deliver(LogRecord record)
+	{
+		wrapped.l(record);
+	}
+	
+	/**
+	 * Called by the pipeline when the log exits.
+	 */
+	protected void deliverExit()
+	{
+		wrapped.exit();
+	}
+}
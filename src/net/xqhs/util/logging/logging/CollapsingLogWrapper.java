@@ -0,0 +1,342 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.io.OutputStream;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * A {@link LogWrapper} that collapses consecutive identical messages before relaying them to another
+ * {@link LogWrapper}. Two messages are identical if they have the same level, the same template, and equal arguments
+ * ({@link PrimitiveArgument} holders are compared by value, other arguments by <code>equals()</code>).
+ * <p>
+ * The first message of a run is relayed immediately; the following identical messages are only counted. The number of
+ * repetitions is posted, as a message with the same level, when a different message arrives, when the log exits, or
+ * when the timeout has passed since the first repetition that was held back (the check is done by a task of the
+ * {@link LogScheduler}). After the number is posted by the task, further repetitions are counted again, so that a long
+ * run results in one message for each timeout.
+ * <p>
+ * Since the arguments of a held message are compared with later arguments, they should be immutable, or at least not
+ * be modified after being logged.
+ * <p>
+ * Instances are created by {@link Logging}, for logs that are configured to collapse repeated messages.
+ * 
+ * @author Andrei Olaru
+ */
+public class CollapsingLogWrapper extends LogWrapper
+{
+	/**
+	 * The template of the message that gives the number of repetitions.
+	 */
+	public static final String			REPEATED_MESSAGE	= "last message repeated [] times";
+	
+	/**
+	 * The wrapped log.
+	 */
+	protected final LogWrapper			wrapped;
+	/**
+	 * The name of the log, used in the records that give the number of repetitions.
+	 */
+	protected final String				logName;
+	/**
+	 * The maximum time for which repetitions are held back, in milliseconds.
+	 */
+	protected final long				timeout;
+	/**
+	 * The task that posts the number of repetitions after the timeout.
+	 */
+	protected final LogScheduler.Task	task;
+	
+	/**
+	 * The level of the last message; <code>null</code> if there is no last message.
+	 */
+	protected Level						lastLevel			= null;
+	/**
+	 * The template of the last message.
+	 */
+	protected String					lastTemplate		= null;
+	/**
+	 * Copy of the arguments of the last message; <code>null</code> if the message had no arguments.
+	 */
+	protected Object[]					lastArguments		= null;
+	/**
+	 * Reusable storage for {@link #lastArguments}.
+	 */
+	protected final ArgumentBuffer.Copy	lastCopy			= new ArgumentBuffer.Copy();
+	/**
+	 * The number of repetitions of the last message that have been held back. It is only modified while holding
+	 * {@link #lock}.
+	 */
+	protected volatile long				repeated			= 0;
+	/**
+	 * The time of the first repetition that was held back, in milliseconds.
+	 */
+	protected long						firstRepeated		= 0;
+	/**
+	 * Reusable record for the message that gives the number of repetitions.
+	 */
+	protected final LogRecord			countRecord			= new LogRecord();
+	/**
+	 * Reusable holder for the number of repetitions.
+	 */
+	protected final PrimitiveArgument	countArgument		= new PrimitiveArgument();
+	/**
+	 * Reusable array for the arguments of {@link #countRecord}.
+	 */
+	protected final Object[]			countArguments		= new Object[] { countArgument };
+	/**
+	 * The lock guarding the state of the wrapper. It is a {@link ReentrantLock} rather than a monitor, so that virtual
+	 * threads posting to the log do not pin their carrier thread.
+	 */
+	protected final ReentrantLock		lock				= new ReentrantLock();
+	
+	/**
+	 * Creates a new collapsing wrapper, and schedules its task with the default {@link LogScheduler}.
+	 * 
+	 * @param wrappedLog
+	 *            - the log to relay messages to.
+	 * @param name
+	 *            - the name of the log.
+	 * @param repeatTimeout
+	 *            - the maximum time for which repetitions are held back, in milliseconds.
+	 */
+	public CollapsingLogWrapper(LogWrapper wrappedLog, String name, long repeatTimeout)
+	{
+		wrapped = wrappedLog;
+		logName = name;
+		timeout = repeatTimeout;
+		task = LogScheduler.getDefault().schedule(new LogScheduler.Task() {
+			@Override
+			protected boolean isPending()
+			{
+				return repeated > 0;
+			}
+			
+			@Override
+			public void run()
+			{
+				postRepeated(false);
+			}
+		}, timeout);
+	}
+	
+	@Override
+	public void setLevel(Level level)
+	{
+		wrapped.setLevel(level);
+	}
+	
+	@Override
+	protected void addDestination(String format, OutputStream destination)
+	{
+		wrapped.addDestination(format, destination);
+	}
+	
+	@Override
+	public void l(Level level, String message)
+	{
+		lock.lock();
+		try
+		{
+			if(!isRepeated(level, message, null))
+				wrapped.l(level, message);
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public void l(Level level, String message, Object[] arguments)
+	{
+		lock.lock();
+		try
+		{
+			if(!isRepeated(level, message, arguments))
+				wrapped.l(level, message, arguments);
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public void l(LogRecord record)
+	{
+		lock.lock();
+		try
+		{
+			if(!isRepeated(record.getLevel(), record.getTemplate(), record.getArguments()))
+				wrapped.l(record);
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Posts the number of repetitions that are held back, if any, without waiting for the timeout.
+	 */
+	public void flush()
+	{
+		postRepeated(true);
+	}
+	
+	/**
+	 * Posts the number of repetitions that are held back, if any, and exits the wrapped log.
+	 */
+	@Override
+	public void exit()
+	{
+		task.cancel();
+		lock.lock();
+		try
+		{
+			postRepeated(true);
+			lastLevel = null;
+			lastTemplate = null;
+			lastCopy.clear();
+			lastArguments = null;
+		} finally
+		{
+			lock.unlock();
+		}
+		wrapped.exit();
+	}
+	
+	/**
+	 * Checks if a message is identical to the last message. If it is, the repetition is counted. If not, the number of
+	 * repetitions of the last message is posted (if any) and the message becomes the last message.
+	 * <p>
+	 * Must be called while holding {@link #lock}.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 * @param template
+	 *            - the template of the message.
+	 * @param arguments
+	 *            - the arguments of the message; may be <code>null</code>.
+	 * @return <code>true</code> if the message is a repetition and should not be relayed.
+	 */
+	protected boolean isRepeated(Level level, String template, Object[] arguments)
+	{
+		if(level == lastLevel && sameTemplate(template) && sameArguments(arguments))
+		{
+			if(repeated++ == 0)
+				firstRepeated = System.currentTimeMillis();
+			return true;
+		}
+		postRepeated(true);
+		lastLevel = level;
+		lastTemplate = template;
+		copyArguments(arguments);
+		return false;
+	}
+	
+	/**
+	 * Posts the number of repetitions of the last message, if any, and resets the count.
+	 * 
+	 * @param always
+	 *            - if <code>false</code>, the number is posted only if the timeout has passed since the first
+	 *            repetition that was held back.
+	 */
+	protected void postRepeated(boolean always)
+	{
+		lock.lock();
+		try
+		{
+			if(repeated == 0)
+				return;
+			long now = System.currentTimeMillis();
+			if(!always && now - firstRepeated < timeout)
+				return;
+			countArgument.set(repeated);
+			repeated = 0;
+			wrapped.l(countRecord.set(lastLevel, logName, now, Thread.currentThread(), REPEATED_MESSAGE,
+					countArguments));
+			countRecord.clear();
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @param template
+	 *            - a template.
+	 * @return <code>true</code> if the template is the same as the template of the last message.
+	 */
+	protected boolean sameTemplate(String template)
+	{
+		return (template == lastTemplate) || ((template != null) && template.equals(lastTemplate));
+	}
+	
+	/**
+	 * @param arguments
+	 *            - arguments of a message; may be <code>null</code>.
+	 * @return <code>true</code> if the arguments are equal to the arguments of the last message.
+	 */
+	protected boolean sameArguments(Object[] arguments)
+	{
+		int length = (arguments != null) ? arguments.length : 0;
+		int lastLength = (lastArguments != null) ? lastArguments.length : 0;
+		if(length != lastLength)
+			return false;
+		for(int i = 0; i < length; i++)
+		{
+			Object argument = arguments[i];
+			Object last = lastArguments[i];
+			if(argument instanceof PrimitiveArgument)
+			{
+				if(!(last instanceof PrimitiveArgument)
+						|| !sameValue((PrimitiveArgument) argument, (PrimitiveArgument) last))
+					return false;
+			}
+			else if((argument != last) && ((argument == null) || !argument.equals(last)))
+				return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Copies the arguments of a message as the arguments of the last message, as the caller may reuse the array (and
+	 * any {@link PrimitiveArgument} holders) after the call.
+	 * 
+	 * @param arguments
+	 *            - the arguments; may be <code>null</code>.
+	 */
+	protected void copyArguments(Object[] arguments)
+	{
+		if((arguments == null) || (arguments.length == 0))
+		{
+			lastCopy.clear();
+			lastArguments = null;
+		}
+		else
+			lastArguments = lastCopy.copy(arguments);
+	}
+	
+	/**
+	 * @param a
+	 *            - a holder.
+	 * @param b
+	 *            - another holder.
+	 * @return <code>true</code> if the holders have the same type and value.
+	 */
+	protected static boolean sameValue(PrimitiveArgument a, PrimitiveArgument b)
+	{
+		return (a.getType() == b.getType()) && (a.getIntegralValue() == b.getIntegralValue())
+				&& (Double.doubleToLongBits(a.getFloatingValue()) == Double.doubleToLongBits(b.getFloatingValue()));
+	}
+}
@@ -0,0 +1,495 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Process-wide sink for the console output of all logs. When enabled (see {@link #enable(int, long)}), logs hand it
+ * their encoded lines, which are appended to a bounded buffer; a single writer thread writes the contents of the
+ * buffer to the standard output file descriptor, through a {@link FileChannel}, in large writes. Lines reach the
+ * console at most after the maximum latency of the sink, or earlier when the buffer is half full. When the buffer is
+ * full, the threads posting lines wait for the writer.
+ * <p>
+ * The console output of logs goes through the stream returned by {@link #stdout()}, which writes to the sink when it
+ * is enabled, and to {@link System#out} otherwise. This stream is used for the console destination added by
+ * {@link Logging} to every log (and therefore by all wrappers that support destinations), by the
+ * {@link net.xqhs.util.logging.wrappers.ConsoleWrapper}, and by {@link net.xqhs.util.logging.DumbLogger}.
+ * <p>
+ * Since the sink writes directly to the file descriptor, its output does not go through {@link System#out}: it is not
+ * affected by {@link System#setOut(java.io.PrintStream)}, and its order relative to other output printed on
+ * {@link System#out} is not preserved. The sink is flushed when the JVM shuts down, after the asynchronous and
+ * thread-buffered logs have been drained (see {@link LogShutdown}).
+ * 
+ * @author Andrei Olaru
+ */
+public class ConsoleSink
+{
+	/**
+	 * Stream writing to the sink, if it is enabled, or to the current {@link System#out} otherwise. Each call of
+	 * {@link #write(byte[], int, int)} should contain complete lines.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected static class Stdout extends OutputStream
+	{
+		@Override
+		public void write(int b)
+		{
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len)
+		{
+			ConsoleSink sink = instance;
+			if((sink == null) || !sink.write(b, off, len))
+				System.out.write(b, off, len);
+		}
+		
+		/**
+		 * Flushes {@link System#out}, if the sink is not enabled. Otherwise, nothing is done, as the sink writes its
+		 * contents within its maximum latency (see {@link ConsoleSink#flush()}).
+		 */
+		@Override
+		public void flush()
+		{
+			if(instance == null)
+				System.out.flush();
+		}
+	}
+	
+	/**
+	 * The default capacity of the buffer, in bytes.
+	 */
+	public static final int					DEFAULT_CAPACITY	= 64 * 1024;
+	/**
+	 * The default maximum time between posting a line and writing it, in milliseconds.
+	 */
+	public static final long				DEFAULT_MAX_LATENCY	= 10;
+	/**
+	 * The name of the writer thread.
+	 */
+	protected static final String			THREAD_NAME			= "console-sink";
+	/**
+	 * The stream returned by {@link #stdout()}.
+	 */
+	protected static final OutputStream		stdout				= new Stdout();
+	/**
+	 * The lock guarding the enabling and disabling of the sink.
+	 */
+	protected static final ReentrantLock	enableLock			= new ReentrantLock();
+	/**
+	 * The sink, if it is enabled; <code>null</code> otherwise.
+	 */
+	protected static volatile ConsoleSink	instance			= null;
+	
+	static
+	{
+		LogShutdown.register(LogShutdown.Stage.FLUSH, new Runnable() {
+			@Override
+			public void run()
+			{
+				ConsoleSink sink = instance;
+				if(sink != null)
+					sink.flush();
+			}
+		});
+	}
+	
+	/**
+	 * The channel to the standard output file descriptor.
+	 */
+	protected final WritableByteChannel	channel;
+	/**
+	 * The maximum time between posting a line and writing it, in nanoseconds.
+	 */
+	protected final long				maxLatency;
+	/**
+	 * The number of buffered bytes at which the writer does not wait for the latency to expire.
+	 */
+	protected final int					threshold;
+	/**
+	 * The buffer to which lines are appended.
+	 */
+	protected ByteBuffer				filling;
+	/**
+	 * The buffer being written by the writer thread; it is swapped with {@link #filling}.
+	 */
+	protected ByteBuffer				writing;
+	/**
+	 * The lock guarding the state of the sink.
+	 */
+	protected final ReentrantLock		lock				= new ReentrantLock();
+	/**
+	 * Signaled when there is something to write, or when the sink must be flushed or closed.
+	 */
+	protected final Condition			notEmpty			= lock.newCondition();
+	/**
+	 * Signaled when the buffers have been swapped, or when the sink has been closed.
+	 */
+	protected final Condition			notFull				= lock.newCondition();
+	/**
+	 * Signaled when the writer has written a batch.
+	 */
+	protected final Condition			written				= lock.newCondition();
+	/**
+	 * The time at which the first byte in {@link #filling} was appended, as given by {@link System#nanoTime()}.
+	 */
+	protected long						firstPending		= 0;
+	/**
+	 * The number of bytes appended since the sink was created.
+	 */
+	protected long						appendedBytes		= 0;
+	/**
+	 * The number of bytes written (or dropped, in case of error) since the sink was created.
+	 */
+	protected long						writtenBytes		= 0;
+	/**
+	 * The number of threads waiting for the sink to be flushed.
+	 */
+	protected int						flushing			= 0;
+	/**
+	 * The number of threads waiting in {@link #write(byte[], int, int)} for the buffers to be swapped. The writer
+	 * thread does not stop while there are such threads, as they may have already appended part of their bytes.
+	 */
+	protected int						waitingWriters		= 0;
+	/**
+	 * <code>true</code> after the sink has been disabled.
+	 */
+	protected boolean					closed				= false;
+	/**
+	 * <code>true</code> after the writer thread has written all contents of the closed sink and has stopped.
+	 */
+	protected boolean					stopped				= false;
+	
+	/**
+	 * Creates the sink and starts its writer thread.
+	 * 
+	 * @param capacity
+	 *            - the capacity of the buffer, in bytes.
+	 * @param latency
+	 *            - the maximum time between posting a line and writing it, in milliseconds.
+	 */
+	protected ConsoleSink(int capacity, long latency)
+	{
+		this(new FileOutputStream(FileDescriptor.out).getChannel(), capacity, latency);
+	}
+	
+	/**
+	 * Creates a sink writing to the given channel and starts its writer thread.
+	 * 
+	 * @param destination
+	 *            - the channel to write to.
+	 * @param capacity
+	 *            - the capacity of the buffer, in bytes.
+	 * @param latency
+	 *            - the maximum time between posting a line and writing it, in milliseconds.
+	 */
+	protected ConsoleSink(WritableByteChannel destination, int capacity, long latency)
+	{
+		channel = destination;
+		maxLatency = TimeUnit.MILLISECONDS.toNanos(latency);
+		threshold = capacity / 2;
+		filling = ByteBuffer.allocateDirect(capacity);
+		writing = ByteBuffer.allocateDirect(capacity);
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				runWriter();
+			}
+		}, THREAD_NAME);
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * Enables the sink, with the default capacity and maximum latency. See {@link #enable(int, long)}.
+	 * 
+	 * @return the sink.
+	 */
+	public static ConsoleSink enable()
+	{
+		return enable(DEFAULT_CAPACITY, DEFAULT_MAX_LATENCY);
+	}
+	
+	/**
+	 * Enables the sink, so that the console output of all logs goes through it. If the sink is already enabled, it
+	 * remains unchanged.
+	 * 
+	 * @param capacity
+	 *            - the capacity of the buffer, in bytes.
+	 * @param maxLatency
+	 *            - the maximum time between posting a line and writing it to the console, in milliseconds.
+	 * @return the sink.
+	 */
+	public static ConsoleSink enable(int capacity, long maxLatency)
+	{
+		if(capacity <= 0)
+			throw new IllegalArgumentException("Capacity must be positive");
+		if(maxLatency < 0)
+			throw new IllegalArgumentException("Latency must not be negative");
+		enableLock.lock();
+		try
+		{
+			if(instance == null)
+				instance = new ConsoleSink(capacity, maxLatency);
+			return instance;
+		} finally
+		{
+			enableLock.unlock();
+		}
+	}
+	
+	/**
+	 * Disables the sink, after writing its contents. Console output goes to {@link System#out} again.
+	 */
+	public static void disable()
+	{
+		enableLock.lock();
+		try
+		{
+			ConsoleSink sink = instance;
+			if(sink == null)
+				return;
+			instance = null;
+			sink.close();
+		} finally
+		{
+			enableLock.unlock();
+		}
+	}
+	
+	/**
+	 * @return the sink, if it is enabled; <code>null</code> otherwise.
+	 */
+	public static ConsoleSink get()
+	{
+		return instance;
+	}
+	
+	/**
+	 * @return a stream that writes to the sink, if it is enabled, or to {@link System#out} otherwise.
+	 */
+	public static OutputStream stdout()
+	{
+		return stdout;
+	}
+	
+	/**
+	 * @return the charset used by the console.
+	 */
+	public static Charset getConsoleCharset()
+	{
+		for(String property : new String[] { "stdout.encoding", "sun.stdout.encoding" })
+		{
+			String charset = System.getProperty(property);
+			if((charset != null) && Charset.isSupported(charset))
+				return Charset.forName(charset);
+		}
+		return Charset.defaultCharset();
+	}
+	
+	/**
+	 * Appends a line to the buffer, encoded with the charset of the console, followed by the line separator.
+	 * 
+	 * @param line
+	 *            - the line.
+	 * @return <code>true</code> if the line has been appended; <code>false</code> if the sink has been disabled.
+	 */
+	public boolean println(String line)
+	{
+		byte[] bytes = (line + MultiDestinationWriter.LINE_SEPARATOR).getBytes(getConsoleCharset());
+		return write(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Appends bytes to the buffer, waiting for the writer if the buffer is full. Bytes appended by one call are written
+	 * together, unless they exceed the capacity of the buffer.
+	 * 
+	 * @param b
+	 *            - the bytes.
+	 * @param off
+	 *            - the offset of the first byte.
+	 * @param len
+	 *            - the number of bytes.
+	 * @return <code>true</code> if the bytes have been appended; <code>false</code> if the sink has been disabled.
+	 */
+	public boolean write(byte[] b, int off, int len)
+	{
+		lock.lock();
+		try
+		{
+			if(closed)
+				return false;
+			int offset = off;
+			int remaining = len;
+			while(remaining > 0)
+			{
+				int free = filling.remaining();
+				if((free < remaining) && (free < filling.capacity()))
+				{
+					// wait for the buffer to be swapped, so that the bytes are written together
+					waitingWriters++;
+					notEmpty.signal();
+					notFull.awaitUninterruptibly();
+					waitingWriters--;
+					if(closed && (offset == off))
+					{
+						// nothing appended yet; the writer may be waiting for this thread to leave
+						notEmpty.signal();
+						return false;
+					}
+					continue;
+				}
+				int chunk = Math.min(free, remaining);
+				if(filling.position() == 0)
+				{
+					firstPending = System.nanoTime();
+					notEmpty.signal();
+				}
+				filling.put(b, offset, chunk);
+				appendedBytes += chunk;
+				offset += chunk;
+				remaining -= chunk;
+				if(filling.position() >= threshold)
+					notEmpty.signal();
+			}
+			return true;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Waits until all bytes appended before the call are written to the console. This also holds if the sink is
+	 * closed in the meantime, as the writer thread only stops after writing all appended bytes.
+	 */
+	public void flush()
+	{
+		lock.lock();
+		try
+		{
+			long target = appendedBytes;
+			flushing++;
+			try
+			{
+				notEmpty.signal();
+				while(writtenBytes < target)
+					written.awaitUninterruptibly();
+			} finally
+			{
+				flushing--;
+			}
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Stops the writer thread, after it writes the contents of the buffer, and waits for it to finish. Calls to
+	 * {@link #write(byte[], int, int)} starting after this call return <code>false</code>; bytes of calls that are
+	 * already appending are written.
+	 */
+	protected void close()
+	{
+		lock.lock();
+		try
+		{
+			closed = true;
+			notEmpty.signal();
+			notFull.signalAll();
+			while(!stopped)
+				written.awaitUninterruptibly();
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * The loop of the writer thread: waits for bytes to be appended, then waits for the maximum latency to expire
+	 * (unless the buffer reaches the threshold, or the sink is flushed or closed), swaps the buffers and writes the
+	 * bytes. After the sink is closed, the writer stops only when there is nothing left to write.
+	 */
+	protected void runWriter()
+	{
+		while(true)
+		{
+			ByteBuffer batch;
+			lock.lock();
+			try
+			{
+				while((filling.position() == 0) && (!closed || (waitingWriters > 0)))
+					notEmpty.awaitUninterruptibly();
+				if(filling.position() == 0)
+				{
+					// closed, and everything has been written
+					stopped = true;
+					written.signalAll();
+					return;
+				}
+				long deadline = firstPending + maxLatency;
+				long delay;
+				while((filling.position() < threshold) && (flushing == 0) && !closed
+						&& ((delay = deadline - System.nanoTime()) > 0))
+					try
+					{
+						notEmpty.awaitNanos(delay);
+					} catch(InterruptedException e)
+					{
+						// continue
+					}
+				batch = filling;
+				filling = writing;
+				writing = batch;
+				notFull.signalAll();
+			} finally
+			{
+				lock.unlock();
+			}
+			batch.flip();
+			int size = batch.remaining();
+			try
+			{
+				while(batch.hasRemaining())
+					channel.write(batch);
+			} catch(IOException e)
+			{
+				e.printStackTrace();
+			}
+			batch.clear();
+			lock.lock();
+			try
+			{
+				writtenBytes += size;
+				written.signalAll();
+			} finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import net.xqhs.util.logging.DisplayEntity;
+import net.xqhs.util.logging.IncrementalDisplayEntity;
+
+/**
+ * Adapts a {@link DisplayEntity} that only supports receiving the entire log to the {@link IncrementalDisplayEntity}
+ * contract. Updates are accumulated and the adapted entity receives the entire accumulated contents at every update.
+ * 
+ * @author Andrei Olaru
+ */
+public class DisplayEntityAdapter implements IncrementalDisplayEntity
+{
+	/**
+	 * The adapted display entity.
+	 */
+	protected final DisplayEntity	display;
+	/**
+	 * The entire contents displayed so far.
+	 */
+	protected final StringBuilder	contents	= new StringBuilder();
+	
+	/**
+	 * Creates an adapter.
+	 * 
+	 * @param adapted
+	 *            - the {@link DisplayEntity} to adapt.
+	 */
+	public DisplayEntityAdapter(DisplayEntity adapted)
+	{
+		display = adapted;
+	}
+	
+	@Override
+	public void output(String string)
+	{
+		contents.setLength(0);
+		contents.append(string);
+		display.output(string);
+	}
+	
+	@Override
+	public void append(String update)
+	{
+		contents.append(update);
+		display.output(contents.toString());
+	}
+}
@@ -0,0 +1,423 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Archiver for the closed segments of file-based logs, shared by all logs. Archiving a segment means compressing it (if
+ * required) and then enforcing the retention limits on the archives of the log.
+ * <p>
+ * Segments are archived one at a time, in the order in which they were submitted, by a coordinator thread. A segment
+ * is split into blocks of {@link #BLOCK_SIZE} bytes, which are compressed in parallel by a pool of worker threads, each
+ * block as a separate GZIP member; the members are written in order, forming a single valid GZIP file
+ * (<code>[segment].gz</code>), after which the segment is deleted. The number of blocks being compressed (or waiting to
+ * be written) at any time is limited, so that the memory used does not depend on the size of the segment.
+ * <p>
+ * All threads of the archiver are daemon threads with the minimum priority, so that archiving interferes as little as
+ * possible with the application. They are created when the first segment is submitted. Submitting a segment never
+ * blocks.
+ * 
+ * @author Andrei Olaru
+ */
+public class LogArchiver
+{
+	/**
+	 * Retention limits for the archives of a log.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static class Retention
+	{
+		/**
+		 * Orders the names of archives chronologically: the names are compared without their extensions, and numbers
+		 * in the names are compared by their value, so that e.g. <code>log-[time]-2.log</code> comes after
+		 * <code>log-[time].log.gz</code> and before <code>log-[time]-10.log</code>.
+		 */
+		protected static final Comparator<String>	ARCHIVE_ORDER	= new Comparator<String>() {
+			@Override
+			public int compare(String name1, String name2)
+			{
+				return compareNumbers(stem(name1), stem(name2));
+			}
+		};
+		
+		/**
+		 * The directory containing the archives.
+		 */
+		protected final File	directory;
+		/**
+		 * The pattern matched by the names of the archives (compressed or not) of the log.
+		 */
+		protected final Pattern	names;
+		/**
+		 * The maximum number of archives; 0 for no limit.
+		 */
+		protected final int		maxArchives;
+		/**
+		 * The maximum total size of the archives, in bytes; 0 for no limit.
+		 */
+		protected final long	maxBytes;
+		
+		/**
+		 * Creates retention limits. The names of archives, without their extensions, must sort in chronological order
+		 * (see {@link #ARCHIVE_ORDER}); this is the case for names containing a time stamp with fixed-width fields,
+		 * optionally followed by a sequence number.
+		 * 
+		 * @param archiveDirectory
+		 *            - the directory containing the archives.
+		 * @param archiveNames
+		 *            - the pattern matched by the names of the archives (compressed or not) of the log, and by no other
+		 *            file.
+		 * @param archives
+		 *            - the maximum number of archives; 0 for no limit.
+		 * @param bytes
+		 *            - the maximum total size of the archives, in bytes; 0 for no limit.
+		 */
+		public Retention(File archiveDirectory, Pattern archiveNames, int archives, long bytes)
+		{
+			directory = archiveDirectory;
+			names = archiveNames;
+			maxArchives = archives;
+			maxBytes = bytes;
+		}
+		
+		/**
+		 * Deletes the oldest archives, until the limits are met.
+		 */
+		protected void enforce()
+		{
+			if((maxArchives <= 0) && (maxBytes <= 0))
+				return;
+			String[] list = directory.list();
+			if(list == null)
+				return;
+			Arrays.sort(list, ARCHIVE_ORDER);
+			int count = 0;
+			long total = 0;
+			// go from the newest to the oldest, deleting what does not fit
+			for(int i = list.length - 1; i >= 0; i--)
+			{
+				if(!names.matcher(list[i]).matches())
+					continue;
+				File archive = new File(directory, list[i]);
+				long size = archive.length();
+				if(((maxArchives > 0) && (count >= maxArchives)) || ((maxBytes > 0) && (total + size > maxBytes)))
+				{
+					if(!archive.delete())
+						System.err.println("Unable to delete archive [" + archive + "]");
+					continue;
+				}
+				count++;
+				total += size;
+			}
+		}
+		
+		/**
+		 * @param name
+		 *            - the name of an archive.
+		 * @return the name without the {@link LogArchiver#COMPRESSED_EXTENSION} (if any) and without the extension of
+		 *         the segment.
+		 */
+		protected static String stem(String name)
+		{
+			String stem = name.endsWith(COMPRESSED_EXTENSION) ? name.substring(0, name.length()
+					- COMPRESSED_EXTENSION.length()) : name;
+			int extension = stem.lastIndexOf('.');
+			return (extension > 0) ? stem.substring(0, extension) : stem;
+		}
+		
+		/**
+		 * Compares two strings, comparing the sequences of digits that they contain by their value and the other
+		 * characters lexicographically. A string that is a prefix of the other comes first.
+		 * 
+		 * @param s1
+		 *            - the first string.
+		 * @param s2
+		 *            - the second string.
+		 * @return a negative number, zero or a positive number, as the first string comes before, is equal to or comes
+		 *         after the second.
+		 */
+		protected static int compareNumbers(String s1, String s2)
+		{
+			int i1 = 0;
+			int i2 = 0;
+			while((i1 < s1.length()) && (i2 < s2.length()))
+			{
+				char c1 = s1.charAt(i1);
+				char c2 = s2.charAt(i2);
+				if(Character.isDigit(c1) && Character.isDigit(c2))
+				{
+					int end1 = i1;
+					int end2 = i2;
+					while((end1 < s1.length()) && Character.isDigit(s1.charAt(end1)))
+						end1++;
+					while((end2 < s2.length()) && Character.isDigit(s2.charAt(end2)))
+						end2++;
+					// skip leading zeros, then the longer number is the greater
+					while((i1 < end1 - 1) && (s1.charAt(i1) == '0'))
+						i1++;
+					while((i2 < end2 - 1) && (s2.charAt(i2) == '0'))
+						i2++;
+					if(end1 - i1 != end2 - i2)
+						return (end1 - i1) - (end2 - i2);
+					int result = s1.substring(i1, end1).compareTo(s2.substring(i2, end2));
+					if(result != 0)
+						return result;
+					i1 = end1;
+					i2 = end2;
+				}
+				else
+				{
+					if(c1 != c2)
+						return c1 - c2;
+					i1++;
+					i2++;
+				}
+			}
+			return (s1.length() - i1) - (s2.length() - i2);
+		}
+	}
+	
+	/**
+	 * The size of the blocks that are compressed in parallel, in bytes.
+	 */
+	public static final int			BLOCK_SIZE				= 1024 * 1024;
+	/**
+	 * The extension of compressed archives.
+	 */
+	public static final String		COMPRESSED_EXTENSION	= ".gz";
+	/**
+	 * The extension of archives that are being compressed.
+	 */
+	protected static final String	TEMPORARY_EXTENSION		= ".tmp";
+	/**
+	 * Prefix for the names of the threads of the archiver.
+	 */
+	protected static final String	THREAD_NAME				= "log-archiver-";
+	
+	/**
+	 * Holder for the default archiver, so that it is created only when first used.
+	 */
+	private static class DefaultArchiver
+	{
+		/**
+		 * The default archiver.
+		 */
+		static final LogArchiver	instance	= new LogArchiver(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * The coordinator, archiving segments one at a time.
+	 */
+	protected final ExecutorService	coordinator;
+	/**
+	 * The pool of workers compressing blocks.
+	 */
+	protected final ExecutorService	workers;
+	/**
+	 * The maximum number of blocks being compressed or waiting to be written.
+	 */
+	protected final int				maxBlocks;
+	
+	/**
+	 * Creates a new archiver. Its threads will be started when needed.
+	 * 
+	 * @param workerCount
+	 *            - the number of threads compressing blocks in parallel.
+	 */
+	public LogArchiver(int workerCount)
+	{
+		if(workerCount < 1)
+			throw new IllegalArgumentException("invalid archiver configuration");
+		coordinator = Executors.newSingleThreadExecutor(newThreadFactory(THREAD_NAME + "coordinator"));
+		workers = Executors.newFixedThreadPool(workerCount, newThreadFactory(THREAD_NAME + "worker-"));
+		maxBlocks = 2 * workerCount;
+	}
+	
+	/**
+	 * @return the archiver shared by all logs, which is created the first time this method is called.
+	 */
+	public static LogArchiver getDefault()
+	{
+		return DefaultArchiver.instance;
+	}
+	
+	/**
+	 * Creates a factory for daemon threads with the minimum priority.
+	 * 
+	 * @param name
+	 *            - the name of the threads, to which a number is appended if the name ends in '-'.
+	 * @return the factory.
+	 */
+	protected static ThreadFactory newThreadFactory(final String name)
+	{
+		return new ThreadFactory() {
+			AtomicInteger	count	= new AtomicInteger(0);
+			
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, name.endsWith("-") ? name + count.getAndIncrement() : name);
+				thread.setDaemon(true);
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		};
+	}
+	
+	/**
+	 * Submits a closed segment for archiving. The method returns immediately.
+	 * 
+	 * @param segment
+	 *            - the segment, which must no longer be written to.
+	 * @param compress
+	 *            - <code>true</code> if the segment should be compressed.
+	 * @param retention
+	 *            - the retention limits to enforce after archiving the segment; may be <code>null</code>.
+	 */
+	public void archive(final File segment, final boolean compress, final Retention retention)
+	{
+		coordinator.execute(new Runnable() {
+			@Override
+			public void run()
+			{
+				if(compress)
+					try
+					{
+						compress(segment);
+					} catch(IOException e)
+					{
+						e.printStackTrace();
+					}
+				if(retention != null)
+					retention.enforce();
+			}
+		});
+	}
+	
+	/**
+	 * Compresses a segment into <code>[segment].gz</code>, compressing its blocks in parallel, and deletes the segment.
+	 * Called by the coordinator thread.
+	 * 
+	 * @param segment
+	 *            - the segment.
+	 * @throws IOException
+	 *             - if the segment cannot be read or the archive cannot be written; the segment is kept.
+	 */
+	protected void compress(File segment) throws IOException
+	{
+		File temporary = new File(segment.getPath() + COMPRESSED_EXTENSION + TEMPORARY_EXTENSION);
+		RandomAccessFile input = new RandomAccessFile(segment, "r");
+		OutputStream output = null;
+		boolean done = false;
+		try
+		{
+			final FileChannel channel = input.getChannel();
+			long size = channel.size();
+			output = new FileOutputStream(temporary);
+			@SuppressWarnings("unused")
+			// type arguments required by Java 1.6
+			Deque<Future<byte[]>> blocks = new ArrayDeque<Future<byte[]>>();
+			long position = 0;
+			boolean first = true; // an empty segment still has one (empty) block
+			while(first || (position < size) || !blocks.isEmpty())
+			{
+				while((blocks.size() < maxBlocks) && (first || (position < size)))
+				{
+					final long start = position;
+					final int length = (int) Math.min(BLOCK_SIZE, size - position);
+					blocks.add(workers.submit(new Callable<byte[]>() {
+						@Override
+						public byte[] call() throws IOException
+						{
+							return compressBlock(channel, start, length);
+						}
+					}));
+					position += length;
+					first = false;
+				}
+				try
+				{
+					output.write(blocks.poll().get());
+				} catch(InterruptedException e)
+				{
+					throw new IOException("Interrupted while compressing [" + segment + "]");
+				} catch(ExecutionException e)
+				{
+					throw new IOException("Unable to compress [" + segment + "]: " + e.getCause());
+				}
+			}
+			output.close();
+			output = null;
+			File archive = new File(segment.getPath() + COMPRESSED_EXTENSION);
+			if(!temporary.renameTo(archive))
+				throw new IOException("Unable to rename [" + temporary + "] to [" + archive + "]");
+			done = true;
+		} finally
+		{
+			if(output != null)
+				output.close();
+			input.close();
+			if(!done)
+				temporary.delete();
+		}
+		if(!segment.delete())
+			System.err.println("Unable to delete archived segment [" + segment + "]");
+	}
+	
+	/**
+	 * Compresses a block of a file into a complete GZIP member. Called by the workers.
+	 * 
+	 * @param channel
+	 *            - the channel of the file.
+	 * @param start
+	 *            - the position of the block.
+	 * @param length
+	 *            - the length of the block.
+	 * @return the GZIP member.
+	 * @throws IOException
+	 *             - if the block cannot be read.
+	 */
+	protected static byte[] compressBlock(FileChannel channel, long start, int length) throws IOException
+	{
+		ByteBuffer block = ByteBuffer.allocate(length);
+		while(block.hasRemaining())
+			if(channel.read(block, start + block.position()) < 0)
+				throw new IOException("Unexpected end of file");
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 4 + 64);
+		GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+		gzip.write(block.array(), 0, length);
+		gzip.finish();
+		return compressed.toByteArray();
+	}
+}
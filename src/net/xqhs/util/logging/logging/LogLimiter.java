@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.xqhs.util.logging.LogSettings;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Decides which messages of a log are admitted, according to the rate limits and the sampling set in the
+ * {@link LogSettings} of the log, and periodically posts summaries of the suppressed messages.
+ * <p>
+ * The decision is made before the message is composed (see <code>Unit.l()</code>), based only on the level and the
+ * template of the message. Sampling is applied first, then the rate limit for the template, then the rate limit of the
+ * log.
+ * <p>
+ * Rate limits are token buckets, implemented without locking as the generic cell rate algorithm: the bucket is a
+ * single time value (the theoretical arrival time of the next message), which advances by the interval between
+ * messages with each admitted message; a message is admitted if that time is not too far ahead of the current time.
+ * <p>
+ * The suppressed messages are counted for each template, for at most {@link #MAX_TEMPLATES} templates; further
+ * templates are not limited individually and their suppressed messages are counted together. The limiter is a task of
+ * the {@link LogScheduler}, which posts, for each template having suppressed messages, a message with the number of
+ * suppressed messages since the last summary.
+ * 
+ * @author Andrei Olaru
+ */
+public class LogLimiter extends LogScheduler.Task
+{
+	/**
+	 * The state kept for each template.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected static class TemplateState
+	{
+		/**
+		 * The bucket for the template.
+		 */
+		final AtomicLong	bucket		= new AtomicLong(Long.MIN_VALUE);
+		/**
+		 * The number of suppressed messages since the last summary.
+		 */
+		final AtomicLong	suppressed	= new AtomicLong(0);
+	}
+	
+	/**
+	 * The maximum number of templates with individual state.
+	 */
+	public static final int									MAX_TEMPLATES	= 1024;
+	/**
+	 * Random generators, for sampling by probability. There is one generator for each thread (shared by all limiters),
+	 * as a shared {@link Random} is contended by all threads that post messages.
+	 */
+	protected static final ThreadLocal<Random>				random			= new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue()
+		{
+			return new Random();
+		}
+	};
+	
+	/**
+	 * The wrapper to post summaries to.
+	 */
+	protected final LogWrapper								log;
+	/**
+	 * The highest level to which the rate limit of the log applies; <code>null</code> if there is no limit.
+	 */
+	protected final Level									logLimitLevel;
+	/**
+	 * The interval between messages, for the rate limit of the log, in nanoseconds.
+	 */
+	protected final long									logInterval;
+	/**
+	 * How far ahead of the current time the bucket of the log may be, in nanoseconds.
+	 */
+	protected final long									logTolerance;
+	/**
+	 * The bucket of the log.
+	 */
+	protected final AtomicLong								logBucket		= new AtomicLong(Long.MIN_VALUE);
+	/**
+	 * The highest level to which the rate limit for each template applies; <code>null</code> if there is no limit.
+	 */
+	protected final Level									templateLimitLevel;
+	/**
+	 * The interval between messages, for the rate limit for each template, in nanoseconds.
+	 */
+	protected final long									templateInterval;
+	/**
+	 * How far ahead of the current time the bucket of a template may be, in nanoseconds.
+	 */
+	protected final long									templateTolerance;
+	/**
+	 * For each level (by ordinal), the n for which 1 in n messages are kept.
+	 */
+	protected final int[]									samplingRates;
+	/**
+	 * For each level (by ordinal), the probability for a message to be kept.
+	 */
+	protected final double[]								samplingProbabilities;
+	/**
+	 * For each level (by ordinal), the number of messages considered for sampling.
+	 */
+	protected final AtomicLong[]							samplingCounts;
+	/**
+	 * The state of each template.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected final ConcurrentMap<String, TemplateState>	templates		= new ConcurrentHashMap<String, TemplateState>();
+	/**
+	 * The number of suppressed messages of templates without individual state, since the last summary.
+	 */
+	protected final AtomicLong								otherSuppressed	= new AtomicLong(0);
+	/**
+	 * The total number of suppressed messages.
+	 */
+	protected final AtomicLong								totalSuppressed	= new AtomicLong(0);
+	/**
+	 * <code>true</code> if there are suppressed messages that have not been summarized yet.
+	 */
+	protected volatile boolean								pending			= false;
+	
+	/**
+	 * Creates a limiter. It must then be scheduled, with the period of the summaries.
+	 * 
+	 * @param settings
+	 *            - the settings giving the rate limits and the sampling.
+	 * @param wrapper
+	 *            - the wrapper to post summaries to.
+	 */
+	public LogLimiter(LogSettings settings, LogWrapper wrapper)
+	{
+		log = wrapper;
+		logLimitLevel = settings.getRateLimitLevel();
+		logInterval = (logLimitLevel != null) ? toInterval(settings.getRateLimit()) : 0;
+		logTolerance = (settings.getRateLimitBurst() - 1) * logInterval;
+		templateLimitLevel = settings.getTemplateLimitLevel();
+		templateInterval = (templateLimitLevel != null) ? toInterval(settings.getTemplateLimit()) : 0;
+		templateTolerance = (settings.getTemplateLimitBurst() - 1) * templateInterval;
+		Level[] levels = Level.values();
+		samplingRates = new int[levels.length];
+		samplingProbabilities = new double[levels.length];
+		samplingCounts = new AtomicLong[levels.length];
+		for(Level level : levels)
+		{
+			samplingRates[level.ordinal()] = settings.getSampling(level);
+			samplingProbabilities[level.ordinal()] = settings.getSamplingProbability(level);
+			samplingCounts[level.ordinal()] = new AtomicLong(0);
+		}
+	}
+	
+	/**
+	 * @param rate
+	 *            - a rate, in messages per second.
+	 * @return the interval between messages, in nanoseconds.
+	 */
+	protected static long toInterval(double rate)
+	{
+		return Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+	}
+	
+	/**
+	 * Decides if a message is admitted. If not, it is counted as suppressed.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 * @param template
+	 *            - the template of the message (or the message, if it has no arguments).
+	 * @return <code>true</code> if the message should be posted.
+	 */
+	public boolean admit(Level level, String template)
+	{
+		int index = level.ordinal();
+		boolean admitted = true;
+		if((samplingRates[index] > 1) && ((samplingCounts[index].getAndIncrement() % samplingRates[index]) != 0))
+			admitted = false;
+		else if((samplingProbabilities[index] < 1) && (random.get().nextDouble() >= samplingProbabilities[index]))
+			admitted = false;
+		TemplateState state = null;
+		if(admitted && (templateLimitLevel == null) && (logLimitLevel == null))
+			return true;
+		if(template != null)
+			state = getState(template);
+		if(admitted && (templateLimitLevel != null) && (state != null) && templateLimitLevel.displayWith(level))
+			admitted = take(state.bucket, templateInterval, templateTolerance);
+		if(admitted && (logLimitLevel != null) && logLimitLevel.displayWith(level))
+			admitted = take(logBucket, logInterval, logTolerance);
+		if(!admitted)
+		{
+			((state != null) ? state.suppressed : otherSuppressed).incrementAndGet();
+			totalSuppressed.incrementAndGet();
+			pending = true;
+		}
+		return admitted;
+	}
+	
+	/**
+	 * Retrieves the state of a template, creating it if there are less than {@link #MAX_TEMPLATES} templates.
+	 * 
+	 * @param template
+	 *            - the template.
+	 * @return the state; <code>null</code> if the template has no individual state.
+	 */
+	protected TemplateState getState(String template)
+	{
+		TemplateState state = templates.get(template);
+		if((state == null) && (templates.size() < MAX_TEMPLATES))
+		{
+			TemplateState newState = new TemplateState();
+			state = templates.putIfAbsent(template, newState);
+			if(state == null)
+				state = newState;
+		}
+		return state;
+	}
+	
+	/**
+	 * Takes a token from a bucket, if available.
+	 * 
+	 * @param bucket
+	 *            - the bucket, holding the theoretical arrival time of the next message.
+	 * @param interval
+	 *            - the interval between messages, in nanoseconds.
+	 * @param tolerance
+	 *            - how far ahead of the current time the bucket may be, in nanoseconds.
+	 * @return <code>true</code> if a token was taken.
+	 */
+	protected static boolean take(AtomicLong bucket, long interval, long tolerance)
+	{
+		long now = System.nanoTime();
+		while(true)
+		{
+			long arrival = bucket.get();
+			long base = ((arrival == Long.MIN_VALUE) || (arrival - now < 0)) ? now : arrival;
+			if(base - now > tolerance)
+				return false;
+			if(bucket.compareAndSet(arrival, base + interval))
+				return true;
+		}
+	}
+	
+	/**
+	 * @return the total number of messages suppressed so far.
+	 */
+	public long getSuppressed()
+	{
+		return totalSuppressed.get();
+	}
+	
+	@Override
+	protected boolean isPending()
+	{
+		return pending;
+	}
+	
+	/**
+	 * Posts the summaries of the messages suppressed since the last summary.
+	 */
+	@Override
+	public void run()
+	{
+		pending = false;
+		for(Map.Entry<String, TemplateState> entry : templates.entrySet())
+		{
+			long suppressed = entry.getValue().suppressed.getAndSet(0);
+			if(suppressed > 0)
+				log.l(Level.WARN, "[] messages suppressed for template [[]]",
+						new Object[] { Long.valueOf(suppressed), entry.getKey() });
+		}
+		long suppressed = otherSuppressed.getAndSet(0);
+		if(suppressed > 0)
+			log.l(Level.WARN, "[] messages suppressed for other templates", new Object[] { Long.valueOf(suppressed) });
+	}
+}
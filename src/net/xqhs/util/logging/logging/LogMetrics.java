@@ -0,0 +1,550 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * The metrics of a {@link Logging} instance, exposed as a platform MBean (see {@link LogMetricsMBean}). Instances are
+ * created, registered and unregistered by {@link Logging}, together with the log. The metrics of all logs are also
+ * exposed together, by the {@link Aggregate} MBean, which is registered when the first log is registered.
+ * <p>
+ * Counters that are updated on the logging path are {@link StripedCounter} instances, so that instrumentation does not
+ * create contention between threads posting to the same log. Other values (e.g. the sizes of the outputs) are read from
+ * the log when the MBean is queried.
+ * 
+ * @author Andrei Olaru
+ */
+public class LogMetrics implements LogMetricsMBean
+{
+	/**
+	 * The metrics of all logs. Counters are summed over the active logs, and include the counters of logs that have
+	 * exited.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static class Aggregate extends LogMetrics
+	{
+		/**
+		 * The sums of the counters of the logs that have exited.
+		 */
+		protected final AtomicLongArray	retired	= new AtomicLongArray(METRICS);
+		
+		/**
+		 * Creates the aggregate metrics.
+		 */
+		protected Aggregate()
+		{
+			super(null);
+		}
+		
+		@Override
+		public String getName()
+		{
+			return AGGREGATE_NAME;
+		}
+		
+		/**
+		 * The value is summed over the active logs, so it is not an atomic snapshot.
+		 */
+		@Override
+		protected long get(int metric)
+		{
+			long sum = retired.get(metric);
+			for(Logging log : Logging.logs.values())
+				sum += log.metrics.get(metric);
+			return sum;
+		}
+		
+		/**
+		 * Adds the counters of a log that exits.
+		 * 
+		 * @param metrics
+		 *            - the metrics of the log.
+		 */
+		protected void retire(LogMetrics metrics)
+		{
+			for(int metric = 0; metric < METRICS; metric++)
+				if(metric != RETAINED_BYTES)
+					retired.addAndGet(metric, metrics.get(metric));
+		}
+	}
+	
+	/**
+	 * Stream that counts the bytes written to another stream.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected static class CountingOutputStream extends FilterOutputStream
+	{
+		/**
+		 * The counter.
+		 */
+		protected final StripedCounter	counter;
+		
+		/**
+		 * @param destination
+		 *            - the stream to write to.
+		 * @param byteCounter
+		 *            - the counter to add the written bytes to.
+		 */
+		public CountingOutputStream(OutputStream destination, StripedCounter byteCounter)
+		{
+			super(destination);
+			counter = byteCounter;
+		}
+		
+		@Override
+		public void write(int b) throws IOException
+		{
+			out.write(b);
+			counter.increment();
+		}
+		
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException
+		{
+			out.write(b, off, len);
+			counter.add(len);
+		}
+	}
+	
+	/**
+	 * The domain of the names of the MBeans.
+	 */
+	public static final String			DOMAIN				= "net.xqhs.util.logging";
+	/**
+	 * The name given by the {@link Aggregate} metrics.
+	 */
+	public static final String			AGGREGATE_NAME		= "*";
+	/**
+	 * The levels, by ordinal.
+	 */
+	protected static final Level[]		LEVELS				= Level.values();
+	/**
+	 * Index of the first of the message counts, by level.
+	 */
+	protected static final int			MESSAGES			= 0;
+	/**
+	 * Index of the first of the counts of filtered messages, by level.
+	 */
+	protected static final int			FILTERED			= MESSAGES + LEVELS.length;
+	/**
+	 * Index of the count of suppressed messages.
+	 */
+	protected static final int			SUPPRESSED			= FILTERED + LEVELS.length;
+	/**
+	 * Index of the bytes written to the console.
+	 */
+	protected static final int			CONSOLE_BYTES		= SUPPRESSED + 1;
+	/**
+	 * Index of the bytes written to files.
+	 */
+	protected static final int			FILE_BYTES			= CONSOLE_BYTES + 1;
+	/**
+	 * Index of the bytes written for the display entity.
+	 */
+	protected static final int			DISPLAY_BYTES		= FILE_BYTES + 1;
+	/**
+	 * Index of the bytes written for the reporting entity.
+	 */
+	protected static final int			REPORT_BYTES		= DISPLAY_BYTES + 1;
+	/**
+	 * Index of the retained bytes.
+	 */
+	protected static final int			RETAINED_BYTES		= REPORT_BYTES + 1;
+	/**
+	 * Index of the count of successful reports.
+	 */
+	protected static final int			REPORT_SUCCESSES	= RETAINED_BYTES + 1;
+	/**
+	 * Index of the count of failed reports.
+	 */
+	protected static final int			REPORT_FAILURES		= REPORT_SUCCESSES + 1;
+	/**
+	 * Index of the count of updates of the display entity.
+	 */
+	protected static final int			DISPLAY_UPDATES		= REPORT_FAILURES + 1;
+	/**
+	 * Index of the time spent updating the display entity, in nanoseconds.
+	 */
+	protected static final int			DISPLAY_TIME		= DISPLAY_UPDATES + 1;
+	/**
+	 * Index of the count of updates of the reporting entity.
+	 */
+	protected static final int			REPORT_UPDATES		= DISPLAY_TIME + 1;
+	/**
+	 * Index of the time spent updating the reporting entity, in nanoseconds.
+	 */
+	protected static final int			REPORT_TIME			= REPORT_UPDATES + 1;
+	/**
+	 * The number of metrics.
+	 */
+	protected static final int			METRICS				= REPORT_TIME + 1;
+	
+	/**
+	 * The metrics of all logs.
+	 */
+	protected static final Aggregate	aggregate			= new Aggregate();
+	/**
+	 * The lock guarding the registration of the {@link Aggregate} metrics.
+	 */
+	protected static final ReentrantLock	registrationLock	= new ReentrantLock();
+	
+	/**
+	 * The log.
+	 */
+	protected final Logging				log;
+	/**
+	 * The counters, by metric; <code>null</code> for metrics that are read from the log.
+	 */
+	protected final StripedCounter[]	counters			= new StripedCounter[METRICS];
+	/**
+	 * The name under which the MBean is registered; <code>null</code> if not registered.
+	 */
+	protected ObjectName				objectName			= null;
+	
+	/**
+	 * Creates the metrics of a log.
+	 * 
+	 * @param logging
+	 *            - the log.
+	 */
+	protected LogMetrics(Logging logging)
+	{
+		log = logging;
+		for(int metric = 0; metric < SUPPRESSED; metric++)
+			counters[metric] = new StripedCounter();
+		for(int metric : new int[] { CONSOLE_BYTES, FILE_BYTES, REPORT_SUCCESSES, REPORT_FAILURES, DISPLAY_UPDATES, DISPLAY_TIME,
+				REPORT_UPDATES, REPORT_TIME })
+			counters[metric] = new StripedCounter();
+	}
+	
+	/**
+	 * @return the metrics of all logs.
+	 */
+	public static LogMetricsMBean getAggregate()
+	{
+		return aggregate;
+	}
+	
+	/**
+	 * Counts a message posted to the log.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 */
+	public void posted(Level level)
+	{
+		counters[MESSAGES + level.ordinal()].increment();
+	}
+	
+	/**
+	 * Counts a message that was not posted to the log, because of its level.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 */
+	public void filtered(Level level)
+	{
+		counters[FILTERED + level.ordinal()].increment();
+	}
+	
+	/**
+	 * @param console
+	 *            - the console stream.
+	 * @return a stream that writes to the console and counts the written bytes.
+	 */
+	protected OutputStream countConsole(OutputStream console)
+	{
+		return new CountingOutputStream(console, counters[CONSOLE_BYTES]);
+	}
+	
+	/**
+	 * Gives a wrapper the counters for the bytes it writes to the console and to files on its own (see
+	 * {@link LogWrapper#setByteCounters(StripedCounter, StripedCounter)}).
+	 * 
+	 * @param wrapper
+	 *            - the wrapper.
+	 */
+	protected void countOutputs(LogWrapper wrapper)
+	{
+		wrapper.setByteCounters(counters[CONSOLE_BYTES], counters[FILE_BYTES]);
+	}
+	
+	/**
+	 * Counts an update of the display entity.
+	 * 
+	 * @param nanos
+	 *            - the duration of the update, in nanoseconds.
+	 */
+	protected void displayUpdated(long nanos)
+	{
+		counters[DISPLAY_UPDATES].increment();
+		counters[DISPLAY_TIME].add(nanos);
+	}
+	
+	/**
+	 * Counts an update of the reporting entity.
+	 * 
+	 * @param nanos
+	 *            - the duration of the update, in nanoseconds.
+	 */
+	protected void reportUpdated(long nanos)
+	{
+		counters[REPORT_UPDATES].increment();
+		counters[REPORT_TIME].add(nanos);
+	}
+	
+	/**
+	 * Counts a report to the reporting entity.
+	 * 
+	 * @param success
+	 *            - <code>true</code> if the report was successful.
+	 */
+	protected void reported(boolean success)
+	{
+		counters[success ? REPORT_SUCCESSES : REPORT_FAILURES].increment();
+	}
+	
+	/**
+	 * Registers the MBean of the log with the platform MBean server and, if not already registered, the MBean of the
+	 * {@link Aggregate} metrics.
+	 * 
+	 * @throws JMException
+	 *             - if the registration fails.
+	 */
+	protected void register() throws JMException
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		registrationLock.lock();
+		try
+		{
+			if(aggregate.objectName == null)
+			{
+				ObjectName name = new ObjectName(DOMAIN + ":type=LogRegistry");
+				if(!server.isRegistered(name))
+					server.registerMBean(new StandardMBean(aggregate, LogMetricsMBean.class), name);
+				aggregate.objectName = name;
+			}
+		} finally
+		{
+			registrationLock.unlock();
+		}
+		ObjectName name = new ObjectName(DOMAIN + ":type=Log,name=" + ObjectName.quote(log.name));
+		server.registerMBean(new StandardMBean(this, LogMetricsMBean.class), name);
+		objectName = name;
+	}
+	
+	/**
+	 * Adds the counters of the log to the {@link Aggregate} metrics, after the log has exited.
+	 */
+	protected void retire()
+	{
+		aggregate.retire(this);
+	}
+	
+	/**
+	 * Unregisters the MBean of the log, if registered. This must be done before the name of the log is freed, as
+	 * another log with the same name would otherwise fail to register its MBean.
+	 */
+	protected void unregister()
+	{
+		if(objectName == null)
+			return;
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+		} catch(JMException e)
+		{
+			// already unregistered
+		}
+		objectName = null;
+	}
+	
+	/**
+	 * @param metric
+	 *            - the index of the metric.
+	 * @return the value of the metric.
+	 */
+	protected long get(int metric)
+	{
+		if(counters[metric] != null)
+		{
+			long value = counters[metric].sum();
+			if((metric == REPORT_SUCCESSES) && (log.reportBatcher != null))
+				value += log.reportBatcher.getReports();
+			if((metric == REPORT_FAILURES) && (log.reportBatcher != null))
+				value += log.reportBatcher.getFailures();
+			return value;
+		}
+		if(metric == SUPPRESSED)
+			return (log.limiter != null) ? log.limiter.getSuppressed() : 0;
+		if(metric == DISPLAY_BYTES)
+			return (log.logDisplay != null) ? log.logOutput.committedSize() : 0;
+		if(metric == REPORT_BYTES)
+			return (log.externalReporter != null) ? log.logOutputStamped.committedSize() : 0;
+		if(metric == RETAINED_BYTES)
+			return log.logOutput.committedSize() - log.logOutput.getStart() + log.logOutputStamped.committedSize()
+					- log.logOutputStamped.getStart();
+		return 0;
+	}
+	
+	/**
+	 * @param first
+	 *            - the index of the metric for the first level.
+	 * @return the values of the metric, for each level.
+	 */
+	protected long[] getByLevel(int first)
+	{
+		long[] values = new long[LEVELS.length];
+		for(int i = 0; i < LEVELS.length; i++)
+			values[i] = get(first + i);
+		return values;
+	}
+	
+	/**
+	 * @param first
+	 *            - the index of the metric for the first level.
+	 * @return the sum of the metric over all levels.
+	 */
+	protected long getTotal(int first)
+	{
+		long sum = 0;
+		for(int i = 0; i < LEVELS.length; i++)
+			sum += get(first + i);
+		return sum;
+	}
+	
+	@Override
+	public String getName()
+	{
+		return log.name;
+	}
+	
+	@Override
+	public String[] getLevels()
+	{
+		String[] names = new String[LEVELS.length];
+		for(int i = 0; i < LEVELS.length; i++)
+			names[i] = LEVELS[i].name();
+		return names;
+	}
+	
+	@Override
+	public long getMessages()
+	{
+		return getTotal(MESSAGES);
+	}
+	
+	@Override
+	public long[] getMessagesByLevel()
+	{
+		return getByLevel(MESSAGES);
+	}
+	
+	@Override
+	public long getFiltered()
+	{
+		return getTotal(FILTERED);
+	}
+	
+	@Override
+	public long[] getFilteredByLevel()
+	{
+		return getByLevel(FILTERED);
+	}
+	
+	@Override
+	public long getSuppressed()
+	{
+		return get(SUPPRESSED);
+	}
+	
+	@Override
+	public long getConsoleBytes()
+	{
+		return get(CONSOLE_BYTES);
+	}
+	
+	@Override
+	public long getFileBytes()
+	{
+		return get(FILE_BYTES);
+	}
+	
+	@Override
+	public long getDisplayBytes()
+	{
+		return get(DISPLAY_BYTES);
+	}
+	
+	@Override
+	public long getReportBytes()
+	{
+		return get(REPORT_BYTES);
+	}
+	
+	@Override
+	public long getRetainedBytes()
+	{
+		return get(RETAINED_BYTES);
+	}
+	
+	@Override
+	public long getReportSuccesses()
+	{
+		return get(REPORT_SUCCESSES);
+	}
+	
+	@Override
+	public long getReportFailures()
+	{
+		return get(REPORT_FAILURES);
+	}
+	
+	@Override
+	public long getDisplayUpdates()
+	{
+		return get(DISPLAY_UPDATES);
+	}
+	
+	@Override
+	public long getDisplayUpdateTime()
+	{
+		return get(DISPLAY_TIME) / 1000;
+	}
+	
+	@Override
+	public long getReportUpdates()
+	{
+		return get(REPORT_UPDATES);
+	}
+	
+	@Override
+	public long getReportUpdateTime()
+	{
+		return get(REPORT_TIME) / 1000;
+	}
+}
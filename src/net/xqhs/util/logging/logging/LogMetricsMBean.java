@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+/**
+ * The management interface of the metrics of a log, or of the aggregate metrics of all logs (see {@link LogMetrics}).
+ * Values are counted since the creation of the log; aggregate values also include logs that have exited.
+ * 
+ * @author Andrei Olaru
+ */
+public interface LogMetricsMBean
+{
+	/**
+	 * @return the name of the log; for aggregate metrics, {@link LogMetrics#AGGREGATE_NAME}.
+	 */
+	public String getName();
+	
+	/**
+	 * @return the names of the levels, in the order used by {@link #getMessagesByLevel()} and
+	 *         {@link #getFilteredByLevel()}.
+	 */
+	public String[] getLevels();
+	
+	/**
+	 * @return the number of messages that were posted.
+	 */
+	public long getMessages();
+	
+	/**
+	 * @return the number of messages that were posted, for each level.
+	 */
+	public long[] getMessagesByLevel();
+	
+	/**
+	 * @return the number of messages that were not posted because of their level.
+	 */
+	public long getFiltered();
+	
+	/**
+	 * @return the number of messages that were not posted because of their level, for each level.
+	 */
+	public long[] getFilteredByLevel();
+	
+	/**
+	 * @return the number of messages that were suppressed by rate limits or sampling.
+	 */
+	public long getSuppressed();
+	
+	/**
+	 * @return the number of bytes written to the console.
+	 */
+	public long getConsoleBytes();
+	
+	/**
+	 * @return the number of bytes written to files, by the wrappers that write to files.
+	 */
+	public long getFileBytes();
+	
+	/**
+	 * @return the number of bytes written for the display entity.
+	 */
+	public long getDisplayBytes();
+	
+	/**
+	 * @return the number of bytes written for the reporting entity.
+	 */
+	public long getReportBytes();
+	
+	/**
+	 * @return the number of bytes currently retained in memory, for the display and reporting entities.
+	 */
+	public long getRetainedBytes();
+	
+	/**
+	 * @return the number of successful reports to the reporting entity.
+	 */
+	public long getReportSuccesses();
+	
+	/**
+	 * @return the number of failed reports to the reporting entity.
+	 */
+	public long getReportFailures();
+	
+	/**
+	 * @return the number of updates of the display entity.
+	 */
+	public long getDisplayUpdates();
+	
+	/**
+	 * @return the time spent updating the display entity, in microseconds.
+	 */
+	public long getDisplayUpdateTime();
+	
+	/**
+	 * @return the number of updates of the reporting entity.
+	 */
+	public long getReportUpdates();
+	
+	/**
+	 * @return the time spent updating the reporting entity, in microseconds.
+	 */
+	public long getReportUpdateTime();
+}
@@ -0,0 +1,515 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stream holding the in-memory output of a log, as written by the log wrapper. The content is encoded with the default
+ * charset of the platform (see {@link #getCharset()}).
+ * <p>
+ * The content is stored in fixed-size chunks, which are added as the stream grows; content that has been written is
+ * never moved or copied. Any part of the content can be obtained, without copying, as a sequence of read-only
+ * {@link ByteBuffer} views (see {@link #view(long, long)}).
+ * <p>
+ * Wrappers flush their destinations after each logging message; the stream uses flushes to keep track of the end of
+ * the last complete message, so that parts of the stream can be read without splitting messages (or characters). Each
+ * complete message is a record.
+ * <p>
+ * Retention of the content may be limited by the number of records, by size, and by the age of records (see
+ * {@link #setRetention(int, long, long)}). When the limits are exceeded, the oldest records are evicted. Positions in
+ * the stream are absolute (they keep counting evicted content), and the retained content starts at
+ * {@link #getStart()}.
+ * 
+ * @author Andrei Olaru
+ */
+public class LogOutputStream extends OutputStream
+{
+	/**
+	 * Listener to be notified of each new record.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static interface RecordListener
+	{
+		/**
+		 * Called, while holding the lock on the stream, when a record has been completed. The method should be fast
+		 * and must not call other methods of the stream.
+		 * 
+		 * @param start
+		 *            - the position of the first byte of the record.
+		 * @param end
+		 *            - the position after the last byte of the record.
+		 */
+		void recordCommitted(long start, long end);
+	}
+	
+	/**
+	 * The size of a chunk, in bytes.
+	 */
+	public static final int		CHUNK_SIZE				= 8192;
+	/**
+	 * The initial capacity of the record index.
+	 */
+	protected static final int	INITIAL_RECORD_CAPACITY	= 64;
+	
+	/**
+	 * The chunks holding the retained content.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected Deque<byte[]>		chunks					= new ArrayDeque<byte[]>();
+	/**
+	 * The current chunk (the last one in {@link #chunks}).
+	 */
+	protected byte[]			current					= null;
+	/**
+	 * The absolute index of the first chunk in {@link #chunks}.
+	 */
+	protected long				firstChunk				= 0;
+	/**
+	 * The number of bytes written so far (including evicted content).
+	 */
+	protected long				size					= 0;
+	/**
+	 * The size of the stream at the last flush.
+	 */
+	protected long				committed				= 0;
+	/**
+	 * The position where the retained content starts.
+	 */
+	protected long				start					= 0;
+	
+	/**
+	 * Ring containing the positions where retained records start (only used if retention is limited).
+	 */
+	protected long[]			recordStarts			= null;
+	/**
+	 * Ring containing the times when retained records were completed (only used if retention is limited).
+	 */
+	protected long[]			recordTimes				= null;
+	/**
+	 * The index of the oldest retained record in the rings.
+	 */
+	protected int				recordHead				= 0;
+	/**
+	 * The number of retained records.
+	 */
+	protected int				recordCount				= 0;
+	/**
+	 * The number of evicted records.
+	 */
+	protected long				evictedRecords			= 0;
+	
+	/**
+	 * The maximum number of records to retain; 0 for no limit.
+	 */
+	protected int				maxRecords				= 0;
+	/**
+	 * The maximum size of the retained content, in bytes; 0 for no limit.
+	 */
+	protected long				maxBytes				= 0;
+	/**
+	 * The maximum age of retained records, in milliseconds; 0 for no limit.
+	 */
+	protected long				maxAge					= 0;
+	/**
+	 * The listener to be notified of new records, if any.
+	 */
+	protected RecordListener	recordListener			= null;
+	/**
+	 * The lock guarding the content. It is a {@link ReentrantLock} rather than a monitor, so that virtual threads
+	 * writing to the stream do not pin their carrier thread.
+	 */
+	protected final ReentrantLock	lock				= new ReentrantLock();
+	
+	/**
+	 * @return the lock guarding the content, which must be held for sequences of calls that must see a consistent
+	 *         state of the stream (e.g. {@link #evict()}, then {@link #committedSize()} and {@link #view(long, long)}).
+	 */
+	public ReentrantLock getLock()
+	{
+		return lock;
+	}
+	
+	/**
+	 * Limits the retention of the content. A value of 0 for any of the arguments means no limit for that criterion.
+	 * 
+	 * @param records
+	 *            - the maximum number of records to retain.
+	 * @param bytes
+	 *            - the maximum size of the retained content, in bytes.
+	 * @param age
+	 *            - the maximum age of retained records, in milliseconds.
+	 * @return the instance itself.
+	 */
+	public LogOutputStream setRetention(int records, long bytes, long age)
+	{
+		lock.lock();
+		try
+		{
+			maxRecords = records;
+			maxBytes = bytes;
+			maxAge = age;
+			if(isRetentionLimited() && (recordStarts == null))
+			{
+				recordStarts = new long[INITIAL_RECORD_CAPACITY];
+				recordTimes = new long[INITIAL_RECORD_CAPACITY];
+			}
+			return this;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Sets the listener to be notified of new records.
+	 * 
+	 * @param listener
+	 *            - the listener; <code>null</code> for none.
+	 * @return the instance itself.
+	 */
+	public LogOutputStream setRecordListener(RecordListener listener)
+	{
+		lock.lock();
+		try
+		{
+			recordListener = listener;
+			return this;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return <code>true</code> if the retention of the content is limited.
+	 */
+	protected boolean isRetentionLimited()
+	{
+		return (maxRecords > 0) || (maxBytes > 0) || (maxAge > 0);
+	}
+	
+	@Override
+	public void write(int b)
+	{
+		lock.lock();
+		try
+		{
+			int offset = (int) (size % CHUNK_SIZE);
+			if(offset == 0)
+				addChunk();
+			current[offset] = (byte) b;
+			size++;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public void write(byte[] b, int off, int len)
+	{
+		lock.lock();
+		try
+		{
+			int from = off;
+			int remaining = len;
+			while(remaining > 0)
+			{
+				int offset = (int) (size % CHUNK_SIZE);
+				if(offset == 0)
+					addChunk();
+				int n = Math.min(remaining, CHUNK_SIZE - offset);
+				System.arraycopy(b, from, current, offset, n);
+				from += n;
+				remaining -= n;
+				size += n;
+			}
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Adds a new chunk at the end of the stream.
+	 */
+	protected void addChunk()
+	{
+		current = new byte[CHUNK_SIZE];
+		chunks.addLast(current);
+	}
+	
+	/**
+	 * Marks the end of a complete message (a record). If retention is limited, old records are evicted if needed.
+	 */
+	@Override
+	public void flush()
+	{
+		lock.lock();
+		try
+		{
+			if(committed == size)
+				return;
+			if(recordListener != null)
+				recordListener.recordCommitted(committed, size);
+			if(isRetentionLimited())
+			{
+				if(recordCount == recordStarts.length)
+					growRecords();
+				int index = (recordHead + recordCount) % recordStarts.length;
+				recordStarts[index] = committed;
+				recordTimes[index] = (maxAge > 0) ? System.currentTimeMillis() : 0;
+				recordCount++;
+				committed = size;
+				evict();
+			}
+			else
+				committed = size;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Doubles the capacity of the record rings.
+	 */
+	protected void growRecords()
+	{
+		long[] starts = new long[recordStarts.length * 2];
+		long[] times = new long[recordTimes.length * 2];
+		for(int i = 0; i < recordCount; i++)
+		{
+			starts[i] = recordStarts[(recordHead + i) % recordStarts.length];
+			times[i] = recordTimes[(recordHead + i) % recordTimes.length];
+		}
+		recordStarts = starts;
+		recordTimes = times;
+		recordHead = 0;
+	}
+	
+	/**
+	 * Evicts the oldest records, while the retention limits are exceeded. Each eviction takes constant time.
+	 */
+	public void evict()
+	{
+		lock.lock();
+		try
+		{
+			if(!isRetentionLimited())
+				return;
+			long now = (maxAge > 0) ? System.currentTimeMillis() : 0;
+			while(recordCount > 0)
+			{
+				boolean exceeded = (maxRecords > 0) && (recordCount > maxRecords);
+				exceeded |= (maxBytes > 0) && (committed - recordStarts[recordHead] > maxBytes);
+				exceeded |= (maxAge > 0) && (now - recordTimes[recordHead] > maxAge);
+				if(!exceeded)
+					break;
+				recordHead = (recordHead + 1) % recordStarts.length;
+				recordCount--;
+				evictedRecords++;
+			}
+			start = (recordCount > 0) ? recordStarts[recordHead] : committed;
+			// free chunks that only contain evicted content (the current chunk is always kept)
+			while((chunks.size() > 1) && ((firstChunk + 1) * CHUNK_SIZE <= start))
+			{
+				chunks.removeFirst();
+				firstChunk++;
+			}
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return the size of the content, including evicted content.
+	 */
+	public long size()
+	{
+		lock.lock();
+		try
+		{
+			return size;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return the size of the content up to the end of the last complete message, including evicted content.
+	 */
+	public long committedSize()
+	{
+		lock.lock();
+		try
+		{
+			return committed;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return the position where the retained content starts; it is also the number of evicted bytes.
+	 */
+	public long getStart()
+	{
+		lock.lock();
+		try
+		{
+			return start;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return the number of evicted records.
+	 */
+	public long getEvictedRecords()
+	{
+		lock.lock();
+		try
+		{
+			return evictedRecords;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return the charset in which the content is encoded.
+	 */
+	@SuppressWarnings("static-method")
+	public Charset getCharset()
+	{
+		return Charset.defaultCharset();
+	}
+	
+	/**
+	 * Provides read-only views on a part of the retained content, without copying it. The views remain valid after the
+	 * stream is further written, and after the content is evicted.
+	 * 
+	 * @param from
+	 *            - the position of the first byte; must not be before {@link #getStart()}.
+	 * @param to
+	 *            - the position after the last byte.
+	 * @return the views on the content, in order.
+	 */
+	public ByteBuffer[] view(long from, long to)
+	{
+		lock.lock();
+		try
+		{
+			if(from < start || to > size || from > to)
+				throw new IndexOutOfBoundsException("invalid range [" + from + ", " + to + ")");
+			if(from == to)
+				return new ByteBuffer[0];
+			long first = from / CHUNK_SIZE;
+			long last = (to - 1) / CHUNK_SIZE;
+			ByteBuffer[] views = new ByteBuffer[(int) (last - first + 1)];
+			long chunkIndex = firstChunk;
+			for(byte[] chunk : chunks)
+			{
+				if(chunkIndex >= first)
+				{
+					int begin = (chunkIndex == first) ? (int) (from % CHUNK_SIZE) : 0;
+					int end = (chunkIndex == last) ? (int) (to - last * CHUNK_SIZE) : CHUNK_SIZE;
+					views[(int) (chunkIndex - first)] = ByteBuffer.wrap(chunk, begin, end - begin).slice()
+							.asReadOnlyBuffer();
+				}
+				if(chunkIndex == last)
+					break;
+				chunkIndex++;
+			}
+			return views;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Decodes a part of the retained content.
+	 * 
+	 * @param from
+	 *            - the position of the first byte; must not be before {@link #getStart()}.
+	 * @param to
+	 *            - the position after the last byte.
+	 * @return the decoded content.
+	 */
+	public String toString(long from, long to)
+	{
+		return decode(view(from, to), getCharset());
+	}
+	
+	/**
+	 * Decodes content given as a sequence of views. The positions of the views are not modified.
+	 * 
+	 * @param views
+	 *            - the views, as returned by {@link #view(long, long)}.
+	 * @param charset
+	 *            - the charset of the content.
+	 * @return the decoded content.
+	 */
+	public static String decode(ByteBuffer[] views, Charset charset)
+	{
+		if(views.length == 1)
+			return charset.decode(views[0].duplicate()).toString();
+		int length = 0;
+		for(ByteBuffer view : views)
+			length += view.remaining();
+		byte[] content = new byte[length];
+		int offset = 0;
+		for(ByteBuffer view : views)
+		{
+			int n = view.remaining();
+			view.duplicate().get(content, offset, n);
+			offset += n;
+		}
+		return new String(content, charset);
+	}
+	
+	/**
+	 * Decodes the entire retained content.
+	 */
+	@Override
+	public String toString()
+	{
+		long from;
+		long to;
+		lock.lock();
+		try
+		{
+			from = start;
+			to = size;
+		} finally
+		{
+			lock.unlock();
+		}
+		return toString(from, to);
+	}
+}
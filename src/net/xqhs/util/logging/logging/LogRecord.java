@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * A logging message in structured form: the level, the name of the log, the time stamp, the thread that posted the
+ * message, and the message template together with its arguments. Records are created once for each message, when the
+ * message is posted, and are passed to {@link LogWrapper#l(LogRecord)}, so that wrappers do not need to find again
+ * the time or the thread, and can render or encode the message in any form.
+ * <p>
+ * Records are mutable and reused: the record given to a wrapper (as well as its arguments array) is only valid during
+ * the call. Wrappers that keep the record after the call returns must copy it (see {@link #copyTo(LogRecord)}), and
+ * must copy or render the arguments.
+ * 
+ * @author Andrei Olaru
+ */
+public class LogRecord
+{
+	/**
+	 * The level of the message.
+	 */
+	protected Level		level;
+	/**
+	 * The name of the log.
+	 */
+	protected String	logName;
+	/**
+	 * The time stamp, in milliseconds.
+	 */
+	protected long		time;
+	/**
+	 * The thread that posted the message.
+	 */
+	protected Thread	thread;
+	/**
+	 * The message, containing placeholders for the arguments.
+	 */
+	protected String	template;
+	/**
+	 * The arguments; <code>null</code> if the message is already composed.
+	 */
+	protected Object[]	arguments;
+	
+	/**
+	 * Sets all fields of the record.
+	 * 
+	 * @param messageLevel
+	 *            - the level of the message.
+	 * @param name
+	 *            - the name of the log.
+	 * @param timeStamp
+	 *            - the time stamp, in milliseconds.
+	 * @param postingThread
+	 *            - the thread that posted the message.
+	 * @param messageTemplate
+	 *            - the message, containing placeholders for the arguments.
+	 * @param messageArguments
+	 *            - the arguments; <code>null</code> if the message is already composed.
+	 * @return the record itself.
+	 */
+	public LogRecord set(Level messageLevel, String name, long timeStamp, Thread postingThread,
+			String messageTemplate, Object[] messageArguments)
+	{
+		level = messageLevel;
+		logName = name;
+		time = timeStamp;
+		thread = postingThread;
+		template = messageTemplate;
+		arguments = messageArguments;
+		return this;
+	}
+	
+	/**
+	 * Copies all fields of the record into another record. The arguments array is shared.
+	 * 
+	 * @param destination
+	 *            - the record to copy to.
+	 * @return the destination record.
+	 */
+	public LogRecord copyTo(LogRecord destination)
+	{
+		return destination.set(level, logName, time, thread, template, arguments);
+	}
+	
+	/**
+	 * Clears references, so that they can be collected.
+	 */
+	public void clear()
+	{
+		logName = null;
+		thread = null;
+		template = null;
+		arguments = null;
+	}
+	
+	/**
+	 * @return the level of the message.
+	 */
+	public Level getLevel()
+	{
+		return level;
+	}
+	
+	/**
+	 * @return the name of the log.
+	 */
+	public String getLogName()
+	{
+		return logName;
+	}
+	
+	/**
+	 * @return the time stamp, in milliseconds.
+	 */
+	public long getTime()
+	{
+		return time;
+	}
+	
+	/**
+	 * @return the thread that posted the message.
+	 */
+	public Thread getThread()
+	{
+		return thread;
+	}
+	
+	/**
+	 * @return the message, containing placeholders for the arguments.
+	 */
+	public String getTemplate()
+	{
+		return template;
+	}
+	
+	/**
+	 * @return the arguments; <code>null</code> if the message is already composed.
+	 */
+	public Object[] getArguments()
+	{
+		return arguments;
+	}
+	
+	/**
+	 * @return the message, composed with its arguments (see {@link MessageTemplate}).
+	 */
+	public String getMessage()
+	{
+		if(arguments == null)
+			return template;
+		return MessageTemplate.compose(template, arguments);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return "[" + level + "][" + logName + "]: " + getMessage();
+	}
+}
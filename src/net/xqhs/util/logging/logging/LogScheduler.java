@@ -0,0 +1,334 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scheduler for the periodic activities of logs (e.g. updating the display and reporting entities), shared by all
+ * logs.
+ * <p>
+ * The scheduler is a hashed timing wheel: a single ticker thread advances the wheel at each tick and hands the tasks
+ * that are due to a small pool of worker threads. Scheduling and cancelling tasks are constant-time operations.
+ * <p>
+ * The first run of a task is placed at a random moment within its period, so that tasks having the same period do not
+ * all run at the same time. Before being handed to a worker, a task is asked whether it has anything to do (see
+ * {@link Task#isPending()}); if not, that run is skipped. A task is never run by two workers at the same time; if a
+ * task is still running when it becomes due again, that run is skipped.
+ * <p>
+ * All threads of the scheduler are daemon threads, and are started when the first task is scheduled.
+ * 
+ * @author Andrei Olaru
+ */
+public class LogScheduler
+{
+	/**
+	 * A periodic task, to be run by the {@link LogScheduler}.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static abstract class Task implements Runnable
+	{
+		/**
+		 * The period, in ticks.
+		 */
+		long					periodTicks;
+		/**
+		 * The number of ticks before the first run.
+		 */
+		long					initialTicks;
+		/**
+		 * The number of complete turns of the wheel left before the task is due.
+		 */
+		long					remainingRounds;
+		/**
+		 * <code>true</code> if the task has been cancelled.
+		 */
+		volatile boolean		cancelled	= false;
+		/**
+		 * <code>true</code> while the task is running.
+		 */
+		final AtomicBoolean		running		= new AtomicBoolean(false);
+		
+		/**
+		 * Called by the ticker thread, before handing the task to a worker. It should be very fast.
+		 * 
+		 * @return <code>true</code> if the task has anything to do. This implementation always returns
+		 *         <code>true</code>.
+		 */
+		@SuppressWarnings("static-method")
+		protected boolean isPending()
+		{
+			return true;
+		}
+		
+		/**
+		 * Cancels the task. A run that is already in progress will not be interrupted.
+		 */
+		public void cancel()
+		{
+			cancelled = true;
+		}
+	}
+	
+	/**
+	 * The default duration of a tick, in milliseconds.
+	 */
+	public static final long	DEFAULT_TICK_DURATION	= 10;
+	/**
+	 * The default number of buckets of the wheel.
+	 */
+	public static final int		DEFAULT_WHEEL_SIZE		= 512;
+	/**
+	 * The default number of worker threads.
+	 */
+	public static final int		DEFAULT_WORKERS			= 2;
+	/**
+	 * Prefix for the names of the threads of the scheduler.
+	 */
+	protected static final String	THREAD_NAME			= "log-scheduler-";
+	
+	/**
+	 * Holder for the default scheduler, so that it is created only when first used.
+	 */
+	private static class DefaultScheduler
+	{
+		/**
+		 * The default scheduler.
+		 */
+		static final LogScheduler	instance	= new LogScheduler(DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE,
+														DEFAULT_WORKERS);
+	}
+	
+	/**
+	 * The duration of a tick, in nanoseconds.
+	 */
+	protected final long			tickNanos;
+	/**
+	 * The buckets of the wheel. Only accessed by the ticker thread.
+	 */
+	protected final List<Task>[]	wheel;
+	/**
+	 * Mask for computing the bucket of a tick.
+	 */
+	protected final int				mask;
+	/**
+	 * Tasks that were scheduled, but not yet placed in the wheel.
+	 */
+	protected final Queue<Task>		newTasks;
+	/**
+	 * The pool of workers.
+	 */
+	protected final ExecutorService	workers;
+	/**
+	 * The ticker thread.
+	 */
+	protected final Thread			ticker;
+	/**
+	 * <code>true</code> after the ticker thread has been started.
+	 */
+	protected final AtomicBoolean	started					= new AtomicBoolean(false);
+	/**
+	 * The current tick. Only accessed by the ticker thread.
+	 */
+	protected long					tick					= 0;
+	/**
+	 * Random generator, for staggering the first runs of tasks.
+	 */
+	protected final Random			random					= new Random();
+	
+	/**
+	 * Creates a new scheduler. Its threads will be started when the first task is scheduled.
+	 * 
+	 * @param tickDuration
+	 *            - the duration of a tick, in milliseconds.
+	 * @param wheelSize
+	 *            - the number of buckets in the wheel; will be rounded up to a power of two.
+	 * @param workerCount
+	 *            - the number of worker threads.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public LogScheduler(long tickDuration, int wheelSize, int workerCount)
+	{
+		if(tickDuration < 1 || wheelSize < 1 || workerCount < 1)
+			throw new IllegalArgumentException("invalid scheduler configuration");
+		tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+		int size = Integer.highestOneBit(wheelSize);
+		if(size < wheelSize)
+			size <<= 1;
+		wheel = new List[size];
+		for(int i = 0; i < size; i++)
+			wheel[i] = new ArrayList<Task>();
+		mask = size - 1;
+		newTasks = new ConcurrentLinkedQueue<Task>();
+		workers = Executors.newFixedThreadPool(workerCount, new ThreadFactory() {
+			AtomicInteger	count	= new AtomicInteger(0);
+			
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, THREAD_NAME + "worker-" + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		ticker = new Thread(new Runnable() {
+			@Override
+			public void run()
+			{
+				runTicker();
+			}
+		}, THREAD_NAME + "ticker");
+		ticker.setDaemon(true);
+	}
+	
+	/**
+	 * @return the scheduler shared by all logs, which is created the first time this method is called.
+	 */
+	public static LogScheduler getDefault()
+	{
+		return DefaultScheduler.instance;
+	}
+	
+	/**
+	 * Schedules a task to run periodically. The first run will happen at a random moment within the first period.
+	 * 
+	 * @param task
+	 *            - the task.
+	 * @param period
+	 *            - the period, in milliseconds.
+	 * @return the task.
+	 */
+	public Task schedule(Task task, long period)
+	{
+		long ticks = Math.max(1, TimeUnit.MILLISECONDS.toNanos(period) / tickNanos);
+		task.periodTicks = ticks;
+		task.initialTicks = 1 + random.nextInt((int) Math.min(ticks, Integer.MAX_VALUE));
+		newTasks.add(task);
+		if(started.compareAndSet(false, true))
+			ticker.start();
+		return task;
+	}
+	
+	/**
+	 * Runs a task as soon as possible, on a worker thread, unless it is already running.
+	 * 
+	 * @param task
+	 *            - the task.
+	 */
+	public void runNow(Task task)
+	{
+		dispatch(task);
+	}
+	
+	/**
+	 * The loop of the ticker thread.
+	 */
+	protected void runTicker()
+	{
+		long start = System.nanoTime();
+		while(true)
+		{
+			long sleep = start + (tick + 1) * tickNanos - System.nanoTime();
+			if(sleep > 0)
+				try
+				{
+					TimeUnit.NANOSECONDS.sleep(sleep);
+				} catch(InterruptedException e)
+				{
+					return;
+				}
+			tick++;
+			Task task;
+			while((task = newTasks.poll()) != null)
+				place(task, task.initialTicks);
+			List<Task> bucket = wheel[(int) (tick & mask)];
+			List<Task> due = null;
+			for(int i = bucket.size() - 1; i >= 0; i--)
+			{
+				task = bucket.get(i);
+				if(!task.cancelled && task.remainingRounds > 0)
+				{
+					task.remainingRounds--;
+					continue;
+				}
+				// remove the task from the bucket, in constant time
+				bucket.set(i, bucket.get(bucket.size() - 1));
+				bucket.remove(bucket.size() - 1);
+				if(task.cancelled)
+					continue;
+				if(due == null)
+					due = new ArrayList<Task>();
+				due.add(task);
+			}
+			if(due != null)
+				for(Task dueTask : due)
+				{
+					if(dueTask.isPending())
+						dispatch(dueTask);
+					place(dueTask, dueTask.periodTicks);
+				}
+		}
+	}
+	
+	/**
+	 * Places a task in the wheel, to become due after the given number of ticks. Only called by the ticker thread.
+	 * 
+	 * @param task
+	 *            - the task.
+	 * @param ticks
+	 *            - the number of ticks after which the task is due.
+	 */
+	protected void place(Task task, long ticks)
+	{
+		task.remainingRounds = (ticks - 1) / wheel.length;
+		wheel[(int) ((tick + ticks) & mask)].add(task);
+	}
+	
+	/**
+	 * Hands a task to a worker, unless it is already running.
+	 * 
+	 * @param task
+	 *            - the task.
+	 */
+	protected void dispatch(final Task task)
+	{
+		if(task.cancelled || !task.running.compareAndSet(false, true))
+			return;
+		workers.execute(new Runnable() {
+			@Override
+			public void run()
+			{
+				try
+				{
+					task.run();
+				} catch(RuntimeException e)
+				{
+					e.printStackTrace();
+				} finally
+				{
+					task.running.set(false);
+				}
+			}
+		});
+	}
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The shutdown sequence of the logging infrastructure, run by a single JVM shutdown hook. Separate shutdown hooks run
+ * concurrently, in no particular order, so that messages drained by one of them could reach an output that another
+ * one had already flushed, and be lost when the JVM halts. The sequence runs in two stages:
+ * <ul>
+ * <li>first, all actions registered for {@link Stage#DRAIN} are run, in the order of their registration; these relay
+ * pending messages to the underlying logs (e.g. {@link AsyncLogPipeline} and {@link ThreadBufferedLogWrapper});
+ * <li>then, all actions registered for {@link Stage#FLUSH} are run, in the order of their registration; these write
+ * buffered output to its destination (e.g. {@link ConsoleSink} and the file wrappers).
+ * </ul>
+ * Errors in an action are printed out and do not stop the sequence.
+ * 
+ * @author Andrei Olaru
+ */
+public class LogShutdown
+{
+	/**
+	 * The stages of the shutdown sequence.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static enum Stage {
+		/**
+		 * Relaying pending messages to the underlying logs.
+		 */
+		DRAIN,
+		
+		/**
+		 * Writing buffered output to its destination.
+		 */
+		FLUSH,
+	}
+	
+	/**
+	 * The actions of the {@link Stage#DRAIN} stage.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected static final List<Runnable>	drainActions	= new CopyOnWriteArrayList<Runnable>();
+	/**
+	 * The actions of the {@link Stage#FLUSH} stage.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected static final List<Runnable>	flushActions	= new CopyOnWriteArrayList<Runnable>();
+	
+	static
+	{
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run()
+			{
+				runSequence();
+			}
+		});
+	}
+	
+	/**
+	 * Registers an action to be run on JVM shutdown.
+	 * 
+	 * @param stage
+	 *            - the stage in which to run the action.
+	 * @param action
+	 *            - the action.
+	 */
+	public static void register(Stage stage, Runnable action)
+	{
+		if(stage == Stage.DRAIN)
+			drainActions.add(action);
+		else
+			flushActions.add(action);
+	}
+	
+	/**
+	 * Runs the shutdown sequence.
+	 */
+	protected static void runSequence()
+	{
+		for(Runnable action : drainActions)
+			runAction(action);
+		for(Runnable action : flushActions)
+			runAction(action);
+	}
+	
+	/**
+	 * Runs an action, printing out any error.
+	 * 
+	 * @param action
+	 *            - the action.
+	 */
+	protected static void runAction(Runnable action)
+	{
+		try
+		{
+			action.run();
+		} catch(RuntimeException e)
+		{
+			e.printStackTrace();
+		}
+	}
+}
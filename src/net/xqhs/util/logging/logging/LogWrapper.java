@@ -14,9 +14,12 @@ package net.xqhs.util.logging.logging;
 import java.io.OutputStream;
 
 import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.wrappers.BinaryLogWrapper;
 import net.xqhs.util.logging.wrappers.ConsoleWrapper;
+import net.xqhs.util.logging.wrappers.FileChannelWrapper;
 import net.xqhs.util.logging.wrappers.JavaLogWrapper;
 import net.xqhs.util.logging.wrappers.Log4JWrapper;
+import net.xqhs.util.logging.wrappers.MappedFileWrapper;
 
 /**
  * Use this abstract class to implement any [wrapper of a] logging structure that is returned by {@link Logging}.
@@ -51,6 +54,21 @@ public abstract class LogWrapper
 		 */
 		JAVA(JavaLogWrapper.class.getName()),
 		
+		/**
+		 * The implementation of a wrapper that appends messages to memory-mapped files.
+		 */
+		MAPPED_FILE(MappedFileWrapper.class.getName()),
+		
+		/**
+		 * The implementation of a wrapper that writes messages in binary form, to be decoded offline.
+		 */
+		BINARY(BinaryLogWrapper.class.getName()),
+		
+		/**
+		 * The implementation of a wrapper that appends messages to files, by means of a shared writer thread.
+		 */
+		FILE_CHANNEL(FileChannelWrapper.class.getName()),
+		
 		/**
 		 * The implementation is of another type than the ones in the enumeration.
 		 */
@@ -94,6 +112,10 @@ public abstract class LogWrapper
 	
 	/**
 	 * Instructs the underlying log to add a destination for its output. Currently meant for use with Log4J.
+	 * <p>
+	 * Wrappers supporting destinations must flush the destination after writing each message, as destinations created
+	 * by {@link Logging} (see {@link LogOutputStream}) only make the content available to displays and reports when it
+	 * is flushed.
 	 * 
 	 * @param format
 	 *            - a pattern, in a format that is potentially characteristic to the wrapper.
@@ -102,6 +124,22 @@ public abstract class LogWrapper
 	 */
 	protected abstract void addDestination(String format, OutputStream destination);
 	
+	/**
+	 * Gives the wrapper the counters for the bytes that it writes to outputs of its own (the console or files), as
+	 * opposed to the destinations added with {@link #addDestination(String, OutputStream)}, which are counted by the
+	 * caller. Wrappers writing to such outputs should add the number of bytes they write to the corresponding counter.
+	 * The default implementation does nothing.
+	 * 
+	 * @param consoleBytes
+	 *            - the counter of bytes written to the console.
+	 * @param fileBytes
+	 *            - the counter of bytes written to files.
+	 */
+	protected void setByteCounters(StripedCounter consoleBytes, StripedCounter fileBytes)
+	{
+		// no outputs of its own
+	}
+	
 	/**
 	 * The logging function to override in the implementation of the class.
 	 * 
@@ -112,7 +150,44 @@ public abstract class LogWrapper
 	 *            - the logging message.
 	 */
 	public abstract void l(Level level, String message);
-
+	
+	/**
+	 * Logging function that receives the message before being composed, together with its arguments (see
+	 * {@link net.xqhs.util.logging.LoggerSimple}). This implementation composes the message and calls
+	 * {@link #l(Level, String)}; implementations may override it in order to compose the message differently or at a
+	 * different time.
+	 * 
+	 * @param level
+	 *            - the {@link Level} of the message.
+	 * @param message
+	 *            - the logging message, containing placeholders for the arguments.
+	 * @param arguments
+	 *            - the arguments to place in the message.
+	 */
+	public void l(Level level, String message, Object[] arguments)
+	{
+		l(level, MessageTemplate.compose(message, arguments));
+	}
+	
+	/**
+	 * Logging function that receives the message as a structured {@link LogRecord}, which also carries the time stamp,
+	 * the name of the log and the thread that posted the message. This implementation calls
+	 * {@link #l(Level, String, Object[])}; implementations may override it in order to use the other information in
+	 * the record, or to encode the message in another form than text.
+	 * <p>
+	 * The record is only valid during the call (see {@link LogRecord}).
+	 * 
+	 * @param record
+	 *            - the record.
+	 */
+	public void l(LogRecord record)
+	{
+		if(record.getArguments() == null)
+			l(record.getLevel(), record.getTemplate());
+		else
+			l(record.getLevel(), record.getTemplate(), record.getArguments());
+	}
+	
 	/**
 	 * Instructs the underlying infrastructure to clear any information and actions related to this log.
 	 */
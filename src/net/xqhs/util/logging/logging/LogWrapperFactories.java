@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Iterator;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
+import net.xqhs.util.logging.wrappers.BinaryLogWrapper;
+import net.xqhs.util.logging.wrappers.ConsoleWrapper;
+import net.xqhs.util.logging.wrappers.FileChannelWrapper;
+import net.xqhs.util.logging.wrappers.JavaLogWrapper;
+import net.xqhs.util.logging.wrappers.Log4JWrapper;
+import net.xqhs.util.logging.wrappers.MappedFileWrapper;
+
+/**
+ * Finds the {@link LogWrapperFactory} for a wrapper class name. Factories are cached by class name, so that the
+ * wrapper class is only looked up once.
+ * <p>
+ * When first used, the class registers the factories for the types in {@link LoggerType}, and then the factories
+ * discovered by means of {@link ServiceLoader}, which may replace the former. For any other class name, a factory is
+ * created and cached that invokes the constructor of the class taking the name of the log as single argument.
+ * 
+ * @author Andrei Olaru
+ */
+public class LogWrapperFactories
+{
+	/**
+	 * Factory for the wrapper types in {@link LoggerType}, creating instances directly.
+	 */
+	protected static class BuiltInFactory implements LogWrapperFactory
+	{
+		/**
+		 * The type of the wrappers.
+		 */
+		protected final LoggerType	type;
+		
+		/**
+		 * Creates a factory.
+		 * 
+		 * @param loggerType
+		 *            - the type of the wrappers.
+		 */
+		protected BuiltInFactory(LoggerType loggerType)
+		{
+			type = loggerType;
+		}
+		
+		@Override
+		public String getWrapperClassName()
+		{
+			return type.getClassName();
+		}
+		
+		@Override
+		public LogWrapper newWrapper(String logName) throws Exception
+		{
+			switch(type)
+			{
+			case CONSOLE:
+				return new ConsoleWrapper(logName);
+			case LOG4J:
+				return new Log4JWrapper(logName);
+			case JAVA:
+				return new JavaLogWrapper(logName);
+			case MAPPED_FILE:
+				return new MappedFileWrapper(logName);
+			case BINARY:
+				return new BinaryLogWrapper(logName);
+			case FILE_CHANNEL:
+				return new FileChannelWrapper(logName);
+			case OTHER:
+				break;
+			}
+			throw new IllegalStateException("No built-in wrapper for type [" + type + "]");
+		}
+	}
+	
+	/**
+	 * Factory for any {@link LogWrapper} class having a public constructor taking the name of the log as single
+	 * argument.
+	 */
+	protected static class ConstructorFactory implements LogWrapperFactory
+	{
+		/**
+		 * The name of the wrapper class.
+		 */
+		protected final String			className;
+		/**
+		 * The constructor taking the name of the log.
+		 */
+		protected final Constructor<? extends LogWrapper>	constructor;
+		
+		/**
+		 * Creates a factory, looking up the constructor of the class.
+		 * 
+		 * @param wrapperClass
+		 *            - the wrapper class.
+		 * @throws NoSuchMethodException
+		 *             - if the class has no public constructor taking a {@link String}.
+		 */
+		protected ConstructorFactory(Class<? extends LogWrapper> wrapperClass) throws NoSuchMethodException
+		{
+			className = wrapperClass.getName();
+			constructor = wrapperClass.getConstructor(String.class);
+		}
+		
+		@Override
+		public String getWrapperClassName()
+		{
+			return className;
+		}
+		
+		@Override
+		public LogWrapper newWrapper(String logName) throws Exception
+		{
+			try
+			{
+				return constructor.newInstance(logName);
+			} catch(InvocationTargetException e)
+			{
+				// the constructor has thrown an exception
+				if(e.getCause() instanceof Exception)
+					throw (Exception) e.getCause();
+				throw e;
+			}
+		}
+	}
+	
+	/**
+	 * The factories, by wrapper class name.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected static final ConcurrentMap<String, LogWrapperFactory>	factories	=
+			new ConcurrentHashMap<String, LogWrapperFactory>();
+	/**
+	 * The first error that occurred while loading the factories by means of {@link ServiceLoader}, if any.
+	 */
+	protected static ServiceConfigurationError						loadError	= null;
+	
+	static
+	{
+		for(LoggerType type : LoggerType.values())
+			if(type.getClassName() != null)
+				factories.put(type.getClassName(), new BuiltInFactory(type));
+		Iterator<LogWrapperFactory> loaded = ServiceLoader.load(LogWrapperFactory.class,
+				LogWrapperFactories.class.getClassLoader()).iterator();
+		while(true)
+		{
+			try
+			{
+				if(!loaded.hasNext())
+					break;
+			} catch(ServiceConfigurationError e)
+			{
+				// the provider configuration cannot be read; no other providers are loaded
+				loadError = e;
+				break;
+			}
+			try
+			{
+				LogWrapperFactory factory = loaded.next();
+				factories.put(factory.getWrapperClassName(), factory);
+			} catch(ServiceConfigurationError e)
+			{
+				// the provider is skipped; wrappers of its class fall back to the constructor of the class
+				if(loadError == null)
+					loadError = e;
+			}
+		}
+	}
+	
+	/**
+	 * Registers a factory, replacing any factory previously registered for the same class name.
+	 * 
+	 * @param factory
+	 *            - the factory.
+	 */
+	public static void register(LogWrapperFactory factory)
+	{
+		factories.put(factory.getWrapperClassName(), factory);
+	}
+	
+	/**
+	 * @return the first error that occurred while loading the factories declared as services, if any; it is reported
+	 *         as a warning by {@link Logging} when the first log is created.
+	 */
+	public static ServiceConfigurationError getLoadError()
+	{
+		return loadError;
+	}
+	
+	/**
+	 * Retrieves the factory for a wrapper class name. If no factory is registered for the name, the class is loaded and
+	 * a factory using its constructor is created and cached.
+	 * 
+	 * @param className
+	 *            - the name of the wrapper class.
+	 * @return the factory.
+	 * @throws ClassNotFoundException
+	 *             - if the class cannot be found, is not a {@link LogWrapper}, or has no public constructor taking the
+	 *             name of the log.
+	 */
+	public static LogWrapperFactory getFactory(String className) throws ClassNotFoundException
+	{
+		LogWrapperFactory factory = factories.get(className);
+		if(factory != null)
+			return factory;
+		try
+		{
+			factory = new ConstructorFactory(Class.forName(className, true, LogWrapperFactories.class.getClassLoader())
+					.asSubclass(LogWrapper.class));
+		} catch(ClassNotFoundException e)
+		{
+			if(loadError != null)
+				throw new ClassNotFoundException(className + " (loading the wrapper factories failed: " + loadError
+						+ ")", e);
+			throw e;
+		} catch(NoSuchMethodException e)
+		{
+			throw new ClassNotFoundException("Wrapper class has no suitable constructor.", e);
+		} catch(SecurityException e)
+		{
+			throw new ClassNotFoundException("Wrapper class constructor is not accessible.", e);
+		} catch(ClassCastException e)
+		{
+			throw new ClassNotFoundException("Class is not a log wrapper.", e);
+		}
+		LogWrapperFactory existing = factories.putIfAbsent(className, factory);
+		return (existing != null) ? existing : factory;
+	}
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+/**
+ * Factory for instances of a {@link LogWrapper} implementation, used by {@link Logging} when creating logs.
+ * <p>
+ * Factories are found by {@link LogWrapperFactories}. Besides the factories for the types in
+ * {@link LogWrapper.LoggerType}, factories are discovered by means of {@link java.util.ServiceLoader}: an
+ * implementation having a public no-argument constructor should be listed in a
+ * <code>META-INF/services/net.xqhs.util.logging.logging.LogWrapperFactory</code> file on the class path.
+ * <p>
+ * Factories are shared by all logs, so they should be thread-safe.
+ * 
+ * @author Andrei Olaru
+ */
+public interface LogWrapperFactory
+{
+	/**
+	 * @return the name of the {@link LogWrapper} class of the instances created by the factory, which is the name to
+	 *         be given to {@link Logging#getLogger} in order to use the factory.
+	 */
+	public String getWrapperClassName();
+	
+	/**
+	 * Creates a new wrapper.
+	 * 
+	 * @param logName
+	 *            - the name of the log.
+	 * @return the wrapper.
+	 * @throws Exception
+	 *             - if the wrapper cannot be created.
+	 */
+	public LogWrapper newWrapper(String logName) throws Exception;
+}
@@ -11,18 +11,20 @@
  ******************************************************************************/
 package net.xqhs.util.logging.logging;
 
-import java.io.ByteArrayOutputStream;
-import java.lang.reflect.Constructor;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
-import java.util.Vector;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
 
 import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.BatchReportingEntity;
+import net.xqhs.util.logging.BufferReportingEntity;
 import net.xqhs.util.logging.DisplayEntity;
+import net.xqhs.util.logging.IncrementalDisplayEntity;
+import net.xqhs.util.logging.LogSettings;
 import net.xqhs.util.logging.ReportingEntity;
 import net.xqhs.util.logging.UnitComponent;
 import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
@@ -41,7 +43,8 @@ import net.xqhs.util.logging.logging.LogDebug.LogDebugItem;
  * entry is posted; a {@link ReportingEntity} may be specified that will be updated with the logging information at
  * regular intervals of time. The output that is sent to the display entity has a simple form, as it is presumed that
  * the display entity is specific to the unit. The output that is sent to the reporting entity is also time-stamped, as
- * it is presumed that the reports reach a remote machine (or some other centralizing entity).
+ * it is presumed that the reports reach a remote machine (or some other centralizing entity). The console output of all
+ * logs can be batched by a single writer thread, by enabling the {@link ConsoleSink}.
  * <p>
  * A new log is obtained by {@link #getLogger(String, String, DisplayEntity, ReportingEntity, boolean, String, Level)},
  * where the <code>name</code> should be unique and is the name of the log.
@@ -53,6 +56,13 @@ import net.xqhs.util.logging.logging.LogDebug.LogDebugItem;
  * <p>
  * When a log is not needed any more, one should <b>_always_</b> call exitLogger() for the that log. (Except if a parent
  * has been given, and it is certain that the log will be closed by its parent.)
+ * <p>
+ * The registry of logs, the in-memory outputs, the {@link LoggerType#CONSOLE} wrapper and the file wrappers
+ * (<code>FileChannelWrapper</code>, <code>MappedFileWrapper</code> and <code>BinaryLogWrapper</code>) use only
+ * <code>java.util.concurrent</code> locks and lock-free structures, so that virtual threads posting to such logs do not
+ * pin their carrier threads. The same holds for asynchronous logs (see {@link LogSettings#setAsynchronous()}) with any
+ * wrapper, as the wrapper is only called by the thread of the pipeline. Other wrappers, and Log4J in particular, use
+ * monitors.
  * 
  * @author Andrei Olaru
  * 
@@ -72,20 +82,27 @@ public class Logging
 	// // here be the static components of the class, which by being static are unique for the current JVM.
 	
 	/**
-	 * Contains all the currently active logs, identified by their [unit]Name. Active means that a timer is associated
-	 * with them.
+	 * Contains all the currently active logs, identified by their [unit]Name. Active means that update tasks may be
+	 * associated with them.
 	 * <p>
-	 * All access to the logs field should be synchronized explicitly.
+	 * The map is concurrent, so existing logs are retrieved without locking.
+	 */
+	@SuppressWarnings("unused")
+	// Type arguments specified for Java 1.6 compatibility.
+	protected static ConcurrentMap<String, Logging>		logs					= new ConcurrentHashMap<String, Logging>();
+	/**
+	 * The name of the parent of each active log that has a parent.
 	 */
-	protected static Map<String, Logging>	logs					= Collections
-																			.synchronizedMap(new HashMap<String, Logging>());
+	@SuppressWarnings("unused")
+	// Type arguments specified for Java 1.6 compatibility.
+	protected static ConcurrentMap<String, String>		parents					= new ConcurrentHashMap<String, String>();
 	/**
-	 * All access to parents should be synchronized. In this source, all accesses take place inside locks on the logs
-	 * field.
+	 * The names of the children of each log, by the name of the parent. A log may be registered as a child before its
+	 * parent is created. Sets are removed when the parent exits, or when they become empty.
 	 */
 	@SuppressWarnings("unused")
 	// Type arguments specified for Java 1.6 compatibility.
-	protected static Map<String, String>	parents					= new HashMap<String, String>();
+	protected static ConcurrentMap<String, Set<String>>	children				= new ConcurrentHashMap<String, Set<String>>();
 	
 	/**
 	 * A {@link UnitComponent} for logging messages related to the log management.
@@ -122,45 +139,71 @@ public class Logging
 	
 	// here be the components of the log related to external reporting (to a text area and to a Jade agent, respectively
 	/**
-	 * Contains the entire output of the log. Version without time stamps and unit name, just level and message.
+	 * Contains the output of the log (or its most recent part, if retention is limited). Version without time stamps
+	 * and unit name, just level and message.
+	 */
+	protected LogOutputStream				logOutput				= null;
+	/**
+	 * Contains the output of the log (or its most recent part, if retention is limited). Version with time stamp,
+	 * level, unit name, and message.
 	 */
-	protected ByteArrayOutputStream			logOutput				= null;
+	protected LogOutputStream				logOutputStamped		= null;
 	/**
-	 * Contains the entire output of the log. Version with time stamp, level, unit name, and message.
+	 * Size of the output already sent to the display entity. Used to trace if there have been modifications to the
+	 * log, and to only send the new part of the log to the display entity.
 	 */
-	protected ByteArrayOutputStream			logOutputStamped		= null;
+	protected long							logSize					= 0;
 	/**
-	 * Used to trace if there have been modifications to the log, before flushing it into the display entity.
+	 * The start of the retained output at the last update of the display entity. Used to detect evictions.
 	 */
-	protected long							logSize					= 0L;
+	protected long							displayedStart			= 0;
 	/**
-	 * The {@link DisplayEntity} that will be kept up to date with the contents of the log.
+	 * The {@link DisplayEntity} that will be kept up to date with the contents of the log. Display entities that are
+	 * not incremental are adapted by a {@link DisplayEntityAdapter}.
 	 */
-	protected DisplayEntity					logDisplay				= null;
+	protected IncrementalDisplayEntity		logDisplay				= null;
 	/**
 	 * The {@link ReportingEntity} to sent logging information to.
 	 */
 	protected ReportingEntity				externalReporter		= null;
 	/**
-	 * Timer to update the external views of this log.
+	 * Task, run by the {@link LogScheduler}, to update the display entity.
 	 */
-	protected Timer							logTimer				= null;
+	protected LogScheduler.Task				displayTask				= null;
+	/**
+	 * Task, run by the {@link LogScheduler}, to update the reporting entity.
+	 */
+	protected LogScheduler.Task				reportTask				= null;
 	/**
 	 * Delay at which to update the display entity.
 	 */
-	protected long							logUpdateDelay			= 250;
+	protected long							logUpdateDelay			= LogSettings.DEFAULT_DISPLAY_UPDATE_DELAY;
 	/**
 	 * Delay at which to update the reporting entity.
 	 */
-	protected long							reportUpdateDelay		= 2000;
+	protected long							reportUpdateDelay		= LogSettings.DEFAULT_REPORT_UPDATE_DELAY;
 	/**
-	 * Time left to the next report sent to the reporting entity.
+	 * Cumulative size of the logging information sent so far to the reporting entity.
 	 */
-	protected long							timeToNextReport		= 0;
+	protected long							lastUpdatedSize			= 0;
 	/**
-	 * Cumulative size of the logging information sent so far to the reporting entity.
+	 * Sends the output of the log in batches, if the reporting entity is a {@link BatchReportingEntity}. In that case,
+	 * it is also the task that updates the reporting entity.
 	 */
-	protected int							lastUpdatedSize			= 0;
+	protected ReportBatcher					reportBatcher			= null;
+	/**
+	 * Applies the rate limits and the sampling of the log, if any are set; it is also the task that posts the
+	 * summaries of suppressed messages.
+	 */
+	protected LogLimiter					limiter					= null;
+	/**
+	 * Collapses consecutive identical messages, if the log is configured to do so.
+	 */
+	protected CollapsingLogWrapper			collapser				= null;
+	/**
+	 * The metrics of the log, exposed as a platform MBean while the log is active.
+	 */
+	protected final LogMetrics				metrics					= new LogMetrics(this);
 	
 	/**
 	 * Retrieves the <code>masterLog</code> that will be used for log messages regarding global log management, for
@@ -194,7 +237,8 @@ public class Logging
 	 * @param logWrapperClass
 	 *            : the {@link LogWrapper} class to instantiate. If null, the class of {@link #defaultLoggerWrapper} is
 	 *            chosen. Some class names can also be obtained from calling {@link LoggerType#getClassName()} on
-	 *            various values of {@link LoggerType}.
+	 *            various values of {@link LoggerType}. The wrapper is created by the {@link LogWrapperFactory} for the
+	 *            class name (see {@link LogWrapperFactories}).
 	 * @param level
 	 *            : the initial level of the log, as an instance of {@link Level}.
 	 * @return A new, configured, {@link LogWrapper} instance; or an existing instance if the same name already existed
@@ -207,71 +251,131 @@ public class Logging
 	public static LogWrapper getLogger(String name, String link, DisplayEntity display, ReportingEntity reporter,
 			boolean ensureNew, String logWrapperClass, Level level) throws ClassNotFoundException
 	{
-		boolean erred = false;
-		int nlogs = -1;
-		
+		return getLogger(name, link, display, reporter, ensureNew, logWrapperClass, level, null);
+	}
+	
+	/**
+	 * Provides a logger with the given name, configured with the given {@link LogSettings}. See
+	 * {@link #getLogger(String, String, DisplayEntity, ReportingEntity, boolean, String, Level)}.
+	 * 
+	 * @param name
+	 *            : is the name to be given to, and to identify the log.
+	 * @param link
+	 *            : the name of another, 'parent', log that this log is linked to, if any.
+	 * @param display
+	 *            : the {@link DisplayEntity} to receive the output of the log.
+	 * @param reporter
+	 *            : the {@link ReportingEntity} to receive the output of the log.
+	 * @param ensureNew
+	 *            : <code>true</code> if to throw an exception should another log with the same name exist.
+	 * @param logWrapperClass
+	 *            : the {@link LogWrapper} class to instantiate. If null, the class of {@link #defaultLoggerWrapper} is
+	 *            chosen.
+	 * @param level
+	 *            : the initial level of the log, as an instance of {@link Level}.
+	 * @param settings
+	 *            : additional settings for the log; if <code>null</code>, default settings are used.
+	 * @return A new, configured, {@link LogWrapper} instance; or an existing instance if the same name already existed
+	 *         and <code>ensureNew</code> was set to <code>false</code>.
+	 * @throws ClassNotFoundException
+	 *             : if the wrapper class cannot be found or instantiated.
+	 * @throws IllegalArgumentException
+	 *             : if the name is not new and <code>ensureNew</code> was set to <code>true</code>.
+	 */
+	public static LogWrapper getLogger(String name, String link, DisplayEntity display, ReportingEntity reporter,
+			boolean ensureNew, String logWrapperClass, Level level, LogSettings settings)
+			throws ClassNotFoundException
+	{
 		if((masterLog == null) || (masterLog.getUnitName() == null)) // avoid recursion
 		{
 			masterLog.setUnitName(masterLogName);
 			masterLog.lock();
+			if(LogWrapperFactories.getLoadError() != null)
+				masterLog.lw("wrapper factories could not all be loaded: []", LogWrapperFactories.getLoadError());
 		}
 		
 		if(name == null)
 			throw new IllegalArgumentException(
 					"log name cannot be null. Use Unit.DEFAULT_UNIT_NAME for the default name.");
 		
-		masterLog.dbg(LogDebugItem.D_LOG_MANAGEMENT, "required: [" + name + "]" + (ensureNew ? "[new]" : "")
-				+ "; existing: [" + logs.size() + "]: [" + logs + "]");
+		masterLog.dbg(LogDebugItem.D_LOG_MANAGEMENT, "required: [][]", name, ensureNew ? "new" : "");
 		
-		Logging thelog = new Logging(name, logWrapperClass, display, reporter);
-		Logging alreadyPresent = null;
-		synchronized(logs)
+		// fast path: the log already exists
+		Logging thelog = logs.get(name);
+		if(thelog == null)
 		{
-			if(logs.containsKey(name))
-				if(ensureNew)
-					erred = true;
-				else
-					alreadyPresent = logs.get(name);
-			else
+			Logging newLog = new Logging(name, logWrapperClass, display, reporter, settings);
+			thelog = logs.putIfAbsent(name, newLog);
+			if(thelog == null)
 			{
-				logs.put(name, thelog);
-				parents.put(name, link);
-				nlogs = logs.size();
+				if(link != null)
+				{
+					parents.put(name, link);
+					addChild(link, name);
+				}
+				if(level != null)
+					newLog.logger.setLevel(level);
+				try
+				{
+					newLog.metrics.register();
+				} catch(JMException e)
+				{
+					masterLog.lw("metrics of log [] could not be registered: []", name, e);
+				}
+				newLog.logger.l(Level.TRACE, "new log (count now [" + logs.size() + "]).");
+				return newLog.getLog();
 			}
+			// another log with the same name was created in the meantime
+			newLog.doexit();
 		}
-		if(erred)
-		{
-			thelog.doexit();
+		if(ensureNew)
 			throw new IllegalArgumentException("log name already present [" + name + "]");
-		}
-		if(alreadyPresent != null)
-		{
-			thelog.doexit();
-			thelog = alreadyPresent;
-		}
 		if(level != null)
 			thelog.logger.setLevel(level);
-		thelog.logger.l(Level.TRACE, "new log (count now [" + nlogs + "]).");
 		return thelog.getLog();
 	}
 	
 	/**
-	 * Get the whole output of the log.
+	 * Registers a log as child of another log, so that it is closed when the parent is closed.
+	 * 
+	 * @param parent
+	 *            : the name of the parent log.
+	 * @param child
+	 *            : the name of the child log.
+	 */
+	protected static void addChild(String parent, String child)
+	{
+		while(true)
+		{
+			Set<String> siblings = children.get(parent);
+			if(siblings == null)
+			{
+				Set<String> newSet = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+				siblings = children.putIfAbsent(parent, newSet);
+				if(siblings == null)
+					siblings = newSet;
+			}
+			siblings.add(child);
+			// the set may have been removed in the meantime, in which case the child is added to a new set
+			if(children.get(parent) == siblings)
+				return;
+		}
+	}
+	
+	/**
+	 * Get the whole output of the log. If the retention of the log is limited (see
+	 * {@link LogSettings#setRetention(int, long, long)}), only the retained part is returned.
 	 * 
 	 * @param name
 	 *            : the name of the log.
 	 * @param shortOutput
 	 *            : if <code>true</code>, the output does not contain the log name and time stamps (just the level and
 	 *            message).
-	 * @return the entire contents of the log.
+	 * @return the entire (retained) contents of the log.
 	 */
 	public static String getLoggerOutput(String name, boolean shortOutput)
 	{
-		Logging found = null;
-		synchronized(logs)
-		{
-			found = logs.get(name);
-		}
+		Logging found = logs.get(name);
 		if(found == null)
 			throw new IllegalArgumentException("log not present [" + name + "]");
 		if(shortOutput)
@@ -280,7 +384,71 @@ public class Logging
 	}
 	
 	/**
-	 * Closes the log specified by the name, stops the associated timer, and frees the name so it can be reused. The log
+	 * Get the number of messages that have been evicted from the output of the log, if the retention of the log is
+	 * limited (see {@link LogSettings#setRetention(int, long, long)}).
+	 * 
+	 * @param name
+	 *            : the name of the log.
+	 * @param shortOutput
+	 *            : if <code>true</code>, the output without the log name and time stamps is considered.
+	 * @return the number of evicted messages.
+	 */
+	public static long getLoggerEvicted(String name, boolean shortOutput)
+	{
+		Logging found = logs.get(name);
+		if(found == null)
+			throw new IllegalArgumentException("log not present [" + name + "]");
+		if(shortOutput)
+			return found.logOutput.getEvictedRecords();
+		return found.logOutputStamped.getEvictedRecords();
+	}
+	
+	/**
+	 * Get the number of messages that have been dropped without being sent to the reporting entity of the log, if it
+	 * is a {@link BatchReportingEntity} (see {@link LogSettings#setReportBacklog(long)}).
+	 * 
+	 * @param name
+	 *            : the name of the log.
+	 * @return the number of dropped messages; 0 if the reporting entity of the log is not a
+	 *         {@link BatchReportingEntity}.
+	 */
+	public static long getReportDropped(String name)
+	{
+		Logging found = logs.get(name);
+		if(found == null)
+			throw new IllegalArgumentException("log not present [" + name + "]");
+		return (found.reportBatcher != null) ? found.reportBatcher.getDropped() : 0;
+	}
+	
+	/**
+	 * Get the {@link LogLimiter} of the log, which applies its rate limits and sampling (see
+	 * {@link LogSettings#setRateLimit(Level, double, int)}).
+	 * 
+	 * @param name
+	 *            : the name of the log.
+	 * @return the limiter; <code>null</code> if the log does not exist or no limits are set for it.
+	 */
+	public static LogLimiter getLimiter(String name)
+	{
+		Logging found = logs.get(name);
+		return (found != null) ? found.limiter : null;
+	}
+	
+	/**
+	 * Retrieves the metrics of a log, so that messages posted to the log and messages filtered out can be counted.
+	 * 
+	 * @param name
+	 *            : the name of the log.
+	 * @return the metrics; <code>null</code> if the log does not exist.
+	 */
+	public static LogMetrics getMetrics(String name)
+	{
+		Logging found = logs.get(name);
+		return (found != null) ? found.metrics : null;
+	}
+	
+	/**
+	 * Closes the log specified by the name, stops the associated update tasks, and frees the name so it can be reused. The log
 	 * will not be flushed (sent as report) before closing.
 	 * 
 	 * @param name
@@ -292,44 +460,63 @@ public class Logging
 	}
 	
 	/**
-	 * Closes the log specified by the name (stops the associated timer) and frees the name so it can be reused.
+	 * Closes the log specified by the name (stops the associated update tasks) and frees the name so it can be reused.
 	 * 
 	 * @param name
 	 *            : the name of the log to be freed.
 	 * @param flushFirst
-	 *            : if <code>true</code>, a last report will be sent to the reporting entity (if any).
+	 *            : if <code>true</code>, a last report will be sent to the reporting entity (if any), and pending
+	 *            console output will be written.
 	 */
 	public static void exitLogger(String name, boolean flushFirst)
 	{
-		boolean notpresent = false;
-		Logging found = null;
-		int nlogs = -1;
-		@SuppressWarnings("unused")
-		// type argument required by Java 1.6.
-		Vector<String> toClose = new Vector<String>(); // logs to which this is parent.
-		synchronized(logs)
+		Logging found = logs.get(name);
+		if(found == null)
+			throw new IllegalArgumentException("log not present [" + name + "]");
+		// the name is still taken, so no new log with the same name can try to register its MBean meanwhile
+		found.metrics.unregister();
+		if(!logs.remove(name, found))
+			throw new IllegalArgumentException("log not present [" + name + "]");
+		String parent = parents.remove(name);
+		if(parent != null)
 		{
-			if(!logs.containsKey(name))
-				notpresent = true;
-			else
+			Set<String> siblings = children.get(parent);
+			if(siblings != null)
 			{
-				for(Map.Entry<String, String> link : parents.entrySet())
-					if(name.equals(link.getValue()))
-						toClose.add(link.getKey());
-				found = logs.get(name);
-				logs.remove(name);
-				parents.remove(name);
-				nlogs = logs.size();
+				siblings.remove(name);
+				if(siblings.isEmpty())
+					children.remove(parent, siblings);
 			}
 		}
-		if(notpresent || (found == null))
-			throw new IllegalArgumentException("log not present [" + name + "]");
+		Set<String> toClose = children.remove(name); // logs to which this is parent.
+		int nlogs = logs.size();
 		found.getLog().l(Level.TRACE, "log out (logs remaining [" + nlogs + "]).");
-		for(String logName : toClose)
-			exitLogger(logName, flushFirst);
+		if(toClose != null)
+			for(String logName : toClose)
+				if(logs.containsKey(logName))
+					try
+					{
+						exitLogger(logName, flushFirst);
+					} catch(IllegalArgumentException e)
+					{
+						// the child has exited in the meantime
+					}
 		if(flushFirst)
+		{
+			if(found.logger instanceof AsyncLogWrapper)
+				((AsyncLogWrapper) found.logger).flush();
+			if(found.logger instanceof ThreadBufferedLogWrapper)
+				((ThreadBufferedLogWrapper) found.logger).flush();
+			if(found.collapser != null)
+				found.collapser.flush();
 			found.updateLogText();
+			found.updateReport();
+			ConsoleSink sink = ConsoleSink.get();
+			if(sink != null)
+				sink.flush();
+		}
 		found.doexit();
+		found.metrics.retire();
 		
 		if(nlogs == 1 && masterLog != null) // this was the last non-master log
 			masterLog.doExit();
@@ -344,11 +531,9 @@ public class Logging
 	 */
 	public static void resetLogging()
 	{
-		synchronized(logs)
-		{
-			logs.clear();
-			parents.clear();
-		}
+		logs.clear();
+		parents.clear();
+		children.clear();
 		
 		if(masterLog != null)
 		{
@@ -368,15 +553,29 @@ public class Logging
 	 *            - the {@link DisplayEntity} to use.
 	 * @param reporter
 	 *            - the {@link ReportingEntity} to use.
+	 * @param settings
+	 *            - additional settings for the log; may be <code>null</code>.
 	 * @throws ClassNotFoundException
 	 *             - if the wrapper class cannot be found or instantiated.
 	 */
-	protected Logging(String logName, String loggerClass, DisplayEntity display, ReportingEntity reporter)
-			throws ClassNotFoundException
+	protected Logging(String logName, String loggerClass, DisplayEntity display, ReportingEntity reporter,
+			LogSettings settings) throws ClassNotFoundException
 	{
 		name = logName;
-		logOutput = new ByteArrayOutputStream();
-		logOutputStamped = new ByteArrayOutputStream();
+		if(settings != null)
+		{
+			logUpdateDelay = settings.getDisplayUpdateDelay();
+			reportUpdateDelay = settings.getReportUpdateDelay();
+		}
+		logOutput = new LogOutputStream();
+		logOutputStamped = new LogOutputStream();
+		if(settings != null)
+		{
+			logOutput.setRetention(settings.getRetentionMessages(), settings.getRetentionBytes(),
+					settings.getRetentionAge());
+			logOutputStamped.setRetention(settings.getRetentionMessages(), settings.getRetentionBytes(),
+					settings.getRetentionAge());
+		}
 		
 		if(loggerClass == null)
 		{
@@ -385,6 +584,7 @@ public class Logging
 		}
 		else
 		{
+			wrapperType = LoggerType.OTHER;
 			for(LoggerType wrapper : LoggerType.values())
 				if(loggerClass.equals(wrapper.getClassName()))
 					wrapperType = wrapper;
@@ -392,14 +592,10 @@ public class Logging
 		}
 		
 		// instantiate wrapper
-		ClassLoader cl = null;
-		cl = new ClassLoader(this.getClass().getClassLoader()) {
-			// nothing to extend
-		};
+		LogWrapperFactory factory = LogWrapperFactories.getFactory(wrapperClass);
 		try
 		{
-			Constructor<?> constructor = cl.loadClass(wrapperClass).getConstructor(String.class);
-			logger = (LogWrapper) constructor.newInstance(name);
+			logger = factory.newWrapper(name);
 		} catch(Exception e)
 		{
 			throw new ClassNotFoundException("Wrapper class cannot be instantiated.", e);
@@ -409,6 +605,7 @@ public class Logging
 			throw (new IllegalStateException());
 		
 		logger.setLevel(logLevel);
+		metrics.countOutputs(logger);
 		
 		String formatDisplay = null;
 		String formatReporter = null;
@@ -425,32 +622,77 @@ public class Logging
 			break;
 		case CONSOLE:
 		case JAVA:
+		case MAPPED_FILE:
+		case BINARY:
+		case FILE_CHANNEL:
 		case OTHER:
 			// TODO
 			break;
 		}
 		
-		logDisplay = display;
+		if(display instanceof IncrementalDisplayEntity)
+			logDisplay = (IncrementalDisplayEntity) display;
+		else if(display != null)
+			logDisplay = new DisplayEntityAdapter(display);
 		externalReporter = reporter;
+		if(externalReporter instanceof BatchReportingEntity)
+		{
+			reportBatcher = new ReportBatcher((BatchReportingEntity) externalReporter, logOutputStamped,
+					(settings != null) ? settings : new LogSettings());
+			logOutputStamped.setRecordListener(reportBatcher);
+		}
 		
 		if(logDisplay != null)
 			logger.addDestination(formatDisplay, logOutput);
 		if(externalReporter != null)
 			logger.addDestination(formatReporter, logOutputStamped);
-		logger.addDestination(formatConsole, System.out);
+		logger.addDestination(formatConsole, metrics.countConsole(ConsoleSink.stdout()));
 		
-		if((logDisplay != null) || (externalReporter != null))
+		if((settings != null) && settings.isCollapsingRepeated())
+			logger = collapser = new CollapsingLogWrapper(logger, logName, settings.getCollapseTimeout());
+		if((settings != null) && settings.isThreadBuffered())
+			logger = new ThreadBufferedLogWrapper(logger, logName, settings.getThreadBufferCapacity(),
+					settings.getThreadFlushPeriod());
+		else if((settings != null) && settings.isAsynchronous())
+			logger = new AsyncLogWrapper(logger, (settings.getAsyncPipeline() != null) ? settings.getAsyncPipeline()
+					: AsyncLogPipeline.getDefault());
+		
+		if((settings != null) && settings.isLimited())
 		{
-			// logger.trace("setting and starting timer...");
-			logTimer = new Timer();
-			logTimer.schedule(new TimerTask() {
+			limiter = new LogLimiter(settings, logger);
+			LogScheduler.getDefault().schedule(limiter, settings.getSuppressionSummary());
+		}
+		
+		if(logDisplay != null)
+			displayTask = LogScheduler.getDefault().schedule(new LogScheduler.Task() {
+				@Override
+				protected boolean isPending()
+				{
+					return logOutput.committedSize() != logSize;
+				}
+				
 				@Override
 				public void run()
 				{
 					updateLogText();
 				}
-			}, 0, logUpdateDelay);
-		}
+			}, logUpdateDelay);
+		if(reportBatcher != null)
+			reportTask = LogScheduler.getDefault().schedule(reportBatcher, reportBatcher.getPeriod());
+		else if(externalReporter != null)
+			reportTask = LogScheduler.getDefault().schedule(new LogScheduler.Task() {
+				@Override
+				protected boolean isPending()
+				{
+					return logOutputStamped.committedSize() != lastUpdatedSize;
+				}
+				
+				@Override
+				public void run()
+				{
+					updateReport();
+				}
+			}, reportUpdateDelay);
 	}
 	
 	/**
@@ -462,48 +704,104 @@ public class Logging
 	}
 	
 	/**
-	 * Method invoked when the output of the log must be displayed or sent elsewhere. THe call of this method is
-	 * triggered by the timer created at construction.
+	 * Method invoked when the output of the log must be displayed. Only the messages posted since the previous call
+	 * are sent to the display entity. The call of this method is triggered periodically by the {@link LogScheduler},
+	 * every {@link #logUpdateDelay} milliseconds, if the log has changed.
+	 * <p>
+	 * Messages that have been evicted before being displayed are skipped. If messages have been evicted and the
+	 * display entity is adapted by a {@link DisplayEntityAdapter}, the entity receives the entire retained output, so
+	 * that the adapter does not hold more than the log retains.
 	 */
 	protected void updateLogText()
 	{
-		int cSize = logOutput.size();
-		if((logDisplay != null) && (logSize != cSize))
+		if(logDisplay == null)
+			return;
+		long begin = System.nanoTime();
+		String update;
+		boolean replace;
+		logOutput.getLock().lock();
+		try
 		{
-			logDisplay.output(logOutput.toString());
+			logOutput.evict();
+			long cSize = logOutput.committedSize();
+			long start = logOutput.getStart();
+			replace = (logDisplay instanceof DisplayEntityAdapter) && (start != displayedStart);
+			if(logSize == cSize && !replace)
+				return;
+			update = logOutput.toString(replace ? start : Math.max(logSize, start), cSize);
 			logSize = cSize;
-		}
-		timeToNextReport -= logUpdateDelay;
-		if(timeToNextReport <= 0)
+			displayedStart = start;
+		} finally
 		{
-			timeToNextReport = reportUpdateDelay;
-			updateReport();
+			logOutput.getLock().unlock();
 		}
+		if(replace)
+			logDisplay.output(update);
+		else
+			logDisplay.append(update);
+		metrics.displayUpdated(System.nanoTime() - begin);
 	}
 	
 	/**
-	 * Reports any changes in the log to the {@link ReportingEntity}, if any.
+	 * Reports any changes in the log to the {@link ReportingEntity}, if any. Only the part of the log since the last
+	 * successful report is sent; messages that have been evicted before being reported are skipped. A
+	 * {@link BufferReportingEntity} receives views on that part, without copying. The call of this method is
+	 * triggered periodically by the {@link LogScheduler}, every {@link #reportUpdateDelay} milliseconds, if the log has
+	 * changed.
+	 * <p>
+	 * If the reporting entity is a {@link BatchReportingEntity}, all waiting messages are sent, in batches, by the
+	 * {@link #reportBatcher}.
 	 */
 	protected void updateReport()
 	{
-		int cSize2 = logOutputStamped.size();
-		if((externalReporter != null) && (cSize2 != lastUpdatedSize))
+		if(externalReporter == null)
+			return;
+		long begin = System.nanoTime();
+		if(reportBatcher != null)
 		{
-			// logger.trace("updating reporter...");
-			byte[] content = logOutputStamped.toByteArray();
-			byte[] update = Arrays.copyOfRange(content, lastUpdatedSize, cSize2);
-			if(externalReporter.report(new String(update).trim()))
-				lastUpdatedSize = cSize2;
+			reportBatcher.flush();
+			metrics.reportUpdated(System.nanoTime() - begin);
+			return;
 		}
+		long cSize2;
+		ByteBuffer[] views;
+		logOutputStamped.getLock().lock();
+		try
+		{
+			logOutputStamped.evict();
+			cSize2 = logOutputStamped.committedSize();
+			if(cSize2 == lastUpdatedSize)
+				return;
+			views = logOutputStamped.view(Math.max(lastUpdatedSize, logOutputStamped.getStart()), cSize2);
+		} finally
+		{
+			logOutputStamped.getLock().unlock();
+		}
+		boolean reported;
+		if(externalReporter instanceof BufferReportingEntity)
+			reported = ((BufferReportingEntity) externalReporter).report(views, logOutputStamped.getCharset());
+		else
+			reported = externalReporter.report(LogOutputStream.decode(views, logOutputStamped.getCharset()).trim());
+		if(reported)
+			lastUpdatedSize = cSize2;
+		metrics.reported(reported);
+		metrics.reportUpdated(System.nanoTime() - begin);
 	}
 	
 	/**
-	 * Exists the log. More specifically, it cancels the update timer ({@link #logTimer}).
+	 * Exists the log. More specifically, it cancels the update tasks ({@link #displayTask} and {@link #reportTask}).
 	 */
 	protected void doexit()
 	{
-		if(logTimer != null)
-			logTimer.cancel();
+		if(limiter != null)
+		{
+			limiter.cancel();
+			limiter.run();
+		}
+		if(displayTask != null)
+			displayTask.cancel();
+		if(reportTask != null)
+			reportTask.cancel();
 		logger.exit();
 	}
 }
@@ -0,0 +1,132 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reusable facility for assembling a message in a {@link StringBuilder} and encoding it into bytes, without allocating
+ * once its buffers have grown to the size of the messages. Log wrappers use it to write messages to their destinations
+ * (see {@link #encode()} and {@link #encodeTo(ByteBuffer)}).
+ * <p>
+ * Characters that cannot be encoded are replaced, as with {@link String#getBytes(Charset)}.
+ * <p>
+ * Instances are not thread-safe.
+ * 
+ * @author Andrei Olaru
+ */
+public class MessageEncoder
+{
+	/**
+	 * The initial capacity of the buffers, in characters.
+	 */
+	protected static final int		INITIAL_CAPACITY	= 256;
+	
+	/**
+	 * The builder in which the message is assembled.
+	 */
+	protected final StringBuilder	builder				= new StringBuilder(INITIAL_CAPACITY);
+	/**
+	 * The encoder.
+	 */
+	protected final CharsetEncoder	encoder;
+	/**
+	 * The characters of the message, copied from the builder.
+	 */
+	protected CharBuffer			chars				= CharBuffer.allocate(INITIAL_CAPACITY);
+	/**
+	 * The buffer in which the message is encoded by {@link #encode()}.
+	 */
+	protected ByteBuffer			bytes;
+	
+	/**
+	 * Creates an encoder.
+	 * 
+	 * @param charset
+	 *            - the charset to encode to.
+	 */
+	public MessageEncoder(Charset charset)
+	{
+		encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		bytes = ByteBuffer.allocate((int) (INITIAL_CAPACITY * encoder.maxBytesPerChar()));
+	}
+	
+	/**
+	 * @return the builder, emptied, in which to assemble the message.
+	 */
+	public StringBuilder builder()
+	{
+		builder.setLength(0);
+		return builder;
+	}
+	
+	/**
+	 * @return the maximum number of bytes that the current message may take, once encoded.
+	 */
+	public int maxEncodedLength()
+	{
+		return (int) Math.ceil(builder.length() * (double) encoder.maxBytesPerChar());
+	}
+	
+	/**
+	 * Encodes the message in the builder into a reusable buffer.
+	 * 
+	 * @return the buffer, containing the encoded message between its position (0) and its limit. It is valid until
+	 *         the next call.
+	 */
+	public ByteBuffer encode()
+	{
+		int needed = maxEncodedLength();
+		if(bytes.capacity() < needed)
+			bytes = ByteBuffer.allocate(Math.max(needed, bytes.capacity() * 2));
+		bytes.clear();
+		encodeTo(bytes);
+		bytes.flip();
+		return bytes;
+	}
+	
+	/**
+	 * Encodes the message in the builder into the given buffer, starting at its position.
+	 * 
+	 * @param destination
+	 *            - the buffer to encode into.
+	 * @return <code>true</code> if the message has been encoded entirely; <code>false</code> if there was not enough
+	 *         space, in which case the content of the buffer after its initial position is undefined, and its position
+	 *         is not changed.
+	 */
+	public boolean encodeTo(ByteBuffer destination)
+	{
+		int length = builder.length();
+		if(chars.capacity() < length)
+			chars = CharBuffer.allocate(Math.max(length, chars.capacity() * 2));
+		chars.clear();
+		builder.getChars(0, length, chars.array(), 0);
+		chars.limit(length);
+		int start = destination.position();
+		encoder.reset();
+		CoderResult result = encoder.encode(chars, destination, true);
+		if(!result.isOverflow())
+			result = encoder.flush(destination);
+		if(result.isOverflow())
+		{
+			destination.position(start);
+			return false;
+		}
+		return true;
+	}
+}
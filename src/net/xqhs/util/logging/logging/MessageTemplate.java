@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import net.xqhs.util.logging.ArgumentSupplier;
+import net.xqhs.util.logging.LoggerSimple;
+
+/**
+ * A message string, parsed once into the literal segments between apparitions of
+ * {@link LoggerSimple#ARGUMENT_PLACEHOLDER_TEXT}. Rendering a compiled template with a set of arguments produces
+ * exactly the same result as the original, regular expression-based, composition of messages: arguments are placed in
+ * the placeholders, in order, between {@link LoggerSimple#ARGUMENT_BEGIN} and {@link LoggerSimple#ARGUMENT_END}; if
+ * there are fewer arguments than placeholders, the remaining placeholders are left as they are; if there are more
+ * arguments than placeholders, the remaining arguments are added after the message.
+ * <p>
+ * Compiled templates are obtained by {@link #get(String)} and are kept in a bounded cache shared by all logs, keyed by
+ * the message string. When the cache is full, it is cleared, so that message strings that are assembled dynamically
+ * (and therefore are seldom reused) do not take the place of frequently used templates forever.
+ * <p>
+ * Instances are immutable and can be used concurrently.
+ * 
+ * @author Andrei Olaru
+ */
+public class MessageTemplate
+{
+	/**
+	 * The maximum number of templates to keep in the cache.
+	 */
+	protected static final int									MAX_CACHED_TEMPLATES	= 4096;
+	/**
+	 * Estimate of the average length of a rendered argument, used to size the builder before rendering.
+	 */
+	protected static final int									ARGUMENT_SIZE_ESTIMATE	= 16;
+	
+	/**
+	 * The cache of compiled templates.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected static final ConcurrentMap<String, MessageTemplate>	cache					= new ConcurrentHashMap<String, MessageTemplate>();
+	
+	/**
+	 * The original message string.
+	 */
+	protected final String										template;
+	/**
+	 * The literal segments of the message, between placeholders. There is always one more segment than there are
+	 * placeholders.
+	 */
+	protected final String[]									segments;
+	/**
+	 * The index in {@link #template} at which each of the {@link #segments} begins.
+	 */
+	protected final int[]										segmentStarts;
+	
+	/**
+	 * Parses a message string into a compiled template. Use {@link #get(String)} to benefit from caching.
+	 * 
+	 * @param message
+	 *            - the message string.
+	 */
+	protected MessageTemplate(String message)
+	{
+		@SuppressWarnings("unused")
+		// type arguments required by Java 1.6
+		List<String> parts = new ArrayList<String>();
+		@SuppressWarnings("unused")
+		// type arguments required by Java 1.6
+		List<Integer> starts = new ArrayList<Integer>();
+		String placeholder = LoggerSimple.ARGUMENT_PLACEHOLDER_TEXT;
+		int start = 0;
+		int found;
+		while((found = message.indexOf(placeholder, start)) >= 0)
+		{
+			parts.add(message.substring(start, found));
+			starts.add(Integer.valueOf(start));
+			start = found + placeholder.length();
+		}
+		parts.add(message.substring(start));
+		starts.add(Integer.valueOf(start));
+		
+		template = message;
+		segments = parts.toArray(new String[parts.size()]);
+		segmentStarts = new int[starts.size()];
+		for(int i = 0; i < segmentStarts.length; i++)
+			segmentStarts[i] = starts.get(i).intValue();
+	}
+	
+	/**
+	 * Retrieves the compiled form of a message string, compiling it and caching it if necessary.
+	 * 
+	 * @param message
+	 *            - the message string.
+	 * @return the compiled template.
+	 */
+	public static MessageTemplate get(String message)
+	{
+		MessageTemplate compiled = cache.get(message);
+		if(compiled == null)
+		{
+			compiled = new MessageTemplate(message);
+			if(cache.size() >= MAX_CACHED_TEMPLATES)
+				cache.clear();
+			cache.put(message, compiled);
+		}
+		return compiled;
+	}
+	
+	/**
+	 * Composes a message with an array of {@link Object} instances. See {@link MessageTemplate} for details.
+	 * 
+	 * @param message
+	 *            - the message string.
+	 * @param arguments
+	 *            - the arguments to place in the message.
+	 * @return the assembled string.
+	 */
+	public static String compose(String message, Object[] arguments)
+	{
+		return get(message).render(arguments);
+	}
+	
+	/**
+	 * @return the original message string.
+	 */
+	public String getTemplate()
+	{
+		return template;
+	}
+	
+	/**
+	 * @return the number of placeholders in the message.
+	 */
+	public int getPlaceholderCount()
+	{
+		return segments.length - 1;
+	}
+	
+	/**
+	 * Renders the template with the given arguments.
+	 * 
+	 * @param arguments
+	 *            - the arguments to place in the message.
+	 * @return the assembled string.
+	 */
+	public String render(Object[] arguments)
+	{
+		if(arguments.length == 0)
+			return template;
+		return renderTo(new StringBuilder(template.length() + arguments.length * ARGUMENT_SIZE_ESTIMATE), arguments)
+				.toString();
+	}
+	
+	/**
+	 * Renders the template with the given arguments, appending the result to the given builder.
+	 * 
+	 * @param builder
+	 *            - the builder to append to.
+	 * @param arguments
+	 *            - the arguments to place in the message.
+	 * @return the builder.
+	 */
+	public StringBuilder renderTo(StringBuilder builder, Object[] arguments)
+	{
+		int placeholders = segments.length - 1;
+		int filled = Math.min(arguments.length, placeholders);
+		for(int i = 0; i < filled; i++)
+		{
+			builder.append(segments[i]);
+			appendArgument(builder, arguments[i]);
+		}
+		if(filled == placeholders)
+			builder.append(segments[placeholders]);
+		else
+			// not enough arguments; the rest of the message remains unchanged
+			builder.append(template, segmentStarts[filled], template.length());
+		// deal with the rest of the arguments
+		for(int i = placeholders; i < arguments.length; i++)
+			appendArgument(builder, arguments[i]);
+		return builder;
+	}
+	
+	/**
+	 * Appends the rendition of one argument, between {@link LoggerSimple#ARGUMENT_BEGIN} and
+	 * {@link LoggerSimple#ARGUMENT_END}. For an {@link ArgumentSupplier}, the supplied value is rendered. A
+	 * {@link PrimitiveArgument}, as well as the common boxed primitive values, are rendered without allocating.
+	 * 
+	 * @param builder
+	 *            - the builder to append to.
+	 * @param argument
+	 *            - the argument.
+	 */
+	protected static void appendArgument(StringBuilder builder, Object argument)
+	{
+		builder.append(LoggerSimple.ARGUMENT_BEGIN);
+		if(argument instanceof PrimitiveArgument)
+			((PrimitiveArgument) argument).appendTo(builder);
+		else if(argument instanceof Integer)
+			builder.append(((Integer) argument).intValue());
+		else if(argument instanceof Long)
+			builder.append(((Long) argument).longValue());
+		else if(argument instanceof Double)
+			builder.append(((Double) argument).doubleValue());
+		else if(argument instanceof Boolean)
+			builder.append(((Boolean) argument).booleanValue());
+		else
+			builder.append(resolve(argument));
+		builder.append(LoggerSimple.ARGUMENT_END);
+	}
+	
+	/**
+	 * Obtains the actual value of an argument, which is the supplied value for an {@link ArgumentSupplier} and the
+	 * argument itself otherwise.
+	 * 
+	 * @param argument
+	 *            - the argument.
+	 * @return the value of the argument.
+	 */
+	public static Object resolve(Object argument)
+	{
+		if(argument instanceof ArgumentSupplier)
+			return ((ArgumentSupplier) argument).get();
+		return argument;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return template;
+	}
+}
@@ -0,0 +1,605 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Writes each logging message to several destinations, each with its own format, rendering the parts that the
+ * destinations share only once per message.
+ * <p>
+ * Formats use a subset of the Log4J pattern syntax: <code>%m</code> (the message), <code>%p</code> (the level),
+ * <code>%c</code> (the name of the log), <code>%t</code> (the name of the thread), <code>%d</code> (the date, with an
+ * optional {@link SimpleDateFormat} pattern or one of <code>ABSOLUTE</code>, <code>DATE</code>, <code>ISO8601</code>
+ * between braces), <code>%n</code> (the line separator) and <code>%%</code>. The level and the name of the log may have
+ * Log4J format modifiers (e.g. <code>%-5p</code>).
+ * <p>
+ * Formats are compiled when the destination is added: for each level, the text between two variable parts (message,
+ * date, thread) is pre-encoded as a single sequence of bytes. For each message, the message itself is encoded only
+ * once, and each date format and the thread name are rendered at most once; each destination then receives its parts
+ * assembled in a single write, followed by a flush.
+ * <p>
+ * All destinations use the same charset. Errors in writing to a destination are printed to the standard error output.
+ * 
+ * @author Andrei Olaru
+ */
+public class MultiDestinationWriter
+{
+	/**
+	 * The line separator, used for <code>%n</code>.
+	 */
+	protected static final String	LINE_SEPARATOR	= System.getProperty("line.separator");
+	/**
+	 * A part of a compiled format containing static text (which may depend on the level).
+	 */
+	protected static final int		PART_STATIC		= 0;
+	/**
+	 * A part containing the message.
+	 */
+	protected static final int		PART_MESSAGE	= 1;
+	/**
+	 * A part containing the date.
+	 */
+	protected static final int		PART_DATE		= 2;
+	/**
+	 * A part containing the name of the thread.
+	 */
+	protected static final int		PART_THREAD		= 3;
+	
+	/**
+	 * A destination, with its compiled format.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected static class Destination
+	{
+		/**
+		 * The stream to write to.
+		 */
+		OutputStream	out;
+		/**
+		 * The types of the parts.
+		 */
+		int[]			parts;
+		/**
+		 * For {@link MultiDestinationWriter#PART_DATE} parts, the index of the date format.
+		 */
+		int[]			dates;
+		/**
+		 * For each level (by ordinal) and for each {@link MultiDestinationWriter#PART_STATIC} part, the encoded text.
+		 */
+		byte[][][]		statics;
+	}
+	
+	/**
+	 * The state used for rendering a message. A second instance is created if a message is written while another one
+	 * is being rendered, by the same thread (e.g. by a <code>toString()</code> method of an argument).
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected class Scratch
+	{
+		/**
+		 * The encoder for the message.
+		 */
+		MessageEncoder	encoder	= new MessageEncoder(charset);
+		/**
+		 * The buffer in which the output for a destination is assembled.
+		 */
+		byte[]			output	= new byte[512];
+		/**
+		 * The encoded dates, by index of the date format.
+		 */
+		byte[][]		dates	= new byte[0][];
+		/**
+		 * The times for which the dates in {@link #dates} have been rendered.
+		 */
+		long[]			times	= new long[0];
+	}
+	
+	/**
+	 * The name of the log, used for <code>%c</code>.
+	 */
+	protected final String				name;
+	/**
+	 * The charset for all destinations.
+	 */
+	protected final Charset				charset;
+	/**
+	 * The destinations.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected final List<Destination>	destinations	= new ArrayList<Destination>();
+	/**
+	 * The distinct date formats used by the destinations.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected final List<String>		datePatterns	= new ArrayList<String>();
+	/**
+	 * The date formatters, by index of the date format.
+	 */
+	protected SimpleDateFormat[]		dateFormats		= new SimpleDateFormat[0];
+	/**
+	 * The rendering state.
+	 */
+	protected final Scratch				scratch;
+	/**
+	 * The lock guarding the destinations and the rendering state. It is a {@link ReentrantLock} rather than a monitor,
+	 * so that a virtual thread waiting for it or writing while holding it does not pin its carrier thread.
+	 */
+	protected final ReentrantLock		lock			= new ReentrantLock();
+	/**
+	 * <code>true</code> while a message is being rendered with {@link #scratch}.
+	 */
+	protected boolean					writing			= false;
+	/**
+	 * The name of the thread of the last message.
+	 */
+	protected String					threadName		= null;
+	/**
+	 * The encoding of {@link #threadName}.
+	 */
+	protected byte[]					threadBytes		= null;
+	
+	/**
+	 * Creates a writer with no destinations.
+	 * 
+	 * @param logName
+	 *            - the name of the log.
+	 * @param destinationCharset
+	 *            - the charset to encode the output with.
+	 */
+	public MultiDestinationWriter(String logName, Charset destinationCharset)
+	{
+		name = logName;
+		charset = destinationCharset;
+		scratch = new Scratch();
+	}
+	
+	/**
+	 * @return the charset used for all destinations.
+	 */
+	public Charset getCharset()
+	{
+		return charset;
+	}
+	
+	/**
+	 * @return <code>true</code> if there are no destinations.
+	 */
+	public boolean isEmpty()
+	{
+		lock.lock();
+		try
+		{
+			return destinations.isEmpty();
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Adds a destination, compiling its format.
+	 * 
+	 * @param format
+	 *            - the format, as described in the documentation of the class.
+	 * @param destination
+	 *            - the stream to write to.
+	 * @throws IllegalArgumentException
+	 *             - if the format is <code>null</code> or contains unsupported elements. The writer is not changed.
+	 */
+	public void addDestination(String format, OutputStream destination)
+	{
+		lock.lock();
+		try
+		{
+			if(format == null)
+				throw new IllegalArgumentException("No format specified.");
+			// the text of the parts, with null entries for the level; for variable parts, a single null entry
+			@SuppressWarnings("unused")
+			// type arguments required by Java 1.6
+			List<List<String>> texts = new ArrayList<List<String>>();
+			@SuppressWarnings("unused")
+			// type arguments required by Java 1.6
+			List<Integer> types = new ArrayList<Integer>();
+			@SuppressWarnings("unused")
+			// type arguments required by Java 1.6
+			List<Integer> dates = new ArrayList<Integer>();
+			@SuppressWarnings("unused")
+			// type arguments required by Java 1.6
+			List<String> newPatterns = new ArrayList<String>();
+			@SuppressWarnings("unused")
+			// type arguments required by Java 1.6
+			List<String> literal = new ArrayList<String>();
+			// level padding for each null entry in literal
+			@SuppressWarnings("unused")
+			// type arguments required by Java 1.6
+			List<int[]> levelModifiers = new ArrayList<int[]>();
+		
+			StringBuilder text = new StringBuilder();
+			int i = 0;
+			while(i < format.length())
+			{
+				char c = format.charAt(i++);
+				if(c != '%')
+				{
+					text.append(c);
+					continue;
+				}
+				if(i >= format.length())
+					throw new IllegalArgumentException("Incomplete conversion at the end of [" + format + "]");
+				if(format.charAt(i) == '%')
+				{
+					text.append('%');
+					i++;
+					continue;
+				}
+				// modifiers: [-][min][.max]
+				boolean left = false;
+				int min = 0;
+				int max = Integer.MAX_VALUE;
+				if(format.charAt(i) == '-')
+				{
+					left = true;
+					i++;
+				}
+				int start = i;
+				while((i < format.length()) && Character.isDigit(format.charAt(i)))
+					i++;
+				if(i > start)
+					min = Integer.parseInt(format.substring(start, i));
+				if((i < format.length()) && (format.charAt(i) == '.'))
+				{
+					start = ++i;
+					while((i < format.length()) && Character.isDigit(format.charAt(i)))
+						i++;
+					if(i == start)
+						throw new IllegalArgumentException("Invalid modifier in [" + format + "]");
+					max = Integer.parseInt(format.substring(start, i));
+				}
+				if(i >= format.length())
+					throw new IllegalArgumentException("Incomplete conversion at the end of [" + format + "]");
+				boolean modified = left || (min > 0) || (max < Integer.MAX_VALUE);
+				char conversion = format.charAt(i++);
+				String option = null;
+				if((i < format.length()) && (format.charAt(i) == '{'))
+				{
+					int end = format.indexOf('}', i);
+					if(end < 0)
+						throw new IllegalArgumentException("Unterminated option in [" + format + "]");
+					option = format.substring(i + 1, end);
+					i = end + 1;
+				}
+				if(((conversion == 'm') || (conversion == 'd') || (conversion == 't') || (conversion == 'n'))
+						&& modified)
+					throw new IllegalArgumentException("Unsupported modifier for %" + conversion + " in [" + format
+							+ "]");
+				if((option != null) && (conversion != 'd'))
+					throw new IllegalArgumentException("Unsupported option for %" + conversion + " in [" + format
+							+ "]");
+				switch(conversion)
+				{
+				case 'n':
+					text.append(LINE_SEPARATOR);
+					break;
+				case 'c':
+					text.append(pad(name, left, min, max));
+					break;
+				case 'p':
+					literal.add(text.toString());
+					text.setLength(0);
+					literal.add(null);
+					levelModifiers.add(new int[] { left ? 1 : 0, min, max });
+					break;
+				case 'm':
+				case 't':
+				case 'd':
+					literal.add(text.toString());
+					text.setLength(0);
+					texts.add(literal);
+					types.add(Integer.valueOf(PART_STATIC));
+					dates.add(Integer.valueOf(-1));
+					literal = new ArrayList<String>();
+					texts.add(null);
+					if(conversion == 'd')
+					{
+						String pattern = toDatePattern(option);
+						new SimpleDateFormat(pattern); // validate
+						int index = datePatterns.indexOf(pattern);
+						if(index < 0)
+						{
+							index = newPatterns.indexOf(pattern);
+							if(index < 0)
+							{
+								newPatterns.add(pattern);
+								index = newPatterns.size() - 1;
+							}
+							index += datePatterns.size();
+						}
+						types.add(Integer.valueOf(PART_DATE));
+						dates.add(Integer.valueOf(index));
+					}
+					else
+					{
+						types.add(Integer.valueOf((conversion == 'm') ? PART_MESSAGE : PART_THREAD));
+						dates.add(Integer.valueOf(-1));
+					}
+					break;
+				default:
+					throw new IllegalArgumentException("Unsupported conversion %" + conversion + " in [" + format
+							+ "]");
+				}
+			}
+			literal.add(text.toString());
+			texts.add(literal);
+			types.add(Integer.valueOf(PART_STATIC));
+			dates.add(Integer.valueOf(-1));
+		
+			Destination d = new Destination();
+			d.out = destination;
+			d.parts = new int[types.size()];
+			d.dates = new int[types.size()];
+			Level[] levels = Level.values();
+			d.statics = new byte[levels.length][types.size()][];
+			int modifierBase = 0;
+			for(int part = 0; part < types.size(); part++)
+			{
+				d.parts[part] = types.get(part).intValue();
+				d.dates[part] = dates.get(part).intValue();
+				if(d.parts[part] != PART_STATIC)
+					continue;
+				for(Level level : levels)
+				{
+					StringBuilder rendered = new StringBuilder();
+					int modifier = modifierBase;
+					for(String element : texts.get(part))
+						if(element != null)
+							rendered.append(element);
+						else
+						{
+							int[] m = levelModifiers.get(modifier++);
+							rendered.append(pad(level.toString(), m[0] != 0, m[1], m[2]));
+						}
+					d.statics[level.ordinal()][part] = rendered.toString().getBytes(charset);
+				}
+				modifierBase += countLevels(texts.get(part));
+			}
+		
+			if(!newPatterns.isEmpty())
+			{
+				SimpleDateFormat[] formats = new SimpleDateFormat[datePatterns.size() + newPatterns.size()];
+				System.arraycopy(dateFormats, 0, formats, 0, dateFormats.length);
+				for(String pattern : newPatterns)
+				{
+					formats[datePatterns.size()] = new SimpleDateFormat(pattern);
+					datePatterns.add(pattern);
+				}
+				dateFormats = formats;
+			}
+			destinations.add(d);
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Writes a message to all destinations.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 * @param time
+	 *            - the time of the message.
+	 * @param thread
+	 *            - the name of the thread that posted the message.
+	 * @param message
+	 *            - the message, or its template if arguments are given.
+	 * @param arguments
+	 *            - the arguments, to be rendered in the template as described in {@link MessageTemplate}; may be
+	 *            <code>null</code> if the message is already composed.
+	 */
+	public void write(Level level, long time, String thread, String message, Object[] arguments)
+	{
+		lock.lock();
+		try
+		{
+			if(destinations.isEmpty())
+				return;
+			Scratch s = scratch;
+			if(writing)
+				s = new Scratch();
+			else
+				writing = true;
+			try
+			{
+				StringBuilder builder = s.encoder.builder();
+				if(arguments != null)
+					MessageTemplate.get(message).renderTo(builder, arguments);
+				else
+					builder.append(message);
+				ByteBuffer encoded = s.encoder.encode();
+				if(s.dates.length < dateFormats.length)
+				{
+					s.dates = new byte[dateFormats.length][];
+					s.times = new long[dateFormats.length];
+				}
+			
+				int levelIndex = level.ordinal();
+				// indexed, so that no iterator is allocated for each message
+				for(int i = 0; i < destinations.size(); i++)
+				{
+					Destination d = destinations.get(i);
+					int length = 0;
+					for(int part = 0; part < d.parts.length; part++)
+					{
+						byte[] bytes = null;
+						int offset = 0;
+						int size;
+						switch(d.parts[part])
+						{
+						case PART_MESSAGE:
+							bytes = encoded.array();
+							offset = encoded.arrayOffset();
+							size = encoded.limit();
+							break;
+						case PART_DATE:
+							bytes = renderDate(s, d.dates[part], time);
+							size = bytes.length;
+							break;
+						case PART_THREAD:
+							bytes = renderThread(thread);
+							size = bytes.length;
+							break;
+						default:
+							bytes = d.statics[levelIndex][part];
+							size = bytes.length;
+						}
+						if(length + size > s.output.length)
+						{
+							byte[] output = new byte[Math.max(length + size, s.output.length * 2)];
+							System.arraycopy(s.output, 0, output, 0, length);
+							s.output = output;
+						}
+						System.arraycopy(bytes, offset, s.output, length, size);
+						length += size;
+					}
+					try
+					{
+						d.out.write(s.output, 0, length);
+						d.out.flush();
+					} catch(IOException e)
+					{
+						e.printStackTrace();
+					}
+				}
+			} finally
+			{
+				if(s == scratch)
+					writing = false;
+			}
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Renders a date, if not already rendered for the same time.
+	 * 
+	 * @param s
+	 *            - the rendering state.
+	 * @param index
+	 *            - the index of the date format.
+	 * @param time
+	 *            - the time to render.
+	 * @return the encoded date.
+	 */
+	protected byte[] renderDate(Scratch s, int index, long time)
+	{
+		if((s.dates[index] == null) || (s.times[index] != time))
+		{
+			s.dates[index] = dateFormats[index].format(new Date(time)).getBytes(charset);
+			s.times[index] = time;
+		}
+		return s.dates[index];
+	}
+	
+	/**
+	 * Renders the name of the thread, if different from the name of the thread of the previous message.
+	 * 
+	 * @param thread
+	 *            - the name of the thread.
+	 * @return the encoded name.
+	 */
+	protected byte[] renderThread(String thread)
+	{
+		if((threadBytes == null) || !thread.equals(threadName))
+		{
+			threadName = thread;
+			threadBytes = String.valueOf(thread).getBytes(charset);
+		}
+		return threadBytes;
+	}
+	
+	/**
+	 * Counts the level conversions in the text of a static part.
+	 * 
+	 * @param elements
+	 *            - the elements of the part.
+	 * @return the number of <code>null</code> elements.
+	 */
+	protected static int countLevels(List<String> elements)
+	{
+		int count = 0;
+		for(String element : elements)
+			if(element == null)
+				count++;
+		return count;
+	}
+	
+	/**
+	 * Applies Log4J format modifiers to a text: texts longer than the maximum are truncated from the beginning; texts
+	 * shorter than the minimum are padded with spaces.
+	 * 
+	 * @param text
+	 *            - the text.
+	 * @param left
+	 *            - <code>true</code> if the text should be left-justified.
+	 * @param min
+	 *            - the minimum width.
+	 * @param max
+	 *            - the maximum width.
+	 * @return the resulting text.
+	 */
+	protected static String pad(String text, boolean left, int min, int max)
+	{
+		String result = (text.length() > max) ? text.substring(text.length() - max) : text;
+		StringBuilder builder = new StringBuilder(result);
+		while(builder.length() < min)
+			if(left)
+				builder.append(' ');
+			else
+				builder.insert(0, ' ');
+		return builder.toString();
+	}
+	
+	/**
+	 * Converts the option of a <code>%d</code> conversion to a {@link SimpleDateFormat} pattern.
+	 * 
+	 * @param option
+	 *            - the option; may be <code>null</code>.
+	 * @return the pattern.
+	 */
+	protected static String toDatePattern(String option)
+	{
+		if((option == null) || option.equals("ISO8601"))
+			return "yyyy-MM-dd HH:mm:ss,SSS";
+		if(option.equals("ABSOLUTE"))
+			return "HH:mm:ss,SSS";
+		if(option.equals("DATE"))
+			return "dd MMM yyyy HH:mm:ss,SSS";
+		return option;
+	}
+}
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+/**
+ * Mutable holder for a primitive logging argument, used in order to avoid boxing primitive values. Holders are reused
+ * (see {@link ArgumentBuffer}), so a holder must not be kept after the logging call that it was created for; code that
+ * needs the argument later (e.g. {@link AsyncLogWrapper}) must copy it (see {@link #copyTo(PrimitiveArgument)}).
+ * <p>
+ * A holder is rendered exactly like the boxed value would be.
+ * 
+ * @author Andrei Olaru
+ */
+public final class PrimitiveArgument
+{
+	/**
+	 * The types of primitive values.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static enum Type {
+		/**
+		 * <code>int</code>.
+		 */
+		INT,
+		
+		/**
+		 * <code>long</code>.
+		 */
+		LONG,
+		
+		/**
+		 * <code>double</code>.
+		 */
+		DOUBLE,
+		
+		/**
+		 * <code>boolean</code>.
+		 */
+		BOOLEAN,
+		
+		/**
+		 * <code>char</code>.
+		 */
+		CHAR,
+		
+		/**
+		 * <code>float</code>.
+		 */
+		FLOAT,
+	}
+	
+	/**
+	 * The type of the current value.
+	 */
+	Type	type			= Type.INT;
+	/**
+	 * The current value, for integral types, <code>boolean</code> (0 or 1) and <code>char</code>.
+	 */
+	long	integralValue	= 0;
+	/**
+	 * The current value, for floating point types.
+	 */
+	double	floatingValue	= 0;
+	
+	/**
+	 * @param value
+	 *            - the value to hold.
+	 * @return the holder itself.
+	 */
+	public PrimitiveArgument set(int value)
+	{
+		type = Type.INT;
+		integralValue = value;
+		return this;
+	}
+	
+	/**
+	 * @param value
+	 *            - the value to hold.
+	 * @return the holder itself.
+	 */
+	public PrimitiveArgument set(long value)
+	{
+		type = Type.LONG;
+		integralValue = value;
+		return this;
+	}
+	
+	/**
+	 * @param value
+	 *            - the value to hold.
+	 * @return the holder itself.
+	 */
+	public PrimitiveArgument set(double value)
+	{
+		type = Type.DOUBLE;
+		floatingValue = value;
+		return this;
+	}
+	
+	/**
+	 * @param value
+	 *            - the value to hold.
+	 * @return the holder itself.
+	 */
+	public PrimitiveArgument set(boolean value)
+	{
+		type = Type.BOOLEAN;
+		integralValue = value ? 1 : 0;
+		return this;
+	}
+	
+	/**
+	 * @param value
+	 *            - the value to hold.
+	 * @return the holder itself.
+	 */
+	public PrimitiveArgument set(char value)
+	{
+		type = Type.CHAR;
+		integralValue = value;
+		return this;
+	}
+	
+	/**
+	 * @param value
+	 *            - the value to hold.
+	 * @return the holder itself.
+	 */
+	public PrimitiveArgument set(float value)
+	{
+		type = Type.FLOAT;
+		floatingValue = value;
+		return this;
+	}
+	
+	/**
+	 * @return the type of the current value.
+	 */
+	public Type getType()
+	{
+		return type;
+	}
+	
+	/**
+	 * @return the current value, if it is of an integral type; for <code>boolean</code> it is 0 or 1 and for
+	 *         <code>char</code> it is the code of the character.
+	 */
+	public long getIntegralValue()
+	{
+		return integralValue;
+	}
+	
+	/**
+	 * @return the current value, if it is of a floating point type.
+	 */
+	public double getFloatingValue()
+	{
+		return floatingValue;
+	}
+	
+	/**
+	 * Copies the value to another holder.
+	 * 
+	 * @param other
+	 *            - the other holder.
+	 * @return the other holder.
+	 */
+	public PrimitiveArgument copyTo(PrimitiveArgument other)
+	{
+		other.type = type;
+		other.integralValue = integralValue;
+		other.floatingValue = floatingValue;
+		return other;
+	}
+	
+	/**
+	 * Appends the value to a builder, without allocating.
+	 * 
+	 * @param builder
+	 *            - the builder.
+	 * @return the builder.
+	 */
+	public StringBuilder appendTo(StringBuilder builder)
+	{
+		switch(type)
+		{
+		case INT:
+			return builder.append((int) integralValue);
+		case LONG:
+			return builder.append(integralValue);
+		case DOUBLE:
+			return builder.append(floatingValue);
+		case BOOLEAN:
+			return builder.append(integralValue != 0);
+		case CHAR:
+			return builder.append((char) integralValue);
+		case FLOAT:
+			return builder.append((float) floatingValue);
+		}
+		return builder;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return appendTo(new StringBuilder()).toString();
+	}
+}
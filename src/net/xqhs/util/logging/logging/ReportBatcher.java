@@ -0,0 +1,441 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.xqhs.util.logging.BatchReportingEntity;
+import net.xqhs.util.logging.LogSettings;
+
+/**
+ * Sends the output of a log to a {@link BatchReportingEntity}, in batches of records.
+ * <p>
+ * The batcher is notified of each new record of the output stream (see {@link LogOutputStream.RecordListener}) and
+ * only keeps the positions of the records that are waiting to be sent; the content is read from the stream when a
+ * batch is sent. A batch is sent as soon as the count or the size limit of a batch is reached (the batcher asks the
+ * {@link LogScheduler} to run it right away), or when the oldest waiting record has waited for the maximum latency
+ * (the batcher is also run periodically, as a task of the {@link LogScheduler}).
+ * <p>
+ * When the entity fails, sending is suspended for a delay that doubles with each consecutive failure. If the records
+ * waiting exceed the backlog limit, the oldest ones are dropped. Records that have been evicted from the stream (see
+ * {@link LogOutputStream#setRetention(int, long, long)}) before being sent are dropped as well. Dropped records are
+ * counted.
+ * 
+ * @author Andrei Olaru
+ */
+public class ReportBatcher extends LogScheduler.Task implements LogOutputStream.RecordListener
+{
+	/**
+	 * The initial capacity of the record ring.
+	 */
+	protected static final int				INITIAL_CAPACITY	= 64;
+	
+	/**
+	 * The entity to send batches to.
+	 */
+	protected final BatchReportingEntity	entity;
+	/**
+	 * The stream holding the records.
+	 */
+	protected final LogOutputStream			stream;
+	/**
+	 * The maximum number of records in a batch.
+	 */
+	protected final int						maxRecords;
+	/**
+	 * The maximum size of a batch, in bytes.
+	 */
+	protected final long					maxBytes;
+	/**
+	 * The maximum time a record waits before being sent, in milliseconds.
+	 */
+	protected final long					maxLatency;
+	/**
+	 * The delay after the first failure, in milliseconds.
+	 */
+	protected final long					backoffInitial;
+	/**
+	 * The maximum delay after failures, in milliseconds.
+	 */
+	protected final long					backoffMax;
+	/**
+	 * The maximum size of the waiting records, in bytes; 0 for no limit.
+	 */
+	protected final long					backlogBytes;
+	
+	/**
+	 * The start positions of the waiting records, as a ring.
+	 */
+	protected long[]						starts				= new long[INITIAL_CAPACITY];
+	/**
+	 * The end positions of the waiting records, as a ring.
+	 */
+	protected long[]						ends				= new long[INITIAL_CAPACITY];
+	/**
+	 * The times at which the waiting records were added, as a ring.
+	 */
+	protected long[]						times				= new long[INITIAL_CAPACITY];
+	/**
+	 * The index of the oldest waiting record in the rings.
+	 */
+	protected int							head				= 0;
+	/**
+	 * The number of waiting records.
+	 */
+	protected int							count				= 0;
+	/**
+	 * The number of records that have left the ring (sent or dropped); it is the sequence number of the oldest
+	 * waiting record.
+	 */
+	protected long							headSequence		= 0;
+	/**
+	 * The size of the waiting records, in bytes.
+	 */
+	protected long							pendingBytes		= 0;
+	/**
+	 * The number of dropped records.
+	 */
+	protected long							dropped				= 0;
+	/**
+	 * The number of batches that have been sent successfully.
+	 */
+	protected long							reports				= 0;
+	/**
+	 * The number of failed attempts to send a batch.
+	 */
+	protected long							failures			= 0;
+	/**
+	 * The lock guarding the state of the batcher. It is a {@link ReentrantLock} rather than a monitor, as records are
+	 * added by the threads posting to the log, which may be virtual threads.
+	 */
+	protected final ReentrantLock			lock				= new ReentrantLock();
+	/**
+	 * The lock held while batches are being sent, so that the periodic run and an explicit flush never read and send
+	 * the same waiting records at the same time.
+	 */
+	protected final ReentrantLock			sendLock			= new ReentrantLock();
+	/**
+	 * The current delay after failures; 0 if the last attempt has succeeded.
+	 */
+	protected long							backoff				= 0;
+	/**
+	 * The time before which no batch is sent, after a failure.
+	 */
+	protected long							nextAttempt			= 0;
+	
+	/**
+	 * Creates a batcher. It must then be set as listener of the stream and scheduled.
+	 * 
+	 * @param reportingEntity
+	 *            - the entity to send batches to.
+	 * @param outputStream
+	 *            - the stream holding the records.
+	 * @param settings
+	 *            - the settings giving the limits of batches, the backoff and the backlog.
+	 */
+	public ReportBatcher(BatchReportingEntity reportingEntity, LogOutputStream outputStream, LogSettings settings)
+	{
+		entity = reportingEntity;
+		stream = outputStream;
+		maxRecords = settings.getBatchRecords();
+		maxBytes = settings.getBatchBytes();
+		maxLatency = settings.getBatchLatency();
+		backoffInitial = settings.getBackoffInitial();
+		backoffMax = settings.getBackoffMax();
+		backlogBytes = settings.getBacklogBytes();
+	}
+	
+	/**
+	 * @return the period at which the batcher should be scheduled, in milliseconds.
+	 */
+	public long getPeriod()
+	{
+		return Math.max(1, maxLatency / 4);
+	}
+	
+	/**
+	 * @return the number of records that have been dropped.
+	 */
+	public long getDropped()
+	{
+		lock.lock();
+		try
+		{
+			return dropped;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return the number of batches that have been sent successfully.
+	 */
+	public long getReports()
+	{
+		lock.lock();
+		try
+		{
+			return reports;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return the number of failed attempts to send a batch.
+	 */
+	public long getFailures()
+	{
+		lock.lock();
+		try
+		{
+			return failures;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public void recordCommitted(long start, long end)
+	{
+		boolean full;
+		lock.lock();
+		try
+		{
+			if(count == starts.length)
+				grow();
+			int index = (head + count) % starts.length;
+			starts[index] = start;
+			ends[index] = end;
+			times[index] = System.currentTimeMillis();
+			count++;
+			pendingBytes += end - start;
+			while((backlogBytes > 0) && (pendingBytes > backlogBytes))
+			{
+				removeHead();
+				dropped++;
+			}
+			full = isFull() && (backoff == 0);
+		} finally
+		{
+			lock.unlock();
+		}
+		if(full)
+			LogScheduler.getDefault().runNow(this);
+	}
+	
+	@Override
+	protected boolean isPending()
+	{
+		lock.lock();
+		try
+		{
+			return isDue(System.currentTimeMillis());
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public void run()
+	{
+		send(false);
+	}
+	
+	/**
+	 * Sends all waiting records, regardless of the limits and of any delay after failures. Stops at the first failure.
+	 */
+	public void flush()
+	{
+		send(true);
+	}
+	
+	/**
+	 * Sends batches, as long as they are due. Only one thread sends at a time: a flush waits for a send in progress to
+	 * finish, while a run is skipped, as the send in progress continues for as long as batches are due.
+	 * 
+	 * @param all
+	 *            - if <code>true</code>, all waiting records are sent, regardless of latency and of the delay after
+	 *            failures.
+	 */
+	protected void send(boolean all)
+	{
+		if(all)
+			sendLock.lock();
+		else if(!sendLock.tryLock())
+			return;
+		try
+		{
+			sendBatches(all);
+		} finally
+		{
+			sendLock.unlock();
+		}
+	}
+	
+	/**
+	 * Sends batches, as long as they are due. Must be called while holding {@link #sendLock}.
+	 * 
+	 * @param all
+	 *            - if <code>true</code>, all waiting records are sent, regardless of latency and of the delay after
+	 *            failures.
+	 */
+	protected void sendBatches(boolean all)
+	{
+		while(true)
+		{
+			long firstSequence;
+			long[] batchStarts;
+			long[] batchEnds;
+			lock.lock();
+			try
+			{
+				if(count == 0 || (!all && !isDue(System.currentTimeMillis())))
+					return;
+				int n = 0;
+				long bytes = 0;
+				while((n < count) && (n < maxRecords) && ((n == 0) || (bytes + length(n) <= maxBytes)))
+				{
+					bytes += length(n);
+					n++;
+				}
+				batchStarts = new long[n];
+				batchEnds = new long[n];
+				for(int i = 0; i < n; i++)
+				{
+					batchStarts[i] = starts[(head + i) % starts.length];
+					batchEnds[i] = ends[(head + i) % starts.length];
+				}
+				firstSequence = headSequence;
+			} finally
+			{
+				lock.unlock();
+			}
+			
+			// read the records; this must not be done while holding the lock (see recordCommitted)
+			@SuppressWarnings("unused")
+			// type arguments required by Java 1.6
+			List<String> records = new ArrayList<String>(batchStarts.length);
+			int evicted = 0;
+			for(int i = 0; i < batchStarts.length; i++)
+				try
+				{
+					records.add(stream.toString(batchStarts[i], batchEnds[i]).trim());
+				} catch(IndexOutOfBoundsException e)
+				{
+					// the record has been evicted from the stream
+					evicted++;
+				}
+			boolean reported = true;
+			if(!records.isEmpty())
+				try
+				{
+					reported = entity.report(records);
+				} catch(RuntimeException e)
+				{
+					e.printStackTrace();
+					reported = false;
+				}
+			
+			lock.lock();
+			try
+			{
+				if(!reported)
+				{
+					failures++;
+					backoff = (backoff == 0) ? backoffInitial : Math.min(2 * backoff, backoffMax);
+					nextAttempt = System.currentTimeMillis() + backoff;
+					return;
+				}
+				if(!records.isEmpty())
+					reports++;
+				backoff = 0;
+				nextAttempt = 0;
+				dropped += evicted;
+				// records may have been dropped meanwhile, from the head of the ring
+				long sent = firstSequence + batchStarts.length - headSequence;
+				for(long i = 0; i < sent; i++)
+					removeHead();
+			} finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * @param now
+	 *            - the current time.
+	 * @return <code>true</code> if a batch should be sent.
+	 */
+	protected boolean isDue(long now)
+	{
+		return (count > 0) && (now >= nextAttempt) && (isFull() || (now - times[head] >= maxLatency));
+	}
+	
+	/**
+	 * @return <code>true</code> if a complete batch is waiting.
+	 */
+	protected boolean isFull()
+	{
+		return (count >= maxRecords) || (pendingBytes >= maxBytes);
+	}
+	
+	/**
+	 * @param i
+	 *            - the index of a waiting record, relative to the head.
+	 * @return the length of the record.
+	 */
+	protected long length(int i)
+	{
+		int index = (head + i) % starts.length;
+		return ends[index] - starts[index];
+	}
+	
+	/**
+	 * Removes the oldest waiting record.
+	 */
+	protected void removeHead()
+	{
+		pendingBytes -= ends[head] - starts[head];
+		head = (head + 1) % starts.length;
+		count--;
+		headSequence++;
+	}
+	
+	/**
+	 * Doubles the capacity of the rings.
+	 */
+	protected void grow()
+	{
+		long[] newStarts = new long[starts.length * 2];
+		long[] newEnds = new long[starts.length * 2];
+		long[] newTimes = new long[starts.length * 2];
+		for(int i = 0; i < count; i++)
+		{
+			int index = (head + i) % starts.length;
+			newStarts[i] = starts[index];
+			newEnds[i] = ends[index];
+			newTimes[i] = times[index];
+		}
+		starts = newStarts;
+		ends = newEnds;
+		times = newTimes;
+		head = 0;
+	}
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A counter that can be incremented by many threads without contention, for instrumentation on the logging path.
+ * <p>
+ * As long as there is no contention, the counter is a single value updated by compare-and-set. When an update fails
+ * because of a concurrent update, the counter is inflated to a set of cells, each padded to a cache line, and each
+ * thread updates the cell selected by its identifier. The value of the counter is the sum of all cells, and is not an
+ * atomic snapshot if there are concurrent updates.
+ * <p>
+ * Counters of logs that are used by a single thread therefore stay small; only contended counters use the cells.
+ * 
+ * @author Andrei Olaru
+ */
+public class StripedCounter
+{
+	/**
+	 * The number of <code>long</code> values in a cell, so that each cell occupies a cache line.
+	 */
+	protected static final int										PADDING	= 8;
+	/**
+	 * The number of cells of an inflated counter: the lowest power of two that is not less than the number of
+	 * processors.
+	 */
+	protected static final int										CELLS;
+	/**
+	 * Updater for {@link #base}.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected static final AtomicLongFieldUpdater<StripedCounter>	BASE	= AtomicLongFieldUpdater.newUpdater(
+																					StripedCounter.class, "base");
+	/**
+	 * Updater for {@link #cells}.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected static final AtomicReferenceFieldUpdater<StripedCounter, AtomicLongArray>	CELLS_UPDATER;
+	
+	static
+	{
+		CELLS_UPDATER = AtomicReferenceFieldUpdater.newUpdater(StripedCounter.class, AtomicLongArray.class, "cells");
+		int cells = 1;
+		while(cells < Runtime.getRuntime().availableProcessors())
+			cells <<= 1;
+		CELLS = cells;
+	}
+	
+	/**
+	 * The value, while the counter is not inflated; after that, part of the value.
+	 */
+	protected volatile long											base	= 0;
+	/**
+	 * The cells, once the counter is inflated. The first cell starts at {@link #PADDING}, so that no cell shares a
+	 * cache line with the header of the array.
+	 */
+	protected volatile AtomicLongArray								cells	= null;
+	
+	/**
+	 * Adds to the counter.
+	 * 
+	 * @param delta
+	 *            - the value to add.
+	 */
+	public void add(long delta)
+	{
+		AtomicLongArray c = cells;
+		if(c == null)
+		{
+			long b = base;
+			if(BASE.compareAndSet(this, b, b + delta))
+				return;
+			c = inflate();
+		}
+		c.getAndAdd(cellIndex(), delta);
+	}
+	
+	/**
+	 * Adds 1 to the counter.
+	 */
+	public void increment()
+	{
+		add(1);
+	}
+	
+	/**
+	 * @return the value of the counter.
+	 */
+	public long sum()
+	{
+		long sum = base;
+		AtomicLongArray c = cells;
+		if(c != null)
+			for(int i = PADDING; i < c.length(); i += PADDING)
+				sum += c.get(i);
+		return sum;
+	}
+	
+	/**
+	 * Creates the cells, if not already created.
+	 * 
+	 * @return the cells.
+	 */
+	protected AtomicLongArray inflate()
+	{
+		CELLS_UPDATER.compareAndSet(this, null, new AtomicLongArray((CELLS + 1) * PADDING));
+		return cells;
+	}
+	
+	/**
+	 * @return the index, in the cells, of the value for the current thread.
+	 */
+	protected static int cellIndex()
+	{
+		int hash = (int) Thread.currentThread().getId() * 0x9E3779B9;
+		return ((hash >>> 16) & (CELLS - 1)) * PADDING + PADDING;
+	}
+}
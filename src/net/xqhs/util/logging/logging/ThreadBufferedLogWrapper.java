@@ -0,0 +1,546 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * A {@link LogWrapper} in which each thread that posts messages writes them to a buffer of its own, so that posting
+ * threads do not write to any shared memory and do not wait for each other. The message is not composed: its template
+ * and a copy of its arguments are stored in the buffer, together with its level and its time stamps.
+ * <p>
+ * A task of the {@link LogScheduler} drains the buffers of the log periodically, or as soon as one of them fills. The
+ * messages drained from all buffers are merged in the order of the moments when they were posted (messages posted at
+ * the same moment are taken in the order of the buffers, and, within a buffer, in the order in which they were posted)
+ * and are relayed to the wrapped log as {@link LogRecord} instances, carrying the time and the thread of the original
+ * call. The order of messages posted by different threads is only guaranteed within the same drain.
+ * <p>
+ * Since composition is deferred, the <code>toString()</code> method of the arguments is called by the draining task,
+ * some time after the logging call. Arguments should therefore be immutable, or at least not be modified after being
+ * logged; {@link PrimitiveArgument} holders are copied.
+ * <p>
+ * A buffer starts with {@link #INITIAL_CAPACITY} entries and grows, as needed, up to the capacity of the log. When the
+ * buffer of a thread is full, the thread waits for it to be drained. The buffers of threads that have terminated are
+ * removed after they are drained, and at most {@link #MAX_FREE_BUFFERS} of them are kept for reuse by new threads. On
+ * JVM shutdown, the buffers of all logs are drained, before outputs are flushed (see {@link LogShutdown}).
+ * <p>
+ * Instances are created by {@link Logging}, for logs that are configured as thread-buffered.
+ * 
+ * @author Andrei Olaru
+ */
+public class ThreadBufferedLogWrapper extends LogWrapper
+{
+	/**
+	 * An entry of a buffer. Instances are reused, together with the arrays in which arguments are copied.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected static class Entry
+	{
+		/**
+		 * The value of {@link System#nanoTime()} when the message was posted; used for merging.
+		 */
+		long				nanos;
+		/**
+		 * The time stamp of the message, in milliseconds.
+		 */
+		long				time;
+		/**
+		 * The level of the message.
+		 */
+		Level				level;
+		/**
+		 * The message (template, if there are arguments).
+		 */
+		String				template;
+		/**
+		 * The arguments of the message; <code>null</code> if the message is already composed.
+		 */
+		Object[]			arguments;
+		/**
+		 * Reusable storage for the copy of the arguments.
+		 */
+		ArgumentBuffer.Copy	argumentCopy	= new ArgumentBuffer.Copy();
+		
+		/**
+		 * Stores a message in the entry, copying its arguments, as the caller may reuse the array (and any
+		 * {@link PrimitiveArgument} holders) after the call.
+		 * 
+		 * @param postNanos
+		 *            - the value of {@link System#nanoTime()} when the message was posted.
+		 * @param postTime
+		 *            - the time stamp of the message.
+		 * @param messageLevel
+		 *            - the level of the message.
+		 * @param messageTemplate
+		 *            - the message.
+		 * @param source
+		 *            - the arguments; may be <code>null</code>.
+		 */
+		void set(long postNanos, long postTime, Level messageLevel, String messageTemplate, Object[] source)
+		{
+			nanos = postNanos;
+			time = postTime;
+			level = messageLevel;
+			template = messageTemplate;
+			arguments = argumentCopy.copy(source);
+		}
+		
+		/**
+		 * Clears references, so that they can be collected.
+		 */
+		void clear()
+		{
+			level = null;
+			template = null;
+			argumentCopy.clear();
+			arguments = null;
+		}
+	}
+	
+	/**
+	 * A single-producer, single-consumer ring buffer, written by one posting thread and read by the task draining the
+	 * log.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected static class ThreadBuffer
+	{
+		/**
+		 * The thread that writes to the buffer; <code>null</code> while the buffer is kept for reuse.
+		 */
+		volatile Thread		owner;
+		/**
+		 * The entries; their number is a power of 2. Only replaced by the owner thread, when the buffer grows.
+		 */
+		volatile Entry[]	entries;
+		/**
+		 * The sequence number of the next message to be drained. Only written by the draining task.
+		 */
+		final AtomicLong	head	= new AtomicLong(0);
+		/**
+		 * The sequence number of the next message to be posted. Only written by the owner thread.
+		 */
+		final AtomicLong	tail	= new AtomicLong(0);
+		
+		/**
+		 * Creates a buffer.
+		 * 
+		 * @param ownerThread
+		 *            - the thread that will write to the buffer.
+		 * @param size
+		 *            - the initial number of entries; must be a power of 2.
+		 */
+		ThreadBuffer(Thread ownerThread, int size)
+		{
+			owner = ownerThread;
+			entries = new Entry[size];
+			for(int i = 0; i < size; i++)
+				entries[i] = new Entry();
+		}
+		
+		/**
+		 * Doubles the number of entries. The entries that have not been drained keep their places in the ring, so
+		 * that the draining task finds them both in the old and in the new array. Called by the owner thread.
+		 * 
+		 * @param from
+		 *            - the sequence number of the first entry that has not been drained.
+		 * @param to
+		 *            - the sequence number of the next message to be posted.
+		 */
+		void grow(long from, long to)
+		{
+			Entry[] old = entries;
+			Entry[] larger = new Entry[old.length * 2];
+			for(long sequence = from; sequence < to; sequence++)
+				larger[(int) sequence & (larger.length - 1)] = old[(int) sequence & (old.length - 1)];
+			for(int i = 0; i < larger.length; i++)
+				if(larger[i] == null)
+					larger[i] = new Entry();
+			entries = larger;
+		}
+		
+		/**
+		 * @return <code>true</code> if the buffer contains messages that have not been drained.
+		 */
+		boolean isPending()
+		{
+			return tail.get() != head.get();
+		}
+	}
+	
+	/**
+	 * The initial number of entries of a buffer (if the capacity of the log is not smaller).
+	 */
+	public static final int										INITIAL_CAPACITY	= 16;
+	/**
+	 * The maximum number of buffers of terminated threads that are kept for reuse, for each log.
+	 */
+	public static final int										MAX_FREE_BUFFERS	= 16;
+	/**
+	 * The duration for which a thread waits for its full buffer to be drained, before checking again.
+	 */
+	protected static final long									PARK_NANOS			= TimeUnit.MICROSECONDS
+																							.toNanos(50);
+	/**
+	 * All logs that have not exited, so that they can be drained on JVM shutdown.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected static final List<ThreadBufferedLogWrapper>		live				= new CopyOnWriteArrayList<ThreadBufferedLogWrapper>();
+	
+	static
+	{
+		LogShutdown.register(LogShutdown.Stage.DRAIN, new Runnable() {
+			@Override
+			public void run()
+			{
+				for(ThreadBufferedLogWrapper log : live)
+					log.drain();
+			}
+		});
+	}
+	
+	/**
+	 * The wrapped log.
+	 */
+	protected final LogWrapper									wrapped;
+	/**
+	 * The name of the log.
+	 */
+	protected final String										logName;
+	/**
+	 * The maximum number of entries of each buffer, as a power of 2.
+	 */
+	protected final int											capacity;
+	/**
+	 * The buffer of each thread that has posted to this log.
+	 */
+	protected final ThreadLocal<ThreadBuffer>					localBuffer;
+	/**
+	 * The buffers of all threads that have posted to this log and have not been removed, in the order of their
+	 * creation. Guarded by {@link #buffersLock}.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected final List<ThreadBuffer>							buffers				= new ArrayList<ThreadBuffer>();
+	/**
+	 * The buffers of terminated threads, kept for reuse. Guarded by {@link #buffersLock}.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected final List<ThreadBuffer>							free				= new ArrayList<ThreadBuffer>();
+	/**
+	 * The lock guarding {@link #buffers} and {@link #free}.
+	 */
+	protected final ReentrantLock								buffersLock			= new ReentrantLock();
+	/**
+	 * The task that drains the buffers.
+	 */
+	protected final LogScheduler.Task							task;
+	/**
+	 * The lock ensuring that the buffers are not drained by more than one thread at the same time. It also guards
+	 * {@link #record}.
+	 */
+	protected final ReentrantLock								drainLock			= new ReentrantLock();
+	/**
+	 * Reusable record for relaying messages to the wrapped log.
+	 */
+	protected final LogRecord									record				= new LogRecord();
+	/**
+	 * <code>true</code> after the log has exited; messages posted afterwards are dropped.
+	 */
+	protected volatile boolean									exited				= false;
+	
+	/**
+	 * Creates a new thread-buffered wrapper, and schedules its task with the default {@link LogScheduler}.
+	 * 
+	 * @param wrappedLog
+	 *            - the log to relay messages to.
+	 * @param name
+	 *            - the name of the log.
+	 * @param bufferCapacity
+	 *            - the number of messages that each thread can post before the buffer is drained; it is rounded up to
+	 *            a power of 2.
+	 * @param flushPeriod
+	 *            - the period at which the buffers are drained, in milliseconds.
+	 */
+	public ThreadBufferedLogWrapper(LogWrapper wrappedLog, String name, int bufferCapacity, long flushPeriod)
+	{
+		if(bufferCapacity <= 0 || bufferCapacity > (1 << 30))
+			throw new IllegalArgumentException("Invalid buffer capacity: " + bufferCapacity);
+		wrapped = wrappedLog;
+		logName = name;
+		int size = 1;
+		while(size < bufferCapacity)
+			size <<= 1;
+		capacity = size;
+		localBuffer = new ThreadLocal<ThreadBuffer>() {
+			@Override
+			protected ThreadBuffer initialValue()
+			{
+				return newBuffer();
+			}
+		};
+		task = LogScheduler.getDefault().schedule(new LogScheduler.Task() {
+			@Override
+			protected boolean isPending()
+			{
+				buffersLock.lock();
+				try
+				{
+					for(ThreadBuffer buffer : buffers)
+						if(buffer.isPending())
+							return true;
+					return false;
+				} finally
+				{
+					buffersLock.unlock();
+				}
+			}
+			
+			@Override
+			public void run()
+			{
+				drain();
+			}
+		}, flushPeriod);
+		live.add(this);
+	}
+	
+	@Override
+	public void setLevel(Level level)
+	{
+		wrapped.setLevel(level);
+	}
+	
+	@Override
+	protected void addDestination(String format, OutputStream destination)
+	{
+		wrapped.addDestination(format, destination);
+	}
+	
+	@Override
+	public void l(Level level, String message)
+	{
+		post(level, message, null, System.currentTimeMillis());
+	}
+	
+	@Override
+	public void l(Level level, String message, Object[] arguments)
+	{
+		post(level, message, arguments, System.currentTimeMillis());
+	}
+	
+	/**
+	 * The time stamp of the message is the one of the original call.
+	 */
+	@Override
+	public void l(LogRecord logRecord)
+	{
+		post(logRecord.getLevel(), logRecord.getTemplate(), logRecord.getArguments(), logRecord.getTime());
+	}
+	
+	/**
+	 * Waits until all messages posted to this log before the call are relayed to the wrapped log.
+	 */
+	public void flush()
+	{
+		drain();
+	}
+	
+	/**
+	 * The log will exit after all messages posted before the call are relayed.
+	 */
+	@Override
+	public void exit()
+	{
+		exited = true;
+		task.cancel();
+		live.remove(this);
+		drain();
+		wrapped.exit();
+	}
+	
+	/**
+	 * Creates the buffer of the calling thread, reusing the buffer of a terminated thread if possible, and registers
+	 * it.
+	 * 
+	 * @return the buffer.
+	 */
+	protected ThreadBuffer newBuffer()
+	{
+		buffersLock.lock();
+		try
+		{
+			ThreadBuffer buffer;
+			if(free.isEmpty())
+				buffer = new ThreadBuffer(Thread.currentThread(), Math.min(INITIAL_CAPACITY, capacity));
+			else
+			{
+				buffer = free.remove(free.size() - 1);
+				buffer.owner = Thread.currentThread();
+			}
+			buffers.add(buffer);
+			return buffer;
+		} finally
+		{
+			buffersLock.unlock();
+		}
+	}
+	
+	/**
+	 * Writes a message to the buffer of the calling thread, growing the buffer if it is full, or waiting for it to be
+	 * drained if it is full and cannot grow. The moment used for merging is taken before any waiting.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 * @param template
+	 *            - the message (template, if there are arguments).
+	 * @param arguments
+	 *            - the arguments; <code>null</code> if the message is already composed.
+	 * @param time
+	 *            - the time stamp of the message, in milliseconds.
+	 */
+	protected void post(Level level, String template, Object[] arguments, long time)
+	{
+		long nanos = System.nanoTime();
+		ThreadBuffer buffer = localBuffer.get();
+		long sequence = buffer.tail.get();
+		Entry[] entries = buffer.entries;
+		while(sequence - buffer.head.get() >= entries.length)
+		{
+			if(entries.length < capacity)
+			{
+				buffer.grow(buffer.head.get(), sequence);
+				entries = buffer.entries;
+				continue;
+			}
+			if(exited)
+				return;
+			LogScheduler.getDefault().runNow(task);
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+		entries[(int) sequence & (entries.length - 1)].set(nanos, time, level, template, arguments);
+		buffer.tail.lazySet(sequence + 1);
+		if((entries.length == capacity) && (sequence - buffer.head.get() == capacity - 1))
+			// the buffer has just filled
+			LogScheduler.getDefault().runNow(task);
+	}
+	
+	/**
+	 * Drains all buffers, merging their messages in the order of the moments when they were posted, and relays the
+	 * messages to the wrapped log. Errors in the wrapped log are printed out and do not stop the draining. Buffers of
+	 * threads that have terminated are removed after being drained.
+	 */
+	protected void drain()
+	{
+		drainLock.lock();
+		try
+		{
+			ThreadBuffer[] drained;
+			buffersLock.lock();
+			try
+			{
+				drained = buffers.toArray(new ThreadBuffer[buffers.size()]);
+			} finally
+			{
+				buffersLock.unlock();
+			}
+			// the current contents of each buffer; the entries are read after the tail, so that they include it
+			long[] next = new long[drained.length];
+			long[] end = new long[drained.length];
+			Entry[][] entries = new Entry[drained.length][];
+			for(int i = 0; i < drained.length; i++)
+			{
+				next[i] = drained[i].head.get();
+				end[i] = drained[i].tail.get();
+				entries[i] = drained[i].entries;
+			}
+			while(true)
+			{
+				// find the earliest message among the buffers
+				int earliest = -1;
+				long earliestNanos = 0;
+				for(int i = 0; i < drained.length; i++)
+					if(next[i] != end[i])
+					{
+						long nanos = entries[i][(int) next[i] & (entries[i].length - 1)].nanos;
+						if(earliest < 0 || nanos - earliestNanos < 0)
+						{
+							earliest = i;
+							earliestNanos = nanos;
+						}
+					}
+				if(earliest < 0)
+					break;
+				Entry entry = entries[earliest][(int) next[earliest] & (entries[earliest].length - 1)];
+				record.set(entry.level, logName, entry.time, drained[earliest].owner, entry.template, entry.arguments);
+				try
+				{
+					wrapped.l(record);
+				} catch(RuntimeException e)
+				{
+					e.printStackTrace();
+				}
+				// the entry is only given back to its thread after it has been relayed
+				entry.clear();
+				next[earliest]++;
+				if(next[earliest] == end[earliest])
+					drained[earliest].head.lazySet(end[earliest]);
+			}
+			record.clear();
+			removeTerminated();
+		} finally
+		{
+			drainLock.unlock();
+		}
+	}
+	
+	/**
+	 * Removes the buffers of the threads that have terminated, if they have been drained, keeping some of them for
+	 * reuse. Called while holding {@link #drainLock}.
+	 */
+	protected void removeTerminated()
+	{
+		buffersLock.lock();
+		try
+		{
+			int kept = 0;
+			for(int i = 0; i < buffers.size(); i++)
+			{
+				ThreadBuffer buffer = buffers.get(i);
+				if(!buffer.owner.isAlive() && !buffer.isPending())
+				{
+					buffer.owner = null;
+					if(free.size() < MAX_FREE_BUFFERS)
+						free.add(buffer);
+				}
+				else
+					buffers.set(kept++, buffer);
+			}
+			buffers.subList(kept, buffers.size()).clear();
+		} finally
+		{
+			buffersLock.unlock();
+		}
+	}
+}
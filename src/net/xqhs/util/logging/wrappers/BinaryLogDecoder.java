@@ -0,0 +1,369 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.wrappers;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.MessageTemplate;
+import net.xqhs.util.logging.wrappers.BinaryLogEncoder.ArgumentType;
+import net.xqhs.util.logging.wrappers.BinaryLogEncoder.EntryType;
+
+/**
+ * Reads a stream produced by a {@link BinaryLogEncoder} and renders the messages. Message texts are exactly the same
+ * as the ones that would have been composed when the messages were logged.
+ * <p>
+ * Running the class prints all messages in the files given as arguments.
+ * 
+ * @author Andrei Olaru
+ */
+public class BinaryLogDecoder
+{
+	/**
+	 * A decoded message.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static class Message
+	{
+		/**
+		 * The level of the message.
+		 */
+		public final Level		level;
+		/**
+		 * The name of the log.
+		 */
+		public final String		logName;
+		/**
+		 * The time stamp, in milliseconds.
+		 */
+		public final long		time;
+		/**
+		 * The message, containing placeholders for the arguments.
+		 */
+		public final String		template;
+		/**
+		 * The arguments. Primitive arguments are restored as boxed values, other arguments as strings.
+		 */
+		public final Object[]	arguments;
+		
+		/**
+		 * Creates a decoded message.
+		 * 
+		 * @param messageLevel
+		 *            - the level.
+		 * @param name
+		 *            - the name of the log.
+		 * @param timeStamp
+		 *            - the time stamp.
+		 * @param messageTemplate
+		 *            - the template.
+		 * @param messageArguments
+		 *            - the arguments.
+		 */
+		protected Message(Level messageLevel, String name, long timeStamp, String messageTemplate,
+				Object[] messageArguments)
+		{
+			level = messageLevel;
+			logName = name;
+			time = timeStamp;
+			template = messageTemplate;
+			arguments = messageArguments;
+		}
+		
+		/**
+		 * @return the text of the message, composed with its arguments.
+		 */
+		public String getText()
+		{
+			return MessageTemplate.compose(template, arguments);
+		}
+		
+		/**
+		 * Renders the message in the same manner as the {@link ConsoleWrapper}, preceded by the time stamp.
+		 */
+		@Override
+		public String toString()
+		{
+			return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(time)) + " [" + level.toString()
+					+ "][" + logName + "]: " + getText();
+		}
+	}
+	
+	/**
+	 * The source stream.
+	 */
+	protected final DataInputStream	in;
+	/**
+	 * The templates defined so far, by id.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected List<String>			templates	= new ArrayList<String>();
+	/**
+	 * The log names defined so far, by id.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected List<String>			names		= new ArrayList<String>();
+	
+	/**
+	 * Creates a decoder.
+	 * 
+	 * @param source
+	 *            - the source stream, positioned at the beginning of a header.
+	 */
+	public BinaryLogDecoder(InputStream source)
+	{
+		in = new DataInputStream(source);
+	}
+	
+	/**
+	 * Reads the next message in the stream.
+	 * 
+	 * @return the message; <code>null</code> if the end of the stream has been reached.
+	 * @throws IOException
+	 *             - if the stream cannot be read or is not valid.
+	 */
+	public Message next() throws IOException
+	{
+		while(true)
+		{
+			int tag = in.read();
+			if(tag < 0)
+				return null;
+			if(tag == BinaryLogEncoder.MAGIC[0])
+			{
+				readHeader();
+				continue;
+			}
+			if(tag >= EntryType.values().length)
+				throw new IOException("Invalid entry [" + tag + "]");
+			try
+			{
+				switch(EntryType.values()[tag])
+				{
+				case TEMPLATE:
+					define(templates, readVarInt(), readString());
+					break;
+				case NAME:
+					define(names, readVarInt(), readString());
+					break;
+				case MESSAGE:
+					return readMessage(templates.get(readVarInt()));
+				case LITERAL:
+					return readMessage(readString());
+				}
+			} catch(EOFException e)
+			{
+				// incomplete entry at the end of the stream
+				return null;
+			}
+		}
+	}
+	
+	/**
+	 * Reads all remaining messages in the stream.
+	 * 
+	 * @return the messages.
+	 * @throws IOException
+	 *             - if the stream cannot be read or is not valid.
+	 */
+	public List<Message> readAll() throws IOException
+	{
+		@SuppressWarnings("unused")
+		// type arguments required by Java 1.6
+		List<Message> messages = new ArrayList<Message>();
+		Message message;
+		while((message = next()) != null)
+			messages.add(message);
+		return messages;
+	}
+	
+	/**
+	 * Prints the messages in the files given as arguments.
+	 * 
+	 * @param args
+	 *            - the files to read.
+	 * @throws IOException
+	 *             - if a file cannot be read or is not valid.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length == 0)
+		{
+			System.out.println("Arguments: [binary log file]...");
+			return;
+		}
+		for(String file : args)
+		{
+			InputStream input = new BufferedInputStream(new FileInputStream(file));
+			try
+			{
+				BinaryLogDecoder decoder = new BinaryLogDecoder(input);
+				Message message;
+				while((message = decoder.next()) != null)
+					System.out.println(message);
+			} finally
+			{
+				input.close();
+			}
+		}
+	}
+	
+	/**
+	 * Reads the rest of a header, after its first byte, and starts a new dictionary.
+	 * 
+	 * @throws IOException
+	 *             - if the header is not valid.
+	 */
+	protected void readHeader() throws IOException
+	{
+		byte[] header = new byte[BinaryLogEncoder.MAGIC.length];
+		header[0] = BinaryLogEncoder.MAGIC[0];
+		in.readFully(header, 1, header.length - 1);
+		if(!Arrays.equals(header, BinaryLogEncoder.MAGIC))
+			throw new IOException("Invalid header");
+		int version = in.readUnsignedByte();
+		if(version != BinaryLogEncoder.VERSION)
+			throw new IOException("Unsupported version [" + version + "]");
+		templates.clear();
+		names.clear();
+	}
+	
+	/**
+	 * Reads the rest of a message, after the template.
+	 * 
+	 * @param template
+	 *            - the template of the message.
+	 * @return the message.
+	 * @throws IOException
+	 *             - if the stream cannot be read or is not valid.
+	 */
+	protected Message readMessage(String template) throws IOException
+	{
+		Level level = Level.values()[in.readUnsignedByte()];
+		String name = names.get(readVarInt());
+		long time = in.readLong();
+		Object[] arguments = new Object[readVarInt()];
+		for(int i = 0; i < arguments.length; i++)
+			arguments[i] = readArgument();
+		return new Message(level, name, time, template, arguments);
+	}
+	
+	/**
+	 * @return an argument read from the stream.
+	 * @throws IOException
+	 *             - if the stream cannot be read or is not valid.
+	 */
+	protected Object readArgument() throws IOException
+	{
+		int type = in.readUnsignedByte();
+		if(type >= ArgumentType.values().length)
+			throw new IOException("Invalid argument type [" + type + "]");
+		switch(ArgumentType.values()[type])
+		{
+		case NULL:
+			return null;
+		case BOOLEAN:
+			return Boolean.valueOf(in.readUnsignedByte() != 0);
+		case BYTE:
+			return Byte.valueOf(in.readByte());
+		case SHORT:
+			return Short.valueOf((short) readVarInt());
+		case CHAR:
+			return Character.valueOf((char) readVarInt());
+		case INT:
+			return Integer.valueOf(in.readInt());
+		case LONG:
+			return Long.valueOf(in.readLong());
+		case FLOAT:
+			return Float.valueOf(Float.intBitsToFloat(in.readInt()));
+		case DOUBLE:
+			return Double.valueOf(Double.longBitsToDouble(in.readLong()));
+		case STRING:
+			return readString();
+		}
+		return null;
+	}
+	
+	/**
+	 * @return a variable-length quantity read from the stream.
+	 * @throws IOException
+	 *             - if the stream cannot be read.
+	 */
+	protected int readVarInt() throws IOException
+	{
+		int value = 0;
+		for(int shift = 0;; shift += 7)
+		{
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+				return value;
+		}
+	}
+	
+	/**
+	 * @return a string read from the stream.
+	 * @throws IOException
+	 *             - if the stream cannot be read or is not valid.
+	 */
+	protected String readString() throws IOException
+	{
+		int length = readVarInt();
+		char[] chars = new char[length];
+		for(int i = 0; i < length; i++)
+		{
+			int b = in.readUnsignedByte();
+			if((b & 0x80) == 0)
+				chars[i] = (char) b;
+			else if((b & 0xE0) == 0xC0)
+				chars[i] = (char) (((b & 0x1F) << 6) | (in.readUnsignedByte() & 0x3F));
+			else if((b & 0xF0) == 0xE0)
+				chars[i] = (char) (((b & 0x0F) << 12) | ((in.readUnsignedByte() & 0x3F) << 6) | (in
+						.readUnsignedByte() & 0x3F));
+			else
+				throw new IOException("Invalid string encoding");
+		}
+		return new String(chars);
+	}
+	
+	/**
+	 * Adds a definition to a dictionary.
+	 * 
+	 * @param dictionary
+	 *            - the dictionary.
+	 * @param id
+	 *            - the id of the definition.
+	 * @param value
+	 *            - the value.
+	 * @throws IOException
+	 *             - if the id is not the next one in the dictionary.
+	 */
+	protected static void define(List<String> dictionary, int id, String value) throws IOException
+	{
+		if(id != dictionary.size())
+			throw new IOException("Invalid definition id [" + id + "]");
+		dictionary.add(value);
+	}
+}
@@ -0,0 +1,492 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.wrappers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.MessageTemplate;
+import net.xqhs.util.logging.logging.PrimitiveArgument;
+
+/**
+ * Encodes logging messages into a compact binary stream, without composing them. The stream can be rendered back into
+ * text by a {@link BinaryLogDecoder}.
+ * <p>
+ * The stream begins with a header ({@link #MAGIC} and {@link #VERSION}) and continues with entries, each starting with
+ * a tag (see {@link EntryType}):
+ * <ul>
+ * <li>a template definition contains the id and the text of a message template; a template is defined the first time
+ * it is used in the stream, before the message that uses it;
+ * <li>a name definition contains the id and the name of a log, similarly;
+ * <li>a message contains the id of the template, the level, the id of the log name, the time stamp and the
+ * arguments; primitive (boxed) arguments are written in binary form, <code>null</code> is written as such, and any
+ * other argument is written as the result of its <code>toString()</code> method;
+ * <li>a literal message is the same as a message, but contains the text of the message instead of a template id. It
+ * is used for messages without arguments (which are often assembled dynamically) and after the dictionary of
+ * templates is full.
+ * </ul>
+ * Integer values (ids, counts) are written as variable-length quantities; strings are written as their length,
+ * followed by their characters in modified UTF-8, so that any string is restored exactly.
+ * <p>
+ * A stream may contain several headers (e.g. when a file is appended to by successive runs); each header starts a new
+ * dictionary.
+ * <p>
+ * Instances are thread-safe. The encoded bytes are written to the destination stream, which should be buffered, in one
+ * call per message.
+ * 
+ * @author Andrei Olaru
+ */
+public class BinaryLogEncoder
+{
+	/**
+	 * Types of entries in the stream.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static enum EntryType {
+		/**
+		 * Definition of a template.
+		 */
+		TEMPLATE,
+		
+		/**
+		 * Definition of a log name.
+		 */
+		NAME,
+		
+		/**
+		 * A message, with a template id.
+		 */
+		MESSAGE,
+		
+		/**
+		 * A message, with its text.
+		 */
+		LITERAL,
+	}
+	
+	/**
+	 * Types of arguments in a message.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static enum ArgumentType {
+		/**
+		 * A <code>null</code> argument.
+		 */
+		NULL,
+		
+		/**
+		 * A {@link Boolean}.
+		 */
+		BOOLEAN,
+		
+		/**
+		 * A {@link Byte}.
+		 */
+		BYTE,
+		
+		/**
+		 * A {@link Short}.
+		 */
+		SHORT,
+		
+		/**
+		 * A {@link Character}.
+		 */
+		CHAR,
+		
+		/**
+		 * An {@link Integer}.
+		 */
+		INT,
+		
+		/**
+		 * A {@link Long}.
+		 */
+		LONG,
+		
+		/**
+		 * A {@link Float}.
+		 */
+		FLOAT,
+		
+		/**
+		 * A {@link Double}.
+		 */
+		DOUBLE,
+		
+		/**
+		 * Any other object, as a string.
+		 */
+		STRING,
+	}
+	
+	/**
+	 * The bytes at the beginning of a stream.
+	 */
+	public static final byte[]		MAGIC				= { 'X', 'Q', 'L', 'B' };
+	/**
+	 * The version of the format.
+	 */
+	public static final byte		VERSION				= 1;
+	/**
+	 * The maximum number of templates in the dictionary of a stream.
+	 */
+	protected static final int		MAX_TEMPLATES		= 65536;
+	/**
+	 * The initial size of the encoding buffer.
+	 */
+	protected static final int		INITIAL_BUFFER_SIZE	= 256;
+	
+	/**
+	 * The destination.
+	 */
+	protected final OutputStream	out;
+	/**
+	 * The ids of the templates defined so far.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected Map<String, Integer>	templates			= new HashMap<String, Integer>();
+	/**
+	 * The ids of the log names defined so far.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	protected Map<String, Integer>	names				= new HashMap<String, Integer>();
+	/**
+	 * The buffer in which entries are encoded.
+	 */
+	protected byte[]				buffer				= new byte[INITIAL_BUFFER_SIZE];
+	/**
+	 * The number of bytes in {@link #buffer}.
+	 */
+	protected int					count				= 0;
+	/**
+	 * The lock guarding the dictionaries, the buffer and the destination. It is a {@link ReentrantLock} rather than a
+	 * monitor, so that virtual threads posting messages do not pin their carrier thread.
+	 */
+	protected final ReentrantLock	lock				= new ReentrantLock();
+	
+	/**
+	 * Creates an encoder and writes the header of the stream.
+	 * 
+	 * @param destination
+	 *            - the destination stream.
+	 * @throws IOException
+	 *             - if the header cannot be written.
+	 */
+	public BinaryLogEncoder(OutputStream destination) throws IOException
+	{
+		out = destination;
+		out.write(MAGIC);
+		out.write(VERSION);
+	}
+	
+	/**
+	 * Encodes a message. Names and templates are only added to the dictionaries if the message is written; if encoding
+	 * or writing fails (e.g. the <code>toString()</code> method of an argument throws an exception), the definitions
+	 * will be written again with the next message that uses them.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 * @param logName
+	 *            - the name of the log.
+	 * @param time
+	 *            - the time stamp of the message, in milliseconds.
+	 * @param message
+	 *            - the message, containing placeholders for the arguments.
+	 * @param arguments
+	 *            - the arguments; may be <code>null</code> if there are none.
+	 * @return the number of bytes written, including the definitions.
+	 * @throws IOException
+	 *             - if the message cannot be written.
+	 */
+	public int encode(Level level, String logName, long time, String message, Object[] arguments)
+			throws IOException
+	{
+		lock.lock();
+		String newName = null;
+		String newTemplate = null;
+		boolean written = false;
+		try
+		{
+			count = 0;
+			Integer nameId = names.get(logName);
+			if(nameId == null)
+			{
+				nameId = Integer.valueOf(names.size());
+				names.put(logName, nameId);
+				newName = logName;
+				putByte(EntryType.NAME.ordinal());
+				putVarInt(nameId.intValue());
+				putString(logName);
+			}
+			Integer templateId = null;
+			if((arguments != null) && (arguments.length > 0))
+			{
+				templateId = templates.get(message);
+				if((templateId == null) && (templates.size() < MAX_TEMPLATES))
+				{
+					templateId = Integer.valueOf(templates.size());
+					templates.put(message, templateId);
+					newTemplate = message;
+					putByte(EntryType.TEMPLATE.ordinal());
+					putVarInt(templateId.intValue());
+					putString(message);
+				}
+			}
+			if(templateId != null)
+			{
+				putByte(EntryType.MESSAGE.ordinal());
+				putVarInt(templateId.intValue());
+			}
+			else
+			{
+				putByte(EntryType.LITERAL.ordinal());
+				putString(message);
+			}
+			putByte(level.ordinal());
+			putVarInt(nameId.intValue());
+			putLong(time);
+			int argumentCount = (arguments != null) ? arguments.length : 0;
+			putVarInt(argumentCount);
+			for(int i = 0; i < argumentCount; i++)
+				putArgument(MessageTemplate.resolve(arguments[i]));
+			out.write(buffer, 0, count);
+			written = true;
+			return count;
+		} finally
+		{
+			if(!written)
+			{
+				// the definitions have not reached the stream
+				if(newName != null)
+					names.remove(newName);
+				if(newTemplate != null)
+					templates.remove(newTemplate);
+			}
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Flushes the destination stream.
+	 * 
+	 * @throws IOException
+	 *             - if the destination cannot be flushed.
+	 */
+	public void flush() throws IOException
+	{
+		lock.lock();
+		try
+		{
+			out.flush();
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Encodes an argument.
+	 * 
+	 * @param argument
+	 *            - the argument.
+	 */
+	protected void putArgument(Object argument)
+	{
+		if(argument == null)
+			putByte(ArgumentType.NULL.ordinal());
+		else if(argument instanceof PrimitiveArgument)
+			putPrimitive((PrimitiveArgument) argument);
+		else if(argument instanceof Integer)
+		{
+			putByte(ArgumentType.INT.ordinal());
+			putInt(((Integer) argument).intValue());
+		}
+		else if(argument instanceof Long)
+		{
+			putByte(ArgumentType.LONG.ordinal());
+			putLong(((Long) argument).longValue());
+		}
+		else if(argument instanceof Double)
+		{
+			putByte(ArgumentType.DOUBLE.ordinal());
+			putLong(Double.doubleToRawLongBits(((Double) argument).doubleValue()));
+		}
+		else if(argument instanceof Boolean)
+		{
+			putByte(ArgumentType.BOOLEAN.ordinal());
+			putByte(((Boolean) argument).booleanValue() ? 1 : 0);
+		}
+		else if(argument instanceof Float)
+		{
+			putByte(ArgumentType.FLOAT.ordinal());
+			putInt(Float.floatToRawIntBits(((Float) argument).floatValue()));
+		}
+		else if(argument instanceof Character)
+		{
+			putByte(ArgumentType.CHAR.ordinal());
+			putVarInt(((Character) argument).charValue());
+		}
+		else if(argument instanceof Short)
+		{
+			putByte(ArgumentType.SHORT.ordinal());
+			putVarInt(((Short) argument).shortValue() & 0xFFFF);
+		}
+		else if(argument instanceof Byte)
+		{
+			putByte(ArgumentType.BYTE.ordinal());
+			putByte(((Byte) argument).byteValue());
+		}
+		else
+		{
+			putByte(ArgumentType.STRING.ordinal());
+			putString(String.valueOf(argument));
+		}
+	}
+	
+	/**
+	 * Encodes a primitive argument, in the same manner as the equivalent boxed value.
+	 * 
+	 * @param argument
+	 *            - the argument.
+	 */
+	protected void putPrimitive(PrimitiveArgument argument)
+	{
+		switch(argument.getType())
+		{
+		case INT:
+			putByte(ArgumentType.INT.ordinal());
+			putInt((int) argument.getIntegralValue());
+			break;
+		case LONG:
+			putByte(ArgumentType.LONG.ordinal());
+			putLong(argument.getIntegralValue());
+			break;
+		case DOUBLE:
+			putByte(ArgumentType.DOUBLE.ordinal());
+			putLong(Double.doubleToRawLongBits(argument.getFloatingValue()));
+			break;
+		case BOOLEAN:
+			putByte(ArgumentType.BOOLEAN.ordinal());
+			putByte((int) argument.getIntegralValue());
+			break;
+		case CHAR:
+			putByte(ArgumentType.CHAR.ordinal());
+			putVarInt((int) argument.getIntegralValue());
+			break;
+		case FLOAT:
+			putByte(ArgumentType.FLOAT.ordinal());
+			putInt(Float.floatToRawIntBits((float) argument.getFloatingValue()));
+			break;
+		}
+	}
+	
+	/**
+	 * Makes sure there is space for more bytes in the buffer.
+	 * 
+	 * @param more
+	 *            - the number of bytes that will be added.
+	 */
+	protected void ensure(int more)
+	{
+		if(count + more > buffer.length)
+		{
+			byte[] larger = new byte[Math.max(buffer.length * 2, count + more)];
+			System.arraycopy(buffer, 0, larger, 0, count);
+			buffer = larger;
+		}
+	}
+	
+	/**
+	 * @param value
+	 *            - a byte to add to the buffer (the lowest 8 bits of the value).
+	 */
+	protected void putByte(int value)
+	{
+		ensure(1);
+		buffer[count++] = (byte) value;
+	}
+	
+	/**
+	 * @param value
+	 *            - a non-negative value to add to the buffer, as a variable-length quantity.
+	 */
+	protected void putVarInt(int value)
+	{
+		ensure(5);
+		int v = value;
+		while((v & ~0x7F) != 0)
+		{
+			buffer[count++] = (byte) ((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		buffer[count++] = (byte) v;
+	}
+	
+	/**
+	 * @param value
+	 *            - a value to add to the buffer, on 4 bytes.
+	 */
+	protected void putInt(int value)
+	{
+		ensure(4);
+		for(int shift = 24; shift >= 0; shift -= 8)
+			buffer[count++] = (byte) (value >>> shift);
+	}
+	
+	/**
+	 * @param value
+	 *            - a value to add to the buffer, on 8 bytes.
+	 */
+	protected void putLong(long value)
+	{
+		ensure(8);
+		for(int shift = 56; shift >= 0; shift -= 8)
+			buffer[count++] = (byte) (value >>> shift);
+	}
+	
+	/**
+	 * @param value
+	 *            - a string to add to the buffer, as its length followed by its characters in modified UTF-8.
+	 */
+	protected void putString(String value)
+	{
+		int length = value.length();
+		putVarInt(length);
+		ensure(3 * length);
+		for(int i = 0; i < length; i++)
+		{
+			char c = value.charAt(i);
+			if((c >= 0x0001) && (c <= 0x007F))
+				buffer[count++] = (byte) c;
+			else if(c <= 0x07FF)
+			{
+				buffer[count++] = (byte) (0xC0 | ((c >> 6) & 0x1F));
+				buffer[count++] = (byte) (0x80 | (c & 0x3F));
+			}
+			else
+			{
+				buffer[count++] = (byte) (0xE0 | ((c >> 12) & 0x0F));
+				buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				buffer[count++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+	}
+}
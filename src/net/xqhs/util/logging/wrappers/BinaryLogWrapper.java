@@ -0,0 +1,266 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.wrappers;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.LogRecord;
+import net.xqhs.util.logging.logging.LogScheduler;
+import net.xqhs.util.logging.logging.LogShutdown;
+import net.xqhs.util.logging.logging.LogWrapper;
+import net.xqhs.util.logging.logging.StripedCounter;
+
+/**
+ * {@link LogWrapper} implementation that writes messages in binary form, without composing them, by means of a
+ * {@link BinaryLogEncoder}. All logs of this type write to the same stream, which can be rendered back into text with
+ * {@link BinaryLogDecoder}.
+ * <p>
+ * By default, the stream is appended to the file {@value #DEFAULT_FILE}; another file or stream can be set by means
+ * of {@link #configure(String)} or {@link #configure(OutputStream)}, before the first log of this type is created. The
+ * stream is buffered; it is flushed periodically, when a log exits, and when the JVM shuts down.
+ * <p>
+ * As with the {@link ConsoleWrapper}, other destinations are not supported.
+ * 
+ * @author Andrei Olaru
+ */
+public class BinaryLogWrapper extends LogWrapper
+{
+	/**
+	 * The default file to write to.
+	 */
+	public static final String				DEFAULT_FILE	= "log/log.xqlb";
+	/**
+	 * The size of the buffer of the stream, in bytes.
+	 */
+	protected static final int				BUFFER_SIZE		= 65536;
+	/**
+	 * The delay between flushes of the stream, in milliseconds.
+	 */
+	protected static final long				FLUSH_DELAY		= 1000;
+	
+	/**
+	 * The destination of the encoder, if set by {@link #configure(OutputStream)}.
+	 */
+	protected static OutputStream			destination		= null;
+	/**
+	 * The file to write to, if no other destination is set.
+	 */
+	protected static String					file			= DEFAULT_FILE;
+	/**
+	 * The encoder shared by all logs; created when the first log is created.
+	 */
+	protected static BinaryLogEncoder		encoder			= null;
+	/**
+	 * <code>true</code> if messages have been encoded since the last flush.
+	 */
+	protected static volatile boolean		dirty			= false;
+	
+	/**
+	 * The current level for the log.
+	 */
+	Level									currentLevel	= Level.ERROR;
+	/**
+	 * The name fo the log.
+	 */
+	String									name			= null;
+	/**
+	 * The encoder used by this log.
+	 */
+	BinaryLogEncoder						logEncoder		= null;
+	/**
+	 * The counter of the bytes written to files; <code>null</code> if the bytes are not counted.
+	 */
+	volatile StripedCounter					fileBytes		= null;
+	
+	/**
+	 * Sets the file to write to. The file is appended to. Has no effect after the first log of this type has been
+	 * created.
+	 * 
+	 * @param fileName
+	 *            - the name of the file.
+	 */
+	public static synchronized void configure(String fileName)
+	{
+		file = fileName;
+		destination = null;
+	}
+	
+	/**
+	 * Sets the stream to write to. Has no effect after the first log of this type has been created.
+	 * 
+	 * @param stream
+	 *            - the stream.
+	 */
+	public static synchronized void configure(OutputStream stream)
+	{
+		destination = stream;
+	}
+	
+	/**
+	 * Creates a new binary log, with the specified name.
+	 * 
+	 * @param logName
+	 *            - the name of the log to be created.
+	 * @throws IOException
+	 *             - if the destination stream cannot be opened.
+	 */
+	public BinaryLogWrapper(String logName) throws IOException
+	{
+		name = logName;
+		logEncoder = getEncoder();
+	}
+	
+	/**
+	 * @return the shared encoder, which is created if necessary.
+	 * @throws IOException
+	 *             - if the destination stream cannot be opened.
+	 */
+	protected static synchronized BinaryLogEncoder getEncoder() throws IOException
+	{
+		if(encoder != null)
+			return encoder;
+		OutputStream out = destination;
+		if(out == null)
+		{
+			File parent = new File(file).getAbsoluteFile().getParentFile();
+			if((parent != null) && !parent.isDirectory() && !parent.mkdirs())
+				throw new IOException("Unable to create directory [" + parent + "]");
+			out = new FileOutputStream(file, true);
+		}
+		encoder = new BinaryLogEncoder(new BufferedOutputStream(out, BUFFER_SIZE));
+		LogScheduler.getDefault().schedule(new LogScheduler.Task() {
+			@Override
+			protected boolean isPending()
+			{
+				return dirty;
+			}
+			
+			@Override
+			public void run()
+			{
+				flush();
+			}
+		}, FLUSH_DELAY);
+		LogShutdown.register(LogShutdown.Stage.FLUSH, new Runnable() {
+			@Override
+			public void run()
+			{
+				flush();
+			}
+		});
+		return encoder;
+	}
+	
+	/**
+	 * Flushes the shared stream.
+	 */
+	public static void flush()
+	{
+		BinaryLogEncoder current;
+		synchronized(BinaryLogWrapper.class)
+		{
+			current = encoder;
+		}
+		if(current == null)
+			return;
+		dirty = false;
+		try
+		{
+			current.flush();
+		} catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+	
+	@Override
+	public void setLevel(Level level)
+	{
+		currentLevel = level;
+	}
+	
+	@Override
+	public void addDestination(String format, OutputStream stream)
+	{
+		// unsupported
+	}
+	
+	/**
+	 * The bytes written to the file are added to the file counter.
+	 */
+	@Override
+	protected void setByteCounters(StripedCounter consoleCounter, StripedCounter fileCounter)
+	{
+		fileBytes = fileCounter;
+	}
+	
+	@Override
+	public void l(Level level, String message)
+	{
+		l(level, message, null);
+	}
+	
+	@Override
+	public void l(Level level, String message, Object[] arguments)
+	{
+		write(level, message, arguments, System.currentTimeMillis());
+	}
+	
+	/**
+	 * The time stamp of the message is the one of the original call.
+	 */
+	@Override
+	public void l(LogRecord record)
+	{
+		write(record.getLevel(), record.getTemplate(), record.getArguments(), record.getTime());
+	}
+	
+	/**
+	 * Encodes a message, if its level is enabled.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 * @param message
+	 *            - the message.
+	 * @param arguments
+	 *            - the arguments; may be <code>null</code>.
+	 * @param time
+	 *            - the time stamp of the message.
+	 */
+	protected void write(Level level, String message, Object[] arguments, long time)
+	{
+		if(!level.displayWith(currentLevel))
+			return;
+		try
+		{
+			int size = logEncoder.encode(level, name, time, message, arguments);
+			dirty = true;
+			StripedCounter counter = fileBytes;
+			if(counter != null)
+				counter.add(size);
+		} catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+	}
+	
+	@Override
+	public void exit()
+	{
+		flush();
+	}
+}
@@ -11,26 +11,55 @@
  ******************************************************************************/
 package net.xqhs.util.logging.wrappers;
 
+import java.io.FilterOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 
 import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.ConsoleSink;
 import net.xqhs.util.logging.logging.LogWrapper;
+import net.xqhs.util.logging.logging.MultiDestinationWriter;
+import net.xqhs.util.logging.logging.StripedCounter;
 
 /**
  * Simple, basic {@link LogWrapper} implementation that uses the system console to output logging messages.
+ * <p>
+ * Messages are written to the console (see {@link ConsoleSink#stdout()}) as bytes by a {@link MultiDestinationWriter},
+ * which keeps the prefix of the message (level and name) pre-encoded for each level and assembles the message in
+ * reusable buffers, so that logging does not allocate memory (as long as the <code>toString()</code> methods of the
+ * arguments do not). When the {@link ConsoleSink} is enabled, messages are written by its writer thread, in batches.
+ * The bytes written to the console are counted in the console counter given by
+ * {@link #setByteCounters(StripedCounter, StripedCounter)}, as other destinations are not supported.
+ * <p>
+ * The writer is guarded by a <code>java.util.concurrent</code> lock rather than a monitor, so the wrapper can be used
+ * by virtual threads without pinning their carrier threads.
  * 
  * @author Andrei Olaru
  */
 public class ConsoleWrapper extends LogWrapper
 {
+	/**
+	 * The format of the messages.
+	 */
+	protected static final String	FORMAT	= "[%p][%c]: %m%n";
+	
 	/**
 	 * The current level for the log.
 	 */
-	Level	currentLevel	= Level.ERROR;
+	Level					currentLevel	= Level.ERROR;
 	/**
 	 * The name fo the log.
 	 */
-	String	name			= null;
+	String					name			= null;
+	/**
+	 * The writer for messages.
+	 */
+	MultiDestinationWriter	writer;
+	/**
+	 * The counter of the bytes written to the console; <code>null</code> if the bytes are not counted.
+	 */
+	volatile StripedCounter	consoleBytes	= null;
 	
 	/**
 	 * Creates a new console wrapper log, with the specified name.
@@ -40,6 +69,23 @@ public class ConsoleWrapper extends LogWrapper
 	public ConsoleWrapper(String logName)
 	{
 		name = logName;
+		writer = new MultiDestinationWriter(logName, getConsoleCharset());
+		writer.addDestination(FORMAT, new FilterOutputStream(ConsoleSink.stdout()) {
+			@Override
+			public void write(int b) throws IOException
+			{
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException
+			{
+				out.write(b, off, len);
+				StripedCounter counter = consoleBytes;
+				if(counter != null)
+					counter.add(len);
+			}
+		});
 	}
 	
 	@Override
@@ -53,14 +99,36 @@ public class ConsoleWrapper extends LogWrapper
 	{
 		// unsupported
 		if(Level.ERROR.compareTo(currentLevel) >= 0)
-			System.out.println("[" + Level.ERROR.toString() + "][" + name + "]: Alternate destinations not supported.");
+			writer.write(Level.ERROR, System.currentTimeMillis(), Thread.currentThread().getName(),
+					"Alternate destinations not supported.", null);
+	}
+	
+	@Override
+	protected void setByteCounters(StripedCounter consoleCounter, StripedCounter fileCounter)
+	{
+		consoleBytes = consoleCounter;
 	}
 	
 	@Override
 	public void l(Level level, String message)
 	{
 		if(level.displayWith(currentLevel))
-			System.out.println("[" + level.toString() + "][" + name + "]: " + message);
+			writer.write(level, System.currentTimeMillis(), Thread.currentThread().getName(), message, null);
+	}
+	
+	@Override
+	public void l(Level level, String message, Object[] arguments)
+	{
+		if(level.displayWith(currentLevel))
+			writer.write(level, System.currentTimeMillis(), Thread.currentThread().getName(), message, arguments);
+	}
+	
+	/**
+	 * @return the charset used by the console.
+	 */
+	protected static Charset getConsoleCharset()
+	{
+		return ConsoleSink.getConsoleCharset();
 	}
 	
 	@Override
@@ -0,0 +1,998 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.wrappers;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.LogArchiver;
+import net.xqhs.util.logging.logging.LogRecord;
+import net.xqhs.util.logging.logging.LogShutdown;
+import net.xqhs.util.logging.logging.LogWrapper;
+import net.xqhs.util.logging.logging.MessageEncoder;
+import net.xqhs.util.logging.logging.MessageTemplate;
+import net.xqhs.util.logging.logging.StripedCounter;
+
+/**
+ * {@link LogWrapper} implementation that appends logging messages to a file, as lines of text
+ * ("[time stamp] [level][log name]: message", encoded in UTF-8). The file of a log is
+ * <code>[log name].log</code>, in the directory set by {@link #configure(String, SyncPolicy, long, int)}; characters of
+ * the log name that are not safe in file names are replaced by underscores.
+ * <p>
+ * Messages are encoded by the posting thread into direct buffers of the log. All input / output is done by a single
+ * writer thread, shared by all logs of this type, which periodically (or when a buffer is full) takes the filled
+ * buffers of each log and writes them to the file with a single gathering write. As threads that post messages never
+ * use the channel, interrupting them does not close the channel; if the writer thread itself is interrupted during a
+ * write, the channel is reopened and the write is retried.
+ * <p>
+ * When the posting threads fill buffers faster than they can be written, the posting threads wait for the writer.
+ * <p>
+ * The moment when the content is forced to the storage device is controlled by the {@link SyncPolicy}. With
+ * {@link SyncPolicy#ON_ERROR}, a thread posting an {@link Level#ERROR} message waits until the message has been forced
+ * to the device; messages of all threads waiting at the same time are forced together.
+ * <p>
+ * Files may be rolled by size and / or by time, and the rolled files compressed and limited in number or total size
+ * (see {@link #configureRolling(long, long, boolean, int, long)}). Rolling is done by the writer thread and
+ * compression by the {@link LogArchiver}, so neither blocks the threads that post messages.
+ * <p>
+ * Messages are assembled and encoded in reusable buffers, so that logging does not allocate memory (as long as the
+ * <code>toString()</code> methods of the arguments do not).
+ * <p>
+ * Posting threads only wait on {@link ReentrantLock}s and their conditions, never on monitors, so that virtual threads
+ * posting to the log do not pin their carrier thread.
+ * <p>
+ * As with the {@link ConsoleWrapper}, other destinations are not supported.
+ * 
+ * @author Andrei Olaru
+ */
+public class FileChannelWrapper extends LogWrapper
+{
+	/**
+	 * Policies for forcing the content of the file to the storage device.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	public static enum SyncPolicy {
+		/**
+		 * The content is never forced; the operating system writes it to the device when it sees fit.
+		 */
+		NEVER,
+		
+		/**
+		 * The content is forced periodically, if it has changed, and when the log exits.
+		 */
+		PERIODIC,
+		
+		/**
+		 * The content is forced after writing an {@link Level#ERROR} message, and when the log exits.
+		 */
+		ON_ERROR,
+	}
+	
+	/**
+	 * The writer thread, shared by all logs.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected static class ChannelWriter implements Runnable
+	{
+		/**
+		 * The logs served by the writer.
+		 */
+		@SuppressWarnings("unused")
+		// type arguments required by Java 1.6
+		protected final List<FileChannelWrapper>	logs		= new CopyOnWriteArrayList<FileChannelWrapper>();
+		/**
+		 * Lock ensuring that the logs are not drained by the writer thread and by the shutdown sequence at the same time.
+		 */
+		protected final ReentrantLock				drainLock	= new ReentrantLock();
+		/**
+		 * Lock guarding {@link #signaled}.
+		 */
+		protected final ReentrantLock				signalLock	= new ReentrantLock();
+		/**
+		 * Condition on which the writer waits to be signaled.
+		 */
+		protected final Condition					wakeUp		= signalLock.newCondition();
+		/**
+		 * <code>true</code> if the writer has been signaled since it last started draining the logs.
+		 */
+		protected boolean							signaled	= false;
+		
+		/**
+		 * Creates the writer and starts its thread.
+		 */
+		public ChannelWriter()
+		{
+			Thread thread = new Thread(this, FileChannelWrapper.class.getSimpleName() + "-writer");
+			thread.setDaemon(true);
+			thread.start();
+			LogShutdown.register(LogShutdown.Stage.FLUSH, new Runnable() {
+				@Override
+				public void run()
+				{
+					drainAll(true);
+				}
+			});
+		}
+		
+		/**
+		 * Wakes the writer up, so that it drains the logs without waiting for the end of the delay.
+		 */
+		public void signal()
+		{
+			signalLock.lock();
+			try
+			{
+				if(!signaled)
+				{
+					signaled = true;
+					wakeUp.signal();
+				}
+			} finally
+			{
+				signalLock.unlock();
+			}
+		}
+		
+		@Override
+		public void run()
+		{
+			while(true)
+			{
+				signalLock.lock();
+				try
+				{
+					if(!signaled)
+						try
+						{
+							wakeUp.await(WRITE_DELAY, TimeUnit.MILLISECONDS);
+						} catch(InterruptedException e)
+						{
+							// continue
+						}
+					signaled = false;
+				} finally
+				{
+					signalLock.unlock();
+				}
+				drainAll(false);
+			}
+		}
+		
+		/**
+		 * Writes the pending content of all logs.
+		 * 
+		 * @param shutdown
+		 *            - <code>true</code> if the JVM is shutting down.
+		 */
+		protected void drainAll(boolean shutdown)
+		{
+			drainLock.lock();
+			try
+			{
+				for(FileChannelWrapper log : logs)
+					if(log.drain(shutdown))
+						logs.remove(log);
+			} finally
+			{
+				drainLock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * The default directory for log files.
+	 */
+	public static final String				DEFAULT_DIRECTORY	= "log";
+	/**
+	 * The extension of log files.
+	 */
+	public static final String				FILE_EXTENSION		= ".log";
+	/**
+	 * The default size of a buffer, in bytes.
+	 */
+	public static final int					DEFAULT_BUFFER_SIZE	= 64 * 1024;
+	/**
+	 * The default period for {@link SyncPolicy#PERIODIC}, in milliseconds.
+	 */
+	public static final long				DEFAULT_SYNC_PERIOD	= 1000;
+	/**
+	 * The maximum delay between posting a message and writing it to the file, in milliseconds.
+	 */
+	protected static final long				WRITE_DELAY			= 20;
+	/**
+	 * The maximum number of filled buffers of a log waiting for the writer, after which posting threads wait.
+	 */
+	protected static final int				MAX_PENDING_BUFFERS	= 64;
+	/**
+	 * The maximum number of buffers of a log kept for reuse.
+	 */
+	protected static final int				MAX_FREE_BUFFERS	= 4;
+	/**
+	 * The charset of the file.
+	 */
+	protected static final Charset			CHARSET				= Charset.forName("UTF-8");
+	/**
+	 * The line separator.
+	 */
+	protected static final String			LINE_SEPARATOR		= System.getProperty("line.separator");
+	
+	/**
+	 * The directory in which new logs will write their files.
+	 */
+	protected static volatile File			directory			= new File(DEFAULT_DIRECTORY);
+	/**
+	 * The sync policy of new logs.
+	 */
+	protected static volatile SyncPolicy	syncPolicy			= SyncPolicy.NEVER;
+	/**
+	 * The period for {@link SyncPolicy#PERIODIC} of new logs.
+	 */
+	protected static volatile long			syncPeriod			= DEFAULT_SYNC_PERIOD;
+	/**
+	 * The size of the buffers of new logs.
+	 */
+	protected static volatile int			bufferSize			= DEFAULT_BUFFER_SIZE;
+	/**
+	 * The size after which the files of new logs are rolled, in bytes; 0 for no limit.
+	 */
+	protected static volatile long			rollSize			= 0;
+	/**
+	 * The interval at which the files of new logs are rolled, in milliseconds; 0 for no rolling by time.
+	 */
+	protected static volatile long			rollInterval		= 0;
+	/**
+	 * <code>true</code> if the rolled files of new logs are compressed.
+	 */
+	protected static volatile boolean		compressArchives	= true;
+	/**
+	 * The maximum number of archives of new logs; 0 for no limit.
+	 */
+	protected static volatile int			maxArchives			= 0;
+	/**
+	 * The maximum total size of the archives of new logs, in bytes; 0 for no limit.
+	 */
+	protected static volatile long			maxArchiveBytes		= 0;
+	/**
+	 * The writer shared by all logs; created when the first log is created.
+	 */
+	protected static ChannelWriter			writer				= null;
+	/**
+	 * Lock guarding the creation of {@link #writer}.
+	 */
+	protected static final ReentrantLock	writerLock			= new ReentrantLock();
+	
+	/**
+	 * The current level for the log.
+	 */
+	Level									currentLevel		= Level.ERROR;
+	/**
+	 * The lock guarding the buffers and the counters of the log, shared by the posting threads and the writer.
+	 */
+	final ReentrantLock						lock				= new ReentrantLock();
+	/**
+	 * Signaled when the writer has processed the content of the log, and when the log exits.
+	 */
+	final Condition							progress			= lock.newCondition();
+	/**
+	 * The name fo the log.
+	 */
+	String									name				= null;
+	/**
+	 * The name of the log, as used in the names of its files (see {@link MappedFileWrapper#fileName(String)}).
+	 */
+	String									fileName			= null;
+	/**
+	 * The file of the log.
+	 */
+	File									file				= null;
+	/**
+	 * The sync policy of this log.
+	 */
+	SyncPolicy								logSyncPolicy		= null;
+	/**
+	 * The period for {@link SyncPolicy#PERIODIC} of this log.
+	 */
+	long									logSyncPeriod		= 0;
+	/**
+	 * The size of the buffers of this log.
+	 */
+	int										logBufferSize		= 0;
+	/**
+	 * The prefix of messages, by level ordinal.
+	 */
+	String[]								prefixes			= null;
+	/**
+	 * The encoder for messages.
+	 */
+	MessageEncoder							encoder				= new MessageEncoder(CHARSET);
+	/**
+	 * <code>true</code> while a message is being assembled in {@link #encoder}.
+	 */
+	boolean									encoding			= false;
+	/**
+	 * The counter of the bytes written to files; <code>null</code> if the bytes are not counted.
+	 */
+	volatile StripedCounter					fileBytes			= null;
+	/**
+	 * The format for the time stamp, up to (and including) the seconds.
+	 */
+	SimpleDateFormat						secondFormat		= new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.");
+	/**
+	 * The second (since the epoch) for which {@link #secondText} was rendered.
+	 */
+	long									second				= Long.MIN_VALUE;
+	/**
+	 * The rendering of {@link #second}.
+	 */
+	String									secondText			= null;
+	/**
+	 * The buffer in which messages are currently encoded.
+	 */
+	ByteBuffer								current				= null;
+	/**
+	 * Filled buffers, flipped, waiting for the writer.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	Deque<ByteBuffer>						pending				= new ArrayDeque<ByteBuffer>();
+	/**
+	 * Buffers kept for reuse.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	Deque<ByteBuffer>						free				= new ArrayDeque<ByteBuffer>();
+	/**
+	 * The number of messages posted so far.
+	 */
+	long									posted				= 0;
+	/**
+	 * The number of messages processed by the writer (written and, if required, forced).
+	 */
+	long									processed			= 0;
+	/**
+	 * <code>true</code> if a thread waits for the content to be forced.
+	 */
+	boolean									syncRequested		= false;
+	/**
+	 * <code>true</code> after {@link #exit()} has been called.
+	 */
+	boolean									exiting				= false;
+	/**
+	 * <code>true</code> after the writer has closed the file.
+	 */
+	boolean									closed				= false;
+	/**
+	 * The channel of the file; only used by the writer thread.
+	 */
+	FileChannel								channel				= null;
+	/**
+	 * <code>true</code> if the file has been written since it was last forced; only used by the writer thread.
+	 */
+	boolean									unsynced			= false;
+	/**
+	 * The time when the file was last forced; only used by the writer thread.
+	 */
+	long									lastSync			= 0;
+	/**
+	 * The size after which the file is rolled, in bytes; 0 for no limit.
+	 */
+	long									logRollSize			= 0;
+	/**
+	 * The interval at which the file is rolled, in milliseconds; 0 for no rolling by time.
+	 */
+	long									logRollInterval		= 0;
+	/**
+	 * <code>true</code> if the rolled files are compressed.
+	 */
+	boolean									logCompress			= false;
+	/**
+	 * The retention limits for the archives; <code>null</code> if there are no limits.
+	 */
+	LogArchiver.Retention					retention			= null;
+	/**
+	 * The format for the time stamp in the names of archives; only used by the writer thread.
+	 */
+	SimpleDateFormat						archiveFormat		= new SimpleDateFormat("yyyyMMdd-HHmmss-SSS");
+	/**
+	 * The size of the file, or the size written since the last failed attempt to roll it; only used by the writer
+	 * thread.
+	 */
+	long									fileSize			= 0;
+	/**
+	 * <code>true</code> if the last attempt to roll the file has failed; only used by the writer thread.
+	 */
+	boolean									rollFailed			= false;
+	/**
+	 * The time when the file is next rolled, if rolling by time; only used by the writer thread.
+	 */
+	long									nextRoll			= Long.MAX_VALUE;
+	
+	/**
+	 * Configures the directory, the sync policy and the size of buffers for the logs that will be created after the
+	 * call.
+	 * 
+	 * @param logDirectory
+	 *            - the directory in which to write the files; it is created if necessary.
+	 * @param policy
+	 *            - the sync policy.
+	 * @param period
+	 *            - the period for {@link SyncPolicy#PERIODIC}, in milliseconds.
+	 * @param size
+	 *            - the size of a buffer, in bytes.
+	 */
+	public static void configure(String logDirectory, SyncPolicy policy, long period, int size)
+	{
+		if(policy == null)
+			throw new IllegalArgumentException("No sync policy specified");
+		if(size <= 0)
+			throw new IllegalArgumentException("Buffer size too small");
+		directory = new File(logDirectory);
+		syncPolicy = policy;
+		syncPeriod = period;
+		bufferSize = size;
+	}
+	
+	/**
+	 * Configures the rolling of files for the logs that will be created after the call. When a file is rolled, it is
+	 * renamed to <code>[log name]-[time stamp].log</code> and handed to the {@link LogArchiver}, which compresses it (if
+	 * required) in the background and then deletes the oldest archives of the log that exceed the retention limits.
+	 * Rolling is done by the writer thread, between two writes, so files are rolled at message boundaries and may
+	 * exceed the size limit by the content of one write.
+	 * <p>
+	 * By default, files are not rolled.
+	 * 
+	 * @param size
+	 *            - the size after which a file is rolled, in bytes; 0 for no limit.
+	 * @param interval
+	 *            - the interval at which files are rolled, in milliseconds; 0 for no rolling by time. Intervals are
+	 *            aligned to the local time (e.g. with an interval of one day, files are rolled at midnight).
+	 * @param compress
+	 *            - <code>true</code> if rolled files should be compressed.
+	 * @param archives
+	 *            - the maximum number of archives of a log; 0 for no limit.
+	 * @param archiveBytes
+	 *            - the maximum total size of the archives of a log, in bytes; 0 for no limit.
+	 */
+	public static void configureRolling(long size, long interval, boolean compress, int archives, long archiveBytes)
+	{
+		if((size < 0) || (interval < 0) || (archives < 0) || (archiveBytes < 0))
+			throw new IllegalArgumentException("Negative rolling limits");
+		rollSize = size;
+		rollInterval = interval;
+		compressArchives = compress;
+		maxArchives = archives;
+		maxArchiveBytes = archiveBytes;
+	}
+	
+	/**
+	 * Creates a new file log, with the specified name. If the file exists, it is appended to.
+	 * 
+	 * @param logName
+	 *            - the name of the log to be created.
+	 * @throws IOException
+	 *             - if the file cannot be opened.
+	 */
+	public FileChannelWrapper(String logName) throws IOException
+	{
+		name = logName;
+		fileName = MappedFileWrapper.fileName(logName);
+		File logDirectory = directory;
+		logSyncPolicy = syncPolicy;
+		logSyncPeriod = syncPeriod;
+		logBufferSize = bufferSize;
+		if(!logDirectory.isDirectory() && !logDirectory.mkdirs())
+			throw new IOException("Unable to create log directory [" + logDirectory + "]");
+		file = new File(logDirectory, fileName + FILE_EXTENSION);
+		channel = open(file);
+		prefixes = new String[Level.values().length];
+		for(Level level : Level.values())
+			prefixes[level.ordinal()] = "[" + level.toString() + "][" + name + "]: ";
+		current = ByteBuffer.allocateDirect(logBufferSize);
+		lastSync = System.currentTimeMillis();
+		logRollSize = rollSize;
+		logRollInterval = rollInterval;
+		logCompress = compressArchives;
+		if((maxArchives > 0) || (maxArchiveBytes > 0))
+			retention = new LogArchiver.Retention(logDirectory, Pattern.compile(Pattern.quote(fileName)
+					+ "-\\d{8}-\\d{6}-\\d{3}(-\\d+)?" + Pattern.quote(FILE_EXTENSION) + "("
+					+ Pattern.quote(LogArchiver.COMPRESSED_EXTENSION) + ")?"), maxArchives, maxArchiveBytes);
+		fileSize = file.length();
+		if(logRollInterval > 0)
+			nextRoll = nextRollTime(lastSync);
+		getWriter().logs.add(this);
+	}
+	
+	/**
+	 * @return the shared writer, which is created if necessary.
+	 */
+	protected static ChannelWriter getWriter()
+	{
+		writerLock.lock();
+		try
+		{
+			if(writer == null)
+				writer = new ChannelWriter();
+			return writer;
+		} finally
+		{
+			writerLock.unlock();
+		}
+	}
+	
+	/**
+	 * Opens a file for appending.
+	 * 
+	 * @param logFile
+	 *            - the file.
+	 * @return the channel.
+	 * @throws IOException
+	 *             - if the file cannot be opened.
+	 */
+	protected static FileChannel open(File logFile) throws IOException
+	{
+		return new FileOutputStream(logFile, true).getChannel();
+	}
+	
+	@Override
+	public void setLevel(Level level)
+	{
+		currentLevel = level;
+	}
+	
+	@Override
+	public void addDestination(String format, OutputStream destination)
+	{
+		// unsupported
+	}
+	
+	/**
+	 * The bytes written to the file are added to the file counter.
+	 */
+	@Override
+	protected void setByteCounters(StripedCounter consoleCounter, StripedCounter fileCounter)
+	{
+		fileBytes = fileCounter;
+	}
+	
+	@Override
+	public void l(Level level, String message)
+	{
+		if(level.displayWith(currentLevel))
+			write(level, message, null, System.currentTimeMillis());
+	}
+	
+	@Override
+	public void l(Level level, String message, Object[] arguments)
+	{
+		if(level.displayWith(currentLevel))
+			write(level, message, arguments, System.currentTimeMillis());
+	}
+	
+	/**
+	 * The time stamp of the message is the one of the original call.
+	 */
+	@Override
+	public void l(LogRecord record)
+	{
+		if(record.getLevel().displayWith(currentLevel))
+			write(record.getLevel(), record.getTemplate(), record.getArguments(), record.getTime());
+	}
+	
+	/**
+	 * Assembles a message and encodes it in the current buffer. If called again while assembling (e.g. by a
+	 * <code>toString()</code> method of an argument), the message is assembled in a new encoder.
+	 * <p>
+	 * With {@link SyncPolicy#ON_ERROR}, for {@link Level#ERROR} messages the method returns after the message has been
+	 * forced to the storage device (or the attempt failed), or when the thread is interrupted.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 * @param message
+	 *            - the message.
+	 * @param arguments
+	 *            - the arguments; <code>null</code> if the message is already composed.
+	 * @param time
+	 *            - the time stamp of the message.
+	 */
+	protected void write(Level level, String message, Object[] arguments, long time)
+	{
+		long sequence;
+		boolean interrupted = false;
+		boolean sync = false;
+		lock.lock();
+		try
+		{
+			if(exiting)
+				return;
+			boolean reentered = encoding;
+			MessageEncoder messageEncoder = reentered ? new MessageEncoder(CHARSET) : encoder;
+			encoding = true;
+			try
+			{
+				StringBuilder builder = messageEncoder.builder();
+				appendTime(builder, time);
+				builder.append(prefixes[level.ordinal()]);
+				if(arguments != null)
+					MessageTemplate.get(message).renderTo(builder, arguments);
+				else
+					builder.append(message);
+				builder.append(LINE_SEPARATOR);
+				while(!messageEncoder.encodeTo(current))
+				{
+					if(current.position() == 0)
+					{ // larger than a buffer
+						ByteBuffer large = ByteBuffer.allocate(messageEncoder.maxEncodedLength());
+						messageEncoder.encodeTo(large);
+						large.flip();
+						pending.add(large);
+						break;
+					}
+					if(pending.size() >= MAX_PENDING_BUFFERS)
+					{
+						writer.signal();
+						try
+						{
+							progress.await(WRITE_DELAY, TimeUnit.MILLISECONDS);
+						} catch(InterruptedException e)
+						{
+							interrupted = true;
+						}
+						if(exiting)
+							return;
+						continue;
+					}
+					current.flip();
+					pending.add(current);
+					current = newBuffer();
+					writer.signal();
+				}
+			} finally
+			{
+				encoding = reentered;
+			}
+			sequence = ++posted;
+			if((level == Level.ERROR) && (logSyncPolicy == SyncPolicy.ON_ERROR))
+			{
+				syncRequested = true;
+				sync = true;
+			}
+		} finally
+		{
+			lock.unlock();
+		}
+		if(sync)
+		{
+			writer.signal();
+			lock.lock();
+			try
+			{
+				while((processed < sequence) && !closed && !interrupted)
+					try
+					{
+						progress.await();
+					} catch(InterruptedException e)
+					{
+						interrupted = true;
+					}
+			} finally
+			{
+				lock.unlock();
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+	
+	/**
+	 * Appends the time stamp of a message, followed by a space. Only the seconds are formatted by means of
+	 * {@link #secondFormat}; the milliseconds are appended directly.
+	 * 
+	 * @param builder
+	 *            - the builder to append to.
+	 * @param time
+	 *            - the time stamp.
+	 */
+	protected void appendTime(StringBuilder builder, long time)
+	{
+		long millis = time % 1000;
+		if(millis < 0)
+			millis += 1000;
+		long s = (time - millis) / 1000;
+		if(s != second)
+		{
+			secondText = secondFormat.format(new Date(time - millis));
+			second = s;
+		}
+		builder.append(secondText);
+		if(millis < 100)
+			builder.append('0');
+		if(millis < 10)
+			builder.append('0');
+		builder.append(millis).append(' ');
+	}
+	
+	/**
+	 * @return an empty buffer, reused if possible.
+	 */
+	protected ByteBuffer newBuffer()
+	{
+		ByteBuffer buffer = free.poll();
+		return (buffer != null) ? buffer : ByteBuffer.allocateDirect(logBufferSize);
+	}
+	
+	/**
+	 * Called by the writer: writes the pending content to the file, forcing it if required by the sync policy. After
+	 * the log has exited, it also closes the file.
+	 * 
+	 * @param shutdown
+	 *            - <code>true</code> if the JVM is shutting down, in which case the content is forced (if the policy is
+	 *            not {@link SyncPolicy#NEVER}).
+	 * @return <code>true</code> if the file has been closed and the log should no longer be drained.
+	 */
+	protected boolean drain(boolean shutdown)
+	{
+		ByteBuffer[] buffers;
+		long sequence;
+		boolean sync;
+		boolean exit;
+		lock.lock();
+		try
+		{
+			if(current.position() > 0)
+			{
+				current.flip();
+				pending.add(current);
+				current = newBuffer();
+			}
+			buffers = pending.toArray(new ByteBuffer[pending.size()]);
+			pending.clear();
+			sequence = posted;
+			sync = syncRequested;
+			syncRequested = false;
+			exit = exiting;
+			if(buffers.length >= MAX_PENDING_BUFFERS)
+				progress.signalAll();
+		} finally
+		{
+			lock.unlock();
+		}
+		long now = System.currentTimeMillis();
+		try
+		{
+			long size = 0;
+			for(ByteBuffer buffer : buffers)
+				size += buffer.remaining();
+			if(now >= nextRoll)
+			{
+				if(fileSize > 0)
+					roll(now);
+				nextRoll = nextRollTime(now);
+			}
+			else if((logRollSize > 0) && (fileSize > 0) && (fileSize + size > logRollSize))
+				roll(now);
+			if(buffers.length > 0)
+			{
+				writeAll(buffers);
+				fileSize += size;
+				StripedCounter counter = fileBytes;
+				if(counter != null)
+					counter.add(size);
+				unsynced = true;
+			}
+			if(unsynced && (logSyncPolicy != SyncPolicy.NEVER))
+				if(sync || exit || shutdown
+						|| ((logSyncPolicy == SyncPolicy.PERIODIC) && (now - lastSync >= logSyncPeriod)))
+				{
+					force();
+					unsynced = false;
+					lastSync = now;
+				}
+		} catch(IOException e)
+		{
+			e.printStackTrace();
+		}
+		if(exit)
+			try
+			{
+				if(channel != null)
+					channel.close();
+			} catch(IOException e)
+			{
+				e.printStackTrace();
+			}
+		lock.lock();
+		try
+		{
+			for(ByteBuffer buffer : buffers)
+				if(buffer.isDirect() && (free.size() < MAX_FREE_BUFFERS))
+				{
+					buffer.clear();
+					free.add(buffer);
+				}
+			processed = sequence;
+			if(exit)
+				closed = true;
+			progress.signalAll();
+		} finally
+		{
+			lock.unlock();
+		}
+		return exit;
+	}
+	
+	/**
+	 * Writes buffers to the file, by means of gathering writes. If the channel has been closed because the writer
+	 * thread has been interrupted, it is reopened and the write continues (the positions of the buffers reflect what
+	 * has already been written). If the channel has been closed for another reason, it is reopened and the write is
+	 * retried once.
+	 * 
+	 * @param buffers
+	 *            - the buffers to write.
+	 * @throws IOException
+	 *             - if writing fails.
+	 */
+	protected void writeAll(ByteBuffer[] buffers) throws IOException
+	{
+		boolean retried = false;
+		while(true)
+			try
+			{
+				if((channel == null) || !channel.isOpen())
+					channel = open(file);
+				while(buffers[buffers.length - 1].hasRemaining())
+					channel.write(buffers);
+				return;
+			} catch(ClosedByInterruptException e)
+			{
+				Thread.interrupted(); // the writer does not stop
+				channel = null;
+			} catch(ClosedChannelException e)
+			{
+				channel = null;
+				if(retried)
+					throw e;
+				retried = true;
+			}
+	}
+	
+	/**
+	 * Rolls the file: it is closed, renamed, and handed to the {@link LogArchiver}; a new file is opened. If the file
+	 * cannot be renamed, the log continues in the same file and the next attempt is made when the size limit is
+	 * reached again (or at the next interval); the failure is reported only once, until rolling succeeds again. Called
+	 * by the writer thread.
+	 * 
+	 * @param now
+	 *            - the current time.
+	 * @throws IOException
+	 *             - if the file cannot be closed or reopened.
+	 */
+	protected void roll(long now) throws IOException
+	{
+		if(unsynced && (logSyncPolicy != SyncPolicy.NEVER))
+			force();
+		unsynced = false;
+		if(channel != null)
+			channel.close();
+		channel = null;
+		String base = fileName + "-" + archiveFormat.format(new Date(now));
+		File archive = new File(file.getParentFile(), base + FILE_EXTENSION);
+		for(int i = 1; archive.exists() || new File(archive.getPath() + LogArchiver.COMPRESSED_EXTENSION).exists(); i++)
+			archive = new File(file.getParentFile(), base + "-" + i + FILE_EXTENSION);
+		boolean renamed = file.renameTo(archive);
+		channel = open(file);
+		fileSize = 0;
+		if(!renamed)
+		{
+			if(!rollFailed)
+				System.err.println("Unable to roll [" + file + "] to [" + archive + "]; continuing in the same file");
+			rollFailed = true;
+			return;
+		}
+		rollFailed = false;
+		if(logCompress || (retention != null))
+			LogArchiver.getDefault().archive(archive, logCompress, retention);
+	}
+	
+	/**
+	 * Computes the next time for rolling by time, aligned to the local time.
+	 * 
+	 * @param now
+	 *            - the current time.
+	 * @return the time of the next roll.
+	 */
+	protected long nextRollTime(long now)
+	{
+		long offset = TimeZone.getDefault().getOffset(now);
+		return ((now + offset) / logRollInterval + 1) * logRollInterval - offset;
+	}
+	
+	/**
+	 * Forces the content of the file to the storage device, reopening the channel if it has been closed.
+	 * 
+	 * @throws IOException
+	 *             - if forcing the content fails.
+	 */
+	protected void force() throws IOException
+	{
+		try
+		{
+			if((channel == null) || !channel.isOpen())
+				channel = open(file);
+			channel.force(false);
+		} catch(ClosedByInterruptException e)
+		{
+			Thread.interrupted();
+			channel = open(file);
+			channel.force(false);
+		}
+	}
+	
+	/**
+	 * Writes and, depending on the sync policy, forces the content posted so far, then closes the file. Messages
+	 * posted after the call are discarded.
+	 */
+	@Override
+	public void exit()
+	{
+		lock.lock();
+		try
+		{
+			if(exiting)
+				return;
+			exiting = true;
+			progress.signalAll();
+		} finally
+		{
+			lock.unlock();
+		}
+		writer.signal();
+		boolean interrupted = false;
+		lock.lock();
+		try
+		{
+			while(!closed && !interrupted)
+				try
+				{
+					progress.await();
+				} catch(InterruptedException e)
+				{
+					interrupted = true;
+				}
+		} finally
+		{
+			lock.unlock();
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+}
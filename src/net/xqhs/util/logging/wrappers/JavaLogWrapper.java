@@ -18,6 +18,7 @@ import java.util.logging.SimpleFormatter;
 import java.util.logging.StreamHandler;
 
 import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.LogRecord;
 import net.xqhs.util.logging.logging.LogWrapper;
 
 /**
@@ -85,10 +86,21 @@ public class JavaLogWrapper extends LogWrapper
 		theLog.setLevel(toWrapedLevel(level));
 	}
 	
+	/**
+	 * The handler for the destination is flushed after each record, as the destination only makes content available
+	 * (e.g. to displays and reports) when it is flushed.
+	 */
 	@Override
 	public void addDestination(String format, OutputStream destination)
 	{
-		StreamHandler handler = new StreamHandler(destination, new SimpleFormatter());
+		StreamHandler handler = new StreamHandler(destination, new SimpleFormatter()) {
+			@Override
+			public void publish(java.util.logging.LogRecord record)
+			{
+				super.publish(record);
+				flush();
+			}
+		};
 		handlers.add(handler);
 		theLog.addHandler(handler);
 	}
@@ -99,6 +111,24 @@ public class JavaLogWrapper extends LogWrapper
 		theLog.log(toWrapedLevel(level), message);
 	}
 	
+	/**
+	 * The record passed to the underlying logger has the time stamp and the thread of the original call.
+	 */
+	@SuppressWarnings("deprecation")
+	// setInstant (Java 9) and setLongThreadID (Java 16) are not available at the Java level of the project
+	@Override
+	public void l(LogRecord record)
+	{
+		java.util.logging.Level level = toWrapedLevel(record.getLevel());
+		if(!theLog.isLoggable(level))
+			return;
+		java.util.logging.LogRecord logRecord = new java.util.logging.LogRecord(level, record.getMessage());
+		logRecord.setMillis(record.getTime());
+		logRecord.setThreadID((int) record.getThread().getId());
+		logRecord.setLoggerName(theLog.getName());
+		theLog.log(logRecord);
+	}
+	
 	@Override
 	public void exit()
 	{
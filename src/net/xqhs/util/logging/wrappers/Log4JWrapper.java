@@ -12,35 +12,124 @@
 package net.xqhs.util.logging.wrappers;
 
 import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.LogRecord;
 import net.xqhs.util.logging.logging.LogWrapper;
+import net.xqhs.util.logging.logging.MultiDestinationWriter;
 
 import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
 import org.apache.log4j.Logger;
 import org.apache.log4j.PatternLayout;
 import org.apache.log4j.WriterAppender;
+import org.apache.log4j.spi.LoggingEvent;
 
 /**
  * A {@link LogWrapper} implementation wrapping Apache's Log4J logger.
+ * <p>
+ * Destinations with formats supported by {@link MultiDestinationWriter} are served by a single appender, which
+ * formats each message once for all of them. Other formats use a separate appender with a {@link PatternLayout}.
  * 
  * @author Andrei Olaru
  */
 public class Log4JWrapper extends LogWrapper
 {
+	/**
+	 * Appender writing events to all the destinations of a {@link MultiDestinationWriter}. Events with levels that
+	 * are not used by this library, or containing exceptions, are passed to per-destination appenders that use a
+	 * {@link PatternLayout}.
+	 * 
+	 * @author Andrei Olaru
+	 */
+	protected static class FanOutAppender extends AppenderSkeleton
+	{
+		/**
+		 * The writer.
+		 */
+		protected final MultiDestinationWriter	writer;
+		/**
+		 * The appenders for events that the writer cannot handle, one for each destination.
+		 */
+		@SuppressWarnings("unused")
+		// type arguments required by Java 1.6
+		protected final List<Appender>			fallback	= new ArrayList<Appender>();
+		
+		/**
+		 * Creates a new appender.
+		 * 
+		 * @param name
+		 *            - the name of the log.
+		 */
+		public FanOutAppender(String name)
+		{
+			writer = new MultiDestinationWriter(name, Charset.defaultCharset());
+		}
+		
+		/**
+		 * Adds a destination.
+		 * 
+		 * @param format
+		 *            - the format for the destination.
+		 * @param destination
+		 *            - the destination.
+		 * @throws IllegalArgumentException
+		 *             - if the format is not supported by {@link MultiDestinationWriter}.
+		 */
+		public synchronized void addDestination(String format, OutputStream destination)
+		{
+			writer.addDestination(format, destination);
+			fallback.add(new WriterAppender(new PatternLayout(format), destination));
+		}
+		
+		@Override
+		protected void append(LoggingEvent event)
+		{
+			Level level = fromWrappedLevel(event.getLevel());
+			if((level == null) || (event.getThrowableInformation() != null))
+			{
+				for(Appender appender : fallback)
+					appender.doAppend(event);
+				return;
+			}
+			String message = event.getRenderedMessage();
+			writer.write(level, event.getTimeStamp(), event.getThreadName(), (message != null) ? message : "", null);
+		}
+		
+		@Override
+		public boolean requiresLayout()
+		{
+			return false;
+		}
+		
+		@Override
+		public void close()
+		{
+			closed = true;
+		}
+	}
+	
 	/**
 	 * The underlying logger.
 	 */
-	protected Logger		theLog		= null;
+	protected Logger			theLog		= null;
 	
 	/**
 	 * Set of appenders for this log.
 	 */
 	@SuppressWarnings("unused")
 	// type arguments required by Java 1.6
-	protected Set<Appender>	appenders	= new HashSet<Appender>();
+	protected Set<Appender>		appenders	= new HashSet<Appender>();
+	/**
+	 * The appender serving the destinations with supported formats; <code>null</code> until the first such
+	 * destination is added.
+	 */
+	protected FanOutAppender	fanOut		= null;
 	
 	/**
 	 * Creates a new instance.
@@ -63,11 +152,54 @@ public class Log4JWrapper extends LogWrapper
 	@Override
 	public void addDestination(String format, OutputStream destination)
 	{
+		if(fanOut == null)
+			fanOut = new FanOutAppender(theLog.getName());
+		try
+		{
+			fanOut.addDestination(format, destination);
+			if(!appenders.contains(fanOut))
+			{
+				theLog.addAppender(fanOut);
+				appenders.add(fanOut);
+			}
+			return;
+		} catch(IllegalArgumentException e)
+		{
+			// format not supported; use a separate appender
+		}
 		Appender appender = new WriterAppender(new PatternLayout(format), destination);
 		theLog.addAppender(appender);
 		appenders.add(appender);
 	}
 	
+	/**
+	 * Converts {@link org.apache.log4j.Level} to {@link Level}.
+	 * 
+	 * @param level
+	 *            - the level to convert.
+	 * @return - the resulting level; <code>null</code> if the level has no equivalent.
+	 */
+	protected static Level fromWrappedLevel(org.apache.log4j.Level level)
+	{
+		switch(level.toInt())
+		{
+		case org.apache.log4j.Level.ALL_INT:
+			return Level.ALL;
+		case org.apache.log4j.Level.ERROR_INT:
+			return Level.ERROR;
+		case org.apache.log4j.Level.INFO_INT:
+			return Level.INFO;
+		case org.apache.log4j.Level.OFF_INT:
+			return Level.OFF;
+		case org.apache.log4j.Level.TRACE_INT:
+			return Level.TRACE;
+		case org.apache.log4j.Level.WARN_INT:
+			return Level.WARN;
+		default:
+			return null;
+		}
+	}
+	
 	/**
 	 * Converts {@link Level} to {@link org.apache.log4j.Level}.
 	 * 
@@ -102,6 +234,20 @@ public class Log4JWrapper extends LogWrapper
 		theLog.log(toWrapedLevel(level), message);
 	}
 	
+	/**
+	 * The event passed to the appenders has the time stamp and the thread name of the original call. As the appenders
+	 * are called directly, the threshold of the repository is checked here, as {@link Logger#log} would.
+	 */
+	@Override
+	public void l(LogRecord record)
+	{
+		org.apache.log4j.Level level = toWrapedLevel(record.getLevel());
+		if(theLog.getLoggerRepository().isDisabled(level.toInt()) || !theLog.isEnabledFor(level))
+			return;
+		theLog.callAppenders(new LoggingEvent(Logger.class.getName(), theLog, record.getTime(), level, record
+				.getMessage(), record.getThread().getName(), null, null, null, null));
+	}
+	
 	@Override
 	public void exit()
 	{
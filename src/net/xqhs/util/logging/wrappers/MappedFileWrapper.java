@@ -0,0 +1,531 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.wrappers;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.LogRecord;
+import net.xqhs.util.logging.logging.LogWrapper;
+import net.xqhs.util.logging.logging.MessageEncoder;
+import net.xqhs.util.logging.logging.MessageTemplate;
+import net.xqhs.util.logging.logging.StripedCounter;
+
+/**
+ * {@link LogWrapper} implementation that appends logging messages to memory-mapped files. Writing a message does not
+ * involve a system call; the operating system writes the content of the mapped pages to disk, and the content survives
+ * a crash of the application (but not necessarily a crash of the system).
+ * <p>
+ * The output of a log is written in segments of a fixed size (see {@link #configure(String, int)}), named
+ * <code>[log name]-[index].log</code>, where the characters of the log name that are not safe in file names are
+ * replaced by underscores and the index has 5 digits, padded with zeros (e.g. <code>my_log-00003.log</code> for the
+ * log "my log"); when a segment is full, the log continues in the next segment.
+ * <p>
+ * Each message is written as a record containing its length (4 bytes), the time stamp (8 bytes), and the text
+ * ("[level][log name]: message", encoded in UTF-8). The length is written last, so that a record that has not been
+ * completely written can be recognized. The rest of a segment is filled with zeros, and a zero length marks the end of
+ * the records. When a log is created and segments of a log with the same name exist, the last segment is scanned and
+ * the log continues after the last complete record. The content of the segments can be read with
+ * {@link #read(String, String)}, or by running the class.
+ * <p>
+ * Messages are assembled in a reusable buffer and encoded directly into the mapped segment, so that logging does not
+ * allocate memory (as long as the <code>toString()</code> methods of the arguments do not). Messages are written
+ * while holding a {@link ReentrantLock} rather than a monitor, so that virtual threads posting to the log do not pin
+ * their carrier thread.
+ * <p>
+ * As with the {@link ConsoleWrapper}, other destinations are not supported.
+ * 
+ * @author Andrei Olaru
+ */
+public class MappedFileWrapper extends LogWrapper
+{
+	/**
+	 * The default directory for log files.
+	 */
+	public static final String		DEFAULT_DIRECTORY		= "log";
+	/**
+	 * The default size of a segment, in bytes.
+	 */
+	public static final int			DEFAULT_SEGMENT_SIZE	= 16 * 1024 * 1024;
+	/**
+	 * The extension of segment files.
+	 */
+	public static final String		SEGMENT_EXTENSION		= ".log";
+	/**
+	 * The size of the record header (length and time stamp), in bytes.
+	 */
+	protected static final int		HEADER_SIZE				= 12;
+	/**
+	 * The size of the length field of a record, in bytes.
+	 */
+	protected static final int		LENGTH_SIZE				= 4;
+	/**
+	 * The charset of the text of records.
+	 */
+	protected static final Charset	CHARSET					= Charset.forName("UTF-8");
+	
+	/**
+	 * The directory in which new logs will write their segments.
+	 */
+	protected static volatile File	directory				= new File(DEFAULT_DIRECTORY);
+	/**
+	 * The size of the segments of new logs.
+	 */
+	protected static volatile int	segmentSize				= DEFAULT_SEGMENT_SIZE;
+	
+	/**
+	 * The current level for the log.
+	 */
+	Level							currentLevel			= Level.ERROR;
+	/**
+	 * The name fo the log.
+	 */
+	String							name					= null;
+	/**
+	 * The directory of the segments of this log.
+	 */
+	File							logDirectory			= null;
+	/**
+	 * The size of the segments of this log.
+	 */
+	int								logSegmentSize			= 0;
+	/**
+	 * The index of the current segment.
+	 */
+	int								segmentIndex			= 0;
+	/**
+	 * The current segment, mapped in memory; <code>null</code> after the log exits.
+	 */
+	MappedByteBuffer				segment					= null;
+	/**
+	 * The encoder for messages.
+	 */
+	MessageEncoder					encoder					= new MessageEncoder(CHARSET);
+	/**
+	 * <code>true</code> while a message is being assembled in {@link #encoder}.
+	 */
+	boolean							encoding				= false;
+	/**
+	 * The lock guarding the current segment and the encoder.
+	 */
+	final ReentrantLock				lock					= new ReentrantLock();
+	/**
+	 * The counter of the bytes written to files; <code>null</code> if the bytes are not counted.
+	 */
+	volatile StripedCounter			fileBytes				= null;
+	
+	/**
+	 * Configures the directory and the segment size for the logs that will be created after the call.
+	 * 
+	 * @param logDirectory
+	 *            - the directory in which to write the segments; it is created if necessary.
+	 * @param size
+	 *            - the size of a segment, in bytes.
+	 */
+	public static void configure(String logDirectory, int size)
+	{
+		if(size <= HEADER_SIZE)
+			throw new IllegalArgumentException("Segment size too small");
+		directory = new File(logDirectory);
+		segmentSize = size;
+	}
+	
+	/**
+	 * Creates a new memory-mapped file log, with the specified name. If segments of a log with the same name exist,
+	 * the log continues the last one.
+	 * 
+	 * @param logName
+	 *            - the name of the log to be created.
+	 * @throws IOException
+	 *             - if the segment cannot be created or mapped.
+	 */
+	public MappedFileWrapper(String logName) throws IOException
+	{
+		name = logName;
+		logDirectory = directory;
+		logSegmentSize = segmentSize;
+		if(!logDirectory.isDirectory() && !logDirectory.mkdirs())
+			throw new IOException("Unable to create log directory [" + logDirectory + "]");
+		int last = lastSegmentIndex(logDirectory, logName);
+		if(last < 0)
+			openSegment(0, logSegmentSize);
+		else
+		{
+			segmentIndex = last;
+			File file = segmentFile(logDirectory, logName, last);
+			segment = map(file, Math.max(file.length(), logSegmentSize));
+			recover(segment);
+		}
+	}
+	
+	@Override
+	public void setLevel(Level level)
+	{
+		currentLevel = level;
+	}
+	
+	@Override
+	public void addDestination(String format, OutputStream destination)
+	{
+		// unsupported
+	}
+	
+	/**
+	 * The bytes written to the file segments are added to the file counter.
+	 */
+	@Override
+	protected void setByteCounters(StripedCounter consoleCounter, StripedCounter fileCounter)
+	{
+		fileBytes = fileCounter;
+	}
+	
+	@Override
+	public void l(Level level, String message)
+	{
+		if(level.displayWith(currentLevel))
+			write(level, message, null, System.currentTimeMillis());
+	}
+	
+	@Override
+	public void l(Level level, String message, Object[] arguments)
+	{
+		if(level.displayWith(currentLevel))
+			write(level, message, arguments, System.currentTimeMillis());
+	}
+	
+	/**
+	 * The time stamp of the record is the one of the original call.
+	 */
+	@Override
+	public void l(LogRecord record)
+	{
+		if(record.getLevel().displayWith(currentLevel))
+			write(record.getLevel(), record.getTemplate(), record.getArguments(), record.getTime());
+	}
+	
+	/**
+	 * Assembles a message and writes it as a record. If called again while assembling (e.g. by a
+	 * <code>toString()</code> method of an argument), the message is assembled in a new encoder.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 * @param message
+	 *            - the message.
+	 * @param arguments
+	 *            - the arguments; <code>null</code> if the message is already composed.
+	 * @param time
+	 *            - the time stamp of the message.
+	 */
+	protected void write(Level level, String message, Object[] arguments, long time)
+	{
+		lock.lock();
+		try
+		{
+			if(segment == null)
+				return;
+			boolean reentered = encoding;
+			MessageEncoder messageEncoder = reentered ? new MessageEncoder(CHARSET) : encoder;
+			encoding = true;
+			try
+			{
+				StringBuilder builder = messageEncoder.builder();
+				builder.append('[').append(level.toString()).append("][").append(name).append("]: ");
+				if(arguments != null)
+					MessageTemplate.get(message).renderTo(builder, arguments);
+				else
+					builder.append(message);
+				writeRecord(messageEncoder, time);
+			} catch(IOException e)
+			{
+				segment = null;
+				e.printStackTrace();
+			} finally
+			{
+				encoding = reentered;
+			}
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Writes an assembled message as a record, at the end of the current segment or, if there is not enough space, in a
+	 * new segment.
+	 * 
+	 * @param messageEncoder
+	 *            - the encoder containing the message.
+	 * @param time
+	 *            - the time stamp of the message.
+	 * @throws IOException
+	 *             - if a new segment is needed and cannot be created.
+	 */
+	protected void writeRecord(MessageEncoder messageEncoder, long time) throws IOException
+	{
+		int position = segment.position();
+		if(segment.remaining() >= HEADER_SIZE)
+		{
+			segment.position(position + HEADER_SIZE);
+			if(!messageEncoder.encodeTo(segment))
+				segment.position(position);
+		}
+		if(segment.position() == position)
+		{
+			openSegment(segmentIndex + 1, Math.max(logSegmentSize, HEADER_SIZE + messageEncoder.maxEncodedLength()));
+			position = 0;
+			segment.position(HEADER_SIZE);
+			messageEncoder.encodeTo(segment);
+		}
+		segment.putLong(position + LENGTH_SIZE, time);
+		// the length is written last, to mark the record as complete
+		segment.putInt(position, segment.position() - position - LENGTH_SIZE);
+		StripedCounter counter = fileBytes;
+		if(counter != null)
+			counter.add(segment.position() - position);
+	}
+	
+	/**
+	 * Forces the content of the current segment to the storage device.
+	 */
+	public void force()
+	{
+		lock.lock();
+		try
+		{
+			if(segment != null)
+				segment.force();
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	@Override
+	public void exit()
+	{
+		lock.lock();
+		try
+		{
+			force();
+			segment = null;
+		} finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Creates and maps a new segment, which becomes the current segment.
+	 * 
+	 * @param index
+	 *            - the index of the segment.
+	 * @param size
+	 *            - the size of the segment.
+	 * @throws IOException
+	 *             - if the segment cannot be created or mapped.
+	 */
+	protected void openSegment(int index, int size) throws IOException
+	{
+		File file = segmentFile(logDirectory, name, index);
+		if(file.exists() && !file.delete())
+			throw new IOException("Unable to replace segment [" + file + "]");
+		segment = map(file, size);
+		segmentIndex = index;
+	}
+	
+	/**
+	 * Positions a segment after its last complete record, and clears anything after that position.
+	 * 
+	 * @param buffer
+	 *            - the segment.
+	 */
+	protected static void recover(MappedByteBuffer buffer)
+	{
+		int end = scan(buffer, null);
+		for(int i = end; i < buffer.capacity(); i++)
+			if(buffer.get(i) != 0)
+				buffer.put(i, (byte) 0);
+		buffer.position(end);
+	}
+	
+	/**
+	 * Goes through the complete records of a segment, from the beginning.
+	 * 
+	 * @param buffer
+	 *            - the segment.
+	 * @param records
+	 *            - if not <code>null</code>, the records are added to this list, as text, with the time stamp.
+	 * @return the position after the last complete record.
+	 */
+	protected static int scan(MappedByteBuffer buffer, List<String> records)
+	{
+		SimpleDateFormat format = (records != null) ? new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS") : null;
+		int position = 0;
+		while(position + HEADER_SIZE <= buffer.capacity())
+		{
+			int length = buffer.getInt(position);
+			if((length < HEADER_SIZE - LENGTH_SIZE) || (length > buffer.capacity() - position - LENGTH_SIZE))
+				break;
+			if(records != null)
+			{
+				byte[] text = new byte[length - (HEADER_SIZE - LENGTH_SIZE)];
+				ByteBuffer source = buffer.duplicate();
+				source.position(position + HEADER_SIZE);
+				source.get(text);
+				records.add(format.format(new Date(buffer.getLong(position + LENGTH_SIZE))) + " "
+						+ new String(text, CHARSET));
+			}
+			position += LENGTH_SIZE + length;
+		}
+		return position;
+	}
+	
+	/**
+	 * Reads all complete records of a log, from all its segments.
+	 * 
+	 * @param logDirectory
+	 *            - the directory containing the segments.
+	 * @param logName
+	 *            - the name of the log.
+	 * @return the records, as text, each starting with its time stamp.
+	 * @throws IOException
+	 *             - if the segments cannot be read.
+	 */
+	public static List<String> read(String logDirectory, String logName) throws IOException
+	{
+		File dir = new File(logDirectory);
+		@SuppressWarnings("unused")
+		// type arguments required by Java 1.6
+		List<String> records = new ArrayList<String>();
+		int last = lastSegmentIndex(dir, logName);
+		for(int i = 0; i <= last; i++)
+		{
+			File file = segmentFile(dir, logName, i);
+			if(!file.exists())
+				continue;
+			RandomAccessFile raf = new RandomAccessFile(file, "r");
+			try
+			{
+				scan(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()), records);
+			} finally
+			{
+				raf.close();
+			}
+		}
+		return records;
+	}
+	
+	/**
+	 * Prints the records of a log.
+	 * 
+	 * @param args
+	 *            - the directory containing the segments and the name of the log.
+	 * @throws IOException
+	 *             - if the segments cannot be read.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if(args.length < 2)
+		{
+			System.out.println("Arguments: [log directory] [log name]");
+			return;
+		}
+		for(String record : read(args[0], args[1]))
+			System.out.println(record);
+	}
+	
+	/**
+	 * Maps a file in memory, for writing, creating it if necessary.
+	 * 
+	 * @param file
+	 *            - the file.
+	 * @param size
+	 *            - the size of the mapped region.
+	 * @return the mapped buffer.
+	 * @throws IOException
+	 *             - if the file cannot be created or mapped.
+	 */
+	protected static MappedByteBuffer map(File file, long size) throws IOException
+	{
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try
+		{
+			// the mapping remains valid after the channel is closed
+			return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		} finally
+		{
+			raf.close();
+		}
+	}
+	
+	/**
+	 * @param dir
+	 *            - the directory of the segments.
+	 * @param logName
+	 *            - the name of the log.
+	 * @param index
+	 *            - the index of the segment.
+	 * @return the file of the segment.
+	 */
+	protected static File segmentFile(File dir, String logName, int index)
+	{
+		return new File(dir, fileName(logName) + "-" + String.format("%05d", Integer.valueOf(index)) + SEGMENT_EXTENSION);
+	}
+	
+	/**
+	 * @param dir
+	 *            - the directory of the segments.
+	 * @param logName
+	 *            - the name of the log.
+	 * @return the index of the last segment of the log; -1 if there are no segments.
+	 */
+	protected static int lastSegmentIndex(File dir, String logName)
+	{
+		String prefix = fileName(logName) + "-";
+		String[] files = dir.list();
+		int last = -1;
+		if(files != null)
+			for(String file : files)
+				if(file.startsWith(prefix) && file.endsWith(SEGMENT_EXTENSION))
+					try
+					{
+						last = Math.max(last, Integer.parseInt(file.substring(prefix.length(), file.length()
+								- SEGMENT_EXTENSION.length())));
+					} catch(NumberFormatException e)
+					{
+						// not a segment of this log
+					}
+		return last;
+	}
+	
+	/**
+	 * @param logName
+	 *            - the name of the log.
+	 * @return the name, with characters that are not safe in file names replaced.
+	 */
+	protected static String fileName(String logName)
+	{
+		return logName.replaceAll("[^A-Za-z0-9._]", "_");
+	}
+}
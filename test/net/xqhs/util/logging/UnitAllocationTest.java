@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
+import net.xqhs.util.logging.wrappers.BinaryLogWrapper;
+import net.xqhs.util.logging.wrappers.MappedFileWrapper;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link Unit}: the fixed-arity and the primitive overloads of the logging methods do not allocate on the
+ * console, mapped file and binary paths, as measured by {@link com.sun.management.ThreadMXBean}.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class UnitAllocationTest
+{
+	/**
+	 * The overloads that are checked, in the order of {@link #call(LoggerSimple, int, int)}.
+	 */
+	static final String[]		CALLS		= { "no arguments", "one object", "two objects", "three objects",
+			"four objects", "int", "long", "double", "boolean", "char", "float" };
+	static final Object			ARGUMENT	= "s";
+	static final int			WARM_UP		= 100000;
+	static final int			COUNT		= 10000;
+	static final int			ROUNDS		= 20;
+	
+	/**
+	 * An output stream that discards everything.
+	 */
+	static final OutputStream	DISCARD		= new OutputStream() {
+												@Override
+												public void write(int b)
+												{
+													// discard
+												}
+												
+												@Override
+												public void write(byte[] b, int off, int len)
+												{
+													// discard
+												}
+											};
+	
+	static void call(LoggerSimple log, int overload, int i)
+	{
+		switch(overload)
+		{
+		case 0:
+			log.li("message");
+			break;
+		case 1:
+			log.li("one []", ARGUMENT);
+			break;
+		case 2:
+			log.li("two [] []", ARGUMENT, ARGUMENT);
+			break;
+		case 3:
+			log.li("three [] [] []", ARGUMENT, ARGUMENT, ARGUMENT);
+			break;
+		case 4:
+			log.li("four [] [] [] []", ARGUMENT, ARGUMENT, ARGUMENT, ARGUMENT);
+			break;
+		case 5:
+			log.li("int []", i);
+			break;
+		case 6:
+			log.li("long []", (long) i);
+			break;
+		case 7:
+			log.li("double []", i * 0.5);
+			break;
+		case 8:
+			log.li("boolean []", (i & 1) == 0);
+			break;
+		case 9:
+			log.li("char []", (char) ('a' + (i & 15)));
+			break;
+		default:
+			log.li("float []", i * 0.25f);
+		}
+	}
+	
+	@Rule
+	public TemporaryFolder	folder		= new TemporaryFolder();
+	
+	PrintStream				out			= null;
+	UnitComponent			unit		= null;
+	
+	@Before
+	public void setUp()
+	{
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		Assume.assumeTrue(((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.isThreadAllocatedMemorySupported());
+	}
+	
+	@After
+	public void tearDown()
+	{
+		if(unit != null)
+			unit.doExit();
+		if(out != null)
+			System.setOut(out);
+		MappedFileWrapper.configure(MappedFileWrapper.DEFAULT_DIRECTORY, MappedFileWrapper.DEFAULT_SEGMENT_SIZE);
+	}
+	
+	/**
+	 * Warms up the calls, then checks that, in the best of several rounds, each allocates less than one byte per call,
+	 * on average. The mapped file allocates, once in a while, when moving to a new segment; any allocation on each call
+	 * is at least the size of an object.
+	 */
+	void assertNoAllocation(LoggerType type)
+	{
+		unit = (UnitComponent) new UnitComponent().setUnitName("allocation-" + type).setLoggerType(type)
+				.setLogLevel(Level.ALL).lock();
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+		for(int i = 0; i < WARM_UP; i++)
+			for(int overload = 0; overload < CALLS.length; overload++)
+				call(unit, overload, i);
+		for(int overload = 0; overload < CALLS.length; overload++)
+		{
+			// until the compiled code is installed, the calls may still allocate
+			long allocated = Long.MAX_VALUE;
+			for(int round = 0; (round < ROUNDS) && (allocated >= COUNT); round++)
+			{
+				long before = threads.getThreadAllocatedBytes(id);
+				for(int i = 0; i < COUNT; i++)
+					call(unit, overload, i);
+				allocated = Math.min(allocated, threads.getThreadAllocatedBytes(id) - before);
+			}
+			assertTrue(type + ", " + CALLS[overload] + ": " + allocated + " bytes for " + COUNT + " calls",
+					allocated < COUNT);
+		}
+	}
+	
+	@Test
+	public void consoleCallsDoNotAllocate()
+	{
+		out = System.out;
+		System.setOut(new PrintStream(DISCARD));
+		assertNoAllocation(LoggerType.CONSOLE);
+	}
+	
+	@Test
+	public void mappedFileCallsDoNotAllocate()
+	{
+		MappedFileWrapper.configure(folder.getRoot().getPath(), 1 << 20);
+		assertNoAllocation(LoggerType.MAPPED_FILE);
+	}
+	
+	@Test
+	public void binaryCallsDoNotAllocate()
+	{
+		BinaryLogWrapper.configure(DISCARD);
+		assertNoAllocation(LoggerType.BINARY);
+	}
+}
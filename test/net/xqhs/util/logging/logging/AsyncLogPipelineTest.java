@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.AsyncLogPipeline.WaitStrategy;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link AsyncLogPipeline}: ordering, a full ring, shutdown, and the idle consumer of
+ * {@link WaitStrategy#PARK}.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class AsyncLogPipelineTest
+{
+	static void waitFor(List<?> list, int size) throws InterruptedException
+	{
+		long deadline = System.currentTimeMillis() + 10000;
+		while(list.size() < size && System.currentTimeMillis() < deadline)
+			Thread.sleep(1);
+	}
+	
+	@Test
+	public void messagesOfEachProducerAreDeliveredInOrder() throws InterruptedException
+	{
+		AsyncLogPipeline pipeline = new AsyncLogPipeline(64, 1, WaitStrategy.PARK);
+		RecordingLog log = new RecordingLog();
+		final AsyncLogWrapper async = new AsyncLogWrapper(log, pipeline);
+		final int producers = 4, count = 2000;
+		Thread[] threads = new Thread[producers];
+		for(int t = 0; t < producers; t++)
+		{
+			final int id = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run()
+				{
+					for(int i = 0; i < count; i++)
+						async.l(Level.INFO, "[] []", new Object[] { Integer.valueOf(id), Integer.valueOf(i) });
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread thread : threads)
+			thread.join();
+		async.flush();
+		assertEquals(producers * count, log.messages.size());
+		int[] next = new int[producers];
+		for(String message : log.messages)
+		{
+			String[] parts = message.replaceAll("[\\[\\]]", "").split(" ");
+			int id = Integer.parseInt(parts[0]);
+			assertEquals(next[id]++, Integer.parseInt(parts[1]));
+		}
+		pipeline.shutdown();
+	}
+	
+	@Test
+	public void producersWaitWhileTheRingIsFull() throws InterruptedException
+	{
+		AsyncLogPipeline pipeline = new AsyncLogPipeline(2, 1, WaitStrategy.PARK);
+		RecordingLog log = new RecordingLog();
+		log.hold = new CountDownLatch(1);
+		final AsyncLogWrapper async = new AsyncLogWrapper(log, pipeline);
+		final CountDownLatch posted = new CountDownLatch(1);
+		Thread producer = new Thread() {
+			@Override
+			public void run()
+			{
+				for(int i = 0; i < 10; i++)
+					async.l(Level.INFO, "m" + i);
+				posted.countDown();
+			}
+		};
+		producer.start();
+		assertFalse("producer should wait for the consumer", posted.await(200, TimeUnit.MILLISECONDS));
+		log.hold.countDown();
+		assertTrue(posted.await(10, TimeUnit.SECONDS));
+		async.flush();
+		assertEquals(10, log.messages.size());
+		for(int i = 0; i < 10; i++)
+			assertEquals("m" + i, log.messages.get(i));
+		pipeline.shutdown();
+	}
+	
+	@Test
+	public void shutdownDeliversPendingEventsAndLaterEventsAreDeliveredDirectly() throws InterruptedException
+	{
+		AsyncLogPipeline pipeline = new AsyncLogPipeline(1024, 1, WaitStrategy.YIELD);
+		RecordingLog log = new RecordingLog();
+		AsyncLogWrapper async = new AsyncLogWrapper(log, pipeline);
+		for(int i = 0; i < 500; i++)
+			async.l(Level.INFO, "m" + i);
+		pipeline.shutdown();
+		assertEquals(500, log.messages.size());
+		
+		async.l(Level.INFO, "after");
+		assertEquals(501, log.messages.size());
+		assertEquals(Thread.currentThread(), log.threads.get(500));
+		async.exit();
+		assertTrue(log.exited);
+	}
+	
+	@Test(timeout = 20000)
+	public void producerWaitingOnAFullRingReturnsAfterShutdown() throws InterruptedException
+	{
+		final AsyncLogPipeline pipeline = new AsyncLogPipeline(1, 1, WaitStrategy.PARK);
+		final RecordingLog log = new RecordingLog() {
+			@Override
+			public void l(Level level, String message)
+			{
+				super.l(level, message);
+				if("first".equals(message))
+					// the consumer stops without consuming the event
+					throw new Error("consumer stopped");
+			}
+		};
+		log.hold = new CountDownLatch(1);
+		final AsyncLogWrapper async = new AsyncLogWrapper(log, pipeline);
+		final Thread consumer = pipeline.rings[0].consumer;
+		consumer.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+			@Override
+			public void uncaughtException(Thread t, Throwable e)
+			{
+				// expected
+			}
+		});
+		async.l(Level.INFO, "first");
+		Thread producer = new Thread() {
+			@Override
+			public void run()
+			{
+				// the ring (of capacity 1) is full while the consumer is held
+				async.l(Level.INFO, "second");
+			}
+		};
+		producer.start();
+		Thread.sleep(100);
+		assertTrue(producer.isAlive());
+		Thread stopper = new Thread() {
+			@Override
+			public void run()
+			{
+				pipeline.shutdown();
+			}
+		};
+		stopper.start();
+		while(pipeline.running)
+			Thread.sleep(1);
+		log.hold.countDown();
+		consumer.join();
+		producer.join();
+		stopper.join();
+		assertEquals(2, log.messages.size());
+		assertEquals("second", log.messages.get(1));
+		assertEquals(producer, log.threads.get(1));
+	}
+	
+	@Test
+	public void idleParkingConsumerWaitsWithoutTimeoutAndIsWokenByProducers() throws InterruptedException
+	{
+		AsyncLogPipeline pipeline = new AsyncLogPipeline(64, 1, WaitStrategy.PARK);
+		RecordingLog log = new RecordingLog();
+		AsyncLogWrapper async = new AsyncLogWrapper(log, pipeline);
+		Thread consumer = pipeline.rings[0].consumer;
+		for(int round = 0; round < 20; round++)
+		{
+			long deadline = System.currentTimeMillis() + 5000;
+			while(consumer.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline)
+				Thread.sleep(1);
+			assertEquals(Thread.State.WAITING, consumer.getState());
+			assertTrue(pipeline.rings[0].idle);
+			async.l(Level.INFO, "m" + round);
+			waitFor(log.messages, round + 1);
+			assertEquals(round + 1, log.messages.size());
+		}
+		pipeline.shutdown();
+		assertFalse(consumer.isAlive());
+	}
+}
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CollapsingLogWrapper}: posting the number of repetitions when a different message arrives, after
+ * the timeout, and when the log exits.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class CollapsingLogWrapperTest
+{
+	final RecordingLog		log			= new RecordingLog();
+	CollapsingLogWrapper	collapsing	= null;
+	
+	@After
+	public void tearDown()
+	{
+		if(collapsing != null)
+			collapsing.exit();
+	}
+	
+	@Test
+	public void repetitionsAreCountedUntilADifferentMessage()
+	{
+		collapsing = new CollapsingLogWrapper(log, "test", 60000);
+		for(int i = 0; i < 4; i++)
+			collapsing.l(Level.INFO, "same");
+		collapsing.l(Level.WARN, "same");
+		collapsing.l(Level.WARN, "other");
+		assertEquals(Arrays.asList("INFO same", "INFO last message repeated [3] times", "WARN same", "WARN other"),
+				log.withLevels());
+	}
+	
+	@Test
+	public void primitiveArgumentsAreComparedByValueEvenIfTheHolderIsReused()
+	{
+		collapsing = new CollapsingLogWrapper(log, "test", 60000);
+		PrimitiveArgument holder = new PrimitiveArgument();
+		Object[] arguments = new Object[] { holder };
+		collapsing.l(Level.INFO, "value []", new Object[] { holder.set(1) });
+		collapsing.l(Level.INFO, "value []", arguments);
+		holder.set(2);
+		collapsing.l(Level.INFO, "value []", arguments);
+		collapsing.l(Level.INFO, "value []", new Object[] { Integer.valueOf(2) });
+		assertEquals(Arrays.asList("INFO value [1]", "INFO last message repeated [1] times", "INFO value [2]",
+				"INFO value [2]"), log.withLevels());
+	}
+	
+	@Test
+	public void countIsPostedAfterTheTimeoutAndCountingStartsAgain() throws Exception
+	{
+		collapsing = new CollapsingLogWrapper(log, "test", 50);
+		for(int i = 0; i < 3; i++)
+			collapsing.l(Level.INFO, "same");
+		for(int i = 0; (i < 200) && (log.messages.size() < 2); i++)
+			Thread.sleep(10);
+		assertEquals(Arrays.asList("INFO same", "INFO last message repeated [2] times"), log.withLevels());
+		
+		collapsing.l(Level.INFO, "same");
+		collapsing.l(Level.INFO, "same");
+		collapsing.exit();
+		collapsing = null;
+		assertEquals("INFO last message repeated [2] times", log.withLevels().get(2));
+		assertEquals(3, log.messages.size());
+		assertTrue(log.exited);
+	}
+	
+	@Test
+	public void countIsNotPostedBeforeTheTimeout() throws Exception
+	{
+		collapsing = new CollapsingLogWrapper(log, "test", 60000);
+		collapsing.l(Level.INFO, "same");
+		collapsing.l(Level.INFO, "same");
+		Thread.sleep(100);
+		assertEquals(1, log.messages.size());
+		collapsing.flush();
+		assertEquals(Arrays.asList("INFO same", "INFO last message repeated [1] times"), log.withLevels());
+		collapsing.flush();
+		assertEquals(2, log.messages.size());
+	}
+}
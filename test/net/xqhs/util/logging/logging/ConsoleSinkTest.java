@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ConsoleSink}: flushing and closing do not lose bytes that have been appended.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class ConsoleSinkTest
+{
+	/**
+	 * A channel collecting the bytes written to it, slowly, so that bytes accumulate in the sink.
+	 */
+	static class SlowChannel implements WritableByteChannel
+	{
+		final ByteArrayOutputStream	output	= new ByteArrayOutputStream();
+		
+		@Override
+		public int write(ByteBuffer src)
+		{
+			try
+			{
+				Thread.sleep(1);
+			} catch(InterruptedException e)
+			{
+				// continue
+			}
+			int size = src.remaining();
+			byte[] bytes = new byte[size];
+			src.get(bytes);
+			synchronized(output)
+			{
+				output.write(bytes, 0, size);
+			}
+			return size;
+		}
+		
+		@Override
+		public boolean isOpen()
+		{
+			return true;
+		}
+		
+		@Override
+		public void close()
+		{
+			// nothing to close
+		}
+		
+		String contents()
+		{
+			synchronized(output)
+			{
+				return new String(output.toByteArray());
+			}
+		}
+	}
+	
+	final SlowChannel	channel	= new SlowChannel();
+	
+	@Test
+	public void flushWaitsForPendingBytes()
+	{
+		ConsoleSink sink = new ConsoleSink(channel, 1024, 60000);
+		assertTrue(sink.write("abc\n".getBytes(), 0, 4));
+		assertEquals("", channel.contents());
+		sink.flush();
+		assertEquals("abc\n", channel.contents());
+		sink.close();
+	}
+	
+	@Test
+	public void closeWritesPendingBytesAndRejectsLaterWrites()
+	{
+		ConsoleSink sink = new ConsoleSink(channel, 1024, 60000);
+		sink.write("abc\n".getBytes(), 0, 4);
+		sink.close();
+		assertEquals("abc\n", channel.contents());
+		assertFalse(sink.write("def\n".getBytes(), 0, 4));
+		sink.flush();
+		assertEquals("abc\n", channel.contents());
+	}
+	
+	@Test
+	public void closeDuringConcurrentWritesLosesNothing() throws Exception
+	{
+		final ConsoleSink sink = new ConsoleSink(channel, 64, 60000);
+		final AtomicLong accepted = new AtomicLong();
+		final byte[] line = "0123456789abcdefghij\n".getBytes();
+		Thread[] threads = new Thread[4];
+		for(int t = 0; t < threads.length; t++)
+		{
+			threads[t] = new Thread() {
+				@Override
+				public void run()
+				{
+					while(sink.write(line, 0, line.length))
+					{
+						accepted.incrementAndGet();
+						if(accepted.get() % 10 == 0)
+							sink.flush();
+					}
+				}
+			};
+			threads[t].start();
+		}
+		Thread.sleep(100);
+		sink.close();
+		for(Thread thread : threads)
+			thread.join();
+		String contents = channel.contents();
+		assertTrue(accepted.get() > 0);
+		assertEquals(accepted.get() * line.length, contents.length());
+		for(String written : contents.split("\n"))
+			assertEquals("0123456789abcdefghij", written);
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link LogArchiver}: the order of archives when enforcing retention limits, and the parallel compression
+ * of segments.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class LogArchiverTest
+{
+	static final Pattern	NAMES	= Pattern.compile("x-\\d{8}-\\d{6}-\\d{3}(-\\d+)?\\.log(\\.gz)?");
+	
+	@Rule
+	public TemporaryFolder	folder	= new TemporaryFolder();
+	
+	File create(String name, int size) throws IOException
+	{
+		File file = new File(folder.getRoot(), name);
+		FileOutputStream output = new FileOutputStream(file);
+		try
+		{
+			output.write(new byte[size]);
+		} finally
+		{
+			output.close();
+		}
+		return file;
+	}
+	
+	String[] remaining()
+	{
+		String[] names = folder.getRoot().list();
+		Arrays.sort(names);
+		return names;
+	}
+	
+	@Test
+	public void archivesAreOrderedByTimeStampThenBySequenceNumber()
+	{
+		String[] names = { "x-20260101-000001-000-10.log", "x-20260101-000001-000.log.gz",
+				"x-20260101-000001-000-2.log.gz", "x-20260101-000000-999.log", "x-20260101-000001-000-1.log" };
+		Arrays.sort(names, LogArchiver.Retention.ARCHIVE_ORDER);
+		assertEquals(Arrays.asList("x-20260101-000000-999.log", "x-20260101-000001-000.log.gz",
+				"x-20260101-000001-000-1.log", "x-20260101-000001-000-2.log.gz", "x-20260101-000001-000-10.log"),
+				Arrays.asList(names));
+	}
+	
+	@Test
+	public void retentionByCountKeepsTheNewestArchives() throws IOException
+	{
+		create("x-20260101-000000-999.log.gz", 10);
+		create("x-20260101-000001-000.log", 10);
+		create("x-20260101-000001-000-1.log.gz", 10);
+		create("x-20260101-000001-000-2.log", 10);
+		create("x-20260101-000001-000-10.log.gz", 10);
+		create("x.log", 10);
+		new LogArchiver.Retention(folder.getRoot(), NAMES, 3, 0).enforce();
+		assertEquals(Arrays.asList("x-20260101-000001-000-1.log.gz", "x-20260101-000001-000-10.log.gz",
+				"x-20260101-000001-000-2.log", "x.log"), Arrays.asList(remaining()));
+	}
+	
+	@Test
+	public void retentionBySizeKeepsTheNewestArchivesThatFit() throws IOException
+	{
+		create("x-20260101-000000-000.log", 10);
+		create("x-20260101-000001-000.log", 30);
+		create("x-20260101-000002-000.log", 20);
+		create("x-20260101-000003-000.log", 20);
+		new LogArchiver.Retention(folder.getRoot(), NAMES, 0, 50).enforce();
+		// the archive of 30 bytes does not fit, but the older, smaller one does
+		assertEquals(Arrays.asList("x-20260101-000000-000.log", "x-20260101-000002-000.log",
+				"x-20260101-000003-000.log"), Arrays.asList(remaining()));
+	}
+	
+	@Test
+	public void compressedSegmentContainsTheWholeSegment() throws Exception
+	{
+		byte[] content = new byte[LogArchiver.BLOCK_SIZE * 5 / 2];
+		Random random = new Random(1);
+		for(int i = 0; i < content.length; i++)
+			content[i] = (byte) ('a' + random.nextInt(4));
+		File segment = new File(folder.getRoot(), "x-20260101-000000-000.log");
+		FileOutputStream output = new FileOutputStream(segment);
+		output.write(content);
+		output.close();
+		
+		LogArchiver archiver = new LogArchiver(2);
+		archiver.archive(segment, true, null);
+		archiver.coordinator.shutdown();
+		assertTrue(archiver.coordinator.awaitTermination(30, TimeUnit.SECONDS));
+		
+		assertFalse(segment.exists());
+		assertEquals(Arrays.asList("x-20260101-000000-000.log.gz"), Arrays.asList(remaining()));
+		InputStream input = new GZIPInputStream(new FileInputStream(new File(folder.getRoot(),
+				"x-20260101-000000-000.log.gz")));
+		ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int n;
+		while((n = input.read(buffer)) > 0)
+			decompressed.write(buffer, 0, n);
+		input.close();
+		assertTrue(Arrays.equals(content, decompressed.toByteArray()));
+	}
+}
@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.xqhs.util.logging.LogSettings;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LogLimiter}: admission by the rate limits (the generic cell rate algorithm), sampling, and the
+ * summaries of suppressed messages.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class LogLimiterTest
+{
+	@Test
+	public void burstIsAdmittedThenMessagesAreAdmittedAtTheRate() throws Exception
+	{
+		LogLimiter limiter = new LogLimiter(new LogSettings().setRateLimit(Level.INFO, 10, 5), new RecordingLog());
+		for(int i = 0; i < 5; i++)
+			assertTrue(limiter.admit(Level.INFO, "message"));
+		assertFalse(limiter.admit(Level.INFO, "message"));
+		assertFalse(limiter.admit(Level.TRACE, "message"));
+		assertEquals(2, limiter.getSuppressed());
+		// levels above the limit are not limited
+		assertTrue(limiter.admit(Level.WARN, "message"));
+		
+		Thread.sleep(150);
+		assertTrue(limiter.admit(Level.INFO, "message"));
+		assertFalse(limiter.admit(Level.INFO, "message"));
+	}
+	
+	@Test
+	public void concurrentThreadsShareTheBurst() throws Exception
+	{
+		final LogLimiter limiter = new LogLimiter(new LogSettings().setRateLimit(Level.INFO, 0.001, 100),
+				new RecordingLog());
+		final AtomicInteger admitted = new AtomicInteger(0);
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[8];
+		for(int t = 0; t < threads.length; t++)
+		{
+			threads[t] = new Thread() {
+				@Override
+				public void run()
+				{
+					try
+					{
+						start.await();
+					} catch(InterruptedException e)
+					{
+						return;
+					}
+					for(int i = 0; i < 1000; i++)
+						if(limiter.admit(Level.INFO, "message"))
+							admitted.incrementAndGet();
+				}
+			};
+			threads[t].start();
+		}
+		start.countDown();
+		for(Thread thread : threads)
+			thread.join();
+		assertEquals(100, admitted.get());
+		assertEquals(8000 - 100, limiter.getSuppressed());
+	}
+	
+	@Test
+	public void templatesAreLimitedIndividuallyAndSummarized()
+	{
+		RecordingLog log = new RecordingLog();
+		LogLimiter limiter = new LogLimiter(new LogSettings().setTemplateRateLimit(Level.INFO, 0.001, 1), log);
+		assertTrue(limiter.admit(Level.INFO, "first []"));
+		assertFalse(limiter.admit(Level.INFO, "first []"));
+		assertFalse(limiter.admit(Level.INFO, "first []"));
+		assertTrue(limiter.admit(Level.INFO, "second []"));
+		assertTrue(limiter.isPending());
+		
+		limiter.run();
+		assertFalse(limiter.isPending());
+		assertEquals(1, log.messages.size());
+		assertEquals("[2] messages suppressed for template [[first []]]", log.messages.get(0));
+		limiter.run();
+		assertEquals(1, log.messages.size());
+	}
+	
+	@Test
+	public void samplingKeepsOneInN()
+	{
+		LogLimiter limiter = new LogLimiter(new LogSettings().setSampling(Level.TRACE, 3), new RecordingLog());
+		int admitted = 0;
+		for(int i = 0; i < 30; i++)
+			if(limiter.admit(Level.TRACE, "message"))
+				admitted++;
+		assertEquals(10, admitted);
+		assertTrue(limiter.admit(Level.INFO, "message"));
+	}
+	
+	@Test
+	public void samplingByProbabilityKeepsTheExpectedShare()
+	{
+		LogLimiter limiter = new LogLimiter(new LogSettings().setSamplingProbability(Level.TRACE, 0.25),
+				new RecordingLog());
+		int admitted = 0;
+		for(int i = 0; i < 40000; i++)
+			if(limiter.admit(Level.TRACE, "message"))
+				admitted++;
+		assertTrue("admitted: " + admitted, (admitted > 9000) && (admitted < 11000));
+	}
+}
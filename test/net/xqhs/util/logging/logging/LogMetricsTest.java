@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
+import net.xqhs.util.logging.wrappers.BinaryLogWrapper;
+import net.xqhs.util.logging.wrappers.FileChannelWrapper;
+import net.xqhs.util.logging.wrappers.FileChannelWrapper.SyncPolicy;
+import net.xqhs.util.logging.wrappers.MappedFileWrapper;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link LogMetrics}: the bytes written by the wrappers to the console and to files are counted.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class LogMetricsTest
+{
+	@Rule
+	public TemporaryFolder	folder	= new TemporaryFolder();
+	
+	String					logName	= null;
+	
+	@After
+	public void tearDown()
+	{
+		if(logName != null)
+			Logging.exitLogger(logName);
+		MappedFileWrapper.configure(MappedFileWrapper.DEFAULT_DIRECTORY, MappedFileWrapper.DEFAULT_SEGMENT_SIZE);
+		FileChannelWrapper.configure(FileChannelWrapper.DEFAULT_DIRECTORY, SyncPolicy.NEVER,
+				FileChannelWrapper.DEFAULT_SYNC_PERIOD, FileChannelWrapper.DEFAULT_BUFFER_SIZE);
+	}
+	
+	LogWrapper create(String name, LoggerType type) throws ClassNotFoundException
+	{
+		logName = name;
+		return Logging.getLogger(name, null, null, null, true, type.getClassName(), Level.ALL);
+	}
+	
+	@Test
+	public void consoleBytesAreCountedForConsoleLogs() throws Exception
+	{
+		PrintStream out = System.out;
+		ByteArrayOutputStream console = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(console, true));
+		try
+		{
+			LogWrapper log = create("metrics-console", LoggerType.CONSOLE);
+			for(int i = 0; i < 10; i++)
+				log.l(Level.INFO, "message " + i);
+		} finally
+		{
+			System.setOut(out);
+		}
+		// the console also contains the messages of the master log
+		long own = 0;
+		for(String line : console.toString().split("(?<=\n)"))
+			if(line.contains("[" + logName + "]: "))
+				own += line.length();
+		assertTrue(own > 0);
+		assertEquals(own, Logging.getMetrics(logName).getConsoleBytes());
+		assertEquals(0, Logging.getMetrics(logName).getFileBytes());
+	}
+	
+	@Test
+	public void fileBytesAreCountedForMappedFileLogs() throws Exception
+	{
+		MappedFileWrapper.configure(folder.getRoot().getPath(), 4096);
+		LogWrapper log = create("metrics-mapped", LoggerType.MAPPED_FILE);
+		long created = Logging.getMetrics(logName).getFileBytes();
+		log.l(Level.INFO, "first");
+		long first = Logging.getMetrics(logName).getFileBytes() - created;
+		assertTrue(first > 0);
+		// each of these messages is longer than the first; they fill more than one segment
+		for(int i = 0; i < 100; i++)
+			log.l(Level.INFO, "message " + i);
+		assertTrue(Logging.getMetrics(logName).getFileBytes() - created > 100 * first);
+		assertEquals(0, Logging.getMetrics(logName).getConsoleBytes());
+	}
+	
+	@Test
+	public void fileBytesAreCountedForFileChannelLogs() throws Exception
+	{
+		FileChannelWrapper.configure(folder.getRoot().getPath(), SyncPolicy.NEVER, 0, 1024);
+		LogWrapper log = create("metrics-channel", LoggerType.FILE_CHANNEL);
+		for(int i = 0; i < 100; i++)
+			log.l(Level.INFO, "message " + i);
+		File file = new File(folder.getRoot(), "metrics_channel" + FileChannelWrapper.FILE_EXTENSION);
+		for(int i = 0; (i < 200) && (Logging.getMetrics(logName).getFileBytes() < file.length()
+				|| file.length() == 0); i++)
+			Thread.sleep(10);
+		assertTrue(file.length() > 0);
+		assertEquals(file.length(), Logging.getMetrics(logName).getFileBytes());
+	}
+	
+	@Test
+	public void fileBytesAreCountedForBinaryLogs() throws Exception
+	{
+		BinaryLogWrapper.configure(new ByteArrayOutputStream());
+		LogWrapper log = create("metrics-binary", LoggerType.BINARY);
+		log.l(Level.INFO, "value []", new Object[] { Integer.valueOf(1) });
+		assertTrue(Logging.getMetrics(logName).getFileBytes() > 0);
+	}
+}
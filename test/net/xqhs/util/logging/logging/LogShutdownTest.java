@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LogShutdown}: draining actions run before flushing actions, and errors do not stop the sequence.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class LogShutdownTest
+{
+	final List<String>		order	= new ArrayList<String>();
+	// the actions registered by other classes, put back after the test
+	final List<Runnable>	drain	= new ArrayList<Runnable>(LogShutdown.drainActions);
+	final List<Runnable>	flush	= new ArrayList<Runnable>(LogShutdown.flushActions);
+	
+	void register(LogShutdown.Stage stage, final String name, final boolean fail)
+	{
+		Runnable action = new Runnable() {
+			@Override
+			public void run()
+			{
+				order.add(name);
+				if(fail)
+					throw new IllegalStateException("failed: " + name);
+			}
+		};
+		LogShutdown.register(stage, action);
+	}
+	
+	@After
+	public void tearDown()
+	{
+		LogShutdown.drainActions.clear();
+		LogShutdown.drainActions.addAll(drain);
+		LogShutdown.flushActions.clear();
+		LogShutdown.flushActions.addAll(flush);
+	}
+	
+	@Test
+	public void drainActionsRunBeforeFlushActions()
+	{
+		LogShutdown.drainActions.clear();
+		LogShutdown.flushActions.clear();
+		register(LogShutdown.Stage.FLUSH, "sink", false);
+		register(LogShutdown.Stage.DRAIN, "pipeline", true);
+		register(LogShutdown.Stage.FLUSH, "file", false);
+		register(LogShutdown.Stage.DRAIN, "buffers", false);
+		LogShutdown.runSequence();
+		assertEquals(Arrays.asList("pipeline", "buffers", "sink", "file"), order);
+	}
+}
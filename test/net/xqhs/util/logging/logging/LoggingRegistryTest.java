@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import net.xqhs.util.logging.logging.LogWrapper.LoggerType;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for the registry of logs in {@link Logging}: concurrent creation, and the linking of children to parents.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class LoggingRegistryTest
+{
+	static final String	WRAPPER	= LoggerType.CONSOLE.getClassName();
+	
+	/**
+	 * Runs the task in the given number of threads, all starting at the same time.
+	 */
+	static void runConcurrently(int threads, final Task task) throws Throwable
+	{
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread[] workers = new Thread[threads];
+		for(int t = 0; t < threads; t++)
+		{
+			final int id = t;
+			workers[t] = new Thread() {
+				@Override
+				public void run()
+				{
+					try
+					{
+						start.await();
+						task.run(id);
+					} catch(Throwable e)
+					{
+						failure.compareAndSet(null, e);
+					}
+				}
+			};
+			workers[t].start();
+		}
+		start.countDown();
+		for(Thread worker : workers)
+			worker.join();
+		if(failure.get() != null)
+			throw failure.get();
+	}
+	
+	interface Task
+	{
+		void run(int id) throws Exception;
+	}
+	
+	/**
+	 * @return the number of logs, except for the master log.
+	 */
+	static int countLogs()
+	{
+		return Logging.logs.size() - (Logging.logs.containsKey(Logging.masterLogName) ? 1 : 0);
+	}
+	
+	@After
+	public void tearDown()
+	{
+		for(String name : Logging.logs.keySet())
+			if(!name.equals(Logging.masterLogName))
+				try
+				{
+					Logging.exitLogger(name);
+				} catch(IllegalArgumentException e)
+				{
+					// exited with its parent
+				}
+	}
+	
+	@Test
+	public void concurrentRequestsForTheSameNameGetTheSameLog() throws Throwable
+	{
+		final LogWrapper[] results = new LogWrapper[8];
+		runConcurrently(results.length, new Task() {
+			@Override
+			public void run(int id) throws Exception
+			{
+				results[id] = Logging.getLogger("same", null, null, null, false, WRAPPER, null);
+			}
+		});
+		for(LogWrapper result : results)
+			assertSame(results[0], result);
+		assertEquals(1, countLogs());
+	}
+	
+	@Test
+	public void childrenCreatedConcurrentlyAreClosedWithTheirParent() throws Throwable
+	{
+		Logging.getLogger("parent", null, null, null, true, WRAPPER, null);
+		runConcurrently(8, new Task() {
+			@Override
+			public void run(int id) throws Exception
+			{
+				for(int i = 0; i < 25; i++)
+					Logging.getLogger("child-" + id + "-" + i, "parent", null, null, true, WRAPPER, null);
+			}
+		});
+		assertEquals(201, countLogs());
+		assertEquals(200, Logging.children.get("parent").size());
+		
+		Logging.exitLogger("parent");
+		assertEquals(0, countLogs());
+		assertTrue(Logging.parents.isEmpty());
+		assertTrue(Logging.children.isEmpty());
+	}
+	
+	@Test
+	public void childRegisteredBeforeItsParentIsClosedWithIt() throws Throwable
+	{
+		Logging.getLogger("early-child", "late-parent", null, null, true, WRAPPER, null);
+		Logging.getLogger("late-parent", null, null, null, true, WRAPPER, null);
+		Logging.exitLogger("late-parent");
+		assertFalse(Logging.logs.containsKey("early-child"));
+	}
+	
+	@Test
+	public void childrenExitingConcurrentlyWithTheirParentLeaveNoLinks() throws Throwable
+	{
+		for(int round = 0; round < 20; round++)
+		{
+			Logging.getLogger("parent", null, null, null, true, WRAPPER, null);
+			for(int i = 0; i < 8; i++)
+				Logging.getLogger("child-" + i, "parent", null, null, true, WRAPPER, null);
+			runConcurrently(9, new Task() {
+				@Override
+				public void run(int id) throws Exception
+				{
+					try
+					{
+						Logging.exitLogger((id == 8) ? "parent" : ("child-" + id));
+					} catch(IllegalArgumentException e)
+					{
+						// already closed by the parent
+					}
+				}
+			});
+			assertEquals(0, countLogs());
+			assertTrue(Logging.parents.isEmpty());
+			assertNull(Logging.children.get("parent"));
+		}
+	}
+	
+	@Test
+	public void logRecreatedWhileExitingHasItsMetricsRegistered() throws Throwable
+	{
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName metrics = new ObjectName(LogMetrics.DOMAIN + ":type=Log,name=" + ObjectName.quote("reused"));
+		for(int round = 0; round < 200; round++)
+		{
+			Logging.getLogger("reused", null, null, null, true, WRAPPER, null);
+			runConcurrently(2, new Task() {
+				@Override
+				public void run(int id) throws Exception
+				{
+					if(id == 0)
+						Logging.exitLogger("reused");
+					else
+						Logging.getLogger("reused", null, null, null, false, WRAPPER, null);
+				}
+			});
+			assertEquals(Boolean.valueOf(Logging.logs.containsKey("reused")),
+					Boolean.valueOf(server.isRegistered(metrics)));
+			if(Logging.logs.containsKey("reused"))
+				Logging.exitLogger("reused");
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import net.xqhs.util.logging.ArgumentSupplier;
+import net.xqhs.util.logging.LoggerSimple;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link MessageTemplate}: rendering a table of messages and arguments, including missing and extra
+ * arguments, in the same way as the composition that was done in {@link net.xqhs.util.logging.Unit} before the
+ * templates were compiled.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class MessageTemplateTest
+{
+	static final ArgumentSupplier SUPPLIER = new ArgumentSupplier() {
+		@Override
+		public Object get()
+		{
+			return "supplied";
+		}
+	};
+	
+	/**
+	 * Each row is a message followed by its arguments.
+	 */
+	static final Object[][] TABLE = {
+			{ "no placeholders" },
+			{ "no placeholders", "extra" },
+			{ "no placeholders", "extra", Integer.valueOf(2) },
+			{ "one [] placeholder", "a" },
+			{ "one [] placeholder" },
+			{ "one [] placeholder", "a", "extra" },
+			{ "[] at the start", "a" },
+			{ "at the end []", "a" },
+			{ "[]", "a" },
+			{ "[][]", "a", "b" },
+			{ "[][]", "a" },
+			{ "two [] and [] placeholders", "a", "b" },
+			{ "two [] and [] placeholders", "a" },
+			{ "two [] and [] placeholders", "a", "b", "c", "d" },
+			{ "three [], [], [].", "a" },
+			{ "three [], [], [].", "a", "b" },
+			{ "not [ a ] placeholder [", "a" },
+			{ "nested [[]]", "a" },
+			{ "empty []", "" },
+			{ "null []", null },
+			{ "null [] and []", null, null, null },
+			{ "numbers [] [] [] []", Integer.valueOf(-7), Long.valueOf(Long.MIN_VALUE), Double.valueOf(0.1),
+					Double.valueOf(Double.NaN) },
+			{ "boolean [] and char []", Boolean.TRUE, Character.valueOf('c') },
+			{ "builder []", new StringBuilder("builder") },
+			{ "supplier [] extra", SUPPLIER, SUPPLIER }, };
+	
+	/**
+	 * The composition of messages as done in {@link net.xqhs.util.logging.Unit} before {@link MessageTemplate}.
+	 */
+	static String baselineCompose(String message, Object[] objects)
+	{
+		String[] parts = message.split(LoggerSimple.ARGUMENT_PLACEHOLDER, objects.length + 1);
+		// there are enough objects for all parts
+		// there may be more objects than parts
+		String ret = parts[0];
+		for(int i = 0; i < parts.length - 1; i++)
+		{
+			ret += LoggerSimple.ARGUMENT_BEGIN + objects[i] + LoggerSimple.ARGUMENT_END;
+			ret += parts[i + 1];
+		}
+		// deal with the rest of the objects
+		for(int i = parts.length - 1; i < objects.length; i++)
+			ret += LoggerSimple.ARGUMENT_BEGIN + objects[i] + LoggerSimple.ARGUMENT_END;
+		
+		return ret;
+	}
+	
+	@Test
+	public void renderingMatchesTheBaselineComposition()
+	{
+		for(Object[] row : TABLE)
+		{
+			String message = (String) row[0];
+			Object[] arguments = new Object[row.length - 1];
+			Object[] resolved = new Object[row.length - 1];
+			for(int i = 0; i < arguments.length; i++)
+			{
+				arguments[i] = row[i + 1];
+				resolved[i] = MessageTemplate.resolve(arguments[i]);
+			}
+			String expected = baselineCompose(message, resolved);
+			assertEquals(message, expected, MessageTemplate.compose(message, arguments));
+			assertEquals(message, expected, MessageTemplate.get(message).renderTo(new StringBuilder(), arguments)
+					.toString());
+		}
+	}
+	
+	@Test
+	public void extraArgumentsAreAppendedAndMissingOnesLeaveThePlaceholders()
+	{
+		assertEquals("one [a] placeholder[b][c]", MessageTemplate.compose("one [] placeholder", new Object[] { "a",
+				"b", "c" }));
+		assertEquals("two [a] and [] placeholders", MessageTemplate.compose("two [] and [] placeholders",
+				new Object[] { "a" }));
+		assertEquals("one [] placeholder", MessageTemplate.compose("one [] placeholder", new Object[0]));
+	}
+	
+	@Test
+	public void resolveReturnsTheSuppliedValueOrTheArgument()
+	{
+		assertEquals("supplied", MessageTemplate.resolve(SUPPLIER));
+		Object argument = new Object();
+		assertSame(argument, MessageTemplate.resolve(argument));
+		assertEquals(null, MessageTemplate.resolve(null));
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+/**
+ * Wrapper used by the tests in this package, which records the messages relayed to it, together with their level, the
+ * thread that posted them and the thread that delivered them. Delivery can be held by a latch.
+ * 
+ * @author Andrei Olaru
+ */
+class RecordingLog extends LogWrapper
+{
+	/**
+	 * The messages, with the arguments composed into the text.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	final List<String>		messages	= Collections.synchronizedList(new ArrayList<String>());
+	/**
+	 * The level of each message.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	final List<Level>		levels		= Collections.synchronizedList(new ArrayList<Level>());
+	/**
+	 * The thread that posted each message: the thread in the {@link LogRecord}, or the delivering thread for messages
+	 * that do not come as records.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	final List<Thread>		posters		= Collections.synchronizedList(new ArrayList<Thread>());
+	/**
+	 * The thread that delivered each message.
+	 */
+	@SuppressWarnings("unused")
+	// type arguments required by Java 1.6
+	final List<Thread>		threads		= Collections.synchronizedList(new ArrayList<Thread>());
+	/**
+	 * If not <code>null</code>, delivery waits for this latch.
+	 */
+	volatile CountDownLatch	hold		= null;
+	/**
+	 * <code>true</code> after {@link #exit()}.
+	 */
+	volatile boolean		exited		= false;
+	
+	@Override
+	public void setLevel(Level level)
+	{
+		// nothing to do
+	}
+	
+	@Override
+	protected void addDestination(String format, OutputStream destination)
+	{
+		// nothing to do
+	}
+	
+	@Override
+	public void l(Level level, String message)
+	{
+		record(level, message, Thread.currentThread());
+	}
+	
+	@Override
+	public void l(LogRecord record)
+	{
+		record(record.getLevel(), record.getArguments() == null ? record.getTemplate() : MessageTemplate.compose(
+				record.getTemplate(), record.getArguments()), record.getThread());
+	}
+	
+	@Override
+	public void exit()
+	{
+		exited = true;
+	}
+	
+	/**
+	 * Waits for the {@link #hold} latch, if any, and records the message.
+	 * 
+	 * @param level
+	 *            - the level of the message.
+	 * @param message
+	 *            - the text of the message.
+	 * @param poster
+	 *            - the thread that posted the message.
+	 */
+	protected void record(Level level, String message, Thread poster)
+	{
+		CountDownLatch latch = hold;
+		if(latch != null)
+			try
+			{
+				latch.await();
+			} catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		synchronized(messages)
+		{
+			levels.add(level);
+			posters.add(poster);
+			threads.add(Thread.currentThread());
+			messages.add(message);
+		}
+	}
+	
+	/**
+	 * @return the messages recorded so far, each preceded by its level, as "[level] [message]".
+	 */
+	List<String> withLevels()
+	{
+		List<String> result = new ArrayList<String>();
+		synchronized(messages)
+		{
+			for(int i = 0; i < messages.size(); i++)
+				result.add(levels.get(i) + " " + messages.get(i));
+		}
+		return result;
+	}
+	
+	/**
+	 * @return the messages recorded so far, each preceded by the name of the thread that posted it, as "[thread name]
+	 *         [message]".
+	 */
+	List<String> withPosters()
+	{
+		List<String> result = new ArrayList<String>();
+		synchronized(messages)
+		{
+			for(int i = 0; i < messages.size(); i++)
+				result.add(posters.get(i).getName() + " " + messages.get(i));
+		}
+		return result;
+	}
+}
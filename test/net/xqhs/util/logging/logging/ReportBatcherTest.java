@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import net.xqhs.util.logging.BatchReportingEntity;
+import net.xqhs.util.logging.LogSettings;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ReportBatcher}: the delays after failures, and sends started concurrently by the periodic run and
+ * by an explicit flush.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class ReportBatcherTest
+{
+	/**
+	 * An entity that records the batches it receives, and fails as long as {@link #failing} is set.
+	 */
+	static class RecordingEntity implements BatchReportingEntity
+	{
+		final List<String>	received	= Collections.synchronizedList(new ArrayList<String>());
+		volatile boolean	failing		= false;
+		
+		@Override
+		public boolean report(String content)
+		{
+			throw new UnsupportedOperationException();
+		}
+		
+		@Override
+		public boolean report(List<String> records)
+		{
+			if(failing)
+				return false;
+			received.addAll(records);
+			return true;
+		}
+	}
+	
+	final LogOutputStream	stream	= new LogOutputStream();
+	
+	ReportBatcher newBatcher(BatchReportingEntity entity, LogSettings settings)
+	{
+		ReportBatcher batcher = new ReportBatcher(entity, stream, settings);
+		stream.setRecordListener(batcher);
+		return batcher;
+	}
+	
+	void post(String record)
+	{
+		byte[] bytes = record.getBytes();
+		stream.write(bytes, 0, bytes.length);
+		stream.flush();
+	}
+	
+	@Test
+	public void delayAfterFailuresDoublesUpToTheMaximum() throws Exception
+	{
+		RecordingEntity entity = new RecordingEntity();
+		ReportBatcher batcher = newBatcher(entity,
+				new LogSettings().setReportBatching(1000, 1 << 20, 1).setReportBackoff(50, 150));
+		entity.failing = true;
+		post("first");
+		Thread.sleep(5);
+		
+		batcher.run();
+		assertEquals(1, batcher.getFailures());
+		assertEquals(50, batcher.backoff);
+		// suspended until the delay expires
+		assertFalse(batcher.isPending());
+		batcher.run();
+		assertEquals(1, batcher.getFailures());
+		
+		// a flush ignores the delay, and doubles it if it fails again
+		batcher.flush();
+		assertEquals(100, batcher.backoff);
+		batcher.flush();
+		assertEquals(150, batcher.backoff);
+		batcher.flush();
+		assertEquals(150, batcher.backoff);
+		assertEquals(4, batcher.getFailures());
+		
+		entity.failing = false;
+		Thread.sleep(200);
+		assertTrue(batcher.isPending());
+		batcher.run();
+		assertEquals(Collections.singletonList("first"), entity.received);
+		assertEquals(1, batcher.getReports());
+		assertEquals(0, batcher.backoff);
+		assertFalse(batcher.isPending());
+	}
+	
+	@Test
+	public void recordsBeyondTheBacklogAreDropped() throws Exception
+	{
+		RecordingEntity entity = new RecordingEntity();
+		ReportBatcher batcher = newBatcher(entity, new LogSettings().setReportBatching(1000, 1 << 20, 1)
+				.setReportBacklog(10));
+		post("aaaa");
+		post("bbbb");
+		post("cccc");
+		batcher.flush();
+		assertEquals(1, batcher.getDropped());
+		assertEquals(2, entity.received.size());
+		assertEquals("bbbb", entity.received.get(0));
+	}
+	
+	@Test
+	public void flushDuringARunSendsEachRecordOnce() throws Exception
+	{
+		final CountDownLatch entered = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final RecordingEntity entity = new RecordingEntity() {
+			@Override
+			public boolean report(List<String> records)
+			{
+				if(entered.getCount() > 0)
+				{
+					entered.countDown();
+					try
+					{
+						release.await();
+					} catch(InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+					}
+				}
+				return super.report(records);
+			}
+		};
+		final ReportBatcher batcher = newBatcher(entity, new LogSettings().setReportBatching(1000, 1 << 20, 1));
+		for(int i = 0; i < 10; i++)
+			post("record " + i);
+		Thread.sleep(5);
+		
+		Thread runner = new Thread() {
+			@Override
+			public void run()
+			{
+				batcher.run();
+			}
+		};
+		runner.start();
+		assertTrue(entered.await(10, TimeUnit.SECONDS));
+		Thread flusher = new Thread() {
+			@Override
+			public void run()
+			{
+				batcher.flush();
+			}
+		};
+		flusher.start();
+		Thread.sleep(50);
+		release.countDown();
+		runner.join();
+		flusher.join();
+		
+		assertEquals(10, entity.received.size());
+		for(int i = 0; i < 10; i++)
+			assertEquals("record " + i, entity.received.get(i));
+		assertEquals(1, batcher.getReports());
+	}
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+import net.xqhs.util.logging.LogSettings;
+import net.xqhs.util.logging.LoggerSimple.Level;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ThreadBufferedLogWrapper}: merging the messages of several threads in the order in which they were
+ * posted, copying arguments, growing and reusing buffers, and exiting.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class ThreadBufferedLogWrapperTest
+{
+	final RecordingLog			log			= new RecordingLog();
+	ThreadBufferedLogWrapper	buffered	= null;
+	
+	@After
+	public void tearDown()
+	{
+		if(buffered != null)
+			buffered.exit();
+	}
+	
+	/**
+	 * Posts one message from a new thread with the given name and waits for the thread to terminate.
+	 */
+	void postFrom(String name, final String message) throws InterruptedException
+	{
+		Thread thread = new Thread(name) {
+			@Override
+			public void run()
+			{
+				buffered.l(Level.INFO, message);
+			}
+		};
+		thread.start();
+		thread.join();
+	}
+	
+	@Test
+	public void messagesOfDifferentThreadsAreMergedInPostingOrder() throws Exception
+	{
+		buffered = new ThreadBufferedLogWrapper(log, "test", 64, 60000);
+		final int rounds = 20;
+		final Semaphore turnA = new Semaphore(1);
+		final Semaphore turnB = new Semaphore(0);
+		Thread a = new Thread("A") {
+			@Override
+			public void run()
+			{
+				for(int i = 0; i < rounds; i++)
+				{
+					turnA.acquireUninterruptibly();
+					buffered.l(Level.INFO, "a" + i);
+					turnB.release();
+				}
+			}
+		};
+		Thread b = new Thread("B") {
+			@Override
+			public void run()
+			{
+				for(int i = 0; i < rounds; i++)
+				{
+					turnB.acquireUninterruptibly();
+					buffered.l(Level.INFO, "b" + i);
+					turnA.release();
+				}
+			}
+		};
+		a.start();
+		b.start();
+		a.join();
+		b.join();
+		buffered.flush();
+		List<String> expected = new ArrayList<String>();
+		for(int i = 0; i < rounds; i++)
+		{
+			expected.add("A a" + i);
+			expected.add("B b" + i);
+		}
+		assertEquals(expected, log.withPosters());
+	}
+	
+	@Test
+	public void argumentsAreCopiedWhenPosted()
+	{
+		buffered = new ThreadBufferedLogWrapper(log, "test", 64, 60000);
+		PrimitiveArgument holder = new PrimitiveArgument();
+		Object[] arguments = new Object[] { holder, null };
+		for(int i = 1; i <= 3; i++)
+		{
+			holder.set(i);
+			arguments[1] = "s" + i;
+			buffered.l(Level.INFO, "value [] []", arguments);
+		}
+		buffered.l(new LogRecord().set(Level.WARN, "other", 0, Thread.currentThread(), "record []",
+				new Object[] { holder.set(4) }));
+		holder.set(5);
+		buffered.flush();
+		String name = Thread.currentThread().getName();
+		assertEquals(4, log.messages.size());
+		assertEquals(name + " value [1] [s1]", log.withPosters().get(0));
+		assertEquals(name + " value [3] [s3]", log.withPosters().get(2));
+		assertEquals(name + " record [4]", log.withPosters().get(3));
+	}
+	
+	@Test
+	public void fullBufferGrowsAndIsDrained()
+	{
+		buffered = new ThreadBufferedLogWrapper(log, "test", 64, 60000);
+		for(int i = 0; i < 1000; i++)
+			buffered.l(Level.INFO, "m" + i);
+		buffered.flush();
+		assertEquals(1000, log.messages.size());
+		for(int i = 0; i < 1000; i++)
+			assertTrue(log.withPosters().get(i).endsWith(" m" + i));
+		assertEquals(64, buffered.localBuffer.get().entries.length);
+	}
+	
+	@Test
+	public void buffersOfTerminatedThreadsAreRemovedAndReused() throws Exception
+	{
+		buffered = new ThreadBufferedLogWrapper(log, "test", 64, 60000);
+		int threads = ThreadBufferedLogWrapper.MAX_FREE_BUFFERS + 4;
+		for(int i = 0; i < threads; i++)
+			postFrom("T" + i, "m" + i);
+		assertEquals(threads, buffered.buffers.size());
+		buffered.flush();
+		assertEquals(threads, log.messages.size());
+		assertEquals("T0 m0", log.withPosters().get(0));
+		assertEquals(0, buffered.buffers.size());
+		assertEquals(ThreadBufferedLogWrapper.MAX_FREE_BUFFERS, buffered.free.size());
+		
+		postFrom("reused", "again");
+		assertEquals(ThreadBufferedLogWrapper.MAX_FREE_BUFFERS - 1, buffered.free.size());
+		buffered.flush();
+		assertEquals("reused again", log.withPosters().get(threads));
+		assertEquals(0, buffered.buffers.size());
+	}
+	
+	@Test
+	public void exitRelaysPendingMessages()
+	{
+		buffered = new ThreadBufferedLogWrapper(log, "test", 64, 60000);
+		for(int i = 0; i < 3; i++)
+			buffered.l(Level.INFO, "m" + i);
+		buffered.exit();
+		buffered = null;
+		assertEquals(3, log.messages.size());
+		assertTrue(log.exited);
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void logCannotBeBothAsynchronousAndThreadBuffered()
+	{
+		new LogSettings().setAsynchronous().setThreadBuffered();
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void logCannotBeBothThreadBufferedAndAsynchronous()
+	{
+		new LogSettings().setThreadBuffered().setAsynchronous();
+	}
+}
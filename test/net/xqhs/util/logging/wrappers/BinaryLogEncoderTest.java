@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.wrappers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.PrimitiveArgument;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link BinaryLogEncoder} and {@link BinaryLogDecoder}: round-trips, and the dictionaries after a message
+ * fails to be encoded or written.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class BinaryLogEncoderTest
+{
+	/**
+	 * An argument whose <code>toString()</code> method fails.
+	 */
+	static final Object	FAILING	= new Object() {
+									@Override
+									public String toString()
+									{
+										throw new IllegalStateException("cannot render");
+									}
+								};
+	
+	static List<BinaryLogDecoder.Message> decode(ByteArrayOutputStream bytes) throws IOException
+	{
+		return new BinaryLogDecoder(new ByteArrayInputStream(bytes.toByteArray())).readAll();
+	}
+	
+	@Test
+	public void messagesAreRestored() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinaryLogEncoder encoder = new BinaryLogEncoder(bytes);
+		encoder.encode(Level.INFO, "log", 1000, "value [] of []", new Object[] { new PrimitiveArgument().set(7), "x" });
+		encoder.encode(Level.WARN, "other", 2000, "plain", null);
+		encoder.encode(Level.ERROR, "log", 3000, "value [] of []", new Object[] { Long.valueOf(8), null });
+		List<BinaryLogDecoder.Message> messages = decode(bytes);
+		assertEquals(3, messages.size());
+		assertEquals("value [7] of [x]", messages.get(0).getText());
+		assertEquals("log", messages.get(0).logName);
+		assertEquals(1000, messages.get(0).time);
+		assertEquals("plain", messages.get(1).getText());
+		assertEquals(Level.WARN, messages.get(1).level);
+		assertEquals("value [8] of [null]", messages.get(2).getText());
+	}
+	
+	@Test
+	public void failedArgumentDoesNotLeaveUndefinedIds() throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinaryLogEncoder encoder = new BinaryLogEncoder(bytes);
+		try
+		{
+			encoder.encode(Level.INFO, "log", 1000, "value []", new Object[] { FAILING });
+			fail("exception expected");
+		} catch(IllegalStateException e)
+		{
+			// expected
+		}
+		encoder.encode(Level.INFO, "log", 2000, "value []", new Object[] { "ok" });
+		List<BinaryLogDecoder.Message> messages = decode(bytes);
+		assertEquals(1, messages.size());
+		assertEquals("value [ok]", messages.get(0).getText());
+		assertEquals("log", messages.get(0).logName);
+	}
+	
+	@Test
+	public void failedWriteDoesNotLeaveUndefinedIds() throws IOException
+	{
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final boolean[] failing = { false };
+		OutputStream destination = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException
+			{
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException
+			{
+				if(failing[0])
+					throw new IOException("cannot write");
+				bytes.write(b, off, len);
+			}
+		};
+		BinaryLogEncoder encoder = new BinaryLogEncoder(destination);
+		failing[0] = true;
+		try
+		{
+			encoder.encode(Level.INFO, "log", 1000, "value []", new Object[] { "lost" });
+			fail("exception expected");
+		} catch(IOException e)
+		{
+			// expected
+		}
+		failing[0] = false;
+		encoder.encode(Level.INFO, "log", 2000, "value []", new Object[] { "ok" });
+		List<BinaryLogDecoder.Message> messages = decode(bytes);
+		assertEquals(1, messages.size());
+		assertEquals("value [ok]", messages.get(0).getText());
+	}
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.wrappers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.wrappers.FileChannelWrapper.SyncPolicy;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link FileChannelWrapper}: rolling the file, failing to rename it, and reopening the channel after the
+ * writing thread has been interrupted.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class FileChannelWrapperTest
+{
+	@Rule
+	public TemporaryFolder	folder	= new TemporaryFolder();
+	
+	@Before
+	public void setUp()
+	{
+		FileChannelWrapper.configure(folder.getRoot().getPath(), SyncPolicy.NEVER, 0, 1024);
+	}
+	
+	@After
+	public void tearDown()
+	{
+		FileChannelWrapper.configure(FileChannelWrapper.DEFAULT_DIRECTORY, SyncPolicy.NEVER,
+				FileChannelWrapper.DEFAULT_SYNC_PERIOD, FileChannelWrapper.DEFAULT_BUFFER_SIZE);
+		FileChannelWrapper.configureRolling(0, 0, true, 0, 0);
+	}
+	
+	static String read(File file) throws IOException
+	{
+		InputStream input = new FileInputStream(file);
+		try
+		{
+			ByteArrayOutputStream content = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int n;
+			while((n = input.read(buffer)) > 0)
+				content.write(buffer, 0, n);
+			return new String(content.toByteArray(), "UTF-8");
+		} finally
+		{
+			input.close();
+		}
+	}
+	
+	static int count(String content, String part)
+	{
+		int n = 0;
+		for(int i = content.indexOf(part); i >= 0; i = content.indexOf(part, i + 1))
+			n++;
+		return n;
+	}
+	
+	/**
+	 * Posts messages one at a time, waiting for each to be written, so that the file is rolled between them.
+	 */
+	static void post(FileChannelWrapper log, int messages) throws InterruptedException
+	{
+		for(int i = 0; i < messages; i++)
+		{
+			log.l(Level.ERROR, "message " + i + " padded to exceed the limit of the file size");
+			Thread.sleep(3 * FileChannelWrapper.WRITE_DELAY);
+		}
+	}
+	
+	@Test
+	public void filesRolledBySizeAreRenamed() throws Exception
+	{
+		FileChannelWrapper.configureRolling(100, 0, false, 0, 0);
+		FileChannelWrapper log = new FileChannelWrapper("rolled");
+		post(log, 3);
+		log.exit();
+		
+		String all = "";
+		int archives = 0;
+		for(File file : folder.getRoot().listFiles())
+		{
+			if(!file.getName().equals("rolled" + FileChannelWrapper.FILE_EXTENSION))
+			{
+				assertTrue(file.getName(), file.getName().matches("rolled-\\d{8}-\\d{6}-\\d{3}(-\\d+)?\\.log"));
+				archives++;
+			}
+			all += read(file);
+		}
+		assertEquals(2, archives);
+		for(int i = 0; i < 3; i++)
+			assertEquals(1, count(all, "message " + i + " "));
+	}
+	
+	@Test
+	public void unsafeCharactersOfTheNameAreReplacedInFileNames() throws Exception
+	{
+		FileChannelWrapper.configureRolling(100, 0, false, 1, 0);
+		FileChannelWrapper log = new FileChannelWrapper("unsafe/log:name");
+		post(log, 3);
+		log.exit();
+		
+		// the retention of archives is enforced in the background
+		for(int i = 0; (i < 500) && (folder.getRoot().listFiles().length > 2); i++)
+			Thread.sleep(10);
+		File[] files = folder.getRoot().listFiles();
+		assertEquals(2, files.length);
+		for(File file : files)
+			assertTrue(file.getName(), file.getName().equals("unsafe_log_name" + FileChannelWrapper.FILE_EXTENSION)
+					|| file.getName().matches("unsafe_log_name-\\d{8}-\\d{6}-\\d{3}(-\\d+)?\\.log"));
+	}
+	
+	@Test
+	public void failedRenameContinuesInTheSameFileAndIsReportedOnce() throws Exception
+	{
+		FileChannelWrapper.configureRolling(100, 0, false, 0, 0);
+		final FileChannelWrapper log = new FileChannelWrapper("unrenamed");
+		final int[] attempts = new int[1];
+		log.file = new File(log.file.getPath()) {
+			private static final long	serialVersionUID	= 1L;
+			
+			@Override
+			public boolean renameTo(File destination)
+			{
+				attempts[0]++;
+				return false;
+			}
+		};
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		PrintStream systemErr = System.err;
+		System.setErr(new PrintStream(errors, true));
+		try
+		{
+			post(log, 6);
+			log.exit();
+		} finally
+		{
+			System.setErr(systemErr);
+		}
+		
+		assertEquals(1, folder.getRoot().listFiles().length);
+		String content = read(log.file);
+		for(int i = 0; i < 6; i++)
+			assertEquals(1, count(content, "message " + i + " "));
+		// an attempt every time the limit is exceeded again, not before every write
+		assertTrue("attempts: " + attempts[0], (attempts[0] >= 2) && (attempts[0] <= 5));
+		assertEquals(1, count(errors.toString(), "Unable to roll"));
+	}
+	
+	@Test
+	public void channelIsReopenedAfterTheWritingThreadIsInterrupted() throws Exception
+	{
+		FileChannelWrapper log = new FileChannelWrapper("interrupted");
+		ByteBuffer first = ByteBuffer.wrap("first line\n".getBytes("UTF-8"));
+		ByteBuffer second = ByteBuffer.wrap("second line\n".getBytes("UTF-8"));
+		
+		Thread.currentThread().interrupt();
+		log.writeAll(new ByteBuffer[] { first, second });
+		assertFalse(Thread.currentThread().isInterrupted());
+		assertTrue(log.channel.isOpen());
+		log.exit();
+		
+		assertEquals("first line\nsecond line\n", read(log.file));
+	}
+}
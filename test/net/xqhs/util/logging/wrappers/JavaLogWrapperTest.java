@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (C) 2015 Andrei Olaru.
+ * 
+ * This file is part of Logging.
+ * 
+ * Logging is free software: you can redistribute it and/or modify it under the terms of the GNU General Public License as published by the Free Software Foundation, either version 3 of the License, or any later version.
+ * 
+ * Logging is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License along with Logging.  If not, see <http://www.gnu.org/licenses/>.
+ ******************************************************************************/
+package net.xqhs.util.logging.wrappers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import net.xqhs.util.logging.LoggerSimple.Level;
+import net.xqhs.util.logging.logging.LogOutputStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link JavaLogWrapper}: each message reaches the destinations as committed content.
+ * 
+ * @author Andrei Olaru
+ */
+@SuppressWarnings("javadoc")
+public class JavaLogWrapperTest
+{
+	final JavaLogWrapper	log	= new JavaLogWrapper(JavaLogWrapperTest.class.getName());
+	
+	@After
+	public void tearDown()
+	{
+		log.exit();
+	}
+	
+	@Test
+	public void eachMessageIsCommittedToTheDestination()
+	{
+		LogOutputStream destination = new LogOutputStream();
+		log.setLevel(Level.ALL);
+		log.addDestination(null, destination);
+		log.l(Level.INFO, "first message");
+		long first = destination.committedSize();
+		assertTrue(first > 0);
+		assertEquals(destination.size(), first);
+		log.l(Level.WARN, "second message");
+		assertTrue(destination.committedSize() > first);
+		assertTrue(destination.toString().contains("second message"));
+	}
+}